@@ -15,6 +15,8 @@ public class opbtimercounter extends OPBDevice
   *  false - the interrupt is disabled.<br>
   *  true - the interrupt is enabled. */
  private boolean interrupt;
+ /** The last interrupt state returned by the operation cycle. */
+ private int interrupt_state;
  
  /** The read latency value of the device registers. */
  private int read_latency;
@@ -154,12 +156,18 @@ public class opbtimercounter extends OPBDevice
   int udt1;
   int arth0;
   int arth1;
+  long cycle;
+  
+  cycle = getCycle();				// counters after the previous cycle
+  tcr0.putTCR0(tcr0.getTCR0(cycle - 1));
+  tcr1.putTCR1(tcr1.getTCR1(cycle - 1));
   
   pwma0 = tcsr0.getPWMA0();
   pwma1 = tcsr1.getPWMA1();
   if(pwma0 == 1 &  pwma1 == 1)		// PWM mode
   {
    interrupt_aux = interrupt_signal();	  
+   interrupt_state = interrupt_aux;
    return interrupt_aux;
   }
 
@@ -315,9 +323,43 @@ public class opbtimercounter extends OPBDevice
   tlr0.update();
   tlr1.update();
   
+  if(tcsr0.getPWMA0() == 0 | tcsr1.getPWMA1() == 0)	// counters until the next cycle
+  {
+   if(tcsr0.getMDT0() == 0 && tcsr0.getENT0() == 1)
+	 tcr0.count(tcsr0.getUDT0() == 0 ? 1 : -1,cycle);
+   if(tcsr1.getMDT1() == 0 && tcsr1.getENT1() == 1 && tcsr1.getUDT1() == 1)
+	 tcr1.count(-1,cycle);
+  }
+  
+  interrupt_state = interrupt_aux;
   return interrupt_aux;
  }
  
+ /**
+  * Returns the cycle number where the device needs to perform the next operation cycle.
+  * The counters are computed from the cycle number when they are read, so the device only needs to be ticked when one counter expires,
+  * while one timer is loading, while a register has a value waiting to be updated and when the interrupt state changes.
+  * The up count of the timer1 also writes the TCR0 register, in this mode the device is ticked in all cycles.
+  *
+  * @param cycle the cycle number of the operation cycle performed.
+  * @return the cycle number of the next operation cycle.
+  * @see system.opb_device.OPBDevice#getNextCycle(long)
+  */
+ public final long getNextCycle(long cycle)
+ {
+  if(interrupt_signal() != interrupt_state)
+    return cycle + 1;
+  if(tcsr0.getPWMA0() == 1 & tcsr1.getPWMA1() == 1)	// PWM mode
+    return Long.MAX_VALUE;
+  if(tcsr0.isUpdate() || tcsr1.isUpdate() || tlr0.isUpdate() || tlr1.isUpdate())
+    return cycle + 1;
+  if(tcsr0.getMDT0() == 0 && tcsr0.getLOAD0() == 1)
+    return cycle + 1;
+  if(tcsr1.getMDT1() == 0 && (tcsr1.getLOAD1() == 1 || (tcsr1.getENT1() == 1 && tcsr1.getUDT1() == 0)))
+    return cycle + 1;
+  return Math.min(tcr0.getExpiry(),tcr1.getExpiry());
+ }
+ 
  /**
   * Verifies the interrupt state.
   *
@@ -364,6 +406,33 @@ public class opbtimercounter extends OPBDevice
   return tcsr1;
  }
  
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the device saved in the checkpoint.
+  *
+  * @return the state of the device.
+  * @see system.opb_device.OPBDevice#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[] {interrupt ? 1 : 0,interrupt_state};
+ }
+ 
+ /**
+  * Restores the state of the device saved in the checkpoint.
+  *
+  * @param state the state of the device.
+  * @see system.opb_device.OPBDevice#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+  interrupt = state[0] != 0;
+  interrupt_state = (int)state[1];
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
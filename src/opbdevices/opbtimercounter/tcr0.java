@@ -9,8 +9,15 @@ public final class tcr0 extends OPBRegister
 {
  /** The OPB Timer/Counter device to which the register belongs. */
  private opbtimercounter device;
- /** The value of the register. */
+ /** The value of the register in the base cycle. */
  private int tcr0;
+ /** The counting step of the register. The value of the register changes by the step in each cycle after the base cycle.<p>
+  *  -1 - down count.<br>
+  *  0 - the value is fixed.<br>
+  *  1 - up count. */
+ private int step;
+ /** The base cycle number. */
+ private long base;
  
  /**
   * Instantiates a new TCR0 register.
@@ -34,7 +41,18 @@ public final class tcr0 extends OPBRegister
   */
  public final int get()
  {
-  return tcr0;
+  return getTCR0(device.getCycle());
+ }
+ 
+ /**
+  * Returns the value of the register after the operation cycle of the device given by the parameter cycle.
+  *
+  * @param cycle the cycle number.
+  * @return the value of the register.
+  */
+ public final int getTCR0(long cycle)
+ {
+  return tcr0 + step * (int)(cycle - base);
  }
  
  /**
@@ -48,13 +66,40 @@ public final class tcr0 extends OPBRegister
  }
  
  /**
-  * Sets the value of the register. 
+  * Sets the value of the register, the value is fixed until the next operation cycle of the device. 
   *
   * @param tcr0 the value of the register.
   */
  public final void putTCR0(int tcr0)
  {
   this.tcr0 = tcr0;
+  step = 0;
+ }
+ 
+ /**
+  * Sets the counting step of the register from the operation cycle of the device given by the parameter cycle.
+  *
+  * @param step the counting step (-1 down count, 0 fixed value, 1 up count).
+  * @param cycle the cycle number.
+  */
+ public final void count(int step,long cycle)
+ {
+  this.step = step;
+  base = cycle;
+ }
+ 
+ /**
+  * Returns the cycle number of the operation cycle where the counter expires (the counter reaches the limit and is reloaded or held).
+  *
+  * @return the cycle number where the counter expires, or Long.MAX_VALUE if the value is fixed.
+  */
+ public final long getExpiry()
+ {
+  if(step > 0)
+    return base + (~tcr0 & 0xffffffffL) + 1;
+  if(step < 0)
+    return base + (tcr0 & 0xffffffffL) + 1;
+  return Long.MAX_VALUE;
  }
  
  /**
@@ -66,6 +111,34 @@ public final class tcr0 extends OPBRegister
  {	 
  }
  
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the register saved in the checkpoint.
+  *
+  * @return the state of the register.
+  * @see system.opb_device.OPBRegister#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[] {tcr0,step,base};
+ }
+ 
+ /**
+  * Restores the state of the register saved in the checkpoint.
+  *
+  * @param state the state of the register.
+  * @see system.opb_device.OPBRegister#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+  tcr0 = (int)state[0];
+  step = (int)state[1];
+  base = state[2];
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
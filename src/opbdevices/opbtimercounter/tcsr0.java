@@ -154,6 +154,16 @@ public final class tcsr0 extends OPBRegister
    tcsr0 = value;
   }
  }
+ 
+ /**
+  * Returns the update flag of the register.
+  *
+  * @return true if the register value needs to be updated.
+  */
+ public final boolean isUpdate()
+ {
+  return update;
+ }
   
  // ------------------------------------
  // methods used to manipulate the flags
@@ -398,6 +408,45 @@ public final class tcsr0 extends OPBRegister
   this.mdt0 = mdt0;	 
  }
  
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the register saved in the checkpoint.
+  *
+  * @return the state of the register.
+  * @see system.opb_device.OPBRegister#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[] {tcsr0,update ? 1 : 0,value,enall,pwma0,tint0,ent0,enit0,load0,arht0,capt0,gent0,udt0,mdt0};
+ }
+ 
+ /**
+  * Restores the state of the register saved in the checkpoint.
+  *
+  * @param state the state of the register.
+  * @see system.opb_device.OPBRegister#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+  tcsr0 = (int)state[0];
+  update = state[1] != 0;
+  value = (int)state[2];
+  enall = (int)state[3];
+  pwma0 = (int)state[4];
+  tint0 = (int)state[5];
+  ent0 = (int)state[6];
+  enit0 = (int)state[7];
+  load0 = (int)state[8];
+  arht0 = (int)state[9];
+  capt0 = (int)state[10];
+  gent0 = (int)state[11];
+  udt0 = (int)state[12];
+  mdt0 = (int)state[13];
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -154,6 +154,16 @@ public final class tcsr1 extends OPBRegister
    tcsr1 = value;
   }
  }
+ 
+ /**
+  * Returns the update flag of the register.
+  *
+  * @return true if the register value needs to be updated.
+  */
+ public final boolean isUpdate()
+ {
+  return update;
+ }
 
  // ------------------------------------
  // methods used to manipulate the flags
@@ -398,6 +408,45 @@ public final class tcsr1 extends OPBRegister
   this.mdt1 = mdt1;	 
  }
  
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the register saved in the checkpoint.
+  *
+  * @return the state of the register.
+  * @see system.opb_device.OPBRegister#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[] {tcsr1,update ? 1 : 0,value,enall,pwma1,tint1,ent1,enit1,load1,arht1,capt1,gent1,udt1,mdt1};
+ }
+ 
+ /**
+  * Restores the state of the register saved in the checkpoint.
+  *
+  * @param state the state of the register.
+  * @see system.opb_device.OPBRegister#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+  tcsr1 = (int)state[0];
+  update = state[1] != 0;
+  value = (int)state[2];
+  enall = (int)state[3];
+  pwma1 = (int)state[4];
+  tint1 = (int)state[5];
+  ent1 = (int)state[6];
+  enit1 = (int)state[7];
+  load1 = (int)state[8];
+  arht1 = (int)state[9];
+  capt1 = (int)state[10];
+  gent1 = (int)state[11];
+  udt1 = (int)state[12];
+  mdt1 = (int)state[13];
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
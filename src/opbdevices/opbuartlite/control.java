@@ -70,6 +70,44 @@ public final class control extends OPBRegister
   }
  }
  
+ /**
+  * Returns the update flag of the register.
+  *
+  * @return true if the register value needs to be updated.
+  */
+ public final boolean isUpdate()
+ {
+  return update;
+ }
+ 
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the register saved in the checkpoint.
+  *
+  * @return the state of the register.
+  * @see system.opb_device.OPBRegister#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[] {control,update ? 1 : 0,value};
+ }
+ 
+ /**
+  * Restores the state of the register saved in the checkpoint.
+  *
+  * @param state the state of the register.
+  * @see system.opb_device.OPBRegister#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+  control = (int)state[0];
+  update = state[1] != 0;
+  value = (int)state[2];
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
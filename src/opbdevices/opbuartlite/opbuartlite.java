@@ -29,6 +29,8 @@ public class opbuartlite extends OPBDevice
  private rx rx;
  /** The Tx register of the device. */
  private tx tx;
+ /** The system where the device operates. */
+ private SysteM system;
  
  /**
   * Instantiates a new OPB UART Lite device.
@@ -56,6 +58,7 @@ public class opbuartlite extends OPBDevice
 	 throw new MemoryException("memory not initialize.");  	  
 
    
+   this.system = system;
    this.read_latency = read_latency;
    this.write_latency = write_latency;
 
@@ -119,7 +122,59 @@ public class opbuartlite extends OPBDevice
   tx.update();
   return 0;	 
  }
+
+ /**
+  * Returns the cycle number where the device needs to perform the next operation cycle.
+  * The device only needs to be ticked while the Tx or Control registers have a value waiting to be updated.
+  *
+  * @param cycle the cycle number of the operation cycle performed.
+  * @return the cycle number of the next operation cycle.
+  * @see system.opb_device.OPBDevice#getNextCycle(long)
+  */
+ public final long getNextCycle(long cycle)
+ {
+  if(tx.isPending() || control.isUpdate())
+    return cycle + 1;
+  return Long.MAX_VALUE;
+ }
+ 
+ /**
+  * Returns true if the Rx register reads the keyboard. The keyboard isn't read when the system disables the console input,
+  * the Rx FIFO stays empty.
+  *
+  * @return true if the Rx register reads the keyboard.
+  */
+ public final boolean hasInput()
+ {
+  return system.hasConsoleInput();
+ }
   
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the device saved in the checkpoint.
+  *
+  * @return the state of the device.
+  * @see system.opb_device.OPBDevice#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[] {interrupt ? 1 : 0};
+ }
+ 
+ /**
+  * Restores the state of the device saved in the checkpoint.
+  *
+  * @param state the state of the device.
+  * @see system.opb_device.OPBDevice#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+  interrupt = state[0] != 0;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
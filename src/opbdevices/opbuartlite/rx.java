@@ -25,13 +25,15 @@ public final class rx extends OPBRegister
  // -----------------------------------	
 	
  /**
-  * Returns the current value of the register.
+  * Returns the current value of the register, the character read from the keyboard or 0 if the device doesn't read the keyboard.
   *
   * @return the current value of the register.
   * @see system.opb_device.OPBRegister#get()
   */
  public final int get()
  {
+  if(!device.hasInput())
+	return 0;
   return Keyin.inChar("");
  }
  
@@ -54,6 +56,31 @@ public final class rx extends OPBRegister
  {
  }
  
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the register saved in the checkpoint. The register doesn't keep any value, the characters are read from the keyboard.
+  *
+  * @return the state of the register (empty).
+  * @see system.opb_device.OPBRegister#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[0];
+ }
+ 
+ /**
+  * Restores the state of the register saved in the checkpoint. The register doesn't keep any value.
+  *
+  * @param state the state of the register.
+  * @see system.opb_device.OPBRegister#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -12,6 +12,8 @@ public final class status extends OPBRegister
  
  /** The value of the register. By default equal to 0x5. */
  private int status = 0x5;	
+ /** The Rx FIFO valid data bit of the register. */
+ private static final int RX_VALID = 0x1;
 	 
  /**
   * Instantiates a new Status register.
@@ -28,13 +30,15 @@ public final class status extends OPBRegister
  // -----------------------------------	
 	
  /**
-  * Returns the current value of the register.
+  * Returns the current value of the register, without the Rx FIFO valid data bit if the device doesn't read the keyboard.
   *
   * @return the current value of the register.
   * @see system.opb_device.OPBRegister#get()
   */
  public final int get()
  {
+  if(!device.hasInput())
+	return status & ~RX_VALID;
   return status;
  }
 
@@ -57,6 +61,32 @@ public final class status extends OPBRegister
  {
  }
  
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the register saved in the checkpoint.
+  *
+  * @return the state of the register.
+  * @see system.opb_device.OPBRegister#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[] {status};
+ }
+ 
+ /**
+  * Restores the state of the register saved in the checkpoint.
+  *
+  * @param state the state of the register.
+  * @see system.opb_device.OPBRegister#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+  status = (int)state[0];
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -77,6 +77,44 @@ public final class tx extends OPBRegister
   }
  }
  
+ /**
+  * Returns true if the register has a value waiting to be updated or showed in the screen.
+  *
+  * @return true if the register has a value waiting to be updated or showed in the screen.
+  */
+ public final boolean isPending()
+ {
+  return update || show;
+ }
+ 
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the register saved in the checkpoint.
+  *
+  * @return the state of the register.
+  * @see system.opb_device.OPBRegister#getState()
+  */
+ public final long[] getState()
+ {
+  return new long[] {update ? 1 : 0,show ? 1 : 0,value};
+ }
+ 
+ /**
+  * Restores the state of the register saved in the checkpoint.
+  *
+  * @param state the state of the register.
+  * @see system.opb_device.OPBRegister#putState(long[])
+  */
+ public final void putState(long[] state)
+ {
+  update = state[0] != 0;
+  show = state[1] != 0;
+  value = (int)state[2];
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -0,0 +1,294 @@
+package processors.microblaze_3sp;
+
+import system.cpu.*;
+
+/**
+ * The block class. This class implements a basic block of the block engine, a straight-line run of instructions that ends in a branch, return or break instruction.
+ * The instructions of the block are the same instructions stored in the memory, they are fetched by the block engine without accessing the memory.
+ * Each instruction has the operation pre-decoded from its instruction word, the block engine executes the operations of the block and of the blocks linked
+ * to it until the first instruction that must be executed by the pipeline.
+ */
+public final class block
+{
+ /** The word address (address >>> 2) of the first instruction of the block. */
+ private int begin;
+ /** The instructions of the block. */
+ private Instruction[] instructions;
+ /** The instruction words of the block. */
+ private int[] words;
+ /** The operation of each instruction of the block. */
+ private int[] operations;
+ /** The number of cycles that each instruction of the block spends in the execute stage, without stalls of memory or conditional branches. */
+ private int[] costs;
+ /** The number of cycles that each conditional branch of the block spends in the execute stage when the branch is taken. */
+ private int[] conds;
+ /** The number of cycles that the instructions of the block spend to be executed in the execute stage, without stalls of memory or conditional branches. */
+ private int cycles;
+ /** The block that follows the last instruction of the block (fall-through). */
+ private block next;
+ /** The last block jumped to by the last instruction of the block. */
+ private block target;
+ /** The number of times that the block was entered. */
+ private long executions;
+ /** The code generated by the jit compiler, null if the block wasn't compiled. */
+ private jitblock code;
+ /** The compilation flag, true if the jit compiler already tried to compile the block. */
+ private boolean compiled;
+ /** The removed flag, true if the block was removed by a change of one of its instructions. */
+ private boolean removed;
+ 
+ /**
+  * Instantiates a new block.
+  *
+  * @param begin the word address (address >>> 2) of the first instruction of the block.
+  * @param instructions the instructions of the block.
+  * @param words the instruction words of the block.
+  * @param operations the operation of each instruction of the block.
+  * @param costs the number of cycles that each instruction of the block spends in the execute stage.
+  * @param conds the number of cycles that each conditional branch of the block spends in the execute stage when the branch is taken.
+  * @param cycles the number of cycles that the instructions of the block spend to be executed in the execute stage.
+  */
+ public block(int begin,Instruction[] instructions,int[] words,int[] operations,int[] costs,int[] conds,int cycles)
+ {
+  this.begin = begin;
+  this.instructions = instructions;
+  this.words = words;
+  this.operations = operations;
+  this.costs = costs;
+  this.conds = conds;
+  this.cycles = cycles;
+ }
+ 
+ // --------------------------------
+ // methods used to handle the block
+ // --------------------------------
+ 
+ /**
+  * Returns the instruction of the memory address if the memory address belongs to the block.
+  *
+  * @param address the memory address.
+  * @return the instruction, null if the memory address doesn't belong to the block.
+  */
+ public final Instruction get(int address)
+ {
+  int index;
+  
+  index = (address >>> 2) - begin;
+  if(index >= 0 && index < instructions.length)
+	return instructions[index];
+  return null;
+ }
+ 
+ /**
+  * Enters the block and returns the first instruction of the block.
+  *
+  * @return the first instruction of the block.
+  */
+ public final Instruction enter()
+ {
+  executions++;
+  return instructions[0];
+ }
+ 
+ /**
+  * Returns the linked block that begins in the memory address.
+  *
+  * @param address the memory address.
+  * @return the linked block, null if the block doesn't have a linked block in the memory address or the linked block was removed.
+  */
+ public final block getLink(int address)
+ {
+  address = address >>> 2;
+  if(next != null && !next.removed && next.begin == address)
+	return next;
+  if(target != null && !target.removed && target.begin == address)
+	return target;
+  return null;
+ }
+ 
+ /**
+  * Marks the block as removed, the block isn't linked anymore by the other blocks.
+  */
+ public final void remove()
+ {
+  removed = true;
+ }
+ 
+ /**
+  * Links the block to the block that begins in the memory address after this block.
+  *
+  * @param link the block to be linked.
+  */
+ public final void setLink(block link)
+ {
+  if(link.begin == begin + instructions.length)
+	next = link;
+  else
+	target = link;
+ }
+ 
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+ 
+ /**
+  * Returns the word address (address >>> 2) of the first instruction of the block.
+  *
+  * @return the word address of the first instruction of the block.
+  */
+ public final int getBegin()
+ {
+  return begin;
+ }
+ 
+ /**
+  * Returns the number of instructions of the block.
+  *
+  * @return the number of instructions of the block.
+  */
+ public final int getLength()
+ {
+  return instructions.length;
+ }
+ 
+ /**
+  * Returns the number of cycles that the instructions of the block spend to be executed in the execute stage, without stalls of memory or conditional branches.
+  *
+  * @return the number of cycles of the block.
+  */
+ public final int getCycles()
+ {
+  return cycles;
+ }
+ 
+ /**
+  * Returns the number of times that the block was entered.
+  *
+  * @return the number of times that the block was entered.
+  */
+ public final long getExecutions()
+ {
+  return executions;
+ }
+ 
+ /**
+  * Returns the instruction of the block in the position defined by the parameter index.
+  *
+  * @param index the position of the instruction in the block.
+  * @return the instruction.
+  */
+ public final Instruction getInstruction(int index)
+ {
+  return instructions[index];
+ }
+ 
+ /**
+  * Returns the instruction word of the block in the position defined by the parameter index.
+  *
+  * @param index the position of the instruction in the block.
+  * @return the instruction word.
+  */
+ public final int getWord(int index)
+ {
+  return words[index];
+ }
+ 
+ /**
+  * Returns the number of cycles that the instruction of the block in the position defined by the parameter index spends in the execute stage.
+  *
+  * @param index the position of the instruction in the block.
+  * @return the number of cycles of the instruction.
+  */
+ public final int getCost(int index)
+ {
+  return costs[index];
+ }
+ 
+ /**
+  * Returns the number of cycles that the conditional branch of the block in the position defined by the parameter index spends in the execute stage
+  * when the branch is taken.
+  *
+  * @param index the position of the instruction in the block.
+  * @return the number of cycles of the branch taken.
+  */
+ public final int getCondCost(int index)
+ {
+  return conds[index];
+ }
+ 
+ /**
+  * Returns the operation of the instruction of the block in the position defined by the parameter index.
+  *
+  * @param index the position of the instruction in the block.
+  * @return the operation.
+  * @see processors.microblaze_3sp.operation
+  */
+ public final int getOperation(int index)
+ {
+  return operations[index];
+ }
+ 
+ /**
+  * Returns true if the memory address belongs to the instructions of the block.
+  *
+  * @param address the memory address.
+  * @return true if the memory address belongs to the block.
+  */
+ public final boolean contains(int address)
+ {
+  return (address >>> 2) >= begin && (address >>> 2) < begin + instructions.length;
+ }
+ 
+ /**
+  * Returns the position in the block of the instruction in the execute stage, if the instructions in the pipeline are three consecutive instructions
+  * of the block.
+  *
+  * @param execute the instruction in the execute stage.
+  * @param decode the instruction in the decode stage.
+  * @param fetch the instruction in the fetch stage.
+  * @param address the memory address of the instruction in the fetch stage.
+  * @return the position of the instruction in the execute stage, -1 if the instructions in the pipeline aren't consecutive instructions of the block.
+  */
+ public final int getEntry(Instruction execute,Instruction decode,Instruction fetch,int address)
+ {
+  int index;
+  
+  index = (address >>> 2) - begin - 2;
+  if(index < 0 || index + 2 >= instructions.length)
+	return -1;
+  if(instructions[index] != execute || instructions[index + 1] != decode || instructions[index + 2] != fetch)
+	return -1;
+  return index;
+ }
+ 
+ /**
+  * Returns the code generated by the jit compiler.
+  *
+  * @return the code generated by the jit compiler, null if the block wasn't compiled.
+  */
+ public final jitblock getCode()
+ {
+  return code;
+ }
+ 
+ /**
+  * Sets the code generated by the jit compiler. The block is marked as compiled.
+  *
+  * @param code the code generated by the jit compiler, null if the block can't be compiled.
+  */
+ public final void setCode(jitblock code)
+ {
+  this.code = code;
+  compiled = true;
+ }
+ 
+ /**
+  * Returns true if the jit compiler already tried to compile the block.
+  *
+  * @return true if the jit compiler already tried to compile the block.
+  */
+ public final boolean isCompiled()
+ {
+  return compiled;
+ }
+}
@@ -0,0 +1,424 @@
+package processors.microblaze_3sp;
+
+import java.util.*;
+
+import system.memory.*;
+import system.cpu.*;
+import system.*;
+
+/**
+ * The block cache class. This class implements the block engine of the Fireworks Three Stage Pipeline processor. The instructions are translated in basic blocks,
+ * straight-line runs of instructions that end in a branch, return or break instruction, and the blocks are linked to the blocks that follow them.
+ * The pipeline fetches the instructions from the current block, the memory is only accessed when the pipeline leaves the block and the next block isn't linked.
+ * The operation of each instruction is pre-decoded with its cycles, so the cpu runs the blocks one after the other straight on the registers, following the links,
+ * until the first instruction that must be executed by the pipeline, and the cycles of the instructions run are simulated as stall cycles. The number of cycles
+ * and instructions is the same of the cycle engine. The number of blocks which contain each instruction is kept in a page table, so the blocks which contain
+ * an instruction changed in the memory are found and removed without walking all the blocks.
+ */
+public final class blockcache extends MemoryListener
+{
+ /** The maximum number of instructions of a block. */
+ private static final int BLOCK_SIZE = 64;
+ /** The number of bits of the index of a block in the page. */
+ private static final int PAGE_BITS = 14;
+ /** The mask of the index of a block in the page. */
+ private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+ /** The number of times that a block is entered before it is compiled by the jit compiler. */
+ private static final int JIT_THRESHOLD = 100;
+ /** The number of instructions run by the block engine before the first block is compiled by the jit compiler, the short programs aren't compiled. */
+ private static final long JIT_WARMUP = 1 << 17;
+ /** The memory system. */
+ private Memory memory;
+ /** The instruction set architecture decoder. */
+ private instsetarq inst_set_arq;
+ /** The jit compiler, null if the blocks aren't compiled. */
+ private jitcompiler jit_compiler;
+ /** The pages of the blocks, indexed by the word address (address >>> 2) of the first instruction, null if the page doesn't have blocks. */
+ private block[][] pages;
+ /** The number of blocks which contain each instruction, indexed by the word address (address >>> 2), null if the page doesn't have instructions translated. */
+ private byte[][] references;
+ /** The block of the last instruction fetched, null if the last instruction wasn't fetched from a block. */
+ private block current;
+ /** The number of blocks translated. */
+ private long translations;
+ /** The number of times that blocks were removed by a change of an instruction. */
+ private long flushes;
+ /** The number of times that a block was run in one step. */
+ private long runs;
+ /** The number of instructions run in one step. */
+ private long run_instructions;
+ 
+ /**
+  * Instantiates a new block cache.
+  *
+  * @param memory the memory system.
+  * @param inst_set_arq the instruction set architecture decoder.
+  * @param jit the jit flag, true if the hot blocks are compiled by the jit compiler.
+  */
+ public blockcache(Memory memory,instsetarq inst_set_arq,boolean jit)
+ {
+  this.memory = memory;
+  this.inst_set_arq = inst_set_arq;
+  if(jit)
+	jit_compiler = new jitcompiler(memory);
+  pages = new block[1 << (30 - PAGE_BITS)][];
+  references = new byte[1 << (30 - PAGE_BITS)][];
+ }
+ 
+ // --------------------------------------
+ // methods used to fetch the instructions
+ // --------------------------------------
+ 
+ /**
+  * Fetches an instruction. The instruction is fetched from the current block, from the block linked or from the block translated in the memory address.
+  * If the memory address can't be translated the instruction is fetched from the memory.
+  *
+  * @param address the memory address where the instruction will be fetched.
+  * @return the instruction fetched.
+  */
+ public final Instruction fetch(int address)
+ {
+  Instruction instruction;
+  block next;
+  
+  if(current != null && (address >>> 2) != current.getBegin())
+  {
+   instruction = current.get(address);
+   if(instruction != null)
+	 return instruction;
+  }
+  next = getNext(current,address);
+  current = next;
+  if(next == null)
+	return memory.getInstruction(address);
+  return next.enter();
+ }
+ 
+ /**
+  * Returns the block that begins in the memory address, following the links of the previous block. If the block isn't linked the block is looked up
+  * (and translated if it doesn't exist) and linked to the previous block.
+  *
+  * @param from the previous block, null if there isn't a previous block.
+  * @param address the memory address.
+  * @return the block, null if the memory address can't be translated.
+  */
+ public final block getNext(block from,int address)
+ {
+  block next;
+  
+  if(from == null)
+	return lookup(address);
+  next = from.getLink(address);
+  if(next == null)
+  {
+   next = lookup(address);
+   if(next != null)
+	 from.setLink(next);
+  }
+  return next;
+ }
+ 
+ /**
+  * Returns the block that begins in the memory address. If the block doesn't exist the block is translated.
+  *
+  * @param address the memory address.
+  * @return the block, null if the memory address can't be translated.
+  */
+ private final block lookup(int address)
+ {
+  block[] page;
+  block block_aux;
+  int aux;
+  
+  page = pages[address >>> (PAGE_BITS + 2)];
+  if(page != null && page[(address >>> 2) & PAGE_MASK] != null)
+	return page[(address >>> 2) & PAGE_MASK];
+  block_aux = translate(address);
+  if(block_aux != null)
+  {
+   if(page == null)
+   {
+	page = new block[1 << PAGE_BITS];
+	pages[address >>> (PAGE_BITS + 2)] = page;
+   }
+   page[(address >>> 2) & PAGE_MASK] = block_aux;
+   for(aux = block_aux.getBegin();aux < block_aux.getBegin() + block_aux.getLength();aux++)
+   {
+	if(references[aux >>> PAGE_BITS] == null)
+	  references[aux >>> PAGE_BITS] = new byte[1 << PAGE_BITS];
+	references[aux >>> PAGE_BITS][aux & PAGE_MASK]++;
+   }
+  }
+  return block_aux;
+ }
+ 
+ /**
+  * Translates the instructions of the memory in a block. The block ends in a branch, return or break instruction (after the instruction in the delay slot
+  * if the branch has a delay slot, so the block is linked to the branch target), before an instruction that isn't stored in the memory (illegal or not mapped)
+  * or when the block have the maximum number of instructions. The operation and the cycles of each instruction are pre-decoded, the stop and the breakpoints
+  * are executed by the pipeline.
+  *
+  * @param address the memory address of the first instruction of the block.
+  * @return the block translated, null if the first instruction can't be translated.
+  */
+ private final block translate(int address)
+ {
+  List<Instruction> instructions;
+  Instruction instruction;
+  String name;
+  int[] words;
+  int[] operations;
+  int[] costs;
+  int[] conds;
+  boolean delay;
+  int cycles;
+  int length;
+  int aux;
+  
+  instructions = new ArrayList<Instruction>();
+  delay = false;
+  words = new int[BLOCK_SIZE];
+  operations = new int[BLOCK_SIZE];
+  costs = new int[BLOCK_SIZE];
+  conds = new int[BLOCK_SIZE];
+  cycles = 0;
+  aux = address & 0xfffffffc;
+  try
+  {
+   while(instructions.size() < BLOCK_SIZE && memory.isMemory(aux))
+   {
+	instruction = memory.getInstruction(aux);
+	if(instruction instanceof illegal || instruction instanceof mapped)
+	  break;
+	name = instruction.toString();
+	length = instructions.size();
+	words[length] = memory.getMemoryWord(aux);
+	if(instruction instanceof stop || instruction instanceof breakpoint)
+	  operations[length] = operation.PIPELINE;
+	else
+	  operations[length] = inst_set_arq.getOperation(words[length]);
+	costs[length] = inst_set_arq.getCycles(name);
+	if(operations[length] == operation.COND || operations[length] == operation.CONDI)
+	  conds[length] = inst_set_arq.getCondCycles(name);
+	else
+	  conds[length] = costs[length];
+	cycles = cycles + costs[length];
+	instructions.add(instruction);
+	if(delay || (isBranch(words[length]) && !isDelay(words[length])))
+	  break;
+	delay = isBranch(words[length]);
+	aux = aux + 4;
+   }
+  }
+  catch(MemoryException e)
+  {
+  }
+  length = instructions.size();
+  if(length == 0)
+	return null;
+  translations++;
+  return new block(address >>> 2,instructions.toArray(new Instruction[length]),Arrays.copyOf(words,length),Arrays.copyOf(operations,length),Arrays.copyOf(costs,length),
+                   Arrays.copyOf(conds,length),cycles);
+ }
+ 
+ /**
+  * Returns the block of the last instruction fetched, the block can be run in one step from the instructions in the pipeline.
+  *
+  * @return the block, null if the last instruction wasn't fetched from a block.
+  */
+ public final block getCurrent()
+ {
+  return current;
+ }
+ 
+ /**
+  * Sets the block of the last instruction fetched, after the blocks were run in one step.
+  *
+  * @param current the block.
+  */
+ public final void setCurrent(block current)
+ {
+  this.current = current;
+ }
+ 
+ /**
+  * Adds the number of instructions run in one step.
+  *
+  * @param executed the number of instructions run.
+  */
+ public final void executed(int executed)
+ {
+  runs++;
+  run_instructions = run_instructions + executed;
+ }
+ 
+ /**
+  * Returns the compiled code of the block. The block is compiled when it is entered the number of times of the jit threshold,
+  * after the block engine has run the number of instructions of the jit warmup.
+  *
+  * @param block_aux the block.
+  * @return the compiled code of the block, null if the block isn't compiled.
+  */
+ public final jitblock getCode(block block_aux)
+ {
+  if(jit_compiler == null)
+	return null;
+  if(block_aux.getCode() == null && !block_aux.isCompiled() && block_aux.getExecutions() >= JIT_THRESHOLD && run_instructions >= JIT_WARMUP)
+	block_aux.setCode(jit_compiler.compile(block_aux));
+  return block_aux.getCode();
+ }
+ 
+ /**
+  * Returns the jit compiler.
+  *
+  * @return the jit compiler, null if the blocks aren't compiled.
+  */
+ public final jitcompiler getCompiler()
+ {
+  return jit_compiler;
+ }
+ 
+ // -----------------------------------
+ // methods used to notify the listener
+ // -----------------------------------
+ 
+ /**
+  * Notifies that the instruction in the memory address was changed. The blocks which contain the instruction are removed, the other blocks are kept.
+  * Only the blocks which begin in the previous maximum number of instructions of a block can contain the instruction.
+  *
+  * @param address the word address (address >>> 2).
+  * @see system.memory.MemoryListener#write(int)
+  */
+ public final void write(int address)
+ {
+  block[] page;
+  block block_aux;
+  int aux;
+  
+  if(references[address >>> PAGE_BITS] == null || references[address >>> PAGE_BITS][address & PAGE_MASK] == 0)
+	return;
+  for(aux = Math.max(address - BLOCK_SIZE + 1,0);aux <= address;aux++)
+  {
+   page = pages[aux >>> PAGE_BITS];
+   if(page == null)
+	 continue;
+   block_aux = page[aux & PAGE_MASK];
+   if(block_aux != null && block_aux.contains(address << 2))
+	 remove(block_aux);
+  }
+  flushes++;
+ }
+ 
+ /**
+  * Removes all the blocks.
+  *
+  * @see system.memory.MemoryListener#reset()
+  */
+ public final void reset()
+ {
+  pages = new block[pages.length][];
+  references = new byte[references.length][];
+  current = null;
+  if(jit_compiler != null)
+	jit_compiler.reset();
+ }
+ 
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+ 
+ /**
+  * Removes a block. The block isn't linked anymore and the number of blocks which contain its instructions is decremented.
+  *
+  * @param block_aux the block.
+  */
+ private final void remove(block block_aux)
+ {
+  int aux;
+  
+  block_aux.remove();
+  pages[block_aux.getBegin() >>> PAGE_BITS][block_aux.getBegin() & PAGE_MASK] = null;
+  for(aux = block_aux.getBegin();aux < block_aux.getBegin() + block_aux.getLength();aux++)
+	references[aux >>> PAGE_BITS][aux & PAGE_MASK]--;
+  if(block_aux == current)
+	current = null;
+ }
+ 
+ /**
+  * Returns true if the instruction ends a block (branch, return or break instruction).
+  *
+  * @param word the instruction word.
+  * @return true if the instruction ends a block.
+  */
+ private final boolean isBranch(int word)
+ {
+  switch((word >> 26) & 0x3f)
+  {
+   case 0x26:
+   case 0x27:
+   case 0x2d:
+   case 0x2e:
+   case 0x2f:return true;
+  }
+  return false;
+ }
+ 
+ /**
+  * Returns true if the branch has a delay slot. The flag is in the register A field of the unconditional branches and in the register D field
+  * of the conditional branches, the returns always have a delay slot.
+  *
+  * @param word the instruction word of the branch.
+  * @return true if the branch has a delay slot.
+  */
+ private final boolean isDelay(int word)
+ {
+  switch((word >> 26) & 0x3f)
+  {
+   case 0x26:
+   case 0x2e:return (word & 0x00100000) != 0;
+   case 0x27:
+   case 0x2f:return (word & 0x02000000) != 0;
+  }
+  return true;
+ }
+  
+ // -----------------------------------
+ // methods used to display information
+ // -----------------------------------
+ 
+ /**
+  * Shows the statistics of the block engine.
+  */
+ public final void show()
+ {
+  long instructions = 0;
+  long executions = 0;
+  long cycles = 0;
+  
+  for(block[] page : pages)
+  {
+   if(page == null)
+	 continue;
+   for(block block_aux : page)
+   {
+	if(block_aux == null)
+	  continue;
+	executions = executions + block_aux.getExecutions();
+	instructions = instructions + block_aux.getExecutions() * block_aux.getLength();
+	cycles = cycles + block_aux.getExecutions() * block_aux.getCycles();
+   }
+  }
+  System.out.println(" " + "<blocks>    : " + Util.toDecStringSpace(translations,12) + " translated");
+  System.out.println(" " + "<flushes>   : " + Util.toDecStringSpace(flushes,12));
+  System.out.println(" " + "<runs>      : " + Util.toDecStringSpace(runs,12) + " blocks");
+  if(runs > 0)
+	System.out.println(" " + "<run size>  : " + Util.toDecStringSpace((float)run_instructions / runs,12) + " instructions");
+  if(executions > 0)
+  {
+   System.out.println(" " + "<block size>: " + Util.toDecStringSpace((float)instructions / executions,12) + " instructions");
+   System.out.println(" " + "<block cost>: " + Util.toDecStringSpace((float)cycles / executions,12) + " cycles");
+  }
+  if(jit_compiler != null)
+	jit_compiler.show();
+ }
+}
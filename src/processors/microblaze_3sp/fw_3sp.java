@@ -2,6 +2,8 @@ package processors.microblaze_3sp;
 
 import java.util.*;
 
+import processors.microblaze_3sp.instruction.*;
+import system.opb_device.*;
 import system.memory.*;
 import system.cpu.*;
 import system.*;
@@ -11,18 +13,44 @@ import system.*;
  */
 public final class fw_3sp extends CPU
 {
+ /** The maximum number of cycles of the instructions run in one step by the block engine. */
+ private static final int RUN_CYCLES = 1 << 16;
+ /** The maximum number of instructions where the block engine doesn't try to run the blocks after the runs which didn't run any instruction. */
+ private static final int RUN_BACKOFF = 64;
  /** The instruction set architecture decoder. */
  private instsetarq inst_set_arq;
  /** An generic empty instruction. */
  private Instruction empty;
+ /** The jump instruction (brai 0x10) used in the interrupt functionality. */
+ private Instruction jump;
  /** The memory system. */
  private Memory memory;
+ /** The block cache of the block engine, null if the cycle engine is used. */
+ private blockcache block_cache;
+ /** The block cache of the functional mode in the cycle engine, null if the functional mode isn't used or the block engine is used. */
+ private blockcache functional_cache;
+ /** The jit flag, true if the hot blocks are compiled by the jit compiler. */
+ private boolean jit;
+ /** The scheduler of the devices, gives the cycles where the blocks can be run without checking the interrupt. */
+ private OPBScheduler scheduler;
+ /** The number of cycles spent by the instructions run in one step by the block engine (or executed by the jit compiled code) which weren't simulated yet. */
+ private int run_cycles;
+ /** The number of instructions where the block engine doesn't try to run the blocks after the last run which didn't run any instruction. */
+ private int run_backoff;
+ /** The number of the next instructions where the block engine doesn't try to run the blocks. */
+ private int run_skip;
+ /** The stall flag, is set when the instruction in the execute stage stalls with the decode stage filled. */
+ private boolean stall;
  /** The instruction in the execute stage. */
  private Instruction execute;
  /** The instruction in the decode stage. */
  private Instruction decode;
  /** The instruction in the fetch stage. */
  private Instruction fetch;
+ /** The memory addresses of the breakpoints, checked when an instruction is fetched. */
+ private BreakPointMap break_points;
+ /** The breakpoints suspended flag, true while the reverse execution replays the instructions. */
+ private boolean break_suspended;
  /** The number of instructions execute by the cpu. */
  private long instructions; 
  /** The number of general registers. */
@@ -83,7 +111,9 @@ public final class fw_3sp extends CPU
    execute = empty;
    general = new int[number_general];
    pvr = new int[number_pvr];
+   break_points = new BreakPointMap();
    inst_set_arq = new instsetarq(memory,this,inst_stalls,inst_cond_stalls);
+   jump = inst_set_arq.getJump();
    reset();
   }
   catch(CPUException e)
@@ -111,6 +141,11 @@ public final class fw_3sp extends CPU
  { 
   int execute_status;
   
+  if(run_cycles > 0)
+  {
+   run_cycles--;
+   return Sys_Status.NORMAL;
+  }
   execute_status = execute.Stage(3);
   switch(execute_status)
   {
@@ -126,12 +161,12 @@ public final class fw_3sp extends CPU
                              System.out.println("");
                             }
 
-                            general[14] = decode.getPC();
+                            putGeneral(14,decode.getPC());
                             
                             msr = msr & 0xfffffffd;
-                            execute = (Instruction)inst_set_arq.getJump();
+                            execute = jump;
                             decode  = fetch;
-                            fetch   = memory.getInstruction(pc + 4);
+                            fetch   = fetchInstruction(pc + 4);
                             return Sys_Status.NORMAL;
                            }
                           }
@@ -139,35 +174,44 @@ public final class fw_3sp extends CPU
                           pc_next = pc + 4;
                           execute = decode;
                           decode  = fetch;
-                          fetch   = memory.getInstruction(pc);                           
+                          fetch   = fetchInstruction(pc);                           
+                          if(block_cache != null)
+                          {
+                           if(run_skip > 0)
+                             run_skip--;
+                           else
+                             run(interrupt);
+                          }
                           return Sys_Status.NORMAL;
    case cpu_status.MEM_ACCESS:if(decode == empty)
                               {
                                pc = pc_next;
                                pc_next = pc + 4;
                                decode  = fetch;
-                               fetch   = memory.getInstruction(pc);
+                               fetch   = fetchInstruction(pc);
                               } 
 	                          return Sys_Status.NORMAL;
    case cpu_status.DELAY_SLOT:instructions++;
                               pc_next = pc + 4;
                               execute = decode;
                               decode  = empty;
-                              fetch   = memory.getInstruction(pc);
+                              fetch   = fetchInstruction(pc);
                               return Sys_Status.NORMAL;
    case cpu_status.JUMP:instructions++; 
 	                    pc_next = pc + 4;
                         execute = empty;
                         decode  = empty;
-                        fetch   = memory.getInstruction(pc);
+                        fetch   = fetchInstruction(pc);
                         return Sys_Status.NORMAL;
    case cpu_status.STALL:if(decode == empty)
 	                     {
 	                      pc = pc_next;
 	                      pc_next = pc + 4;
 	                      decode  = fetch;
-	                      fetch   = memory.getInstruction(pc);
+	                      fetch   = fetchInstruction(pc);
 	                     } 	   
+	                     else
+	                       stall = true;
 	                     return Sys_Status.NORMAL;
    case cpu_status.EMPTY:if(interrupt == 1)
                          {
@@ -180,12 +224,12 @@ public final class fw_3sp extends CPU
                             System.out.println("");
                            }
 
-                           general[14] = decode.getPC();
+                           putGeneral(14,decode.getPC());
         
                            msr = msr & 0xfffffffd;
-                           execute = (Instruction)inst_set_arq.getJump();
+                           execute = jump;
                            decode  = fetch;
-                           fetch   = memory.getInstruction(pc + 4);
+                           fetch   = fetchInstruction(pc + 4);
                            return Sys_Status.NORMAL;
                           }
                          }
@@ -194,7 +238,14 @@ public final class fw_3sp extends CPU
                          pc_next = pc + 4;
                          execute = decode;
                          decode  = fetch;
-                         fetch   = memory.getInstruction(pc);
+                         fetch   = fetchInstruction(pc);
+                         if(block_cache != null)
+                         {
+                          if(run_skip > 0)
+                            run_skip--;
+                          else
+                            run(interrupt);
+                         }
                          return Sys_Status.NORMAL;
    case cpu_status.BREAKPOINT:return Sys_Status.BREAKPOINT;                         
    case cpu_status.STOP:instructions++;
@@ -207,7 +258,7 @@ public final class fw_3sp extends CPU
   	                     System.out.println("! Divide By Zero Exception, at address 0x" + Util.toHexString(execute.getPC(),8) + ".");
   	                     System.out.println("");
   	                    }
-                        general[17] = execute.getPC() + 4;
+                        putGeneral(17,execute.getPC() + 4);
                         esr = 0x5; 
                       
                         msr = msr | 0x200;
@@ -216,7 +267,7 @@ public final class fw_3sp extends CPU
                         pc = 0x20;
                         execute = empty;
                         decode  = empty;
-                        fetch   = memory.getInstruction(pc);
+                        fetch   = fetchInstruction(pc);
                         return Sys_Status.NORMAL;       
                        }
                        else
@@ -227,7 +278,7 @@ public final class fw_3sp extends CPU
                         pc_next = pc + 4;
                         execute = decode;
                         decode  = fetch;
-                        fetch   = memory.getInstruction(pc);
+                        fetch   = fetchInstruction(pc);
    	                    return Sys_Status.NORMAL;
                        }                             
    case cpu_status.MEM_MAPPED:if((msr & 0x300) == 0x100)
@@ -238,7 +289,7 @@ public final class fw_3sp extends CPU
  	                            System.out.println("! Data Bus Exception, at address 0x" + Util.toHexString(execute.getPC(),8) + ".");
  	                            System.out.println("");
  	                           }
-                               general[17] = execute.getPC() + 4;
+                               putGeneral(17,execute.getPC() + 4);
                                esr = 0x4; 
                                
                                msr = msr | 0x200;
@@ -247,7 +298,7 @@ public final class fw_3sp extends CPU
                                pc = 0x20;
                                execute = empty;
                                decode  = empty;
-                               fetch   = memory.getInstruction(pc);
+                               fetch   = fetchInstruction(pc);
                                return Sys_Status.NORMAL;
                               }
                               else
@@ -258,7 +309,7 @@ public final class fw_3sp extends CPU
                                pc_next = pc + 4;
                                execute = decode;
                                decode  = fetch;
-                               fetch   = memory.getInstruction(pc);
+                               fetch   = fetchInstruction(pc);
          	                   return Sys_Status.NORMAL;
                               }                          
    case cpu_status.MEM_UNALIGNED:if((msr & 0x300) == 0x100)
@@ -269,7 +320,7 @@ public final class fw_3sp extends CPU
   	                               System.out.println("! Unaligned Exception, at address 0x" + Util.toHexString(execute.getPC(),8) + ".");
   	                               System.out.println("");
   	                              }
-                                  general[17] = execute.getPC() + 4;
+                                  putGeneral(17,execute.getPC() + 4);
                                   esr = esr | 0x1;	  
                                   
                                   msr = msr | 0x200;
@@ -278,7 +329,7 @@ public final class fw_3sp extends CPU
                                   pc = 0x20;
                                   execute = empty;
                                   decode  = empty;
-                                  fetch   = memory.getInstruction(pc);
+                                  fetch   = fetchInstruction(pc);
                                   return Sys_Status.NORMAL;
                                  }
                                  else
@@ -289,7 +340,7 @@ public final class fw_3sp extends CPU
                                   pc_next = pc + 4;
                                   execute = decode;
                                   decode  = fetch;
-                                  fetch   = memory.getInstruction(pc);
+                                  fetch   = fetchInstruction(pc);
          	                      return Sys_Status.NORMAL;
                                  }
    case cpu_status.ILLEGAL:if((msr & 0x300) == 0x100)
@@ -300,7 +351,7 @@ public final class fw_3sp extends CPU
                              System.out.println("! Illegal Opcode Exception, at address 0x" + Util.toHexString(decode.getPC(),8) + ".");
                              System.out.println("");
                             }
-                            general[17] = execute.getPC() + 4;
+                            putGeneral(17,execute.getPC() + 4);
                             esr = esr | 0x2;	  
                             
                             msr = msr | 0x200;
@@ -309,7 +360,7 @@ public final class fw_3sp extends CPU
                             pc = 0x20;
                             execute = empty;
                             decode  = empty;
-                            fetch   = memory.getInstruction(pc);
+                            fetch   = fetchInstruction(pc);
                             return Sys_Status.NORMAL;
                            }
                            else
@@ -320,7 +371,7 @@ public final class fw_3sp extends CPU
                             pc_next = pc + 4;
                             execute = decode;
                             decode  = fetch;
-                            fetch   = memory.getInstruction(pc);
+                            fetch   = fetchInstruction(pc);
                             return Sys_Status.NORMAL;
                            }
       case cpu_status.MAPPED:if((msr & 0x300) == 0x100)
@@ -331,7 +382,7 @@ public final class fw_3sp extends CPU
                                System.out.println("! Instruction Bus Exception, at address 0x" + Util.toHexString(pc,8) + ".");
                                System.out.println("");
                               }
-                              general[17] = execute.getPC() + 4;
+                              putGeneral(17,execute.getPC() + 4);
                               esr = esr | 0x3;	  
                               
                               msr = msr | 0x200;
@@ -340,7 +391,7 @@ public final class fw_3sp extends CPU
                               pc = 0x20;
                               execute = empty;
                               decode  = empty;
-                              fetch   = memory.getInstruction(pc);
+                              fetch   = fetchInstruction(pc);
                               return Sys_Status.NORMAL;
                              }
                              else
@@ -351,12 +402,400 @@ public final class fw_3sp extends CPU
                               pc_next = pc + 4;
                               execute = decode;
                               decode  = fetch;
-                              fetch   = memory.getInstruction(pc);
+                              fetch   = fetchInstruction(pc);
                               return Sys_Status.NORMAL;
                              }
    default:return 0;
   }
  }
+ 
+ /**
+  * Returns the number of the next cycles where the cpu only stalls. These are the cycles spent by the instructions run in one step which weren't simulated yet,
+  * or the remaining latency of the instruction in the execute stage when the decode stage is already filled.
+  *
+  * @return the number of stall cycles.
+  * @see system.cpu.CPU#getStall()
+  */
+ public final int getStall()
+ {
+  if(run_cycles > 0)
+  {
+   stall = false;
+   return run_cycles;
+  }
+  if(stall == false)
+    return 0;
+  stall = false;
+  if(decode == empty)
+    return 0;
+  return execute.getStall();
+ }
+ 
+ /**
+  * Performs the stall cycles given by the parameter cycles in one step.
+  *
+  * @param cycles the number of stall cycles.
+  * @see system.cpu.CPU#stall(int)
+  */
+ public final void stall(int cycles)
+ {
+  if(run_cycles > 0)
+    run_cycles = run_cycles - cycles;
+  else
+    execute.stall(cycles);
+ }
+
+ /**
+  * Performs the instructions in the functional mode, until the number of instructions given by the parameter instructions or until the memory address given
+  * by the parameter address. The instructions are run on the operations pre-decoded by the blocks of the block engine (the block cache of the cpu or, in the cycle
+  * engine, a block cache kept until the end of the functional mode), straight on the registers and the data memory, without the simulation of the pipeline,
+  * the stalls and the latencies. A branch is run together with the instruction in the delay slot. The instructions which must be executed by the pipeline
+  * (special registers, accesses outside of the data memory, exceptions, stop) are performed by the instruction one at a time, and end the call.
+  * The functional mode starts with the pipeline empty (after the reset) and keeps it empty, the program counter register (PC) of the next instruction
+  * is the next value of the program counter register. So the cycle accurate simulation continues in the next instruction, the pipeline is filled by the next
+  * cycles of the cpu. With an interrupt pending only one instruction is performed, so the interrupt is taken in the same instruction of the cycle by cycle simulation.
+  *
+  * @param interrupt the interrupt status.
+  * @param instructions the maximum number of instructions performed.
+  * @param address the memory address where the functional mode stops, -1 if it doesn't stop in an address.
+  * @return the cpu status after the instructions.
+  * @see system.cpu.CPU#functional(int,int,long)
+  */
+ public final int functional(int interrupt,int instructions,long address)
+ {
+  blockcache cache;
+  block block_aux;
+  int operation_aux;
+  int index;
+  int word;
+  int target;
+  int status;
+  int next;
+  int executed;
+  boolean taken;
+  boolean slot;
+
+  if(interrupt == 1)
+  {
+   if((msr & 0x20a) == 0x2 && imm_flag == false)
+   {
+    if(debug)
+    {
+     System.out.println("");
+     System.out.println("! Interrupt.");
+     System.out.println("");
+    }
+    
+    putGeneral(14,pc_next);
+    msr = msr & 0xfffffffd;
+    pc_next = 0x10;
+    this.instructions++;
+    return Sys_Status.NORMAL;
+   }
+   instructions = 1;
+  }
+  if(break_points.size() > 0 || break_suspended)
+	return functionalStep();
+  cache = block_cache;
+  if(cache == null)
+  {
+   if(functional_cache == null)
+   {
+	functional_cache = new blockcache(memory,inst_set_arq,false);
+	memory.setMemoryListener(functional_cache);
+   }
+   cache = functional_cache;
+  }
+  block_aux = null;
+  next = pc_next;
+  executed = 0;
+  while(executed < instructions && ((long)next & 0xffffffffL) != address)
+  {
+   block_aux = cache.getNext(block_aux,next);
+   if(block_aux == null)
+	 break;
+   for(index = 0;index < block_aux.getLength();index++)
+   {
+	if(executed >= instructions || ((long)next & 0xffffffffL) == address)
+	  break;
+	word = block_aux.getWord(index);
+	operation_aux = block_aux.getOperation(index);
+	if(operation_aux == operation.PIPELINE)
+	  break;
+	if(operation_aux < operation.LOAD)
+	{
+	 operate(operation_aux,word,block_aux.getInstruction(index),block_aux.getCost(index));
+	 executed++;
+	 next = next + 4;
+	 continue;
+	}
+	if(operation_aux <= operation.STOREI)
+	{
+	 if(!access(operation_aux,word,block_aux))
+	   break;
+	 executed++;
+	 next = next + 4;
+	 continue;
+	}
+	switch(operation_aux)
+	{
+	 case operation.COND:
+	 case operation.CONDI:taken = isTaken(word);
+	                      slot = (word & 0x02000000) != 0;
+	                      break;
+	 case operation.RETURN:taken = true;
+	                       slot = true;
+	                       break;
+	 default:taken = true;
+	         slot = (word & 0x00100000) != 0;
+	}
+	if(slot && (index + 1 == block_aux.getLength() || !isFunctional(block_aux.getOperation(index + 1),block_aux.getWord(index + 1))))
+	  break;
+	target = taken ? branch(operation_aux,word,next) : next + 8;
+	if(slot && (msr & 0x200) == 0)
+	  btr = taken ? target : next + 4;
+	executed++;
+	if(!slot)
+	{
+	 next = taken ? target : next + 4;
+	 index = -1;
+	 break;
+	}
+	next = next + 4;
+	operation_aux = block_aux.getOperation(index + 1);
+	word = block_aux.getWord(index + 1);
+	if(operation_aux == operation.PIPELINE || operation_aux > operation.STOREI || (operation_aux >= operation.LOAD && !access(operation_aux,word,block_aux)))
+	{
+	 pc_next = next;
+	 this.instructions = this.instructions + executed;
+	 status = perform(next);
+	 if(status == cpu_status.NORMAL)
+	   pc_next = target;
+	 return functionalStatus(status);
+	}
+	if(operation_aux < operation.LOAD)
+	  operate(operation_aux,word,block_aux.getInstruction(index + 1),block_aux.getCost(index + 1));
+	executed++;
+	next = target;
+	index = -1;
+	break;
+   }
+   if(index >= 0 && index < block_aux.getLength())
+	 break;
+  }
+  pc_next = next;
+  this.instructions = this.instructions + executed;
+  if(executed == 0)
+	return functionalStep();
+  return Sys_Status.NORMAL;
+ }
+ 
+ /**
+  * Returns true if the instruction can be run in the functional mode without the instruction of the pipeline, the load or store is checked
+  * with the current value of the registers.
+  *
+  * @param operation_aux the operation.
+  * @param word the instruction word.
+  * @return true if the instruction can be run.
+  */
+ private final boolean isFunctional(int operation_aux,int word)
+ {
+  int value;
+  
+  if(operation_aux == operation.PIPELINE || operation_aux > operation.STOREI)
+	return false;
+  if(operation_aux < operation.LOAD)
+	return true;
+  if(operation_aux == operation.LOAD || operation_aux == operation.STORE)
+	value = general[(word >> 11) & 0x1f];
+  else if(imm_flag)
+	value = imm | (word & 0xffff);
+  else
+	value = (short)word;
+  return memory.getAccessCycles(general[(word >> 16) & 0x1f] + value,1 << ((word >> 26) & 0x3),operation_aux >= operation.STORE) > 0;
+ }
+ 
+ /**
+  * Performs the load or store pre-decoded of an instruction of the block in the functional mode, straight on the data memory.
+  *
+  * @param operation_aux the operation.
+  * @param word the instruction word.
+  * @param block_aux the block of the instruction.
+  * @return true if the access was performed, false if the instruction must be performed by the instruction (access outside of the data memory,
+  * unaligned or in the code of the block).
+  */
+ private final boolean access(int operation_aux,int word,block block_aux)
+ {
+  int address;
+  int value;
+  int size;
+  
+  if(operation_aux == operation.LOAD || operation_aux == operation.STORE)
+	value = general[(word >> 11) & 0x1f];
+  else if(imm_flag)
+	value = imm | (word & 0xffff);
+  else
+	value = (short)word;
+  address = general[(word >> 16) & 0x1f] + value;
+  size = 1 << ((word >> 26) & 0x3);
+  if(memory.getAccessCycles(address,size,operation_aux >= operation.STORE) == 0 || (operation_aux >= operation.STORE && block_aux.contains(address)))
+	return false;
+  if(operation_aux == operation.LOADI || operation_aux == operation.STOREI)
+	signExtendedIMM(word & 0xffff);
+  if(operation_aux >= operation.STORE)
+	memory.storeData(address,size,general[(word >> 21) & 0x1f]);
+  else
+	putGeneral((word >> 21) & 0x1f,memory.loadData(address,size));
+  return true;
+ }
+ 
+ /**
+  * Performs one instruction in the functional mode with the instruction of the pipeline, a branch instruction is performed together with the instruction
+  * in the delay slot.
+  *
+  * @return the cpu status after the instruction.
+  */
+ private final int functionalStep()
+ {
+  int status;
+  int target;
+
+  status = perform(pc_next);
+  if(status == cpu_status.DELAY_SLOT)
+  {
+   target = pc;
+   status = perform(pc_next);
+   if(status == cpu_status.NORMAL)
+     pc_next = target;
+  }
+  return functionalStatus(status);
+ }
+ 
+ /**
+  * Returns the system status of the cpu status of an instruction performed in the functional mode.
+  *
+  * @param status the cpu status of the instruction.
+  * @return the system status, STOP, BREAKPOINT or NORMAL.
+  */
+ private final int functionalStatus(int status)
+ {
+  switch(status)
+  {
+   case cpu_status.STOP:return Sys_Status.STOP;
+   case cpu_status.BREAKPOINT:return Sys_Status.BREAKPOINT;
+  }
+  return Sys_Status.NORMAL;
+ }
+ 
+ /**
+  * Ends the functional mode, the block cache used by the functional mode in the cycle engine is released.
+  *
+  * @see system.cpu.CPU#endFunctional()
+  */
+ public final void endFunctional()
+ {
+  if(functional_cache != null)
+  {
+   memory.setMemoryListener(block_cache);
+   functional_cache = null;
+  }
+ }
+
+ /**
+  * Returns the memory address of the next instruction performed in the functional mode.
+  *
+  * @return the memory address of the next instruction.
+  * @see system.cpu.CPU#getFunctionalPC()
+  */
+ public final int getFunctionalPC()
+ {
+  return pc_next;
+ }
+
+ /**
+  * Performs the instruction in the memory address given by the parameter address in the functional mode. The stall cycles and the memory accesses
+  * are performed until the instruction ends, and the exceptions are handled like in the cycle accurate simulation.
+  *
+  * @param address the memory address of the instruction.
+  * @return the cpu status of the instruction. NORMAL if the execution continues in the next value of the program counter register,
+  * DELAY_SLOT if the instruction is a branch with delay slot (the program counter register has the branch target), STOP, BREAKPOINT
+  * or the status of the exception taken.
+  */
+ private final int perform(int address)
+ {
+  Instruction instruction;
+  int status;
+
+  instruction = fetchInstruction(address);
+  pc = address + 4;
+  do
+    status = instruction.Stage(3);
+  while(status == cpu_status.STALL || status == cpu_status.MEM_ACCESS);
+  switch(status)
+  {
+   case cpu_status.NORMAL:
+   case cpu_status.JUMP:instructions++;
+                        pc_next = pc;
+                        return cpu_status.NORMAL;
+   case cpu_status.DELAY_SLOT:instructions++;
+                              pc_next = address + 4;
+                              return cpu_status.DELAY_SLOT;
+   case cpu_status.BREAKPOINT:return cpu_status.BREAKPOINT;
+   case cpu_status.STOP:instructions++;
+                        return cpu_status.STOP;
+   case cpu_status.DBZ:
+   case cpu_status.MEM_MAPPED:
+   case cpu_status.MEM_UNALIGNED:
+   case cpu_status.ILLEGAL:
+   case cpu_status.MAPPED:if((msr & 0x300) == 0x100)
+                          {
+                           switch(status)
+                           {
+                            case cpu_status.DBZ:esr = 0x5;
+                                                exception("Divide By Zero",address);
+                                                break;
+                            case cpu_status.MEM_MAPPED:esr = 0x4;
+                                                       exception("Data Bus",address);
+                                                       break;
+                            case cpu_status.MEM_UNALIGNED:esr = esr | 0x1;
+                                                          exception("Unaligned",address);
+                                                          break;
+                            case cpu_status.ILLEGAL:esr = esr | 0x2;
+                                                    exception("Illegal Opcode",address);
+                                                    break;
+                            case cpu_status.MAPPED:esr = esr | 0x3;
+                                                   exception("Instruction Bus",address);
+                           }
+                           putGeneral(17,address + 4);
+
+                           msr = msr | 0x200;
+                           msr = msr & 0xfffffeff;
+
+                           pc_next = 0x20;
+                           return status;
+                          }
+                          instructions++;
+                          pc_next = pc;
+                          return cpu_status.NORMAL;
+  }
+  return status;
+ }
+
+ /**
+  * Notifies the exception taken in the functional mode, if the debug mode is enabled.
+  *
+  * @param name the name of the exception.
+  * @param address the memory address of the instruction.
+  */
+ private final void exception(String name,int address)
+ {
+  if(debug)
+  {
+   System.out.println("");
+   System.out.println("! " + name + " Exception, at address 0x" + Util.toHexString(address,8) + ".");
+   System.out.println("");
+  }
+ }
 
  // --------------------------------
  // methods used to access registers
@@ -755,7 +1194,478 @@ public final class fw_3sp extends CPU
    throw new CPUException(" can't create the program exit because " + e.getMessage());
   }
  }
-
+ 
+ /**
+  * Sets the simulation engine of the cpu.<p>
+  * cycle - the instructions are fetched from the memory.<br>
+  * block - the instructions are translated in basic blocks and fetched from the block cache.<br>
+  * jit - the block engine with the hot blocks compiled in JVM classes by the jit compiler.
+  *
+  * @param engine the simulation engine name.
+  * @throws CPUException if the simulation engine is unknown.
+  * @see system.cpu.CPU#setEngine(String)
+  */
+ public final void setEngine(String engine) throws CPUException
+ {
+  if(engine.equals("cycle"))
+  {
+   block_cache = null;
+   jit = false;
+   memory.setMemoryListener(null);
+  }
+  else if(engine.equals("block") || engine.equals("jit"))
+  {
+   block_cache = new blockcache(memory,inst_set_arq,engine.equals("jit"));
+   jit = engine.equals("jit");
+   memory.setMemoryListener(block_cache);
+  }
+  else
+	throw new CPUException(" the engine " + engine + " is unknown.");
+ }
+ 
+ /**
+  * Sets the scheduler of the devices. The block engine runs the blocks until the next cycle where the interrupt status can change.
+  *
+  * @param scheduler the scheduler of the devices.
+  * @see system.cpu.CPU#setScheduler(OPBScheduler)
+  */
+ public final void setScheduler(OPBScheduler scheduler)
+ {
+  this.scheduler = scheduler;
+ }
+  
+ /**
+  * Fetches the instruction in the memory address, from the block cache if the block engine is used.
+  *
+  * @param address the memory address where the instruction will be fetched.
+  * @return the instruction fetched.
+  */
+ private final Instruction fetchInstruction(int address)
+ {
+  Instruction instruction;
+  
+  if(block_cache != null)
+	instruction = block_cache.fetch(address);
+  else
+	instruction = memory.getInstruction(address);
+  if(break_points.size() > 0 && !break_suspended && break_points.contains(address))
+	return new breakpoint(instruction,this);
+  return instruction;
+ }
+ 
+ /**
+  * Runs in one step the instructions of the blocks from the instruction in the execute stage (block engine). The operations pre-decoded by the blocks are
+  * executed straight on the registers, one after the other, with the cycles precomputed for each instruction: the latency of the execute stage, the latency
+  * of the data memory and the empty cycles of the pipeline after a branch taken. The branches are executed too and the run continues in the block linked
+  * to the branch target, or to the next instruction, until the first instruction that must be executed by the pipeline: an instruction which can raise
+  * an exception or changes the machine status register, a load or store outside of the data memory, unaligned or in the code of the block, or an instruction
+  * after an immediate instruction executed by the pipeline. When the interrupts are enabled the blocks are only run without an interrupt pending,
+  * until the last cycle before the next operation cycle of the devices, so the interrupt is checked by the pipeline in the same cycle of the cycle engine.
+  * The run also ends after a load or store which hits a watchpoint. The pipeline is put in the state of the first instruction that wasn't run and the cycles
+  * spent by the instructions run are simulated by the next cycles of the cpu. The blocks aren't run while breakpoints are inserted, the instructions of the block
+  * must be fetched to check the breakpoint map, neither while the breakpoints are suspended, the reverse execution counts the instructions one by one.
+  * In the jit engine the compiled code of a block is executed when the run enters the block.
+  * The run isn't tried when the cycles before the next operation cycle of the devices don't cover the current block. After a try which doesn't run any
+  * instruction, like in a loop polling a device, the next tries are skipped for a number of instructions that doubles up to RUN_BACKOFF on each failed try.
+  *
+  * @param interrupt the interrupt status.
+  */
+ private final void run(int interrupt)
+ {
+  block block_aux;
+  block next;
+  jitblock code;
+  int operation_aux;
+  int index;
+  int word;
+  int cost;
+  int cycles;
+  int limit;
+  int executed;
+  int address;
+  int target;
+  int latency;
+  int size;
+  int value;
+  boolean prefixed;
+  boolean delay;
+  boolean taken;
+  boolean slot;
+  
+  if(break_points.size() > 0 || break_suspended)
+	return;
+  block_aux = block_cache.getCurrent();
+  if(block_aux == null)
+  {
+   backoff();
+   return;
+  }
+  limit = RUN_CYCLES;
+  if((msr & 0x20a) == 0x2)
+  {
+   if(interrupt == 1 || scheduler == null)
+	 return;
+   if(scheduler.getWindow() < block_aux.getCycles())
+	 return;
+   if(scheduler.getWindow() < limit)
+	 limit = (int)scheduler.getWindow();
+  }
+  index = block_aux.getEntry(execute,decode,fetch,pc);
+  if(index < 0)
+  {
+   backoff();
+   return;
+  }
+  cycles = 0;
+  executed = 0;
+  target = 0;
+  prefixed = false;
+  delay = false;
+  for(;;)
+  {
+   if(index == 0 && jit && !imm_flag)
+   {
+	code = block_cache.getCode(block_aux);
+	if(code != null && cycles + code.getCost() <= limit)
+	{
+	 value = code.run(general,limit - cycles - code.getCost());
+	 cycles = cycles + code.getCycles(value);
+	 executed = executed + value;
+	 block_cache.getCompiler().executed(value);
+	 index = value;
+	}
+   }
+   if(index < block_aux.getLength())
+   {
+	address = (block_aux.getBegin() + index) << 2;
+	word = block_aux.getWord(index);
+	operation_aux = block_aux.getOperation(index);
+	if(imm_flag && !prefixed)
+	{
+	 if(operation_aux >= operation.LOAD)
+	   break;
+	 operation_aux = operation.INSTRUCTION;
+	}
+	taken = false;
+	slot = false;
+	if(operation_aux < operation.LOAD)
+	{
+	 if(operation_aux == operation.PIPELINE)
+	   break;
+	 cost = block_aux.getCost(index);
+	 if(delay && cost == 1)
+	   cost = 2;
+	 if(cycles + cost > limit)
+	   break;
+	 if(operation_aux == operation.IMM)
+	   prefixed = true;
+	 operate(operation_aux,word,block_aux.getInstruction(index),block_aux.getCost(index));
+	}
+	else if(operation_aux <= operation.STOREI)
+	{
+	 if(operation_aux == operation.LOAD || operation_aux == operation.STORE)
+	   value = general[(word >> 11) & 0x1f];
+	 else if(imm_flag)
+	   value = imm | (word & 0xffff);
+	 else
+	   value = (short)word;
+	 address = general[(word >> 16) & 0x1f] + value;
+	 size = 1 << ((word >> 26) & 0x3);
+	 latency = memory.getAccessCycles(address,size,operation_aux >= operation.STORE);
+	 if(latency == 0 || (operation_aux >= operation.STORE && block_aux.contains(address)))
+	   break;
+	 if(imm_flag && (word & 0x8000) != 0 && latency > 1)
+	   break;
+	 cost = block_aux.getCost(index) + latency - 1;
+	 if(delay && cost == 1)
+	   cost = 2;
+	 if(cycles + cost > limit)
+	   break;
+	 if(operation_aux == operation.LOADI || operation_aux == operation.STOREI)
+	   signExtendedIMM(word & 0xffff);
+	 if(operation_aux >= operation.STORE)
+	   memory.storeData(address,size,general[(word >> 21) & 0x1f]);
+	 else
+	   putGeneral((word >> 21) & 0x1f,memory.loadData(address,size));
+	}
+	else
+	{
+	 if(delay)
+	   break;
+	 switch(operation_aux)
+	 {
+	  case operation.COND:
+	  case operation.CONDI:taken = isTaken(word);
+	                       slot = (word & 0x02000000) != 0;
+	                       cost = taken ? block_aux.getCondCost(index) : block_aux.getCost(index);
+	                       break;
+	  case operation.RETURN:taken = true;
+	                        slot = true;
+	                        cost = block_aux.getCost(index);
+	                        break;
+	  default:taken = true;
+	          slot = (word & 0x00100000) != 0;
+	          cost = block_aux.getCost(index);
+	 }
+	 if(slot && index + 1 == block_aux.getLength())
+	   break;
+	 if(taken && !slot)
+	   cost = cost + 2;
+	 if(cycles + cost > limit)
+	   break;
+	 if(taken)
+	   target = branch(operation_aux,word,address);
+	 if(slot && (msr & 0x200) == 0)
+	   btr = taken ? target : address + 4;
+	}
+	cycles = cycles + cost;
+	executed++;
+	if(operation_aux >= operation.LOAD && operation_aux <= operation.STOREI && memory.getWatch_hit())
+	{
+	 if(!delay)
+	   target = ((block_aux.getBegin() + index) << 2) + 4;
+	 delay = false;
+	 index = -1;
+	 break;
+	}
+	if(delay)
+	  delay = false;
+	else if(taken && slot)
+	{
+	 delay = true;
+	 index++;
+	 continue;
+	}
+	else if(!taken)
+	{
+	 index++;
+	 if(index < block_aux.getLength())
+	   continue;
+	 target = (block_aux.getBegin() + index) << 2;
+	}
+   }
+   else
+	 target = (block_aux.getBegin() + index) << 2;
+   next = block_cache.getNext(block_aux,target);
+   if(next == null)
+   {
+	index = -1;
+	break;
+   }
+   block_aux = next;
+   block_aux.enter();
+   index = 0;
+  }
+  if(executed == 0)
+  {
+   backoff();
+   return;
+  }
+  run_backoff = 0;
+  if(index < 0)
+	resume(block_aux,target);
+  else if(delay)
+	resumeDelaySlot(block_aux,index,target);
+  else
+	resume(block_aux,(block_aux.getBegin() + index) << 2);
+  run_cycles = cycles;
+  instructions = instructions + executed;
+  block_cache.executed(executed);
+ }
+ 
+ /**
+  * Skips the next tries of the block engine after a try which didn't run any instruction, the number of instructions skipped doubles on each failed try
+  * until RUN_BACKOFF.
+  */
+ private final void backoff()
+ {
+  run_backoff = run_backoff == 0 ? 1 : Math.min(run_backoff << 1,RUN_BACKOFF);
+  run_skip = run_backoff;
+ }
+ 
+ /**
+  * Performs the arithmetic or logical operation pre-decoded of an instruction of the block, with the operate method of the instruction class also used
+  * by the instruction in the execute stage. The operations which aren't pre-decoded are performed by the instruction, with the cycles of the latency given as stall cycles.
+  *
+  * @param operation_aux the operation.
+  * @param word the instruction word.
+  * @param instruction the instruction.
+  * @param cost the number of cycles of the instruction in the execute stage.
+  */
+ private final void operate(int operation_aux,int word,Instruction instruction,int cost)
+ {
+  int rD;
+  int a;
+  int b;
+  
+  rD = (word >> 21) & 0x1f;
+  a = general[(word >> 16) & 0x1f];
+  b = general[(word >> 11) & 0x1f];
+  switch(operation_aux)
+  {
+   case operation.INSTRUCTION:if(cost > 1)
+                                instruction.stall(cost - 1);
+                              instruction.Stage(3);
+                              return;
+   case operation.ADD:putGeneral(rD,add.operate(this,a,b));
+                      return;
+   case operation.ADDK:putGeneral(rD,addk.operate(a,b));
+                       return;
+   case operation.ADDI:putGeneral(rD,addi.operate(this,a,signExtendedIMM(word & 0xffff)));
+                       return;
+   case operation.ADDIK:putGeneral(rD,addik.operate(a,signExtendedIMM(word & 0xffff)));
+                        return;
+   case operation.RSUB:putGeneral(rD,rsub.operate(this,a,b));
+                       return;
+   case operation.RSUBK:putGeneral(rD,rsubk.operate(a,b));
+                        return;
+   case operation.RSUBI:putGeneral(rD,rsubi.operate(this,a,signExtendedIMM(word & 0xffff)));
+                        return;
+   case operation.RSUBIK:putGeneral(rD,rsubik.operate(a,signExtendedIMM(word & 0xffff)));
+                         return;
+   case operation.CMP:putGeneral(rD,cmp.operate(a,b));
+                      return;
+   case operation.CMPU:putGeneral(rD,cmpu.operate(a,b));
+                       return;
+   case operation.MUL:putGeneral(rD,mul.operate(a,b));
+                      return;
+   case operation.MULI:putGeneral(rD,muli.operate(a,signExtendedIMM(word & 0xffff)));
+                       return;
+   case operation.AND:putGeneral(rD,and.operate(a,b));
+                      return;
+   case operation.ANDI:putGeneral(rD,andi.operate(a,signExtendedIMM(word & 0xffff)));
+                       return;
+   case operation.ANDN:putGeneral(rD,andn.operate(a,b));
+                       return;
+   case operation.ANDNI:putGeneral(rD,andni.operate(a,signExtendedIMM(word & 0xffff)));
+                        return;
+   case operation.OR:putGeneral(rD,or.operate(a,b));
+                     return;
+   case operation.ORI:putGeneral(rD,ori.operate(a,signExtendedIMM(word & 0xffff)));
+                      return;
+   case operation.XOR:putGeneral(rD,xor.operate(a,b));
+                      return;
+   case operation.XORI:putGeneral(rD,xori.operate(a,signExtendedIMM(word & 0xffff)));
+                       return;
+   case operation.BSLL:putGeneral(rD,bsll.operate(a,b));
+                       return;
+   case operation.BSRL:putGeneral(rD,bsrl.operate(a,b));
+                       return;
+   case operation.BSRA:putGeneral(rD,bsra.operate(a,b));
+                       return;
+   case operation.BSLLI:putGeneral(rD,bslli.operate(a,word));
+                        return;
+   case operation.BSRLI:putGeneral(rD,bsrli.operate(a,word));
+                        return;
+   case operation.BSRAI:putGeneral(rD,bsrai.operate(a,word));
+                        return;
+   case operation.SEXT8:putGeneral(rD,sext8.operate(a));
+                        return;
+   case operation.SEXT16:putGeneral(rD,sext16.operate(a));
+                         return;
+   case operation.SRA:putGeneral(rD,sra.operate(this,a));
+                      return;
+   case operation.SRC:putGeneral(rD,src.operate(this,a));
+                      return;
+   case operation.SRL:putGeneral(rD,srl.operate(this,a));
+                      return;
+   case operation.IMM:imm = (word & 0xffff) << 16;
+                      imm_flag = true;
+  }
+ }
+ 
+ /**
+  * Returns true if the condition of the conditional branch is true. The condition is given by the register D field and compares the register A with zero.
+  *
+  * @param word the instruction word of the branch.
+  * @return true if the branch is taken.
+  */
+ private final boolean isTaken(int word)
+ {
+  int value;
+  
+  value = general[(word >> 16) & 0x1f];
+  switch((word >> 21) & 0x7)
+  {
+   case 0x0:return value == 0;
+   case 0x1:return value != 0;
+   case 0x2:return value < 0;
+   case 0x3:return value <= 0;
+   case 0x4:return value > 0;
+  }
+  return value >= 0;
+ }
+ 
+ /**
+  * Performs the branch pre-decoded of the block, with the same result of the instruction in the execute stage (link register and immediate value).
+  * The branch target register (BTR) is wrote by the caller.
+  *
+  * @param operation_aux the operation.
+  * @param word the instruction word of the branch.
+  * @param address the memory address of the branch.
+  * @return the memory address of the branch target.
+  */
+ private final int branch(int operation_aux,int word,int address)
+ {
+  int value;
+  
+  switch(operation_aux)
+  {
+   case operation.BRANCH:if((word & 0x00040000) != 0)
+                           putGeneral((word >> 21) & 0x1f,address);
+                         value = general[(word >> 11) & 0x1f];
+                         break;
+   case operation.BRANCHI:if((word & 0x00040000) != 0)
+                            putGeneral((word >> 21) & 0x1f,address);
+                          value = signExtendedIMM(word & 0xffff);
+                          break;
+   case operation.COND:return address + general[(word >> 11) & 0x1f];
+   case operation.CONDI:return address + signExtendedIMM(word & 0xffff);
+   default:value = signExtendedIMM(word & 0xffff);
+           return general[(word >> 16) & 0x1f] + value;
+  }
+  if((word & 0x00080000) != 0)
+	return value;
+  return address + value;
+ }
+ 
+ /**
+  * Puts the pipeline in the state of the instruction in the memory address after the blocks were run in one step, the instruction is in the execute stage
+  * and the next instructions are in the decode and fetch stages.
+  *
+  * @param block_aux the last block run.
+  * @param address the memory address of the first instruction that wasn't run.
+  */
+ private final void resume(block block_aux,int address)
+ {
+  block_cache.setCurrent(block_aux);
+  execute = block_aux.get(address);
+  if(execute == null)
+	execute = fetchInstruction(address);
+  decode  = fetchInstruction(address + 4);
+  fetch   = fetchInstruction(address + 8);
+  pc = address + 8;
+  pc_next = pc + 4;
+ }
+ 
+ /**
+  * Puts the pipeline in the state of the instruction in the delay slot of the branch taken after the blocks were run in one step, the instruction
+  * is in the execute stage, the decode stage is empty and the branch target is in the fetch stage.
+  *
+  * @param block_aux the last block run.
+  * @param index the position in the block of the instruction in the delay slot.
+  * @param target the memory address of the branch target.
+  */
+ private final void resumeDelaySlot(block block_aux,int index,int target)
+ {
+  block_cache.setCurrent(block_aux);
+  execute = block_aux.getInstruction(index);
+  decode  = empty;
+  pc = target;
+  pc_next = pc + 4;
+  fetch   = fetchInstruction(pc);
+ }
+  
  /**
   * Returns the instruction in the stage defined by the parameter stage.
   *
@@ -852,6 +1762,13 @@ public final class fw_3sp extends CPU
   imm = 0;
   
   imm_flag = false;
+  
+  run_cycles = 0;
+  run_backoff = 0;
+  run_skip = 0;
+  stall = false;
+  if(block_cache != null)
+	block_cache.reset();
  }
  
  // -------------------
@@ -921,15 +1838,17 @@ public final class fw_3sp extends CPU
  }
  
  /**
-  * Inserts the breakpoint in the pipeline if is the case.
+  * Inserts the breakpoint in the breakpoint map, the instructions fetched from the memory address are replaced by the breakpoint control instruction.
+  * The breakpoint is also inserted in the pipeline if is the case.
   *
   * @param address the memory's address where the breakpoint should be placed.
-  * @return 1 - if the breakpoint was inserted.<br>
-  *         -1 - if the breakpoint wasn't inserted.
+  * @return 1 - if the breakpoint was inserted in the pipeline.<br>
+  *         -1 - if the breakpoint wasn't inserted in the pipeline.
   * @see system.cpu.CPU#insertBreakPoint(int)
   */
  public final int insertBreakPoint(int address)
  {
+  break_points.insert(address);
   if(address == decode.getPC())	 
   {
    if(decode.toString().equals("breakpoint") || fetch.toString().equals(""))
@@ -948,15 +1867,16 @@ public final class fw_3sp extends CPU
  }
  
  /**
-  * Removes the breakpoint in the pipeline if is the case.
+  * Removes the breakpoint from the breakpoint map and from the pipeline if is the case.
   *
   * @param address the address where the breakpoint should be remove.
-  * @return 1 - if the breakpoint was removed.<br>
-  *         -1 - if the breakpoint wasn't removed.
+  * @return 1 - if the breakpoint was removed from the pipeline.<br>
+  *         -1 - if the breakpoint wasn't removed from the pipeline.
   * @see system.cpu.CPU#removeBreakPoint(int)
   */
  public final int removeBreakPoint(int address)
  {
+  break_points.remove(address);
   if(address == execute.getPC())	 
   {
    if(execute.toString().equals("breakpoint"))
@@ -987,6 +1907,37 @@ public final class fw_3sp extends CPU
   return -1;
  }
  
+ /**
+  * Returns true if the breakpoint is inserted in the breakpoint map.
+  *
+  * @param address the memory's address of the instruction.
+  * @return true if the breakpoint is inserted.
+  * @see system.cpu.CPU#isBreakPoint(int)
+  */
+ public final boolean isBreakPoint(int address)
+ {
+  return break_points.contains(address);
+ }
+ 
+ /**
+  * Suspends or resumes the breakpoints. When the breakpoints are resumed the instructions of the decode and fetch stages fetched while
+  * the breakpoints were suspended are replaced by the breakpoint control instruction, the instruction of the execute stage isn't replaced
+  * (the simulation is stopped before it).
+  *
+  * @param suspend true to suspend the breakpoints, false to resume them.
+  * @see system.cpu.CPU#suspendBreakPoints(boolean)
+  */
+ public final void suspendBreakPoints(boolean suspend)
+ {
+  break_suspended = suspend;
+  if(suspend)
+	return;
+  if(decode != empty && decode != jump && !decode.toString().equals("breakpoint") && break_points.contains(decode.getPC()))
+	decode = new breakpoint(decode,this);
+  if(fetch != empty && fetch != jump && !fetch.toString().equals("breakpoint") && break_points.contains(fetch.getPC()))
+	fetch = new breakpoint(fetch,this);
+ }
+ 
  /**
   * Returns an register of the cpu in GDB mode. 
   *
@@ -1020,6 +1971,118 @@ public final class fw_3sp extends CPU
   return 0; 
  }
  
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the cpu saved in the checkpoint. The instructions in the pipeline are saved by the memory address,
+  * the instruction in the execute stage saves also the number of stall cycles still not performed.
+  *
+  * @return the state of the cpu.
+  * @see system.cpu.CPU#getState()
+  */
+ public final long[] getState()
+ {
+  long[] state;
+  int aux;
+  
+  state = new long[number_general + number_pvr + 16];
+  for(aux = 0;aux < number_general;aux++)
+    state[aux] = general[aux];
+  for(aux = 0;aux < number_pvr;aux++)
+    state[number_general + aux] = pvr[aux];
+  aux = number_general + number_pvr;
+  state[aux] = pc;
+  state[aux + 1] = msr;
+  state[aux + 2] = ear;
+  state[aux + 3] = esr;
+  state[aux + 4] = btr;
+  state[aux + 5] = fsr;
+  state[aux + 6] = imm_flag ? 1 : 0;
+  state[aux + 7] = pc_next;
+  state[aux + 8] = imm;
+  state[aux + 9] = instructions;
+  state[aux + 10] = run_cycles;
+  state[aux + 11] = stall ? 1 : 0;
+  state[aux + 12] = getStage(execute);
+  state[aux + 13] = getStage(decode);
+  state[aux + 14] = getStage(fetch);
+  state[aux + 15] = execute.getStall();
+  return state;
+ }
+ 
+ /**
+  * Restores the state of the cpu saved in the checkpoint. The instructions in the pipeline are fetched again from the memory.
+  *
+  * @param state the state of the cpu.
+  * @throws CPUException if the state doesn't belong to this cpu.
+  * @see system.cpu.CPU#putState(long[])
+  */
+ public final void putState(long[] state) throws CPUException
+ {
+  int aux;
+  
+  if(state.length != number_general + number_pvr + 16)
+	throw new CPUException("the checkpoint doesn't contain the state of the " + toString() + " processor.");
+  for(aux = 0;aux < number_general;aux++)
+    general[aux] = (int)state[aux];
+  for(aux = 0;aux < number_pvr;aux++)
+    pvr[aux] = (int)state[number_general + aux];
+  aux = number_general + number_pvr;
+  pc = (int)state[aux];
+  msr = (int)state[aux + 1];
+  ear = (int)state[aux + 2];
+  esr = (int)state[aux + 3];
+  btr = (int)state[aux + 4];
+  fsr = (int)state[aux + 5];
+  imm_flag = state[aux + 6] != 0;
+  pc_next = (int)state[aux + 7];
+  imm = (int)state[aux + 8];
+  instructions = state[aux + 9];
+  run_cycles = (int)state[aux + 10];
+  run_backoff = 0;
+  run_skip = 0;
+  stall = state[aux + 11] != 0;
+  execute = putStage(state[aux + 12]);
+  decode  = putStage(state[aux + 13]);
+  fetch   = putStage(state[aux + 14]);
+  execute.stall(execute.getStall() - (int)state[aux + 15]);
+ }
+ 
+ /**
+  * Returns the instruction of a pipeline stage encoded for the checkpoint.
+  *
+  * @param instruction the instruction in the pipeline stage.
+  * @return 0 - empty stage.<br>
+  *         1 - the jump instruction of the interrupt.<br>
+  *         2 - the instruction fetched from the memory, the memory address in the 32 low bits.
+  */
+ private final long getStage(Instruction instruction)
+ {
+  if(instruction == empty)
+	return 0;
+  if(instruction == jump)
+	return 1L << 32;
+  return (2L << 32) | ((long)instruction.getPC() & 0xffffffffL);
+ }
+ 
+ /**
+  * Returns the instruction of a pipeline stage decoded from the checkpoint.
+  *
+  * @param stage the instruction encoded by the method getStage.
+  * @return the instruction in the pipeline stage.
+  */
+ private final Instruction putStage(long stage)
+ {
+  switch((int)(stage >>> 32))
+  {
+   case 1:return jump;
+   case 2:return fetchInstruction((int)stage);
+  }
+  return empty;
+ }
+ 
  // ------------------------------------
  // methods used to access other objects
  // ------------------------------------
@@ -1049,4 +2112,15 @@ public final class fw_3sp extends CPU
  {
   return "FireWorks three stage pipeline";	 
  }
+ 
+ /**
+  * Shows the statistics of the simulation engine.
+  *
+  * @see system.cpu.CPU#showEngine()
+  */
+ public final void showEngine()
+ {
+  if(block_cache != null)
+	block_cache.show();
+ }
 }
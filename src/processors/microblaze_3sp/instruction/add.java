@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The add instruction class.
  */
-public final class add extends Instruction
+public final class add extends multicycle
 { 
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public final class add extends Instruction
  private int rA;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new add instruction.
@@ -60,24 +56,30 @@ public final class add extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  int aux_c;
-  
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
-  aux_b = cpu.getGeneral(rB);
-  aux_c = aux_a + aux_b;
-  cpu.putGeneral(rD,aux_c);
-  cpu.setMSRCarry(aux_a,aux_b);
+  cycles = 1;
+  cpu.putGeneral(rD,operate(cpu,cpu.getGeneral(rA),cpu.getGeneral(rB)));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the add instruction and sets the carry of the machine status register. The block engine performs the instruction with the same method.
+  *
+  * @param cpu the Fireworks Three Stage Pipeline processor.
+  * @param a the value of the source register A.
+  * @param b the value of the source register B.
+  * @return the result of the add instruction.
+  */
+ public static final int operate(fw_3sp cpu,int a,int b)
+ {
+  cpu.setMSRCarry(a,b);
+  return a + b;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
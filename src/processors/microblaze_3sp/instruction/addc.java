@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The addc instruction class.
  */
-public final class addc extends Instruction
+public final class addc extends multicycle
 { 
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public final class addc extends Instruction
  private int rA;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new addc instruction.
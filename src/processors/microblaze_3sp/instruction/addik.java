@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The addik instruction class.
  */
-public class addik extends Instruction
+public class addik extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class addik extends Instruction
  private int rA;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new addik instruction.
@@ -60,22 +56,29 @@ public class addik extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
+  cycles = 1;
   imm = cpu.signExtendedIMM(imm);
-  aux_b = aux_a + imm;
-  cpu.putGeneral(rD,aux_b);
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA),imm));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the addik instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @param imm the immediate value sign extended.
+  * @return the result of the addik instruction.
+  */
+ public static final int operate(int a,int imm)
+ {
+  return a + imm;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
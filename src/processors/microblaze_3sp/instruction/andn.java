@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The andn instruction class.
  */
-public class andn extends Instruction
+public class andn extends multicycle
 { 
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu; 
@@ -18,10 +18,6 @@ public class andn extends Instruction
  private int rA;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new andn instruction.
@@ -60,23 +56,28 @@ public class andn extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  int aux_c;
-  
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
-  aux_b = cpu.getGeneral(rB);
-  aux_c = aux_a & ~aux_b;
-  cpu.putGeneral(rD,aux_c);
+  cycles = 1;
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA),cpu.getGeneral(rB)));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the andn instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @param b the value of the source register B.
+  * @return the result of the andn instruction.
+  */
+ public static final int operate(int a,int b)
+ {
+  return a & ~b;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
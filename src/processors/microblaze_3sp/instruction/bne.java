@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The bne instruction class.
  */
-public class bne extends Instruction
+public class bne extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class bne extends Instruction
  private int rB;
  /** The instruction's conditional latency in the execute stage. */
  private int cond_latency;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new bne instruction.
@@ -84,6 +80,19 @@ public class bne extends Instruction
   cycles = 1;
   return cpu_status.NORMAL;
  }
+ 
+ /**
+  * Returns the number of the next operation cycles where the instruction only stalls (the instruction latency still not completed).
+  *
+  * @return the number of stall cycles.
+  * @see system.cpu.Instruction#getStall()
+  */
+ public final int getStall()
+ {
+  if(cpu.getGeneral(rA) != 0)
+    return cond_latency - cycles;
+  return latency - cycles;
+ }
 
  // -------------------
  // methods auxiliaries
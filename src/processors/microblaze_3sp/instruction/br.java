@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The br instruction class.
  */
-public class br extends Instruction
+public class br extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -14,10 +14,6 @@ public class br extends Instruction
  private int pc;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new br instruction.
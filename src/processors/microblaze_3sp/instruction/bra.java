@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The bra instruction class.
  */
-public class bra extends Instruction
+public class bra extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -14,10 +14,6 @@ public class bra extends Instruction
  private int pc;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new bra instruction.
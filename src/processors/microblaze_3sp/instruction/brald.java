@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The brald instruction class.
  */
-public class brald extends Instruction
+public class brald extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class brald extends Instruction
  private int rD;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
   
  /**
   * Instantiates a new brald instruction.
@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The brid instruction class.
  */
-public class brid extends Instruction
+public class brid extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -14,10 +14,6 @@ public class brid extends Instruction
  private int pc;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new brid instruction.
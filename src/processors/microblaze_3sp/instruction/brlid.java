@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The brlid instruction class.
  */
-public class brlid extends Instruction
+public class brlid extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class brlid extends Instruction
  private int rD;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new brlid instruction.
@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The bslli instruction class.
  */
-public class bslli extends Instruction
+public class bslli extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class bslli extends Instruction
  private int rA;
  /** The 5 bit immediate value. */
  private int imm_5;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new bslli instruction.
@@ -60,21 +56,28 @@ public class bslli extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
-  aux_b = aux_a << imm_5;
-  cpu.putGeneral(rD,aux_b);
+  cycles = 1;
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA),imm_5));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the bslli instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @param imm_5 the number of bits shifted.
+  * @return the result of the bslli instruction.
+  */
+ public static final int operate(int a,int imm_5)
+ {
+  return a << (imm_5 & 0x1f);
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
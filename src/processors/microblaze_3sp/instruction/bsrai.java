@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The bsrai instruction class.
  */
-public class bsrai extends Instruction
+public class bsrai extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class bsrai extends Instruction
  private int rA;
  /** The 5 bit immediate value. */
  private int imm_5;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new bsrai instruction.
@@ -60,26 +56,28 @@ public class bsrai extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
-  if(imm_5 != 0x00000000)
-  {
-   aux_b = aux_a >> imm_5;
-   cpu.putGeneral(rD,aux_b);
-  }
-  else
-    cpu.putGeneral(rD,aux_a);
+  cycles = 1;
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA),imm_5));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the bsrai instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @param imm_5 the number of bits shifted.
+  * @return the result of the bsrai instruction.
+  */
+ public static final int operate(int a,int imm_5)
+ {
+  return a >> (imm_5 & 0x1f);
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The cmpu instruction class.
  */
-public class cmpu extends Instruction
+public class cmpu extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class cmpu extends Instruction
  private int rA;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new cmpu instruction.
@@ -60,35 +56,30 @@ public class cmpu extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  int aux_c;
-  long aux_d;
-  long aux_e;
-
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
   cycles = 1;
-  aux_a = cpu.getGeneral(rA);
-  aux_b = cpu.getGeneral(rB);
-  aux_d = aux_a & 0x00000000ffffffffL;
-  aux_e = aux_b & 0x00000000ffffffffL;
-  if(aux_d > aux_e)
-  {
-   aux_c = (aux_b + ~aux_a + 1) | 0x80000000;
-   cpu.putGeneral(rD,aux_c);
-  }
-  else
-  {
-   aux_c = (aux_b + ~aux_a + 1) & 0x7FFFFFFF;
-   cpu.putGeneral(rD,aux_c);
-  }
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA),cpu.getGeneral(rB)));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the cmpu instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @param b the value of the source register B.
+  * @return the result of the cmpu instruction.
+  */
+ public static final int operate(int a,int b)
+ {
+  if((a & 0x00000000ffffffffL) > (b & 0x00000000ffffffffL))
+    return (b + ~a + 1) | 0x80000000;
+  return (b + ~a + 1) & 0x7fffffff;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -7,7 +7,7 @@ import system.cpu.*;
 /**
  * The lbui instruction class.
  */
-public class lbui extends Instruction
+public class lbui extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -21,10 +21,6 @@ public class lbui extends Instruction
  private int rA;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new lbui instruction.
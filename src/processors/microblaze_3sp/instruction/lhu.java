@@ -7,7 +7,7 @@ import system.cpu.*;
 /**
  * The lhu instruction class.
  */
-public class lhu extends Instruction
+public class lhu extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -21,10 +21,6 @@ public class lhu extends Instruction
  private int rA;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new lhu instruction.
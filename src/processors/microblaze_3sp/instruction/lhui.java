@@ -7,7 +7,7 @@ import system.cpu.*;
 /**
  * The lhui instruction class.
  */
-public class lhui extends Instruction
+public class lhui extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -21,10 +21,6 @@ public class lhui extends Instruction
  private int rA;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new lhui instruction.
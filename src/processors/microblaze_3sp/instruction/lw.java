@@ -7,7 +7,7 @@ import system.cpu.*;
 /**
  * The lw instruction class.
  */
-public class lw extends Instruction
+public class lw extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -21,10 +21,6 @@ public class lw extends Instruction
  private int rA;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new lw instruction.
@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The mfs instruction class.
  */
-public class mfs extends Instruction
+public class mfs extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class mfs extends Instruction
  private int rD;
  /** The special purpose register. */
  private int rS;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new mfs instruction.
@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The msrclr instruction class.
  */
-public class msrclr extends Instruction
+public class msrclr extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class msrclr extends Instruction
  private int rD;
  /** The 14 bit immediate value. */
  private int imm_14;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new msrclr instruction.
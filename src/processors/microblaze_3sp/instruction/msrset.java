@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The msrset instruction class.
  */
-public class msrset extends Instruction
+public class msrset extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class msrset extends Instruction
  private int rD;
  /** The 14 bit immediate value. */
  private int imm_14;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
 
  /**
   * Instantiates a new msrset instruction.
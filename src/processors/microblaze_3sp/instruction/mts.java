@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The mts instruction class.
  */
-public class mts extends Instruction
+public class mts extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class mts extends Instruction
  private int rA;
  /** The special purpose register. */
  private int rS; 
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new mts instruction.
@@ -0,0 +1,40 @@
+package processors.microblaze_3sp.instruction;
+
+import system.cpu.*;
+
+/**
+ * The multi-cycle instruction class. Base class of the instructions which stall in the execute stage until their latency is completed.
+ */
+public abstract class multicycle extends Instruction
+{ 
+ /** The instruction's latency in the execute stage. */
+ protected int latency;
+ /** The number of cycles performed in the execute stage. */
+ protected int cycles = 1;
+ 
+ // -----------------------------------------------
+ // methods to operate instructions in the pipeline
+ // -----------------------------------------------
+ 
+ /**
+  * Returns the number of the next operation cycles where the instruction only stalls (the instruction latency still not completed).
+  *
+  * @return the number of stall cycles.
+  * @see system.cpu.Instruction#getStall()
+  */
+ public int getStall()
+ {
+  return latency - cycles;
+ }
+ 
+ /**
+  * Performs the stall cycles of the instruction given by the parameter cycles in one step.
+  *
+  * @param cycles the number of stall cycles.
+  * @see system.cpu.Instruction#stall(int)
+  */
+ public final void stall(int cycles)
+ {
+  this.cycles = this.cycles + cycles;
+ }
+}
@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The ori instruction class.
  */
-public class ori extends Instruction
+public class ori extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class ori extends Instruction
  private int rA;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new ori instruction.
@@ -60,22 +56,29 @@ public class ori extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
   cycles = 1;
-  aux_a = cpu.getGeneral(rA);
   imm = cpu.signExtendedIMM(imm);
-  aux_b = aux_a | imm;
-  cpu.putGeneral(rD,aux_b);
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA),imm));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the ori instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @param imm the immediate value sign extended.
+  * @return the result of the ori instruction.
+  */
+ public static final int operate(int a,int imm)
+ {
+  return a | imm;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
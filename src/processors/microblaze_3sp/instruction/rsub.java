@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The rsub instruction class.
  */
-public class rsub extends Instruction
+public class rsub extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class rsub extends Instruction
  private int rA;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new rsub instruction.
@@ -60,30 +56,32 @@ public class rsub extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  int aux_c;
-  int aux_d;
-  
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
-  aux_b = cpu.getGeneral(rB);
-  aux_c = aux_b + ~aux_a + 1;
-  cpu.putGeneral(rD,aux_c);  
-  cpu.setMSRCarry(aux_b,~aux_a);
-  if(cpu.getMSRCarry() == 0)
-  {
-   aux_d = aux_b + ~aux_a;
-   cpu.setMSRCarry(aux_d,1);
-  }
+  cycles = 1;
+  cpu.putGeneral(rD,operate(cpu,cpu.getGeneral(rA),cpu.getGeneral(rB)));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the rsub instruction and sets the carry of the machine status register. The block engine performs the instruction with the same method.
+  *
+  * @param cpu the Fireworks Three Stage Pipeline processor.
+  * @param a the value of the source register A.
+  * @param b the value of the source register B.
+  * @return the result of the rsub instruction.
+  */
+ public static final int operate(fw_3sp cpu,int a,int b)
+ {
+  cpu.setMSRCarry(b,~a);
+  if(cpu.getMSRCarry() == 0)
+    cpu.setMSRCarry(b + ~a,1);
+  return b + ~a + 1;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
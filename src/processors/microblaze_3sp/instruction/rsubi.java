@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The rsubi instruction class.
  */
-public class rsubi extends Instruction
+public class rsubi extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class rsubi extends Instruction
  private int rA;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new rsubi instruction.
@@ -60,29 +56,33 @@ public class rsubi extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  int aux_c;
-  
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
+  cycles = 1;
   imm = cpu.signExtendedIMM(imm);
-  aux_b = imm + ~aux_a + 1;
-  cpu.putGeneral(rD,aux_b);  
-  cpu.setMSRCarry(imm,~aux_a);
-  if(cpu.getMSRCarry() == 0)
-  {
-   aux_c = imm + ~aux_a; 
-   cpu.setMSRCarry(aux_c,1);
-  }
+  cpu.putGeneral(rD,operate(cpu,cpu.getGeneral(rA),imm));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the rsubi instruction and sets the carry of the machine status register. The block engine performs the instruction with the same method.
+  *
+  * @param cpu the Fireworks Three Stage Pipeline processor.
+  * @param a the value of the source register A.
+  * @param imm the immediate value sign extended.
+  * @return the result of the rsubi instruction.
+  */
+ public static final int operate(fw_3sp cpu,int a,int imm)
+ {
+  cpu.setMSRCarry(imm,~a);
+  if(cpu.getMSRCarry() == 0)
+    cpu.setMSRCarry(imm + ~a,1);
+  return imm + ~a + 1;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
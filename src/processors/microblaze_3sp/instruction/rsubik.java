@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The rsubik instruction class.
  */
-public class rsubik extends Instruction
+public class rsubik extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class rsubik extends Instruction
  private int rA;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new rsubik instruction.
@@ -60,22 +56,29 @@ public class rsubik extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
+  cycles = 1;
   imm = cpu.signExtendedIMM(imm);
-  aux_b = imm + ~aux_a + 1;
-  cpu.putGeneral(rD,aux_b);  
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA),imm));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the rsubik instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @param imm the immediate value sign extended.
+  * @return the result of the rsubik instruction.
+  */
+ public static final int operate(int a,int imm)
+ {
+  return imm + ~a + 1;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
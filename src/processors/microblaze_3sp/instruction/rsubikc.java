@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The rsubikc instruction class.
  */
-public class rsubikc extends Instruction
+public class rsubikc extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class rsubikc extends Instruction
  private int rA;
  /** The immediate value. */
  private int imm;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
 
  /**
   * Instantiates a new rsubikc instruction.
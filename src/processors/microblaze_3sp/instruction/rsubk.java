@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The rsubk instruction class.
  */
-public class rsubk extends Instruction
+public class rsubk extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -18,10 +18,6 @@ public class rsubk extends Instruction
  private int rA;
  /** The source register B. */
  private int rB;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new rsubk instruction.
@@ -60,23 +56,28 @@ public class rsubk extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  int aux_c;
-  
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
-  cycles = 1; 
-  aux_a = cpu.getGeneral(rA);
-  aux_b = cpu.getGeneral(rB);
-  aux_c = aux_b + ~aux_a + 1;
-  cpu.putGeneral(rD,aux_c);  
+  cycles = 1;
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA),cpu.getGeneral(rB)));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the rsubk instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @param b the value of the source register B.
+  * @return the result of the rsubk instruction.
+  */
+ public static final int operate(int a,int b)
+ {
+  return b + ~a + 1;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The sext16 instruction class.
  */
-public class sext16 extends Instruction
+public class sext16 extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class sext16 extends Instruction
  private int rD;
  /** The source register A. */
  private int rA;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
   
  /**
   * Instantiates a new sext16 instruction.
@@ -56,31 +52,27 @@ public class sext16 extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  int aux_c;
-
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
   cycles = 1;
-  aux_a = cpu.getGeneral(rA);
-  aux_c = aux_a & 0x00008000;
-  if(aux_c == 0x00008000)
-  {
-   aux_b = 0xffff0000 | (aux_a & 0x0000ffff);
-   cpu.putGeneral(rD,aux_b);
-  }
-  else
-  { 
-   aux_b = aux_a & 0x0000ffff;
-   cpu.putGeneral(rD,aux_b);  
-  }
+  cpu.putGeneral(rD,operate(cpu.getGeneral(rA)));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the sext16 instruction. The block engine performs the instruction with the same method.
+  *
+  * @param a the value of the source register A.
+  * @return the result of the sext16 instruction.
+  */
+ public static final int operate(int a)
+ {
+  return (short)a;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The sra instruction class.
  */
-public class sra extends Instruction
+public class sra extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class sra extends Instruction
  private int rD;
  /** The source register A. */
  private int rA;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
   
  /**
   * Instantiates a new sra instruction.
@@ -56,24 +52,29 @@ public class sra extends Instruction
   */
  public final int Stage(int stage)
  {
-  int aux_a;
-  int aux_b;
-  int aux_c;
-
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
   cycles = 1;
-  aux_a = cpu.getGeneral(rA);
-  aux_b = aux_a >> 1;
-  cpu.putGeneral(rD,aux_b);
-  aux_c = aux_a & 0x00000001;
-  cpu.setMSRCarry(aux_c);
+  cpu.putGeneral(rD,operate(cpu,cpu.getGeneral(rA)));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the sra instruction and sets the carry of the machine status register. The block engine performs the instruction with the same method.
+  *
+  * @param cpu the Fireworks Three Stage Pipeline processor.
+  * @param a the value of the source register A.
+  * @return the result of the sra instruction.
+  */
+ public static final int operate(fw_3sp cpu,int a)
+ {
+  cpu.setMSRCarry(a & 0x00000001);
+  return a >> 1;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
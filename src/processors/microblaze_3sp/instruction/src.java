@@ -6,7 +6,7 @@ import system.cpu.*;
 /**
  * The src instruction class.
  */
-public class src extends Instruction
+public class src extends multicycle
 {
  /** The Fireworks Three Stage Pipeline processor to which instruction belongs. */
  private fw_3sp cpu;
@@ -16,10 +16,6 @@ public class src extends Instruction
  private int rD;
  /** The source register A. */
  private int rA;
- /** The instruction's latency in the execute stage. */
- private int latency;
- /** The number of cycles performed in the execute stage. */
- private int cycles = 1;
  
  /**
   * Instantiates a new src instruction.
@@ -56,34 +52,32 @@ public class src extends Instruction
   */
  public final int Stage(int stage)
  {
-  int carry;
-  int aux_a;
-  int aux_b;
-  int aux_c;
-
   if(cycles < latency)
   {
    cycles++;
    return cpu_status.STALL;
   }
   cycles = 1;
-  aux_a = cpu.getGeneral(rA);
-  carry = cpu.getMSRCarry();
-  if(carry == 1)
-  {
-   aux_b = (aux_a >>> 1) | 0x80000000;
-   cpu.putGeneral(rD,aux_b);
-  }
-  else
-  {
-   aux_b = (aux_a >>> 1) & 0x7fffffff;
-   cpu.putGeneral(rD,aux_b);
-  }
-  aux_c = aux_a & 0x00000001;
-  cpu.setMSRCarry(aux_c);
+  cpu.putGeneral(rD,operate(cpu,cpu.getGeneral(rA)));
   return cpu_status.NORMAL;
  }
  
+ /**
+  * Returns the result of the src instruction, shifts in the carry of the machine status register and sets the carry. The block engine performs the instruction with the same method.
+  *
+  * @param cpu the Fireworks Three Stage Pipeline processor.
+  * @param a the value of the source register A.
+  * @return the result of the src instruction.
+  */
+ public static final int operate(fw_3sp cpu,int a)
+ {
+  int carry;
+  
+  carry = cpu.getMSRCarry();
+  cpu.setMSRCarry(a & 0x00000001);
+  return (a >>> 1) | (carry << 31);
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -231,44 +231,7 @@ public class instsetarq extends InstructionSetArchitecture
              }
 	         return new illegal(address);
    // 0b010110 fadd frsub fmul fdiv fcmp
-   case 0x16:type_a = value & 0x7ff;
-             switch(type_a)
-             {
-              // 0b00000000000 fadd
-              case 0x000:rB = (value >> 11) & 0x1f;
-                         return new fadd(cpu,address,rD,rA,rB,inst_stalls.get("fadd"));
-              // 0b00010000000 frsub
-              case 0x080:rB = (value >> 11) & 0x1f;
-                         return new frsub(cpu,address,rD,rA,rB,inst_stalls.get("frsub"));
-              // 0b00100000000 fmul
-              case 0x100:rB = (value >> 11) & 0x1f;
-                         return new fmul(cpu,address,rD,rA,rB,inst_stalls.get("fmul"));  
-              // 0b00110000000 fdiv
-              case 0x180:rB = (value >> 11) & 0x1f;
-                         return new fdiv(cpu,address,rD,rA,rB,inst_stalls.get("fdiv"));
-              // 0b01000000000 fcmp.un
-              case 0x200:rB = (value >> 11) & 0x1f;
-                         return new fcmpun(cpu,address,rD,rA,rB,inst_stalls.get("fcmpun"));
-              // 0b01000010000 fcmp.lt
-              case 0x210:rB = (value >> 11) & 0x1f;
-                         return new fcmplt(cpu,address,rD,rA,rB,inst_stalls.get("fcmplt"));
-              // 0b01000100000 fcmp.eq
-              case 0x220:rB = (value >> 11) & 0x1f;
-                         return new fcmpeq(cpu,address,rD,rA,rB,inst_stalls.get("fcmpeq"));
-              // 0b01000110000 fcmp.le
-              case 0x230:rB = (value >> 11) & 0x1f;
-                         return new fcmple(cpu,address,rD,rA,rB,inst_stalls.get("fcmple"));
-              // 0b01001000000 fcmp.gt
-              case 0x240:rB = (value >> 11) & 0x1f;
-                         return new fcmpgt(cpu,address,rD,rA,rB,inst_stalls.get("fcmpgt"));
-              // 0b01001010000 fcmp.ne
-              case 0x250:rB = (value >> 11) & 0x1f;
-                         return new fcmpne(cpu,address,rD,rA,rB,inst_stalls.get("fcmpne"));
-              // 0b01001100000 fcmp.ge
-              case 0x260:rB = (value >> 11) & 0x1f;
-                         return new fcmpge(cpu,address,rD,rA,rB,inst_stalls.get("fcmpge"));
-             }
-	         return new illegal(address);
+   case 0x16:return decodeFloat(address,value);
    // 0b011000 muli
    case 0x18:imm = value & 0xffff;
              return new muli(cpu,address,rD,rA,imm,inst_stalls.get("muli"));
@@ -292,66 +255,7 @@ public class instsetarq extends InstructionSetArchitecture
              }
              return new illegal(address);
    // 0b011011 get put
-   case 0x1b:type_b_13 = (value >> 3) & 0x1fff;
-             switch(type_b_13)
-             {
-              // 0b0000000000000 get
-              case 0x0000:if(rD == 0x00)
-                          {
-            	           FSLx = value & 0x00000007;
-            	           return new get(cpu,address,rD,FSLx,inst_stalls.get("get"));
-                          }
-                          return new illegal(address);
-              // 0b0010000000000 cget
-              case 0x0400:if(rD == 0x00)
-                          {
-   	                       FSLx = value & 0x00000007;
-            	           return new cget(cpu,address,rD,FSLx,inst_stalls.get("cget"));
-                          }
-                          return new illegal(address);
-              // 0b0100000000000 nget
-              case 0x0800:if(rD == 0x00)
-                          {
-   	                       FSLx = value & 0x00000007;
-            	           return new nget(cpu,address,rD,FSLx,inst_stalls.get("nget"));
-                          }
-                          return new illegal(address);
-              // 0b0110000000000 ncget
-              case 0x0c00:if(rD == 0x00)
-                          {
-   	                       FSLx = value & 0x00000007;
-            	           return new ncget(cpu,address,rD,FSLx,inst_stalls.get("ncget"));
-                          }
-                          return new illegal(address);
-              // 0b1000000000000 put
-              case 0x1000:if(rA == 0x00)
-                          {
-   	                       FSLx = value & 0x00000007;
-            	           return new put(cpu,address,rA,FSLx,inst_stalls.get("put"));
-                          }
-                          return new illegal(address);
-              // 0b1010000000000 cput
-              case 0x1400:if(rA == 0x00)
-                          {
-   	                       FSLx = value & 0x00000007;
-            	           return new cput(cpu,address,rA,FSLx,inst_stalls.get("cput"));
-                          }
-                          return new illegal(address);
-              // 0b1100000000000 nput
-              case 0x1800:if(rA == 0x00)
-                          {
-   	                       FSLx = value & 0x00000007;
-            	           return new nput(cpu,address,rA,FSLx,inst_stalls.get("nput"));
-                          }
-                          return new illegal(address);
-              // 0b1110000000000 ncput
-              case 0x1c00:if(rA == 0x00) 
-                          {
-   	                       FSLx = value & 0x00000007;
-            	           return new ncput(cpu,address,rA,FSLx,inst_stalls.get("ncput"));
-                          }
-             }      
-	         return new illegal(address);
+   case 0x1b:return decodeStream(address,value);
    // 0b100000 or
    case 0x20:type_a = value & 0x7ff;
 	         switch(type_a)
@@ -738,7 +642,339 @@ public class instsetarq extends InstructionSetArchitecture
   }
   return new illegal(address);
  }
-
+ 
+ /**
+  * Returns the floating point instruction decoded (opcode 0b010110).
+  *
+  * @param address the memory's address where the instruction will be placed.
+  * @param value the value that will be placed in the memory address.
+  * @return the instruction decoded.
+  */
+ private final Instruction decodeFloat(int address,int value)
+ {
+  int rD;
+  int rA;
+  int rB;
+  int type_a;
+  
+  rD = (value >> 21) & 0x1f;
+  rA = (value >> 16) & 0x1f;
+  type_a = value & 0x7ff;
+  switch(type_a)
+  {
+   // 0b00000000000 fadd
+   case 0x000:rB = (value >> 11) & 0x1f;
+              return new fadd(cpu,address,rD,rA,rB,inst_stalls.get("fadd"));
+   // 0b00010000000 frsub
+   case 0x080:rB = (value >> 11) & 0x1f;
+              return new frsub(cpu,address,rD,rA,rB,inst_stalls.get("frsub"));
+   // 0b00100000000 fmul
+   case 0x100:rB = (value >> 11) & 0x1f;
+              return new fmul(cpu,address,rD,rA,rB,inst_stalls.get("fmul"));  
+   // 0b00110000000 fdiv
+   case 0x180:rB = (value >> 11) & 0x1f;
+              return new fdiv(cpu,address,rD,rA,rB,inst_stalls.get("fdiv"));
+   // 0b01000000000 fcmp.un
+   case 0x200:rB = (value >> 11) & 0x1f;
+              return new fcmpun(cpu,address,rD,rA,rB,inst_stalls.get("fcmpun"));
+   // 0b01000010000 fcmp.lt
+   case 0x210:rB = (value >> 11) & 0x1f;
+              return new fcmplt(cpu,address,rD,rA,rB,inst_stalls.get("fcmplt"));
+   // 0b01000100000 fcmp.eq
+   case 0x220:rB = (value >> 11) & 0x1f;
+              return new fcmpeq(cpu,address,rD,rA,rB,inst_stalls.get("fcmpeq"));
+   // 0b01000110000 fcmp.le
+   case 0x230:rB = (value >> 11) & 0x1f;
+              return new fcmple(cpu,address,rD,rA,rB,inst_stalls.get("fcmple"));
+   // 0b01001000000 fcmp.gt
+   case 0x240:rB = (value >> 11) & 0x1f;
+              return new fcmpgt(cpu,address,rD,rA,rB,inst_stalls.get("fcmpgt"));
+   // 0b01001010000 fcmp.ne
+   case 0x250:rB = (value >> 11) & 0x1f;
+              return new fcmpne(cpu,address,rD,rA,rB,inst_stalls.get("fcmpne"));
+   // 0b01001100000 fcmp.ge
+   case 0x260:rB = (value >> 11) & 0x1f;
+              return new fcmpge(cpu,address,rD,rA,rB,inst_stalls.get("fcmpge"));
+  }
+  return new illegal(address);
+ }
+ 
+ /**
+  * Returns the stream link instruction decoded (opcode 0b011011).
+  *
+  * @param address the memory's address where the instruction will be placed.
+  * @param value the value that will be placed in the memory address.
+  * @return the instruction decoded.
+  */
+ private final Instruction decodeStream(int address,int value)
+ {
+  int rD;
+  int rA;
+  int type_b_13;
+  int FSLx;
+  
+  rD = (value >> 21) & 0x1f;
+  rA = (value >> 16) & 0x1f;
+  type_b_13 = (value >> 3) & 0x1fff;
+  switch(type_b_13)
+  {
+   // 0b0000000000000 get
+   case 0x0000:if(rD == 0x00)
+               {
+                FSLx = value & 0x00000007;
+                return new get(cpu,address,rD,FSLx,inst_stalls.get("get"));
+               }
+               return new illegal(address);
+   // 0b0010000000000 cget
+   case 0x0400:if(rD == 0x00)
+               {
+                FSLx = value & 0x00000007;
+                return new cget(cpu,address,rD,FSLx,inst_stalls.get("cget"));
+               }
+               return new illegal(address);
+   // 0b0100000000000 nget
+   case 0x0800:if(rD == 0x00)
+               {
+                FSLx = value & 0x00000007;
+                return new nget(cpu,address,rD,FSLx,inst_stalls.get("nget"));
+               }
+               return new illegal(address);
+   // 0b0110000000000 ncget
+   case 0x0c00:if(rD == 0x00)
+               {
+                FSLx = value & 0x00000007;
+                return new ncget(cpu,address,rD,FSLx,inst_stalls.get("ncget"));
+               }
+               return new illegal(address);
+   // 0b1000000000000 put
+   case 0x1000:if(rA == 0x00)
+               {
+                FSLx = value & 0x00000007;
+                return new put(cpu,address,rA,FSLx,inst_stalls.get("put"));
+               }
+               return new illegal(address);
+   // 0b1010000000000 cput
+   case 0x1400:if(rA == 0x00)
+               {
+                FSLx = value & 0x00000007;
+                return new cput(cpu,address,rA,FSLx,inst_stalls.get("cput"));
+               }
+               return new illegal(address);
+   // 0b1100000000000 nput
+   case 0x1800:if(rA == 0x00)
+               {
+                FSLx = value & 0x00000007;
+                return new nput(cpu,address,rA,FSLx,inst_stalls.get("nput"));
+               }
+               return new illegal(address);
+   // 0b1110000000000 ncput
+   case 0x1c00:if(rA == 0x00) 
+               {
+                FSLx = value & 0x00000007;
+                return new ncput(cpu,address,rA,FSLx,inst_stalls.get("ncput"));
+               }
+  }
+  return new illegal(address);
+ }
+ 
+ /**
+  * Returns the operation of the instruction word for the block engine. The operation is decoded from the opcode like the instruction,
+  * the instruction words which aren't executed by the block engine return the operation PIPELINE.
+  *
+  * @param value the instruction word.
+  * @return the operation of the instruction word.
+  * @see processors.microblaze_3sp.operation
+  */
+ public final int getOperation(int value)
+ {
+  int opcode;
+  int rD;
+  int rA;
+  int type_a;
+  
+  opcode = (value >> 26) & 0x3f;
+  rD = (value >> 21) & 0x1f;
+  rA = (value >> 16) & 0x1f;
+  type_a = value & 0x7ff;
+  switch(opcode)
+  {
+   // 0b000000 add
+   case 0x00:if(type_a == 0x000 && (value & 0x03fff800) != 0)
+	           return operation.ADD;
+             return operation.PIPELINE;
+   // 0b000001 rsub
+   case 0x01:return type_a == 0x000 ? operation.RSUB : operation.PIPELINE;
+   // 0b000010 addc 0b000011 rsubc 0b000110 addkc 0b000111 rsubkc
+   case 0x02:
+   case 0x03:
+   case 0x06:
+   case 0x07:return type_a == 0x000 ? operation.INSTRUCTION : operation.PIPELINE;
+   // 0b000100 addk
+   case 0x04:return type_a == 0x000 ? operation.ADDK : operation.PIPELINE;
+   // 0b000101 rsubk cmp cmpu
+   case 0x05:switch(type_a)
+             {
+              case 0x000:return operation.RSUBK;
+              case 0x001:return operation.CMP;
+              case 0x003:return operation.CMPU;
+             }
+             return operation.PIPELINE;
+   // 0b001000 addi
+   case 0x08:return operation.ADDI;
+   // 0b001001 rsubi
+   case 0x09:return operation.RSUBI;
+   // 0b001010 addic 0b001011 rsubic 0b001110 addikc 0b001111 rsubikc
+   case 0x0a:
+   case 0x0b:
+   case 0x0e:
+   case 0x0f:return operation.INSTRUCTION;
+   // 0b001100 addik
+   case 0x0c:return operation.ADDIK;
+   // 0b001101 rsubik
+   case 0x0d:return operation.RSUBIK;
+   // 0b010000 mul mulh mulhu
+   case 0x10:switch(type_a)
+             {
+              case 0x000:return operation.MUL;
+              case 0x001:
+              case 0x003:return operation.INSTRUCTION;
+             }
+             return operation.PIPELINE;
+   // 0b010001 bsrl bsra bsll
+   case 0x11:switch(type_a)
+             {
+              case 0x000:return operation.BSRL;
+              case 0x200:return operation.BSRA;
+              case 0x400:return operation.BSLL;
+             }
+             return operation.PIPELINE;
+   // 0b011000 muli
+   case 0x18:return operation.MULI;
+   // 0b011001 bsrli bsrai bslli
+   case 0x19:if(((value >> 11) & 0x1f) == 0x00)
+             {
+              switch((value >> 5) & 0x3f)
+              {
+               case 0x00:return operation.BSRLI;
+               case 0x10:return operation.BSRAI;
+               case 0x20:return operation.BSLLI;
+              }
+             }
+             return operation.PIPELINE;
+   // 0b100000 or pcmpbf
+   case 0x20:switch(type_a)
+             {
+              case 0x000:return operation.OR;
+              case 0x400:return operation.INSTRUCTION;
+             }
+             return operation.PIPELINE;
+   // 0b100001 and
+   case 0x21:return type_a == 0x000 ? operation.AND : operation.PIPELINE;
+   // 0b100010 xor pcmpeq
+   case 0x22:switch(type_a)
+             {
+              case 0x000:return operation.XOR;
+              case 0x400:return operation.INSTRUCTION;
+             }
+             return operation.PIPELINE;
+   // 0b100011 andn pcmpne
+   case 0x23:switch(type_a)
+             {
+              case 0x000:return operation.ANDN;
+              case 0x400:return operation.INSTRUCTION;
+             }
+             return operation.PIPELINE;
+   // 0b100100 sra src srl sext8 sext16
+   case 0x24:if(rD != 0x00)
+             {
+              switch(value & 0xffff)
+              {
+               case 0x0001:return operation.SRA;
+               case 0x0021:return operation.SRC;
+               case 0x0041:return operation.SRL;
+               case 0x0060:return operation.SEXT8;
+               case 0x0061:return operation.SEXT16;
+              }
+             }
+             return operation.PIPELINE;
+   // 0b100110 br bra brd brld brad brald
+   case 0x26:if(type_a == 0x000 && (rA & 0x03) == 0x00 && ((rA & 0x04) != 0 ? (rA & 0x10) != 0 : rD == 0x00))
+	           return operation.BRANCH;
+             return operation.PIPELINE;
+   // 0b100111 beq bne blt ble bgt bge (delay slot)
+   case 0x27:if(type_a == 0x000 && (rD & 0x0f) <= 0x05)
+	           return operation.COND;
+             return operation.PIPELINE;
+   // 0b101000 ori
+   case 0x28:return operation.ORI;
+   // 0b101001 andi
+   case 0x29:return operation.ANDI;
+   // 0b101010 xori
+   case 0x2a:return operation.XORI;
+   // 0b101011 andni
+   case 0x2b:return operation.ANDNI;
+   // 0b101100 imm
+   case 0x2c:return rD == 0x00 && rA == 0x00 ? operation.IMM : operation.PIPELINE;
+   // 0b101101 rtsd
+   case 0x2d:return rD == 0x10 ? operation.RETURN : operation.PIPELINE;
+   // 0b101110 bri brai brid brlid braid bralid
+   case 0x2e:if((rA & 0x03) == 0x00 && ((rA & 0x04) != 0 ? (rA & 0x10) != 0 : rD == 0x00))
+	           return operation.BRANCHI;
+             return operation.PIPELINE;
+   // 0b101111 beqi bnei blti blei bgti bgei (delay slot)
+   case 0x2f:if((rD & 0x0f) <= 0x05)
+	           return operation.CONDI;
+             return operation.PIPELINE;
+   // 0b110000 lbu 0b110001 lhu 0b110010 lw
+   case 0x30:
+   case 0x31:
+   case 0x32:return type_a == 0x000 ? operation.LOAD : operation.PIPELINE;
+   // 0b110100 sb 0b110101 sh 0b110110 sw
+   case 0x34:
+   case 0x35:
+   case 0x36:return type_a == 0x000 ? operation.STORE : operation.PIPELINE;
+   // 0b111000 lbui 0b111001 lhui 0b111010 lwi
+   case 0x38:
+   case 0x39:
+   case 0x3a:return operation.LOADI;
+   // 0b111100 sbi 0b111101 shi 0b111110 swi
+   case 0x3c:
+   case 0x3d:
+   case 0x3e:return operation.STOREI;
+  }
+  return operation.PIPELINE;
+ }
+ 
+ /**
+  * Returns the general register written by the instruction, the register D field of the instructions which write it. The conditional branches,
+  * the returns, the stores and the imm instruction don't write a general register, the branches without link and the instructions mts and put
+  * have the register D field equal to zero.
+  *
+  * @param value the instruction word.
+  * @return the number of the general register written by the instruction, zero if the instruction doesn't write a general register.
+  * @see system.cpu.InstructionSetArchitecture#getDestination(int)
+  */
+ public final int getDestination(int value)
+ {
+  switch((value >> 26) & 0x3f)
+  {
+   // 0b000000 to 0b001111 add rsub addc rsubc addk rsubk cmp cmpu addkc rsubkc and the immediate versions
+   case 0x00:case 0x01:case 0x02:case 0x03:case 0x04:case 0x05:case 0x06:case 0x07:
+   case 0x08:case 0x09:case 0x0a:case 0x0b:case 0x0c:case 0x0d:case 0x0e:case 0x0f:
+   // 0b010000 mul mulh mulhu 0b010001 bs 0b010010 idiv 0b010110 fpu 0b011000 muli 0b011001 bsi 0b011011 get put
+   case 0x10:case 0x11:case 0x12:case 0x16:case 0x18:case 0x19:case 0x1b:
+   // 0b100000 or pcmpbf 0b100001 and 0b100010 xor pcmpeq 0b100011 andn pcmpne 0b100100 sext sra src srl 0b100101 mfs msrclr msrset mts
+   case 0x20:case 0x21:case 0x22:case 0x23:case 0x24:case 0x25:
+   // 0b100110 br brk 0b101110 bri brki
+   case 0x26:case 0x2e:
+   // 0b101000 ori 0b101001 andi 0b101010 xori 0b101011 andni
+   case 0x28:case 0x29:case 0x2a:case 0x2b:
+   // 0b110000 lbu 0b110001 lhu 0b110010 lw 0b111000 lbui 0b111001 lhui 0b111010 lwi
+   case 0x30:case 0x31:case 0x32:case 0x38:case 0x39:case 0x3a:return (value >> 21) & 0x1f;
+  }
+  return 0;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -776,6 +1012,40 @@ public class instsetarq extends InstructionSetArchitecture
  {
   return new brai(cpu,0,0x10,inst_stalls.get("brai")); 
  }
+ 
+ /**
+  * Returns the number of cycles that the instruction spends to be executed in the execute stage. The instruction always spends one cycle,
+  * a latency lower than one is completed in the first cycle. This is the cost of the instruction used by the block engine and by the jit compiler.
+  *
+  * @param name the instruction name.
+  * @return the number of cycles that the instruction spends to be executed in the execute stage, 1 if the instruction isn't configured.
+  */
+ public final int getCycles(String name)
+ {
+  Integer latency;
+  
+  latency = inst_stalls.get(name);
+  if(latency == null || latency < 1)
+	return 1;
+  return latency;
+ }
+
+ /**
+  * Returns the number of cycles that the conditional branch instruction spends to be executed in the execute stage when the branch is taken,
+  * with a minimum of one cycle like the cost given by getCycles.
+  *
+  * @param name the instruction name.
+  * @return the number of cycles of the branch taken, 1 if the instruction isn't a conditional branch.
+  */
+ public final int getCondCycles(String name)
+ {
+  Integer latency;
+  
+  latency = inst_cond_stalls.get(name);
+  if(latency == null || latency < 1)
+	return 1;
+  return latency;
+ }
 
  // -----------------------------------
  // methods used to display information
@@ -0,0 +1,147 @@
+package processors.microblaze_3sp;
+
+import system.memory.*;
+
+/**
+ * The jit block class. This class is the base class of the code generated by the jit compiler for a block of the block engine.
+ * The generated code executes the instructions of the block on the general registers and accesses the data memory through the methods of this class.
+ * When an instruction can't be executed by the generated code (device access, unaligned access, a store in the code of the block or an access after
+ * the cycles given by the block engine) the generated code returns the number of instructions executed and the remaining instructions are executed by the block engine.
+ */
+public abstract class jitblock
+{
+ /** The memory system. */
+ private Memory memory;
+ /** The lowest word address (address >>> 2) where the stores aren't performed by the generated code. */
+ private int code_begin;
+ /** The highest word address (address >>> 2) where the stores aren't performed by the generated code. */
+ private int code_end;
+ /** The number of cycles of the instructions without the memory latency, indexed by the number of instructions executed. */
+ private int[] costs;
+ /** The number of cycles of the memory latency of the last execution. */
+ private int cycles;
+ /** The maximum number of cycles of the memory latency of the last execution. */
+ private int slack;
+ 
+ /**
+  * Instantiates a new jit block. The jit block is instantiated by the jit compiler.
+  */
+ protected jitblock()
+ {
+ }
+ 
+ /**
+  * Sets the parameters of the jit block.
+  *
+  * @param memory the memory system.
+  * @param code_begin the lowest word address where the stores aren't performed by the generated code.
+  * @param code_end the highest word address where the stores aren't performed by the generated code.
+  * @param costs the number of cycles of the instructions without the memory latency, indexed by the number of instructions executed.
+  */
+ final void setup(Memory memory,int code_begin,int code_end,int[] costs)
+ {
+  this.memory = memory;
+  this.code_begin = code_begin;
+  this.code_end = code_end;
+  this.costs = costs;
+ }
+ 
+ // ----------------------------------------
+ // methods used to execute the instructions
+ // ----------------------------------------
+ 
+ /**
+  * Executes the instructions of the block. This method is generated by the jit compiler.
+  *
+  * @param general the general registers of the cpu.
+  * @return the number of instructions executed.
+  */
+ public abstract int execute(int[] general);
+ 
+ /**
+  * Executes the instructions of the block. The memory accesses which latency exceeds the maximum number of cycles aren't performed,
+  * the remaining instructions are executed by the block engine.
+  *
+  * @param general the general registers of the cpu.
+  * @param slack the maximum number of cycles of the memory latency.
+  * @return the number of instructions executed.
+  */
+ final int run(int[] general,int slack)
+ {
+  cycles = 0;
+  this.slack = slack;
+  return execute(general);
+ }
+ 
+ /**
+  * Returns the number of cycles spent by the instructions executed in the last execution.
+  *
+  * @param executed the number of instructions executed.
+  * @return the number of cycles.
+  */
+ final int getCycles(int executed)
+ {
+  return costs[executed] + cycles;
+ }
+ 
+ /**
+  * Returns the number of cycles of all the instructions of the generated code without the memory latency.
+  *
+  * @return the number of cycles.
+  */
+ final int getCost()
+ {
+  return costs[costs.length - 1];
+ }
+ 
+ // --------------------------------------------------
+ // methods used by the generated code (memory access)
+ // --------------------------------------------------
+ 
+ /**
+  * Validates a data memory access and adds the memory latency to the number of cycles.
+  *
+  * @param address the memory address.
+  * @param size the size of the access (bytes).
+  * @param write the access type, false - read, true - write.
+  * @return true if the access can be performed by the generated code.
+  */
+ protected final boolean access(int address,int size,boolean write)
+ {
+  int latency;
+  
+  latency = memory.getAccessCycles(address,size,write);
+  if(latency == 0)
+	return false;
+  if(write && (address >>> 2) >= code_begin && (address >>> 2) <= code_end)
+	return false;
+  if(cycles + latency - 1 > slack)
+	return false;
+  cycles = cycles + latency - 1;
+  return true;
+ }
+ 
+ /**
+  * Reads a value from the data memory.
+  *
+  * @param address the memory address.
+  * @param size the size of the access (bytes).
+  * @return the value read.
+  */
+ protected final int load(int address,int size)
+ {
+  return memory.loadData(address,size);
+ }
+ 
+ /**
+  * Writes a value in the data memory.
+  *
+  * @param address the memory address.
+  * @param size the size of the access (bytes).
+  * @param data the value to be wrote.
+  */
+ protected final void store(int address,int size,int data)
+ {
+  memory.storeData(address,size,data);
+ }
+}
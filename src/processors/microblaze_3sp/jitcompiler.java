@@ -0,0 +1,658 @@
+package processors.microblaze_3sp;
+
+import java.io.*;
+import java.util.*;
+
+import system.memory.*;
+import system.cpu.*;
+import system.*;
+
+/**
+ * The jit compiler class. This class translates the blocks of the block engine in JVM classes, the classes generated extend the jit block class.
+ * The generated code executes the instructions of the block straight on the general registers, the immediate instructions are folded in the instruction that follows them.
+ * The result of each arithmetic or logical instruction is computed by the operate method of its instruction class, the same method used by the pipeline and by the block engine.
+ * The compiler translates the instructions of the block until the first instruction that can't be translated (branch, return, special register access, carry
+ * or division instructions), the remaining instructions of the block are executed by the pipeline.
+ * The compiled code is only called from the run of the block engine, so the run isn't tried when the interrupt window doesn't cover the block
+ * and the tries which don't run any instruction are backed off as in the block engine.
+ */
+public final class jitcompiler
+{
+ /** The minimum number of instructions translated of a block. */
+ private static final int MINIMUM = 2;
+ /** The name of the jit block class in the JVM format. */
+ private static final String JITBLOCK = "processors/microblaze_3sp/jitblock";
+ /** The package of the instruction classes in the JVM format, the generated code calls the operate method of the instruction classes. */
+ private static final String INSTRUCTION = "processors/microblaze_3sp/instruction/";
+
+ /** The ALU operation with two source registers. */
+ private static final int REGISTER  = 1;
+ /** The ALU operation with a source register and an immediate value. */
+ private static final int IMMEDIATE = 2;
+ /** The memory read. */
+ private static final int LOAD      = 3;
+ /** The memory write. */
+ private static final int STORE     = 4;
+ /** The ALU operation with one source register. */
+ private static final int UNARY     = 5;
+
+ /** The memory system. */
+ private Memory memory;
+ /** The class loader of the generated classes. */
+ private loader class_loader;
+ /** The number of blocks compiled. */
+ private long blocks;
+ /** The number of bytes of the classes generated. */
+ private long bytes;
+ /** The time spent compiling the blocks (nanoseconds). */
+ private long time;
+ /** The number of instructions executed by the generated code. */
+ private long instructions;
+
+ /** The constant pool of the class in generation. */
+ private ByteArrayOutputStream pool_bytes;
+ /** The output stream of the constant pool of the class in generation. */
+ private DataOutputStream pool;
+ /** The index of the constant pool entries of the class in generation. */
+ private Map<String,Integer> pool_index;
+ /** The number of constant pool entries of the class in generation plus one. */
+ private int pool_count;
+ /** The output stream of the bytecode of the method in generation. */
+ private ByteArrayOutputStream code_bytes;
+ /** The bytecode of the method in generation. */
+ private DataOutputStream code;
+
+ /**
+  * Instantiates a new jit compiler.
+  *
+  * @param memory the memory system.
+  */
+ public jitcompiler(Memory memory)
+ {
+  this.memory = memory;
+  class_loader = new loader();
+ }
+
+ // ---------------------------------
+ // methods used to compile the block
+ // ---------------------------------
+
+ /**
+  * Compiles a block.
+  *
+  * @param block_aux the block.
+  * @return the jit block with the code generated, null if the block can't be compiled.
+  */
+ public final jitblock compile(block block_aux)
+ {
+  Instruction instruction;
+  jitblock jit_block;
+  String name;
+  long time_begin;
+  byte[] bytecode;
+  int[] words;
+  int[] costs;
+  int length;
+  int aux;
+
+  time_begin = System.nanoTime();
+  words = new int[block_aux.getLength()];
+  length = 0;
+  try
+  {
+   for(aux = 0;aux < block_aux.getLength();aux++)
+   {
+	instruction = block_aux.getInstruction(aux);
+	if(instruction instanceof stop || instruction instanceof breakpoint)
+	  break;
+	name = instruction.toString();
+	if(getType(name) == 0 && !name.equals("imm"))
+	  break;
+	words[aux] = memory.getMemoryWord((block_aux.getBegin() + aux) << 2);
+	if(aux > 0 && block_aux.getInstruction(aux - 1).toString().equals("imm") && !isPrefixed(name,words[aux]))
+	{
+	 aux--;
+	 break;
+	}
+   }
+   length = aux;
+  }
+  catch(MemoryException e)
+  {
+   length = 0;
+  }
+  if(length > 0 && block_aux.getInstruction(length - 1).toString().equals("imm"))
+	length--;
+  if(length < MINIMUM)
+	return null;
+
+  costs = new int[length + 1];
+  for(aux = 0;aux < length;aux++)
+	costs[aux + 1] = costs[aux] + block_aux.getCost(aux);
+  try
+  {
+   bytecode = generate(block_aux,words,length);
+   jit_block = (jitblock)class_loader.define(getClassName(block_aux),bytecode).getDeclaredConstructor().newInstance();
+  }
+  catch(IOException e)
+  {
+   return null;
+  }
+  catch(ReflectiveOperationException e)
+  {
+   return null;
+  }
+  catch(LinkageError e)
+  {
+   return null;
+  }
+  jit_block.setup(memory,block_aux.getBegin(),block_aux.getBegin() + block_aux.getLength() - 1,costs);
+  blocks++;
+  bytes = bytes + bytecode.length;
+  time = time + System.nanoTime() - time_begin;
+  return jit_block;
+ }
+
+ /**
+  * Adds the number of instructions executed by the generated code.
+  *
+  * @param executed the number of instructions executed.
+  */
+ public final void executed(int executed)
+ {
+  instructions = instructions + executed;
+ }
+
+ /**
+  * Removes all the classes generated. The classes are released with the class loader.
+  */
+ public final void reset()
+ {
+  class_loader = new loader();
+ }
+
+ // ---------------------------------
+ // methods used to generate the code
+ // ---------------------------------
+
+ /**
+  * Generates the class of the block.
+  *
+  * @param block_aux the block.
+  * @param words the instruction words of the block.
+  * @param length the number of instructions translated.
+  * @return the class file.
+  * @throws IOException if any error occurs when writing the class file.
+  */
+ private final byte[] generate(block block_aux,int[] words,int length) throws IOException
+ {
+  ByteArrayOutputStream class_bytes;
+  DataOutputStream class_file;
+  byte[] init;
+  byte[] execute;
+  int this_class;
+  int super_class;
+  int aux;
+
+  pool_bytes = new ByteArrayOutputStream();
+  pool = new DataOutputStream(pool_bytes);
+  pool_index = new HashMap<String,Integer>();
+  pool_count = 1;
+  this_class = getClass(getClassName(block_aux).replace('.','/'));
+  super_class = getClass(JITBLOCK);
+
+  begin();
+  code.writeByte(0x2a);
+  code.writeByte(0xb7);
+  code.writeShort(getMethod(JITBLOCK,"<init>","()V"));
+  code.writeByte(0xb1);
+  init = end();
+
+  begin();
+  for(aux = 0;aux < length;aux++)
+  {
+   if(block_aux.getInstruction(aux).toString().equals("imm"))
+	 continue;
+   if(aux > 0 && block_aux.getInstruction(aux - 1).toString().equals("imm"))
+	 instruction(block_aux.getInstruction(aux).toString(),words[aux],(words[aux - 1] << 16) | (words[aux] & 0xffff),aux - 1);
+   else
+	 instruction(block_aux.getInstruction(aux).toString(),words[aux],(short)words[aux],aux);
+  }
+  constant(length);
+  code.writeByte(0xac);
+  execute = end();
+
+  getUtf8("Code");
+  getUtf8("execute");
+  getUtf8("([I)I");
+  class_bytes = new ByteArrayOutputStream();
+  class_file = new DataOutputStream(class_bytes);
+  class_file.writeInt(0xcafebabe);
+  class_file.writeShort(0);
+  class_file.writeShort(49);
+  class_file.writeShort(pool_count);
+  class_file.write(pool_bytes.toByteArray());
+  class_file.writeShort(0x0021);
+  class_file.writeShort(this_class);
+  class_file.writeShort(super_class);
+  class_file.writeShort(0);
+  class_file.writeShort(0);
+  class_file.writeShort(2);
+  method(class_file,"<init>","()V",1,1,init);
+  method(class_file,"execute","([I)I",8,3,execute);
+  class_file.writeShort(0);
+  return class_bytes.toByteArray();
+ }
+
+ /**
+  * Generates the code of an instruction.
+  *
+  * @param name the instruction name.
+  * @param word the instruction word.
+  * @param imm the immediate value of the instruction (sign extended or with the value of the previous immediate instruction).
+  * @param index the index of the first instruction executed by the pipeline if the instruction can't be executed by the generated code.
+  * @throws IOException if any error occurs when writing the bytecode.
+  */
+ private final void instruction(String name,int word,int imm,int index) throws IOException
+ {
+  int rD;
+  int rA;
+  int rB;
+  int size;
+
+  rD = (word >> 21) & 0x1f;
+  rA = (word >> 16) & 0x1f;
+  rB = (word >> 11) & 0x1f;
+  switch(getType(name))
+  {
+   case REGISTER:if(rD == 0)
+	               return;
+                 code.writeByte(0x2b);
+                 constant(rD);
+                 register(rA);
+                 register(rB);
+                 code.writeByte(0xb8);
+                 code.writeShort(getMethod(INSTRUCTION + name,"operate","(II)I"));
+                 code.writeByte(0x4f);
+                 return;
+   case IMMEDIATE:if(rD == 0)
+	                return;
+                  code.writeByte(0x2b);
+                  constant(rD);
+                  register(rA);
+                  if(name.equals("bslli") || name.equals("bsrli") || name.equals("bsrai"))
+                    constant(word & 0x1f);
+                  else
+                    constant(imm);
+                  code.writeByte(0xb8);
+                  code.writeShort(getMethod(INSTRUCTION + name,"operate","(II)I"));
+                  code.writeByte(0x4f);
+                  return;
+   case UNARY:if(rD == 0)
+	            return;
+              code.writeByte(0x2b);
+              constant(rD);
+              register(rA);
+              code.writeByte(0xb8);
+              code.writeShort(getMethod(INSTRUCTION + name,"operate","(I)I"));
+              code.writeByte(0x4f);
+              return;
+   case LOAD:
+   case STORE:size = getSize(name);
+              register(rA);
+              if(name.endsWith("i"))
+            	constant(imm);
+              else
+            	register(rB);
+              code.writeByte(0x60);
+              code.writeByte(0x3d);
+              code.writeByte(0x2a);
+              code.writeByte(0x1c);
+              constant(size);
+              constant(getType(name) == STORE ? 1 : 0);
+              code.writeByte(0xb6);
+              code.writeShort(getMethod(JITBLOCK,"access","(IIZ)Z"));
+              code.writeByte(0x9a);
+              code.writeShort(6);
+              code.writeByte(0x10);
+              code.writeByte(index);
+              code.writeByte(0xac);
+              if(getType(name) == STORE)
+              {
+               code.writeByte(0x2a);
+               code.writeByte(0x1c);
+               constant(size);
+               register(rD);
+               code.writeByte(0xb6);
+               code.writeShort(getMethod(JITBLOCK,"store","(III)V"));
+              }
+              else if(rD != 0)
+              {
+               code.writeByte(0x2b);
+               constant(rD);
+               code.writeByte(0x2a);
+               code.writeByte(0x1c);
+               constant(size);
+               code.writeByte(0xb6);
+               code.writeShort(getMethod(JITBLOCK,"load","(II)I"));
+               code.writeByte(0x4f);
+              }
+  }
+ }
+
+ /**
+  * Generates the code that pushes the value of a general register.
+  *
+  * @param register the general register.
+  * @throws IOException if any error occurs when writing the bytecode.
+  */
+ private final void register(int register) throws IOException
+ {
+  if(register == 0)
+  {
+   code.writeByte(0x03);
+   return;
+  }
+  code.writeByte(0x2b);
+  constant(register);
+  code.writeByte(0x2e);
+ }
+
+ /**
+  * Generates the code that pushes an integer constant.
+  *
+  * @param value the integer constant.
+  * @throws IOException if any error occurs when writing the bytecode.
+  */
+ private final void constant(int value) throws IOException
+ {
+  int index;
+
+  if(value >= -1 && value <= 5)
+	code.writeByte(0x03 + value);
+  else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+  {
+   code.writeByte(0x10);
+   code.writeByte(value);
+  }
+  else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+  {
+   code.writeByte(0x11);
+   code.writeShort(value);
+  }
+  else
+  {
+   index = getInteger(value);
+   if(index < 256)
+   {
+	code.writeByte(0x12);
+	code.writeByte(index);
+   }
+   else
+   {
+	code.writeByte(0x13);
+	code.writeShort(index);
+   }
+  }
+ }
+
+ /**
+  * Begins the bytecode of a method.
+  */
+ private final void begin()
+ {
+  code_bytes = new ByteArrayOutputStream();
+  code = new DataOutputStream(code_bytes);
+ }
+
+ /**
+  * Ends the bytecode of a method.
+  *
+  * @return the bytecode of the method.
+  */
+ private final byte[] end()
+ {
+  return code_bytes.toByteArray();
+ }
+
+ /**
+  * Writes a public method in the class file. The constant pool entries of the method must be created before the constant pool is wrote.
+  *
+  * @param class_file the class file.
+  * @param name the method name.
+  * @param descriptor the method descriptor.
+  * @param max_stack the maximum depth of the operand stack.
+  * @param max_locals the number of local variables.
+  * @param bytecode the bytecode of the method.
+  * @throws IOException if any error occurs when writing the class file.
+  */
+ private final void method(DataOutputStream class_file,String name,String descriptor,int max_stack,int max_locals,byte[] bytecode) throws IOException
+ {
+  class_file.writeShort(0x0001);
+  class_file.writeShort(getUtf8(name));
+  class_file.writeShort(getUtf8(descriptor));
+  class_file.writeShort(1);
+  class_file.writeShort(getUtf8("Code"));
+  class_file.writeInt(12 + bytecode.length);
+  class_file.writeShort(max_stack);
+  class_file.writeShort(max_locals);
+  class_file.writeInt(bytecode.length);
+  class_file.write(bytecode);
+  class_file.writeShort(0);
+  class_file.writeShort(0);
+ }
+
+ // ----------------------------------------
+ // methods used to handle the constant pool
+ // ----------------------------------------
+
+ /**
+  * Returns the index of an utf8 entry of the constant pool, the entry is created if doesn't exist.
+  *
+  * @param value the string value.
+  * @return the index of the entry.
+  * @throws IOException if any error occurs when writing the constant pool.
+  */
+ private final int getUtf8(String value) throws IOException
+ {
+  Integer index;
+
+  index = pool_index.get("U" + value);
+  if(index != null)
+	return index;
+  pool.writeByte(1);
+  pool.writeUTF(value);
+  pool_index.put("U" + value,pool_count);
+  return pool_count++;
+ }
+
+ /**
+  * Returns the index of an integer entry of the constant pool, the entry is created if doesn't exist.
+  *
+  * @param value the integer value.
+  * @return the index of the entry.
+  * @throws IOException if any error occurs when writing the constant pool.
+  */
+ private final int getInteger(int value) throws IOException
+ {
+  Integer index;
+
+  index = pool_index.get("I" + value);
+  if(index != null)
+	return index;
+  pool.writeByte(3);
+  pool.writeInt(value);
+  pool_index.put("I" + value,pool_count);
+  return pool_count++;
+ }
+
+ /**
+  * Returns the index of a class entry of the constant pool, the entry is created if doesn't exist.
+  *
+  * @param name the class name in the JVM format.
+  * @return the index of the entry.
+  * @throws IOException if any error occurs when writing the constant pool.
+  */
+ private final int getClass(String name) throws IOException
+ {
+  Integer index;
+  int name_index;
+
+  index = pool_index.get("C" + name);
+  if(index != null)
+	return index;
+  name_index = getUtf8(name);
+  pool.writeByte(7);
+  pool.writeShort(name_index);
+  pool_index.put("C" + name,pool_count);
+  return pool_count++;
+ }
+
+ /**
+  * Returns the index of a method entry of the constant pool, the entry is created if doesn't exist.
+  *
+  * @param owner the class name of the method in the JVM format.
+  * @param name the method name.
+  * @param descriptor the method descriptor.
+  * @return the index of the entry.
+  * @throws IOException if any error occurs when writing the constant pool.
+  */
+ private final int getMethod(String owner,String name,String descriptor) throws IOException
+ {
+  Integer index;
+  int class_index;
+  int name_index;
+  int descriptor_index;
+  int name_type_index;
+
+  index = pool_index.get("M" + owner + "." + name + descriptor);
+  if(index != null)
+	return index;
+  class_index = getClass(owner);
+  name_index = getUtf8(name);
+  descriptor_index = getUtf8(descriptor);
+  pool.writeByte(12);
+  pool.writeShort(name_index);
+  pool.writeShort(descriptor_index);
+  name_type_index = pool_count++;
+  pool.writeByte(10);
+  pool.writeShort(class_index);
+  pool.writeShort(name_type_index);
+  pool_index.put("M" + owner + "." + name + descriptor,pool_count);
+  return pool_count++;
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Returns the type of the instruction for the compiler.
+  *
+  * @param name the instruction name.
+  * @return the type of the instruction, 0 if the instruction can't be compiled.
+  */
+ private final int getType(String name)
+ {
+  if(name.equals("addk") || name.equals("rsubk") || name.equals("and") || name.equals("andn") || name.equals("or") || name.equals("xor") ||
+     name.equals("bsll") || name.equals("bsrl") || name.equals("bsra") || name.equals("mul") || name.equals("cmp") || name.equals("cmpu"))
+	return REGISTER;
+  if(name.equals("addik") || name.equals("rsubik") || name.equals("andi") || name.equals("andni") || name.equals("ori") || name.equals("xori") ||
+     name.equals("muli") || name.equals("bslli") || name.equals("bsrli") || name.equals("bsrai"))
+	return IMMEDIATE;
+  if(name.equals("sext8") || name.equals("sext16"))
+	return UNARY;
+  if(name.equals("lw") || name.equals("lwi") || name.equals("lhu") || name.equals("lhui") || name.equals("lbu") || name.equals("lbui"))
+	return LOAD;
+  if(name.equals("sw") || name.equals("swi") || name.equals("sh") || name.equals("shi") || name.equals("sb") || name.equals("sbi"))
+	return STORE;
+  return 0;
+ }
+
+ /**
+  * Returns true if the instruction can be compiled after an immediate instruction. The instruction must use the immediate value.
+  * The memory instructions with the bit 15 of the immediate value set aren't compiled, the pipeline extends again the sign of the immediate value
+  * in the cycles of the memory latency and the result is kept by the instruction.
+  *
+  * @param name the instruction name.
+  * @param word the instruction word.
+  * @return true if the instruction can be compiled after an immediate instruction.
+  */
+ private final boolean isPrefixed(String name,int word)
+ {
+  if(name.equals("bslli") || name.equals("bsrli") || name.equals("bsrai"))
+	return false;
+  if(getType(name) == IMMEDIATE)
+	return true;
+  if((getType(name) == LOAD || getType(name) == STORE) && name.endsWith("i"))
+	return (word & 0x8000) == 0;
+  return false;
+ }
+
+ /**
+  * Returns the size of the memory access of the instruction (bytes).
+  *
+  * @param name the instruction name.
+  * @return the size of the memory access.
+  */
+ private final int getSize(String name)
+ {
+  if(name.startsWith("lw") || name.startsWith("sw"))
+	return 4;
+  if(name.startsWith("lh") || name.startsWith("sh"))
+	return 2;
+  return 1;
+ }
+
+ /**
+  * Returns the name of the class generated for the block.
+  *
+  * @param block_aux the block.
+  * @return the class name.
+  */
+ private final String getClassName(block block_aux)
+ {
+  return "processors.microblaze_3sp.jit.block_" + Integer.toHexString(block_aux.getBegin() << 2) + "_" + blocks;
+ }
+
+ // -----------------------------------
+ // methods used to display information
+ // -----------------------------------
+
+ /**
+  * Shows the statistics of the jit compiler.
+  */
+ public final void show()
+ {
+  System.out.println(" " + "<compiled>  : " + Util.toDecStringSpace(blocks,12) + " blocks");
+  System.out.println(" " + "<bytecode>  : " + Util.toDecStringSpace(bytes,12) + " bytes");
+  System.out.println(" " + "<compiling> : " + Util.toDecStringSpace((float)(time / 1E6),12) + " ms");
+  System.out.println(" " + "<translated>: " + Util.toDecStringSpace(instructions,12) + " instructions");
+ }
+
+ /**
+  * The class loader of the generated classes.
+  */
+ private static final class loader extends ClassLoader
+ {
+  /**
+   * Instantiates a new class loader.
+   */
+  loader()
+  {
+   super(jitblock.class.getClassLoader());
+  }
+
+  /**
+   * Defines a generated class.
+   *
+   * @param name the class name.
+   * @param bytecode the class file.
+   * @return the class.
+   */
+  final Class<?> define(String name,byte[] bytecode)
+  {
+   return defineClass(name,bytecode,0,bytecode.length);
+  }
+ }
+}
@@ -0,0 +1,114 @@
+package processors.microblaze_3sp;
+
+/**
+ * The operation class. The operations of the instructions pre-decoded by the block engine, the operation is decoded from the opcode of the instruction word
+ * and the block engine executes it straight on the registers of the cpu, without the instruction of the pipeline.
+ */
+public final class operation
+{
+ // -------------------
+ // pipeline operations
+ // -------------------
+
+ /** The operation of the instructions executed by the pipeline (special registers, divisions, floating point, stream links, cache and break instructions). */
+ public static final int PIPELINE = 0;
+ /** The operation of the register instructions executed by the instruction of the pipeline in one step (carry in, high multiplications and pattern compares). */
+ public static final int INSTRUCTION = 1;
+
+ // ---------------------------------
+ // arithmetic and logical operations
+ // ---------------------------------
+
+ /** The operation add (carry out). */
+ public static final int ADD    = 2;
+ /** The operation addk. */
+ public static final int ADDK   = 3;
+ /** The operation addi (carry out). */
+ public static final int ADDI   = 4;
+ /** The operation addik. */
+ public static final int ADDIK  = 5;
+ /** The operation rsub (carry out). */
+ public static final int RSUB   = 6;
+ /** The operation rsubk. */
+ public static final int RSUBK  = 7;
+ /** The operation rsubi (carry out). */
+ public static final int RSUBI  = 8;
+ /** The operation rsubik. */
+ public static final int RSUBIK = 9;
+ /** The operation cmp. */
+ public static final int CMP    = 10;
+ /** The operation cmpu. */
+ public static final int CMPU   = 11;
+ /** The operation mul. */
+ public static final int MUL    = 12;
+ /** The operation muli. */
+ public static final int MULI   = 13;
+ /** The operation and. */
+ public static final int AND    = 14;
+ /** The operation andi. */
+ public static final int ANDI   = 15;
+ /** The operation andn. */
+ public static final int ANDN   = 16;
+ /** The operation andni. */
+ public static final int ANDNI  = 17;
+ /** The operation or. */
+ public static final int OR     = 18;
+ /** The operation ori. */
+ public static final int ORI    = 19;
+ /** The operation xor. */
+ public static final int XOR    = 20;
+ /** The operation xori. */
+ public static final int XORI   = 21;
+ /** The operation bsll. */
+ public static final int BSLL   = 22;
+ /** The operation bsrl. */
+ public static final int BSRL   = 23;
+ /** The operation bsra. */
+ public static final int BSRA   = 24;
+ /** The operation bslli. */
+ public static final int BSLLI  = 25;
+ /** The operation bsrli. */
+ public static final int BSRLI  = 26;
+ /** The operation bsrai. */
+ public static final int BSRAI  = 27;
+ /** The operation sext8. */
+ public static final int SEXT8  = 28;
+ /** The operation sext16. */
+ public static final int SEXT16 = 29;
+ /** The operation sra (carry out). */
+ public static final int SRA    = 30;
+ /** The operation src (carry in and carry out). */
+ public static final int SRC    = 31;
+ /** The operation srl (carry out). */
+ public static final int SRL    = 32;
+ /** The operation imm. */
+ public static final int IMM    = 33;
+
+ // -----------------
+ // memory operations
+ // -----------------
+
+ /** The operations lbu, lhu and lw, the size of the access is given by the opcode. */
+ public static final int LOAD   = 34;
+ /** The operations lbui, lhui and lwi, the size of the access is given by the opcode. */
+ public static final int LOADI  = 35;
+ /** The operations sb, sh and sw, the size of the access is given by the opcode. */
+ public static final int STORE  = 36;
+ /** The operations sbi, shi and swi, the size of the access is given by the opcode. */
+ public static final int STOREI = 37;
+
+ // -----------------
+ // branch operations
+ // -----------------
+
+ /** The operations br, bra, brd, brad, brld and brald, the delay slot, absolute and link flags are given by the register A field. */
+ public static final int BRANCH  = 38;
+ /** The operations bri, brai, brid, braid, brlid and bralid, the delay slot, absolute and link flags are given by the register A field. */
+ public static final int BRANCHI = 39;
+ /** The operations beq, bne, blt, ble, bgt, bge and their delay slot versions, the condition and the delay slot flag are given by the register D field. */
+ public static final int COND    = 40;
+ /** The operations beqi, bnei, blti, blei, bgti, bgei and their delay slot versions, the condition and the delay slot flag are given by the register D field. */
+ public static final int CONDI   = 41;
+ /** The operation rtsd. */
+ public static final int RETURN  = 42;
+}
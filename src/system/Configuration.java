@@ -33,8 +33,22 @@ public class Configuration
  public static final String profile_file_default      = "profile.txt";
  /** The default trace file name. */
  public static final String trace_file_default        = "trace.txt";
+ /** The default binary trace file name. */
+ public static final String trace_binary_file_default = "trace.bin";
+ /** The default coverage (lcov) file name. */
+ public static final String coverage_file_default     = "coverage.info";
+ /** The default number of lines in the hot spot lists. */
+ public static final int    hotspot_lines_default     = 20;
+ /** The default sampling jitter, the sampling period divided by this value. */
+ public static final int    sample_jitter_divisor_default = 8;
  /** The default port number. */
  public static final int    port_number_default       = 1234;
+ /** The default number of cycles simulated by the GDB server between two checks of the interrupt from the GDB client. */
+ public static final int    gdb_batch_default         = 100000;
+ /** The default maximum number of snapshots of the reverse execution kept by the GDB server (0 disables the reverse execution). */
+ public static final int    replay_snapshots_default  = 32;
+ /** The default minimum number of cycles between two snapshots of the reverse execution. */
+ public static final int    replay_cycles_default     = 1000000;
  /** The configuration folder full path name. */
  public static final String configuration_folder = root_folder + configuration + (System.getProperty("os.name").toUpperCase().indexOf("WINDOWS") == 0 ? "\\" : "/");
  /** The default system configuration file full path name. */
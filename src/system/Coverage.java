@@ -0,0 +1,319 @@
+package system;
+
+import java.nio.channels.*;
+import java.nio.*;
+import java.io.*;
+
+import system.memory.*;
+import system.cpu.*;
+
+/**
+ * The coverage class. This class keeps the instructions executed in the coverage simulation in a bitset over the code range of the
+ * functions, one bit per instruction, and for each conditional branch (beq, bne, blt, ble, bgt and bge, with their immediate and delay
+ * slot variants) one bit for the taken direction and one bit for the not taken direction. The bitsets are saved in the coverage data files,
+ * the data files of several simulations of the same binary file are merged with the or of the bitsets.
+ */
+public final class Coverage
+{
+ /** The identifier of the coverage data files ("FWCV"). */
+ private static final int COVERAGE_ID = 0x46574356;
+ /** The version of the coverage data files format. */
+ private static final int COVERAGE_VERSION = 1;
+ /** The maximum number of instructions covered by the bitsets. */
+ private static final long BITMAP_LIMIT = 1L << 26;
+ /** The lowest memory address of the bitsets. */
+ private long base;
+ /** The number of instructions covered by the bitsets. */
+ private long size;
+ /** The bitset of the conditional branches. */
+ private long[] branch;
+ /** The bitset of the conditional branches with delay slot. */
+ private long[] delay;
+ /** The bitset of the executed instructions. */
+ private long[] executed;
+ /** The bitset of the conditional branches taken. */
+ private long[] taken;
+ /** The bitset of the conditional branches not taken. */
+ private long[] not_taken;
+ /** The instruction offset of the branch waiting for the next instruction of the path, -1 if doesn't exist. */
+ private long pending = -1;
+ /** The memory address of the next instruction of the path if the pending branch isn't taken. */
+ private int pending_next;
+ /** The delay slot flag, true if the next instruction is the delay slot of the pending branch. */
+ private boolean pending_slot;
+
+ /**
+  * Instantiates a new coverage. The code range is the range of the functions of the elf binary file, the conditional branches
+  * are found disassembling the instructions of the code range.
+  *
+  * @param system the system with the elf binary file loaded.
+  * @throws SysteMException if the code range covers too many instructions.
+  */
+ public Coverage(SysteM system) throws SysteMException
+ {
+  InstructionSetArchitecture inst_set_arq;
+  Memory memory;
+  String name;
+  long begin;
+  long end;
+  long offset;
+  int aux;
+
+  begin = Long.MAX_VALUE;
+  end = -1;
+  for(aux = 0;aux < system.getFunction_begin().size();aux++)
+  {
+   if(system.getFunction_end().get(aux) < system.getFunction_begin().get(aux))
+	 continue;
+   begin = Math.min(begin,system.getFunction_begin().get(aux) & ~3L);
+   end = Math.max(end,system.getFunction_end().get(aux));
+  }
+  if(end < begin)
+  {
+   begin = 0;
+   end = -1;
+  }
+  if(((end - begin + 1) >>> 2) > BITMAP_LIMIT)
+	throw new SysteMException("the code range covers too many instructions.");
+  base = begin;
+  size = (end - begin + 1) >>> 2;
+  branch = new long[(int)((size + 63) >>> 6)];
+  delay = new long[branch.length];
+  executed = new long[branch.length];
+  taken = new long[branch.length];
+  not_taken = new long[branch.length];
+
+  inst_set_arq = system.getCPUClass().getInstructionSetArchitectureClass();
+  memory = system.getMemoryClass();
+  for(offset = 0;offset < size;offset++)
+  {
+   try
+   {
+	name = inst_set_arq.toString(memory.getMemoryWord((int)(base + offset * 4)));
+   }
+   catch(MemoryException e)
+   {
+	continue;
+   }
+   if(name.indexOf(' ') >= 0)
+	 name = name.substring(0,name.indexOf(' '));
+   if(name.matches("b(eq|ne|lt|le|gt|ge)i?d?"))
+   {
+	branch[(int)(offset >>> 6)] |= 1L << offset;
+	if(name.endsWith("d"))
+	  delay[(int)(offset >>> 6)] |= 1L << offset;
+   }
+  }
+ }
+
+ // --------------------------------------
+ // method used by the coverage simulation
+ // --------------------------------------
+
+ /**
+  * Marks the instruction as executed. Is called when the instruction reaches the execute stage, in the order of execution.
+  * If the previous instruction of the path was a conditional branch (or its delay slot), the direction of the branch is marked.
+  *
+  * @param pc the memory address of the instruction.
+  */
+ public final void execute(int pc)
+ {
+  long offset;
+
+  if(pending >= 0)
+  {
+   if(pending_slot)
+	 pending_slot = false;
+   else
+   {
+	if(pc == pending_next)
+	  not_taken[(int)(pending >>> 6)] |= 1L << pending;
+	else
+	  taken[(int)(pending >>> 6)] |= 1L << pending;
+	pending = -1;
+   }
+  }
+  offset = (((long)pc & 0xffffffffL) - base) >>> 2;
+  if(offset < size)
+  {
+   executed[(int)(offset >>> 6)] |= 1L << offset;
+   if((branch[(int)(offset >>> 6)] & (1L << offset)) != 0)
+   {
+	pending = offset;
+	pending_slot = (delay[(int)(offset >>> 6)] & (1L << offset)) != 0;
+	pending_next = pc + (pending_slot ? 8 : 4);
+   }
+  }
+ }
+
+ // ---------------------------------------------
+ // methods used to save and merge the data files
+ // ---------------------------------------------
+
+ /**
+  * Saves the bitsets of the executed instructions and of the branch directions in the coverage data file.
+  *
+  * @param coverage_file the coverage data file (path and name).
+  * @throws SysteMException if the file can't be wrote.
+  */
+ public final void save(String coverage_file) throws SysteMException
+ {
+  DataOutputStream output;
+  int aux;
+
+  try
+  {
+   output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(coverage_file),1 << 16));
+   try
+   {
+	output.writeInt(COVERAGE_ID);
+	output.writeInt(COVERAGE_VERSION);
+	output.writeLong(base);
+	output.writeLong(size);
+	for(aux = 0;aux < executed.length;aux++)
+	  output.writeLong(executed[aux]);
+	for(aux = 0;aux < taken.length;aux++)
+	  output.writeLong(taken[aux]);
+	for(aux = 0;aux < not_taken.length;aux++)
+	  output.writeLong(not_taken[aux]);
+   }
+   finally
+   {
+	output.close();
+   }
+  }
+  catch(IOException e)
+  {
+   throw new SysteMException("the coverage file " + coverage_file + " can't be saved.");
+  }
+ }
+
+ /**
+  * Merges the bitsets saved in the coverage data file with the bitsets of this coverage. The file is mapped in the memory (read only).
+  *
+  * @param coverage_file the coverage data file (path and name).
+  * @throws SysteMException if the file isn't a valid coverage data file or isn't of the same binary file.
+  */
+ public final void merge(String coverage_file) throws SysteMException
+ {
+  RandomAccessFile file;
+  LongBuffer input;
+  ByteBuffer header;
+  int aux;
+
+  try
+  {
+   file = new RandomAccessFile(coverage_file,"r");
+   try
+   {
+	header = file.getChannel().map(FileChannel.MapMode.READ_ONLY,0,file.length());
+   }
+   finally
+   {
+	file.close();
+   }
+   if(header.getInt() != COVERAGE_ID || header.getInt() != COVERAGE_VERSION)
+	 throw new SysteMException("the file " + coverage_file + " isn't a coverage file of this version.");
+   if(header.getLong() != base || header.getLong() != size)
+	 throw new SysteMException("the coverage file " + coverage_file + " isn't of this binary file.");
+   input = header.slice().asLongBuffer();
+   for(aux = 0;aux < executed.length;aux++)
+	 executed[aux] |= input.get();
+   for(aux = 0;aux < taken.length;aux++)
+	 taken[aux] |= input.get();
+   for(aux = 0;aux < not_taken.length;aux++)
+	 not_taken[aux] |= input.get();
+  }
+  catch(BufferUnderflowException e)
+  {
+   throw new SysteMException("the coverage file " + coverage_file + " is truncated.");
+  }
+  catch(IOException e)
+  {
+   throw new SysteMException("the coverage file " + coverage_file + " can't be read.");
+  }
+ }
+
+ // ---------------------------------
+ // methods used to read the coverage
+ // ---------------------------------
+
+ /**
+  * Returns the lowest memory address of the bitsets.
+  *
+  * @return the lowest memory address of the bitsets.
+  */
+ public final long getBase()
+ {
+  return base;
+ }
+
+ /**
+  * Returns the number of instructions covered by the bitsets.
+  *
+  * @return the number of instructions covered by the bitsets.
+  */
+ public final long getSize()
+ {
+  return size;
+ }
+
+ /**
+  * Returns true if the instruction of the memory address was executed.
+  *
+  * @param address the memory address.
+  * @return true if the instruction was executed.
+  */
+ public final boolean isExecuted(long address)
+ {
+  return test(executed,address);
+ }
+
+ /**
+  * Returns true if the instruction of the memory address is a conditional branch.
+  *
+  * @param address the memory address.
+  * @return true if the instruction is a conditional branch.
+  */
+ public final boolean isBranch(long address)
+ {
+  return test(branch,address);
+ }
+
+ /**
+  * Returns true if the conditional branch of the memory address was taken.
+  *
+  * @param address the memory address.
+  * @return true if the conditional branch was taken.
+  */
+ public final boolean isTaken(long address)
+ {
+  return test(taken,address);
+ }
+
+ /**
+  * Returns true if the conditional branch of the memory address wasn't taken.
+  *
+  * @param address the memory address.
+  * @return true if the conditional branch wasn't taken.
+  */
+ public final boolean isNotTaken(long address)
+ {
+  return test(not_taken,address);
+ }
+
+ /**
+  * Returns the bit of the memory address in the bitset.
+  *
+  * @param bitset the bitset.
+  * @param address the memory address.
+  * @return the bit of the memory address, false if the memory address is outside of the code range.
+  */
+ private final boolean test(long[] bitset,long address)
+ {
+  long offset;
+
+  offset = (address - base) >>> 2;
+  return address >= base && offset < size && (bitset[(int)(offset >>> 6)] & (1L << offset)) != 0;
+ }
+}
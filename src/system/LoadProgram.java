@@ -1,6 +1,8 @@
 package system;
 
+import java.util.zip.*;
 import java.util.*;
+import java.io.*;
 
 import system.memory.*;
 import system.file.*;
@@ -22,6 +24,10 @@ public class LoadProgram
  private Map<Integer,Long> function_end;
  /** The address of the exit function. */
  private long exit = -1; 
+ /** The size of the executable and linking format (ELF) file (bytes). */
+ private long binary_size;
+ /** The CRC-32 of the binary data loaded in to the memory system (the memory address and the value of each word, by increasing address). */
+ private long binary_crc;
 
  // ---------------------------------------------------------
  // method to verify and loads the binary program into memory
@@ -53,6 +59,7 @@ public class LoadProgram
   boolean opb;
   long opb_begin;
   long opb_end;
+  CRC32 crc;
   int aux;
   
   try
@@ -112,6 +119,15 @@ public class LoadProgram
    
    elf_binary_parser.loadBinaryData();
    binary_data = elf_binary_parser.getBinaryData();
+   
+   crc = new CRC32();
+   for(Map.Entry<Long,Integer> word : new TreeMap<Long,Integer>(binary_data).entrySet())
+   {
+	update(crc,(int)(long)word.getKey());
+	update(crc,word.getValue());
+   }
+   binary_crc = crc.getValue();
+   binary_size = new File(binary_file).length();
 
    memory.reset();
    
@@ -151,6 +167,20 @@ public class LoadProgram
    throw new LoadProgramException(e.getMessage());
   }
  } 
+ 
+ /**
+  * Updates the CRC-32 with the four bytes of the value (big endian).
+  *
+  * @param crc the CRC-32.
+  * @param value the value.
+  */
+ private void update(CRC32 crc,int value)
+ {
+  crc.update(value >>> 24);
+  crc.update(value >>> 16);
+  crc.update(value >>> 8);
+  crc.update(value);
+ }
 
  // -----------------------------------
  // methods used to display information
@@ -195,4 +225,24 @@ public class LoadProgram
  {
   return exit;	 
  }
+ 
+ /**
+  * Returns the size of the executable and linking format (ELF) file loaded.
+  *
+  * @return the size of the file (bytes).
+  */
+ public long getBinary_size()
+ {
+  return binary_size;
+ }
+ 
+ /**
+  * Returns the CRC-32 of the binary data loaded in to the memory system (the memory address and the value of each word, by increasing address).
+  *
+  * @return the CRC-32 of the binary data.
+  */
+ public long getBinary_crc()
+ {
+  return binary_crc;
+ }
 }
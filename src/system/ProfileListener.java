@@ -0,0 +1,45 @@
+package system;
+
+/**
+ * The ProfileListener class. This class is notified by the system in the profile simulation each time an instruction reaches the execute stage
+ * and in each cycle where the execute stage is empty.
+ */
+public abstract class ProfileListener
+{
+ // -----------------------------------
+ // methods used to notify the listener
+ // -----------------------------------
+ 
+ /**
+  * Notifies that the profile simulation started.
+  *
+  * @param cycle the cycle number.
+  */
+ public abstract void begin(long cycle);
+ 
+ /**
+  * Notifies that the instruction reached the execute stage. The cycles between two notifications are the cycles performed by the previous instruction.
+  *
+  * @param pc the memory address of the instruction.
+  * @param opcode the opcode id of the instruction.
+  * @param cycle the cycle number.
+  */
+ public abstract void execute(int pc,int opcode,long cycle);
+ 
+ /**
+  * Notifies that the execute stage is empty in the cycle, the pipeline was flushed by a branch or is being filled.
+  * By default does nothing, is overridden by the listeners which count the empty cycles.
+  *
+  * @param cycle the cycle number.
+  */
+ public void empty(long cycle)
+ {
+ }
+ 
+ /**
+  * Notifies that the profile simulation ended.
+  *
+  * @param cycle the cycle number.
+  */
+ public abstract void end(long cycle);
+}
@@ -0,0 +1,155 @@
+package system;
+
+import java.util.*;
+
+/**
+ * The replay log class. This class keeps the snapshots of the simulation used by the reverse execution in a bounded ring, when the ring is
+ * full the oldest snapshot is removed. Each snapshot keeps the state of the cpu, of the memory system (without the data memory), of the devices
+ * and of the devices scheduler, and the pages of the data memory copied before the first write after the snapshot (the undo of the interval
+ * until the next snapshot). A position of the simulation between two snapshots is restored from the older one by the re-execution of the instructions.
+ */
+public final class ReplayLog
+{
+ /** The maximum number of snapshots. */
+ private int snapshots;
+ /** The minimum number of cycles between two snapshots. */
+ private long interval;
+ /** The state of the simulation of each snapshot, from the oldest to the newest. */
+ private List<byte[]> state;
+ /** The number of instructions executed in each snapshot. */
+ private List<Long> instructions;
+ /** The number of cycles of each snapshot. */
+ private List<Long> cycles;
+ /** The pages of the data memory copied in the interval after each snapshot, except the newest (its interval isn't closed). */
+ private List<Map<Integer,long[]>> pages;
+
+ /**
+  * Instantiates a new replay log without snapshots.
+  *
+  * @param snapshots the maximum number of snapshots.
+  * @param interval the minimum number of cycles between two snapshots.
+  */
+ public ReplayLog(int snapshots,long interval)
+ {
+  this.snapshots = snapshots;
+  this.interval = interval;
+  state = new ArrayList<byte[]>();
+  instructions = new ArrayList<Long>();
+  cycles = new ArrayList<Long>();
+  pages = new ArrayList<Map<Integer,long[]>>();
+ }
+
+ // ------------------------------------
+ // methods used to handle the snapshots
+ // ------------------------------------
+
+ /**
+  * Adds the newest snapshot, the oldest snapshot is removed if the ring is full.
+  *
+  * @param state the state of the simulation.
+  * @param instructions the number of instructions executed.
+  * @param cycles the number of cycles.
+  * @param pages the pages of the data memory copied since the previous snapshot, ignored if the replay log is empty.
+  */
+ public final void add(byte[] state,long instructions,long cycles,Map<Integer,long[]> pages)
+ {
+  if(this.state.size() > 0)
+	this.pages.add(pages);
+  this.state.add(state);
+  this.instructions.add(instructions);
+  this.cycles.add(cycles);
+  if(this.state.size() > snapshots)
+  {
+   this.state.remove(0);
+   this.instructions.remove(0);
+   this.cycles.remove(0);
+   this.pages.remove(0);
+  }
+ }
+
+ /**
+  * Removes the snapshots newer than the snapshot given by the parameter snapshot, is called when the simulation is restored to it.
+  *
+  * @param snapshot the index of the snapshot, 0 is the oldest.
+  */
+ public final void trim(int snapshot)
+ {
+  while(state.size() > snapshot + 1)
+  {
+   state.remove(state.size() - 1);
+   instructions.remove(instructions.size() - 1);
+   cycles.remove(cycles.size() - 1);
+  }
+  while(pages.size() > snapshot)
+	pages.remove(pages.size() - 1);
+ }
+
+ /**
+  * Removes all the snapshots.
+  */
+ public final void clear()
+ {
+  state.clear();
+  instructions.clear();
+  cycles.clear();
+  pages.clear();
+ }
+
+ // ----------------------------------
+ // methods used to read the snapshots
+ // ----------------------------------
+
+ /**
+  * Returns true if a new snapshot must be added, the replay log is empty or the interval since the newest snapshot is complete.
+  *
+  * @param cycles the number of cycles of the simulation.
+  * @return true if a new snapshot must be added.
+  */
+ public final boolean isDue(long cycles)
+ {
+  return state.size() == 0 || cycles - this.cycles.get(this.cycles.size() - 1) >= interval;
+ }
+
+ /**
+  * Returns the number of snapshots.
+  *
+  * @return the number of snapshots.
+  */
+ public final int size()
+ {
+  return state.size();
+ }
+
+ /**
+  * Returns the state of the simulation of the snapshot.
+  *
+  * @param snapshot the index of the snapshot, 0 is the oldest.
+  * @return the state of the simulation.
+  */
+ public final byte[] getState(int snapshot)
+ {
+  return state.get(snapshot);
+ }
+
+ /**
+  * Returns the number of instructions executed of the snapshot.
+  *
+  * @param snapshot the index of the snapshot, 0 is the oldest.
+  * @return the number of instructions executed.
+  */
+ public final long getInstructions(int snapshot)
+ {
+  return instructions.get(snapshot);
+ }
+
+ /**
+  * Returns the pages of the data memory copied in the interval after the snapshot.
+  *
+  * @param snapshot the index of the snapshot, 0 is the oldest, lower than the index of the newest snapshot.
+  * @return the pages copied.
+  */
+ public final Map<Integer,long[]> getPages(int snapshot)
+ {
+  return pages.get(snapshot);
+ }
+}
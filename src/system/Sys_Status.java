@@ -11,4 +11,8 @@ public final class Sys_Status
  public static final int STOP       = 2;
  /** The system status BREAKPOINT, an breakpoint was activated. */
  public static final int BREAKPOINT = 3;
+ /** The system status WATCHPOINT, an watchpoint was activated. */
+ public static final int WATCHPOINT = 4;
+ /** The system status REPLAY_BEGIN, the reverse execution reached the oldest snapshot of the replay log. */
+ public static final int REPLAY_BEGIN = 5;
 }
@@ -1,6 +1,10 @@
 package system;
 
+import java.nio.channels.*;
+import java.util.zip.*;
 import java.util.*;
+import java.nio.*;
+import java.io.*;
 
 import system.opb_device.*;
 import system.memory.*;
@@ -11,6 +15,10 @@ import system.cpu.*;
  */
 public class SysteM
 {
+ /** The identifier of the checkpoint files ("FWCP"). */
+ private static final int CHECKPOINT_ID = 0x46574350;
+ /** The version of the checkpoint files format. */
+ private static final int CHECKPOINT_VERSION = 3;
  /** The array with the devices of the system. */
  private OPBDevice[] opb_device;
  /** The memory system. */
@@ -33,6 +41,38 @@ public class SysteM
  private Map<Integer,Long> log_function_cycle;
  /** The report of the functions call in the simulation. */
  private Map<Integer,Long> log_function_call;
+ /** The report of the data stalls of the functions in the simulation, the accesses and the stall cycles of each bus and access kind (Memory.setData_stalls). */
+ private Map<Integer,long[]> log_function_stalls;
+ /** The report of the number of samples of each function in the sampling simulation. */
+ private Map<Integer,Long> log_function_samples;
+ /** The number of samples of the sampling simulation whose memory address doesn't belong to a function. */
+ private long log_samples_unknown;
+ /** The opcode id of each instruction name, used by the profile simulation. */
+ private Map<String,Integer> opcode_id;
+ /** The instruction name of each opcode id, used by the profile simulation. */
+ private String[] opcode_name;
+ /** The opcode id of the empty pipeline stage. */
+ private int opcode_empty;
+ /** The opcode id of the instruction of a memory address not mapped. */
+ private int opcode_mapped;
+ /** The opcode id of the illegal instruction. */
+ private int opcode_illegal;
+ /** The first memory address of each function, used by the profile simulation. */
+ private long[] profile_begin;
+ /** The last memory address of each function, used by the profile simulation. */
+ private long[] profile_end;
+ /** The lookup table of the functions, for each instruction of the code range the function number (bits 1 to 31) and the call flag (bit 0), -1 if doesn't exist. */
+ private int[] function_table;
+ /** The lowest memory address of the lookup table of the functions. */
+ private long function_table_base;
+ /** The maximum number of instructions covered by the lookup table of the functions. */
+ private static final long FUNCTION_TABLE_LIMIT = 1L << 22;
+ /** The listeners notified in the profile simulation. */
+ private ProfileListener[] profile_listener = new ProfileListener[0];
+ /** The first memory address of the functions sorted, used when the code range is too large for the lookup table. */
+ private long[] function_sorted;
+ /** The function number of each first memory address sorted. */
+ private int[] function_sorted_index;
  /** The number of pipeline stages. */
  private int pipeline_stages;
  /** The execute stage number. */
@@ -47,6 +87,18 @@ public class SysteM
  private long number_of_cycles = 0;
  /** The interrupt status. */
  private int interrupt;
+ /** The scheduler of the devices. */
+ private OPBScheduler scheduler;
+ /** The replay log of the reverse execution, null if the reverse execution is disabled. */
+ private ReplayLog replay_log;
+ /** The console input flag, false if the devices can't read the keyboard (System.in). */
+ private boolean console_input = true;
+ /** The size of the elf binary file loaded (bytes), 0 if the binary file wasn't loaded. */
+ private long binary_size;
+ /** The CRC-32 of the segments of the elf binary file loaded in the memory, 0 if the binary file wasn't loaded. */
+ private long binary_crc;
+ /** The CRC-32 of the XML system configuration file. */
+ private long config_crc;
  
  /**
   * Instantiates a new System.
@@ -69,9 +121,11 @@ public class SysteM
   try
   {
    opb_device = new OPBDevice[0];
+   scheduler = new OPBScheduler();
    system_configuration = new SystemConfiguration(debug);	  
    system_configuration.load(systemconfig_file,false,false,false);
    system_configuration.config(this);
+   config_crc = getCRC(systemconfig_file);
    if(binary_file != null)
    {
 	load_program = new LoadProgram();
@@ -79,8 +133,14 @@ public class SysteM
 	function_name  = load_program.getFunction_name();
 	function_begin = load_program.getFunction_begin();
 	function_end   = load_program.getFunction_end();
+	binary_size = load_program.getBinary_size();
+	binary_crc  = load_program.getBinary_crc();
    }
   }
+  catch(IOException e)
+  {
+   throw new SysteMException("the system configuration file " + systemconfig_file + " can't be read.");
+  }
   catch(LoadProgramException e)
   {
    throw new SysteMException(e.getMessage());  
@@ -109,6 +169,7 @@ public class SysteM
   device_aux[devices] = opb_device;
   this.opb_device = device_aux;
   devices++;
+  scheduler.register(opb_device);
  }
 
  /**
@@ -123,6 +184,9 @@ public class SysteM
   memory.reset();
   for(aux = 0;aux < devices;aux++)
    opb_device[aux].reset();
+  scheduler.reset();
+  if(replay_log != null)
+	replay_log.clear();
  }
 
  // -------------------------------------
@@ -197,6 +261,7 @@ public class SysteM
  public void setCPU(CPU cpu)
  {
   this.cpu = cpu;
+  cpu.setScheduler(scheduler);
  }
 
  // -----------------------------------------------
@@ -269,13 +334,10 @@ public class SysteM
  public final int cycle()
  {
   int sys_status;
-  int aux;
   
   number_of_cycles++;
   sys_status = cpu.cycle(interrupt);
-  interrupt = 0;
-  for(aux = 0;aux < devices;aux++)
-	interrupt = interrupt + opb_device[aux].cycle();
+  interrupt = scheduler.cycle(number_of_cycles);
   return sys_status;
  }
 
@@ -288,17 +350,16 @@ public class SysteM
  public final int toCycleNumber(long cycle_number)
  {
   int sys_status;
-  int aux;
   
   do
   {
    number_of_cycles++;
    sys_status = cpu.cycle(interrupt);
-   interrupt = 0;
-   for(aux = 0;aux < devices;aux++)
-	 interrupt = interrupt + opb_device[aux].cycle();
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(sys_status == Sys_Status.NORMAL)
+     stall(cycle_number);
   }
-  while(number_of_cycles < cycle_number);
+  while(sys_status == Sys_Status.NORMAL && number_of_cycles < cycle_number);
   return sys_status;
  }
  
@@ -311,22 +372,22 @@ public class SysteM
  public final int toInstructionNumber(long instruction_number)
  {
   int sys_status;
-  int aux;
   
   do
   {
    number_of_cycles++;
    sys_status = cpu.cycle(interrupt);
-   interrupt = 0;
-   for(aux = 0;aux < devices;aux++)
-	 interrupt = interrupt + opb_device[aux].cycle();
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(sys_status == Sys_Status.NORMAL)
+     stall(Long.MAX_VALUE);
   }
-  while(cpu.getNumberOfInstructions() < instruction_number);
+  while(sys_status == Sys_Status.NORMAL && cpu.getNumberOfInstructions() < instruction_number);
   return sys_status;
  }
  
  /**
-  * Performs the simulation of an instruction.
+  * Performs the simulation of an instruction. If the reverse execution is enabled and the interval of the newest snapshot is complete,
+  * the snapshot is added to the replay log before the instruction.
   *
   * @return the system status.
   */
@@ -335,16 +396,16 @@ public class SysteM
   long number_instructions_aux;
   long number_instructions;
   int sys_status;
-  int aux;
   
+  record();
   number_instructions = cpu.getNumberOfInstructions();
   do
   {
    number_of_cycles++;
    sys_status = cpu.cycle(interrupt);
-   interrupt = 0;
-   for(aux = 0;aux < devices;aux++)
-	 interrupt = interrupt + opb_device[aux].cycle();
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(sys_status == Sys_Status.NORMAL)
+     stall(Long.MAX_VALUE);
    number_instructions_aux = cpu.getNumberOfInstructions();
   }
   while(number_instructions == number_instructions_aux || cpu.getStageInstruction(execute_stage).toString().equals(""));
@@ -360,19 +421,17 @@ public class SysteM
  public final int toMemoryAddress(int address)
  {
   int sys_status;
-  int aux;
   int pc;
 	  
   for(;;)
   {
    number_of_cycles++;
    sys_status = cpu.cycle(interrupt);
-   interrupt = 0;
-   for(aux = 0;aux < devices;aux++)
-	 interrupt = interrupt + opb_device[aux].cycle();
+   interrupt = scheduler.cycle(number_of_cycles);
    pc = cpu.getStageInstruction(execute_stage).getPC();
    if(sys_status > Sys_Status.NORMAL || pc == address)
      return sys_status;
+   stall(Long.MAX_VALUE);
   }	 
  }
  
@@ -384,54 +443,332 @@ public class SysteM
  public final int continue_()
  {
   int sys_status;
-  int aux;
 	  
   do
   {
    number_of_cycles++;
    sys_status = cpu.cycle(interrupt);
-   interrupt = 0;
-   for(aux = 0;aux < devices;aux++)
-	 interrupt = interrupt + opb_device[aux].cycle();
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(sys_status == Sys_Status.NORMAL)
+     stall(Long.MAX_VALUE);
+  }
+  while(sys_status == Sys_Status.NORMAL && !memory.getWatch_hit());
+  if(sys_status == Sys_Status.NORMAL)
+    return watchPoint();
+  return sys_status;
+ }
+ 
+ /**
+  * Performs the simulation during the number of cycles given by the parameter cycles. Is used to perform a long simulation in batches
+  * of cycles, between them the simulation can be interrupted. The batch ends with an instruction in the execute stage, so the program
+  * counter is valid when the simulation is interrupted. If the reverse execution is enabled and the interval of the newest snapshot
+  * is complete, the snapshot is added to the replay log before the batch.
+  *
+  * @param cycles the number of cycles of the batch.
+  * @return the system status, NORMAL if the batch ended without stop.
+  */
+ public final int continue_(long cycles)
+ {
+  long cycle_number;
+  int sys_status;
+  
+  record();
+  cycle_number = number_of_cycles + cycles;
+  do
+  {
+   number_of_cycles++;
+   sys_status = cpu.cycle(interrupt);
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(sys_status == Sys_Status.NORMAL)
+     stall(cycle_number);
+  }
+  while(sys_status == Sys_Status.NORMAL && !memory.getWatch_hit() && (number_of_cycles < cycle_number || cpu.getStageInstruction(execute_stage).toString().length() == 0));
+  if(sys_status == Sys_Status.NORMAL && memory.getWatch_hit())
+    return watchPoint();
+  return sys_status;
+ }
+ 
+ /**
+  * Stops the simulation in the watchpoint hit. The instruction which accessed the memory is complete, the simulation continues until the next
+  * instruction is in the execute stage, so the program counter is valid.
+  *
+  * @return the system status, WATCHPOINT if the simulation stopped in the watchpoint.
+  */
+ private final int watchPoint()
+ {
+  int sys_status;
+  
+  memory.clearWatch_hit();
+  sys_status = Sys_Status.NORMAL;
+  while(sys_status == Sys_Status.NORMAL && cpu.getStageInstruction(execute_stage).toString().length() == 0)
+  {
+   number_of_cycles++;
+   sys_status = cpu.cycle(interrupt);
+   interrupt = scheduler.cycle(number_of_cycles);
+  }
+  return sys_status == Sys_Status.NORMAL ? Sys_Status.WATCHPOINT : sys_status;
+ }
+ 
+ /**
+  * Performs the simulation in the functional mode of the cpu until the condition given by the parameter until, where the cycle accurate simulation starts.
+  * Each instruction performed in the functional mode counts as one cycle. The cpu performs the instructions in batches until the next cycle where the interrupt
+  * status can change, and the devices are ticked after each batch in the exact cycles where they need it. After it, the pipeline is filled by the cycle
+  * accurate simulation.<p>
+  * 0x... - the memory address (hexadecimal) of the first instruction simulated cycle accurate.<br>
+  * decimal number - the number of instructions performed in the functional mode.<br>
+  * other - the name of the function (symbol of the elf binary file) where the cycle accurate simulation starts.
+  *
+  * @param until the condition where the cycle accurate simulation starts.
+  * @return the system status.
+  * @throws SysteMException if the condition isn't a valid memory address, number of instructions or function name.
+  */
+ public final int warmup(String until) throws SysteMException
+ {
+  long instruction_number = Long.MAX_VALUE;
+  long address = -1;
+  long batch;
+  long executed;
+  int sys_status;
+  int aux;
+  
+  try
+  {
+   if(until.startsWith("0x"))
+     address = Long.parseLong(until.substring(2),16) & 0xffffffffL;
+   else if(until.matches("[0-9]+"))
+     instruction_number = Long.parseLong(until,10);
+   else
+   {
+    for(aux = 0;aux < function_name.size();aux++)
+    {
+     if(function_name.get(aux).equals(until))
+     {
+      address = function_begin.get(aux);
+      break;
+     }
+    }
+    if(address == -1)
+      throw new SysteMException("the function " + until + " doesn't exist in the binary file.");
+   }
+  }
+  catch(NumberFormatException e)
+  {
+   throw new SysteMException("the warmup condition " + until + " isn't valid.");
+  }
+  
+  sys_status = Sys_Status.NORMAL;
+  while(sys_status == Sys_Status.NORMAL && ((long)cpu.getFunctionalPC() & 0xffffffffL) != address && cpu.getNumberOfInstructions() < instruction_number)
+  {
+   batch = Math.min(Math.min(scheduler.getWindow() + 1,instruction_number - cpu.getNumberOfInstructions()),Integer.MAX_VALUE);
+   executed = cpu.getNumberOfInstructions();
+   sys_status = cpu.functional(interrupt,(int)batch,address);
+   executed = Math.max(cpu.getNumberOfInstructions() - executed,1);
+   interrupt = scheduler.stall(number_of_cycles,(int)executed);
+   number_of_cycles = number_of_cycles + executed;
+  }
+  cpu.endFunctional();
+  while(sys_status == Sys_Status.NORMAL && cpu.getStageInstruction(execute_stage).toString().equals(""))
+    sys_status = cycle();
+  return sys_status;
+ }
+ 
+ /**
+  * Performs in one step the next cycles where the cpu only stalls (multi cycle instructions and jit compiled code), until the cycle number given by the parameter cycle_number.
+  * The devices are ticked in the exact cycles where they need it, so the number of cycles and the interrupt status are the same of the simulation cycle by cycle.
+  *
+  * @param cycle_number the cycle number where the simulation must stop.
+  */
+ private final void stall(long cycle_number)
+ {
+  long stall;
+  
+  stall = cpu.getStall();
+  if(stall > 0)
+    stall(cycle_number,stall);
+ }
+ 
+ /**
+  * Performs in one step the stall cycles given by the parameter stall, until the cycle number given by the parameter cycle_number.
+  *
+  * @param cycle_number the cycle number where the simulation must stop.
+  * @param stall the number of stall cycles.
+  */
+ private final void stall(long cycle_number,long stall)
+ {
+  if(stall > cycle_number - number_of_cycles)
+    stall = cycle_number - number_of_cycles;
+  cpu.stall((int)stall);
+  interrupt = scheduler.stall(number_of_cycles,(int)stall);
+  number_of_cycles = number_of_cycles + stall;
+ }
+ 
+ /**
+  * Performs the sampling simulation. The simulation is performed as in the method continue_, and every period cycles the memory address
+  * of the instruction in the execute stage is sampled and counted in the function where it belongs. The stall cycles are performed in one step
+  * until the cycle before the next sample, so the sampled cycle is always simulated. The period of each sample is changed randomly (with a fixed seed, so the simulations are repeatable) between
+  * -jitter and +jitter cycles, to avoid the aliasing with the loops of the program. If the execute stage is empty in the cycle of the sample,
+  * the sample is taken in the next cycle. At the end of the simulation the counters are saved in the reports of the simulation.
+  *
+  * @param period the number of cycles between two samples.
+  * @param jitter the maximum random change of the period, lower than the period.
+  * @return the system status.
+  */
+ public final int sample(long period,long jitter)
+ {
+  long[] function_samples;
+  long samples_unknown = 0;
+  long next_sample;
+  Random random;
+  int sys_status;
+  int found;
+  int aux;
+  int pc;
+
+  createProfileTables();
+  function_samples = new long[function_name.size()];
+  random = new Random(period);
+  next_sample = number_of_cycles + period + (jitter > 0 ? (long)(random.nextDouble() * (2 * jitter + 1)) - jitter : 0);
+  
+  do
+  {
+   number_of_cycles++;
+   sys_status = cpu.cycle(interrupt);
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(number_of_cycles >= next_sample && getOpcode_id(cpu.getStageInstruction(execute_stage)) != opcode_empty)
+   {
+	pc = cpu.getStageInstruction(execute_stage).getPC();
+	found = findFunction((long)pc & 0xffffffffL);
+	if(found >= 0)
+	  function_samples[found >>> 1]++;
+	else
+	  samples_unknown++;
+	next_sample = number_of_cycles + period + (jitter > 0 ? (long)(random.nextDouble() * (2 * jitter + 1)) - jitter : 0);
+   }
+   if(sys_status == Sys_Status.NORMAL && number_of_cycles < next_sample - 1)
+     stall(next_sample - 1);
+  }
+  while(sys_status == Sys_Status.NORMAL);
+  
+  log_function_samples = new HashMap<Integer,Long>();
+  for(aux = 0;aux < function_samples.length;aux++)
+    log_function_samples.put(aux,function_samples[aux]);
+  log_samples_unknown = samples_unknown;
+  return sys_status;
+ }
+ 
+ /**
+  * Performs the coverage simulation. The simulation is performed as in the method continue_, and each instruction which reaches the execute
+  * stage is marked in the coverage, in the order of execution. The instruction is marked in the first cycle where the execute stage isn't
+  * empty after the previous instruction was completed, the stall cycles are performed in one step.
+  *
+  * @param coverage the coverage where the executed instructions and the branch directions are marked.
+  * @return the system status.
+  */
+ public final int coverage(Coverage coverage)
+ {
+  Instruction instruction;
+  long instructions = -1;
+  int sys_status;
+  
+  do
+  {
+   number_of_cycles++;
+   sys_status = cpu.cycle(interrupt);
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(cpu.getNumberOfInstructions() != instructions)
+   {
+	instruction = cpu.getStageInstruction(execute_stage);
+	if(!instruction.toString().equals(""))
+	{
+	 coverage.execute(instruction.getPC());
+	 instructions = cpu.getNumberOfInstructions();
+	}
+   }
+   if(sys_status == Sys_Status.NORMAL)
+     stall(Long.MAX_VALUE);
+  }
+  while(sys_status == Sys_Status.NORMAL);
+  return sys_status;
+ }
+ 
+ /**
+  * Performs the trace simulation. The simulation is performed as in the method continue_, and the listener is notified each time an instruction
+  * reaches the execute stage, in the order of execution. The instruction in the execute stage when the method is called isn't notified.
+  * The stall cycles are performed in one step.
+  *
+  * @param listener the listener notified of the executed instructions.
+  * @return the system status, NORMAL if the listener ended the trace.
+  */
+ public final int trace(TraceListener listener)
+ {
+  Instruction instruction;
+  long instructions;
+  int sys_status;
+  
+  createProfileTables();
+  instructions = cpu.getNumberOfInstructions();
+  do
+  {
+   number_of_cycles++;
+   sys_status = cpu.cycle(interrupt);
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(cpu.getNumberOfInstructions() != instructions)
+   {
+	instruction = cpu.getStageInstruction(execute_stage);
+	if(getOpcode_id(instruction) != opcode_empty)
+	{
+	 instructions = cpu.getNumberOfInstructions();
+	 if(!listener.execute(instruction.getPC(),number_of_cycles))
+	   return sys_status;
+	}
+   }
+   if(sys_status == Sys_Status.NORMAL)
+     stall(Long.MAX_VALUE);
   }
   while(sys_status == Sys_Status.NORMAL);
   return sys_status;
  }
  
  /**
-  * Performs the profile simulation.
+  * Performs the profile simulation. The instructions executed by each function are counted in dense arrays indexed by the function number
+  * and by the opcode id of the instruction, the function of the pc is found in a lookup table over the code range. At the end of the
+  * simulation the counters are saved in the reports of the simulation.
   *
   * @return the system status.
   */
  public final int profile()
  {
-  Map<String,Long> function_inst;
+  long[][] function_inst;
+  long[] function_execute;
+  long[] function_cycle;
+  long[] function_call;
+  long[][] function_stalls;
+  long[] counters;
   long instructions_aux = 0;
-  String instruction_name;
   long instructions = 0;
   long cycles_aux = 0;
   int interrupt = 0;	 
   int sys_status; 
   int function;
-  long value;
-  long pc;
+  int opcode;
+  int found;
   int aux;
+  long pc;
 
-  log_function_inst = new HashMap<Integer,Map<String,Long>>();
-  for(aux = 0;aux < function_name.size();aux++)
-    log_function_inst.put(aux,new HashMap<String,Long>(instruction));
-  log_function_execute = new HashMap<Integer,Long>();
-  for(aux = 0;aux < function_name.size();aux++)
-    log_function_execute.put(aux,0L);
-  log_function_cycle = new HashMap<Integer,Long>(log_function_execute);
-  log_function_call = new HashMap<Integer,Long>(log_function_execute);
-  
-  function_inst = log_function_inst.get(0);
-  value = log_function_execute.get(0) + 1;
-  log_function_execute.put(0,value);
-  value = log_function_call.get(0) + 1;
-  log_function_call.put(0,value);
+  createProfileTables();
+  function_inst = new long[function_name.size()][opcode_name.length];
+  function_execute = new long[function_name.size()];
+  function_cycle = new long[function_name.size()];
+  function_call = new long[function_name.size()];
+  function_stalls = new long[function_name.size()][Memory.STALL_BUSES * Memory.STALL_KINDS * 2];
+  
+  counters = function_inst[0];
+  function_execute[0]++;
+  function_call[0]++;
   function = 0;
+  memory.setData_stalls(function_stalls[0]);
+  for(aux = 0;aux < profile_listener.length;aux++)
+    profile_listener[aux].begin(number_of_cycles);
    
   do
   {
@@ -439,83 +776,882 @@ public class SysteM
    cycles_aux++;
    sys_status = cpu.cycle(interrupt);
    interrupt = 0;
-   for(aux = 0;aux < devices;aux++)
-	 opb_device[aux].cycle();
-   instruction_name = cpu.getStageInstruction(execute_stage).toString();
+   scheduler.cycle(number_of_cycles);
+   opcode = getOpcode_id(cpu.getStageInstruction(execute_stage));
    instructions_aux = cpu.getNumberOfInstructions();
    if(sys_status > Sys_Status.NORMAL)
    {
-	value = log_function_cycle.get(function) + cycles_aux;
-    log_function_cycle.put(function,value);
+	function_cycle[function] += cycles_aux;
     cycles_aux = 0;
-    value = function_inst.get(instruction_name) + 1;
-    function_inst.put(instruction_name,value);
+    if(opcode >= counters.length)
+      counters = growProfile(function_inst,function);
+    counters[opcode]++;
+    memory.setData_stalls(null);
+    saveProfile(function_inst,function_execute,function_cycle,function_call,function_stalls);
+    for(aux = 0;aux < profile_listener.length;aux++)
+      profile_listener[aux].end(number_of_cycles);
     return sys_status;
    }
   }
-  while(instruction_name.equals(""));  
+  while(opcode == opcode_empty);  
+  pc = (long)cpu.getStageInstruction(execute_stage).getPC() & 0xffffffffL;
 
   for(;;)
   {
-   value = function_inst.get(instruction_name) + 1;
-   function_inst.put(instruction_name,value);
+   if(opcode >= counters.length)
+     counters = growProfile(function_inst,function);
+   counters[opcode]++;
+   for(aux = 0;aux < profile_listener.length;aux++)
+	 profile_listener[aux].execute((int)pc,opcode,number_of_cycles);
 	   
    do
    {
 	number_of_cycles++;
     cycles_aux++;
     sys_status = cpu.cycle(interrupt);
-    interrupt = 0;
-    for(aux = 0;aux < devices;aux++)
-      interrupt = interrupt + opb_device[aux].cycle();
-    instruction_name = cpu.getStageInstruction(execute_stage).toString();
+    interrupt = scheduler.cycle(number_of_cycles);
+    opcode = getOpcode_id(cpu.getStageInstruction(execute_stage));
     instructions_aux = cpu.getNumberOfInstructions();
+    if(opcode == opcode_empty)
+    {
+     for(aux = 0;aux < profile_listener.length;aux++)
+       profile_listener[aux].empty(number_of_cycles);
+    }
     if(sys_status > Sys_Status.NORMAL)
     {
-     value = log_function_cycle.get(function) + cycles_aux;
-     log_function_cycle.put(function,value);
+     function_cycle[function] += cycles_aux;
      cycles_aux = 0;
+     memory.setData_stalls(null);
+     saveProfile(function_inst,function_execute,function_cycle,function_call,function_stalls);
+     for(aux = 0;aux < profile_listener.length;aux++)
+       profile_listener[aux].end(number_of_cycles);
      return sys_status;
     }
    }
-   while(instructions == instructions_aux || instruction_name.equals("") || instruction_name.equals("mapped") || instruction_name.equals("illegal"));
+   while(instructions == instructions_aux || opcode == opcode_empty || opcode == opcode_mapped || opcode == opcode_illegal);
    
    pc = (long)cpu.getStageInstruction(execute_stage).getPC() & 0xffffffffL;
    instructions = instructions_aux;
 
-   if(!(pc >= function_begin.get(function) && pc <= function_end.get(function)))
+   if(!(pc >= profile_begin[function] && pc <= profile_end[function]))
    {
-    for(aux = 0;aux < function_name.size();aux++)
-    {  
-	 if(pc == function_begin.get(aux))
-	 {
-	  function_inst = log_function_inst.get(aux);
-	  value = log_function_execute.get(aux) + 1;
-	  log_function_execute.put(aux,value);
-	  value = log_function_cycle.get(function) + cycles_aux;
-      log_function_cycle.put(function,value);
-      cycles_aux = 0;
-      value = log_function_call.get(aux) + 1;
-      log_function_call.put(aux,value);
-      function = aux;
-      break;
-	 }
-	 else if(pc >= function_begin.get(aux) && pc <= function_end.get(aux))
-	 {
-	  function_inst = log_function_inst.get(aux);
-	  value = log_function_execute.get(aux) + 1;
-	  log_function_execute.put(aux,value);
-	  value = log_function_cycle.get(function) + cycles_aux;
-      log_function_cycle.put(function,value);
-      cycles_aux = 0;
-	  function = aux;
-	  break;
-	 }
+	found = findFunction(pc);
+	if(found >= 0)
+	{
+	 counters = function_inst[found >>> 1];
+	 function_execute[found >>> 1]++;
+	 function_cycle[function] += cycles_aux;
+     cycles_aux = 0;
+     if((found & 1) != 0)
+       function_call[found >>> 1]++;
+     function = found >>> 1;
+     memory.setData_stalls(function_stalls[function]);
 	}
    }
   }	 
  }
  
+ // --------------------------------------
+ // methods used by the profile simulation
+ // --------------------------------------
+ 
+ /**
+  * Adds a listener notified in the profile simulation each time an instruction reaches the execute stage.
+  *
+  * @param listener the listener.
+  */
+ public final void addProfileListener(ProfileListener listener)
+ {
+  profile_listener = Arrays.copyOf(profile_listener,profile_listener.length + 1);
+  profile_listener[profile_listener.length - 1] = listener;
+ }
+ 
+ /**
+  * Returns the function of the memory address. Only valid during the profile simulation.
+  *
+  * @param pc the memory address.
+  * @return the function number, -1 if the memory address doesn't belong to a function.
+  */
+ public final int getFunction(long pc)
+ {
+  int found;
+  
+  found = findFunction(pc);
+  return found < 0 ? -1 : found >>> 1;
+ }
+ 
+ /**
+  * Returns the instruction name of the opcode id. Only valid during the profile simulation.
+  *
+  * @param opcode the opcode id.
+  * @return the instruction name.
+  */
+ public final String getOpcode_name(int opcode)
+ {
+  return opcode_name[opcode];
+ }
+ 
+ /**
+  * Returns the number of opcode ids created in the profile simulation. Only valid during the profile simulation.
+  *
+  * @return the number of opcode ids.
+  */
+ public final int getOpcodes()
+ {
+  return opcode_name.length;
+ }
+ 
+ /**
+  * Creates the opcode ids of the instructions and the lookup table of the functions used by the profile simulation.
+  * The functions are painted in the lookup table from the last to the first, so the first function which includes the memory address
+  * is found, as in the sequential search of the functions.
+  */
+ private final void createProfileTables()
+ {
+  String[] names;
+  long begin;
+  long end;
+  long address;
+  int functions;
+  int aux_a;
+  int aux_b;
+  
+  opcode_id = new HashMap<String,Integer>();
+  names = new String[instruction.size()];
+  instruction.keySet().toArray(names);
+  Arrays.sort(names);
+  opcode_name = new String[0];
+  for(aux_a = 0;aux_a < names.length;aux_a++)
+	getOpcode_id(names[aux_a]);
+  opcode_empty = getOpcode_id("");
+  opcode_mapped = getOpcode_id("mapped");
+  opcode_illegal = getOpcode_id("illegal");
+  
+  functions = function_name.size();
+  profile_begin = new long[functions];
+  profile_end = new long[functions];
+  begin = Long.MAX_VALUE;
+  end = -1;
+  for(aux_a = 0;aux_a < functions;aux_a++)
+  {
+   profile_begin[aux_a] = function_begin.get(aux_a);
+   profile_end[aux_a] = function_end.get(aux_a);
+   if(profile_end[aux_a] >= profile_begin[aux_a])
+   {
+	begin = Math.min(begin,profile_begin[aux_a] & ~3L);
+	end = Math.max(end,profile_end[aux_a]);
+   }
+  }
+  
+  function_table = null;
+  function_sorted = null;
+  if(end >= begin && ((end - begin) >>> 2) < FUNCTION_TABLE_LIMIT)
+  {
+   function_table_base = begin;
+   function_table = new int[(int)((end - begin) >>> 2) + 1];
+   Arrays.fill(function_table,-1);
+   for(aux_a = functions - 1;aux_a >= 0;aux_a--)
+   {
+	for(address = (profile_begin[aux_a] + 3) & ~3L;address <= profile_end[aux_a];address = address + 4)
+	  function_table[(int)((address - begin) >>> 2)] = (aux_a << 1) | (address == profile_begin[aux_a] ? 1 : 0);
+   }
+  }
+  else
+  {
+   function_sorted = new long[functions];
+   function_sorted_index = new int[functions];
+   for(aux_a = 0;aux_a < functions;aux_a++)
+   {
+	for(aux_b = aux_a;aux_b > 0 && function_sorted[aux_b - 1] > profile_begin[aux_a];aux_b--)
+	{
+	 function_sorted[aux_b] = function_sorted[aux_b - 1];
+	 function_sorted_index[aux_b] = function_sorted_index[aux_b - 1];
+	}
+	function_sorted[aux_b] = profile_begin[aux_a];
+	function_sorted_index[aux_b] = aux_a;
+   }
+  }
+ }
+ 
+ /**
+  * Returns the function of the memory address given by the parameter pc, with the call flag (bit 0) set if the memory address
+  * is the first memory address of the function.
+  *
+  * @param pc the memory address.
+  * @return the function number (bits 1 to 31) and the call flag (bit 0), -1 if the memory address doesn't belong to a function.
+  */
+ private final int findFunction(long pc)
+ {
+  int low;
+  int high;
+  int middle;
+  
+  if(function_table != null)
+  {
+   if(pc < function_table_base || ((pc - function_table_base) >>> 2) >= function_table.length)
+	 return -1;
+   return function_table[(int)((pc - function_table_base) >>> 2)];
+  }
+  low = 0;
+  high = function_sorted.length - 1;
+  while(low <= high)
+  {
+   middle = (low + high) >>> 1;
+   if(function_sorted[middle] <= pc)
+	 low = middle + 1;
+   else
+	 high = middle - 1;
+  }
+  if(high < 0)
+	return -1;
+  while(high > 0 && function_sorted[high - 1] == function_sorted[high])
+	high--;
+  if(pc > profile_end[function_sorted_index[high]])
+	return -1;
+  return (function_sorted_index[high] << 1) | (pc == function_sorted[high] ? 1 : 0);
+ }
+ 
+ /**
+  * Returns the opcode id of the instruction. The opcode id is assigned in the first execution of the instruction and kept in the instruction.
+  *
+  * @param instruction the instruction.
+  * @return the opcode id of the instruction.
+  */
+ private final int getOpcode_id(Instruction instruction)
+ {
+  int id;
+  
+  id = instruction.getOpcode_id();
+  if(id < 0)
+  {
+   id = getOpcode_id(instruction.toString());
+   instruction.setOpcode_id(id);
+  }
+  return id;
+ }
+ 
+ /**
+  * Returns the opcode id of the instruction name, a new opcode id is created if the instruction name doesn't have one.
+  *
+  * @param name the instruction name.
+  * @return the opcode id of the instruction name.
+  */
+ private final int getOpcode_id(String name)
+ {
+  Integer id;
+  
+  id = opcode_id.get(name);
+  if(id == null)
+  {
+   id = opcode_name.length;
+   opcode_name = Arrays.copyOf(opcode_name,id + 1);
+   opcode_name[id] = name;
+   opcode_id.put(name,id);
+  }
+  return id;
+ }
+ 
+ /**
+  * Grows the counters of each function to include the opcode ids created during the profile simulation.
+  *
+  * @param function_inst the number of instructions executed in each function, indexed by the opcode id.
+  * @param function the current function.
+  * @return the counters of the current function.
+  */
+ private final long[] growProfile(long[][] function_inst,int function)
+ {
+  int aux;
+  
+  for(aux = 0;aux < function_inst.length;aux++)
+	function_inst[aux] = Arrays.copyOf(function_inst[aux],opcode_name.length);
+  return function_inst[function];
+ }
+ 
+ /**
+  * Saves the counters of the profile simulation in the reports of the simulation. Only the instructions of the list with the name
+  * of instructions processor and the other instructions executed are reported.
+  *
+  * @param function_inst the number of instructions executed in each function, indexed by the opcode id.
+  * @param function_execute the number of executions of each function.
+  * @param function_cycle the number of cycles performed by each function.
+  * @param function_call the number of calls of each function.
+  * @param function_stalls the data stall counters of each function.
+  */
+ private final void saveProfile(long[][] function_inst,long[] function_execute,long[] function_cycle,long[] function_call,long[][] function_stalls)
+ {
+  Map<String,Long> function_log;
+  int aux_a;
+  int aux_b;
+  
+  log_function_inst = new HashMap<Integer,Map<String,Long>>();
+  log_function_execute = new HashMap<Integer,Long>();
+  log_function_cycle = new HashMap<Integer,Long>();
+  log_function_call = new HashMap<Integer,Long>();
+  log_function_stalls = new HashMap<Integer,long[]>();
+  for(aux_a = 0;aux_a < function_inst.length;aux_a++)
+  {
+   function_log = new HashMap<String,Long>(instruction);
+   for(aux_b = 0;aux_b < opcode_name.length;aux_b++)
+   {
+	if(instruction.containsKey(opcode_name[aux_b]))
+	  function_log.put(opcode_name[aux_b],instruction.get(opcode_name[aux_b]) + function_inst[aux_a][aux_b]);
+	else if(function_inst[aux_a][aux_b] != 0)
+	  function_log.put(opcode_name[aux_b],function_inst[aux_a][aux_b]);
+   }
+   log_function_inst.put(aux_a,function_log);
+   log_function_execute.put(aux_a,function_execute[aux_a]);
+   log_function_cycle.put(aux_a,function_cycle[aux_a]);
+   log_function_call.put(aux_a,function_call[aux_a]);
+   log_function_stalls.put(aux_a,function_stalls[aux_a]);
+  }
+ }
+ 
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Saves the complete state of the simulation in the checkpoint file given by the parameter checkpoint_file (cpu, memory system, devices and devices scheduler).
+  * The checkpoint can only be restored in a system with the same configuration and binary file, the header of the checkpoint identifies them by the size
+  * and the CRC-32 of the segments loaded of the binary file and by the CRC-32 of the system configuration file.
+  * If the state can't be saved the incomplete checkpoint file is removed.
+  *
+  * @param checkpoint_file the checkpoint file (path and name).
+  * @throws SysteMException if the cpu or a device doesn't support checkpoints or the file can't be wrote.
+  */
+ public final void save(String checkpoint_file) throws SysteMException
+ {
+  DataOutputStream output;
+  boolean saved;
+  
+  saved = false;
+  try
+  {
+   output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(checkpoint_file)));
+   try
+   {
+	output.writeInt(CHECKPOINT_ID);
+	output.writeInt(CHECKPOINT_VERSION);
+	output.writeLong(binary_size);
+	output.writeLong(binary_crc);
+	output.writeLong(config_crc);
+	save(output,true);
+	saved = true;
+   }
+   finally
+   {
+	output.close();
+	if(!saved)
+	  new File(checkpoint_file).delete();
+   }
+  }
+  catch(CPUException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(MemoryException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(OPBDeviceException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(IOException e)
+  {
+   throw new SysteMException("the checkpoint file " + checkpoint_file + " can't be saved.");
+  }
+ }
+ 
+ /**
+  * Restores the complete state of the simulation saved in the checkpoint file given by the parameter checkpoint_file.
+  * The file is mapped in the memory (read only), so the same checkpoint file can be shared by several simulations. The checkpoint must be restored
+  * in a system just created with the same configuration and binary file of the system saved, the binary file and the configuration file are checked
+  * against the identity saved in the header of the checkpoint.
+  *
+  * @param checkpoint_file the checkpoint file (path and name).
+  * @throws SysteMException if the file isn't a valid checkpoint or doesn't match the binary file or the system configuration.
+  */
+ public final void restore(String checkpoint_file) throws SysteMException
+ {
+  RandomAccessFile file;
+  ByteBuffer input;
+  
+  try
+  {
+   file = new RandomAccessFile(checkpoint_file,"r");
+   try
+   {
+	input = file.getChannel().map(FileChannel.MapMode.READ_ONLY,0,file.length());
+   }
+   finally
+   {
+	file.close();
+   }
+   if(input.getInt() != CHECKPOINT_ID || input.getInt() != CHECKPOINT_VERSION)
+	 throw new SysteMException("the file " + checkpoint_file + " isn't a checkpoint of this version.");
+   if(input.getLong() != binary_size || input.getLong() != binary_crc)
+	 throw new SysteMException("the checkpoint file " + checkpoint_file + " wasn't saved with the binary file loaded.");
+   if(input.getLong() != config_crc)
+	 throw new SysteMException("the checkpoint file " + checkpoint_file + " wasn't saved with the system configuration loaded.");
+   restore(input,true);
+  }
+  catch(MemoryException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(CPUException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(OPBDeviceException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(BufferUnderflowException e)
+  {
+   throw new SysteMException("the checkpoint file " + checkpoint_file + " is truncated.");
+  }
+  catch(IOException e)
+  {
+   throw new SysteMException("the checkpoint file " + checkpoint_file + " can't be read.");
+  }
+ }
+ 
+ /**
+  * Returns the CRC-32 of the file given by the parameter file_name, used to identify the system configuration saved in the checkpoint.
+  *
+  * @param file_name the file (path and name).
+  * @return the CRC-32 of the file.
+  * @throws IOException if the file can't be read.
+  */
+ private final long getCRC(String file_name) throws IOException
+ {
+  InputStream input;
+  CRC32 crc;
+  byte[] buffer;
+  int length;
+  
+  crc = new CRC32();
+  buffer = new byte[4096];
+  input = new FileInputStream(file_name);
+  try
+  {
+   length = input.read(buffer);
+   while(length > 0)
+   {
+	crc.update(buffer,0,length);
+	length = input.read(buffer);
+   }
+  }
+  finally
+  {
+   input.close();
+  }
+  return crc.getValue();
+ }
+ 
+ /**
+  * Saves the state of the simulation (cpu, memory system, devices and devices scheduler) in the checkpoint or in the snapshot of the reverse execution.
+  *
+  * @param output the output stream of the checkpoint file or of the snapshot.
+  * @param words true to save the words of the data memory (checkpoint), false to save the memory system without them (snapshot).
+  * @throws IOException if any error occurs when writing the checkpoint file.
+  * @throws CPUException if the cpu doesn't support checkpoints.
+  * @throws MemoryException if a device register doesn't support checkpoints.
+  * @throws OPBDeviceException if a device doesn't support checkpoints.
+  */
+ private final void save(DataOutputStream output,boolean words) throws IOException, CPUException, MemoryException, OPBDeviceException
+ {
+  int aux;
+  
+  output.writeLong(number_of_cycles);
+  output.writeInt(interrupt);
+  save(output,cpu.getState());
+  if(words)
+	memory.save(output);
+  else
+	memory.saveState(output);
+  output.writeInt(devices);
+  for(aux = 0;aux < devices;aux++)
+	save(output,opb_device[aux].getState());
+  save(output,scheduler.getState());
+ }
+ 
+ /**
+  * Restores the state of the simulation saved by the method save(DataOutputStream,boolean).
+  *
+  * @param input the checkpoint file mapped in the memory or the snapshot, positioned in the state of the simulation.
+  * @param words true if the words of the data memory were saved (checkpoint), false otherwise (snapshot).
+  * @throws SysteMException if the devices are different of the checkpoint.
+  * @throws MemoryException if the memory system doesn't match the checkpoint.
+  * @throws CPUException if the cpu doesn't support checkpoints.
+  * @throws OPBDeviceException if a device doesn't support checkpoints.
+  */
+ private final void restore(ByteBuffer input,boolean words) throws SysteMException, MemoryException, CPUException, OPBDeviceException
+ {
+  long[] state;
+  int aux;
+  
+  number_of_cycles = input.getLong();
+  interrupt = input.getInt();
+  state = restore(input);
+  if(words)
+	memory.restore(input);
+  else
+	memory.restoreState(input);
+  cpu.putState(state);
+  if(input.getInt() != devices)
+	throw new SysteMException("the devices are different of the checkpoint.");
+  for(aux = 0;aux < devices;aux++)
+	opb_device[aux].putState(restore(input));
+  state = restore(input);
+  if(state.length != 4 + devices * 3)
+	throw new SysteMException("the devices are different of the checkpoint.");
+  scheduler.putState(state);
+ }
+ 
+ /**
+  * Saves in the checkpoint the state of a component, the number of values followed by the values.
+  *
+  * @param output the output stream of the checkpoint file.
+  * @param state the state of the component.
+  * @throws IOException if any error occurs when writing the checkpoint file.
+  */
+ private final void save(DataOutputStream output,long[] state) throws IOException
+ {
+  int aux;
+  
+  output.writeInt(state.length);
+  for(aux = 0;aux < state.length;aux++)
+    output.writeLong(state[aux]);
+ }
+ 
+ /**
+  * Restores from the checkpoint the state of a component saved by the method save.
+  *
+  * @param input the checkpoint file mapped in the memory.
+  * @return the state of the component.
+  */
+ private final long[] restore(ByteBuffer input)
+ {
+  long[] state;
+  
+  state = new long[input.getInt()];
+  input.asLongBuffer().get(state);
+  input.position(input.position() + (state.length << 3));
+  return state;
+ }
+ 
+ // --------------------------------------------
+ // methods used to handle the reverse execution
+ // --------------------------------------------
+ 
+ /**
+  * Enables the reverse execution. The snapshots of the simulation are added to the replay log at the start of the steps and of the batches of cycles
+  * (methods step and continue_(long)) when the interval of the newest snapshot is complete, and the pages of the data memory are copied before
+  * the first write after each snapshot. The replay log is cleared when the system is reset.
+  *
+  * @param snapshots the maximum number of snapshots, when the replay log is full the oldest snapshot is removed.
+  * @param interval the minimum number of cycles between two snapshots.
+  * @throws SysteMException if the cpu or a device doesn't support checkpoints.
+  */
+ public final void setReplayLog(int snapshots,long interval) throws SysteMException
+ {
+  try
+  {
+   save(new DataOutputStream(new ByteArrayOutputStream()),false);
+  }
+  catch(CPUException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(MemoryException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(OPBDeviceException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(IOException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  replay_log = new ReplayLog(snapshots,interval);
+  memory.setUndo(true);
+ }
+ 
+ /**
+  * Returns true if the reverse execution is enabled.
+  *
+  * @return true if the reverse execution is enabled.
+  */
+ public final boolean hasReplayLog()
+ {
+  return replay_log != null;
+ }
+ 
+ /**
+  * Sets the console input flag. The devices which read the keyboard (System.in) don't receive any character while the flag is false,
+  * is used when several systems are simulated at the same time in the same process and would read the same keyboard.
+  *
+  * @param console_input the console input flag.
+  */
+ public final void setConsoleInput(boolean console_input)
+ {
+  this.console_input = console_input;
+ }
+ 
+ /**
+  * Returns true if the devices can read the keyboard (System.in).
+  *
+  * @return true if the devices can read the keyboard.
+  */
+ public final boolean hasConsoleInput()
+ {
+  return console_input;
+ }
+ 
+ /**
+  * Performs the reverse step, the simulation is restored before the last instruction executed. The newest snapshot before the instruction
+  * is restored and the instructions after it are executed again.
+  *
+  * @return the system status, NORMAL if the instruction was reversed or REPLAY_BEGIN if the simulation is in the oldest snapshot.
+  * @throws SysteMException if the snapshot can't be restored.
+  */
+ public final int reverseStep() throws SysteMException
+ {
+  long position;
+  int snapshot;
+  
+  position = cpu.getNumberOfInstructions() - 1;
+  snapshot = find(position);
+  if(snapshot < 0)
+	return Sys_Status.REPLAY_BEGIN;
+  cpu.suspendBreakPoints(true);
+  try
+  {
+   rollback(snapshot);
+   return replay(position);
+  }
+  finally
+  {
+   cpu.suspendBreakPoints(false);
+  }
+ }
+ 
+ /**
+  * Performs the reverse continue, the simulation is restored before the last breakpoint or watchpoint hit. The snapshots are scanned from the newest,
+  * in each one the instructions until the current position (or until the next snapshot) are executed again with the breakpoints suspended and
+  * the last breakpoint or watchpoint hit is kept. The simulation is restored to the snapshot and executed until the instruction of the last hit.
+  *
+  * @return the system status, BREAKPOINT or WATCHPOINT if the simulation stopped before the hit, REPLAY_BEGIN if no hit was found and the simulation
+  * stopped in the oldest snapshot.
+  * @throws SysteMException if the snapshot can't be restored.
+  */
+ public final int reverseContinue() throws SysteMException
+ {
+  long[] event;
+  long end;
+  int snapshot;
+  int sys_status;
+  
+  end = cpu.getNumberOfInstructions();
+  snapshot = find(end - 1);
+  if(snapshot < 0)
+	return Sys_Status.REPLAY_BEGIN;
+  cpu.suspendBreakPoints(true);
+  try
+  {
+   for(;snapshot >= 0;snapshot--)
+   {
+	rollback(snapshot);
+	event = scan(end);
+	if(event != null)
+	{
+	 rollback(snapshot);
+	 sys_status = replay(event[0]);
+	 if(sys_status != Sys_Status.NORMAL)
+	   return sys_status;
+	 if(event[1] == Sys_Status.WATCHPOINT)
+	   memory.setWatch((int)event[2],(int)event[3]);
+	 return (int)event[1];
+	}
+	end = replay_log.getInstructions(snapshot);
+   }
+   rollback(0);
+   return Sys_Status.REPLAY_BEGIN;
+  }
+  finally
+  {
+   cpu.suspendBreakPoints(false);
+  }
+ }
+ 
+ /**
+  * Adds the snapshot of the simulation to the replay log, if the reverse execution is enabled and the interval of the newest snapshot is complete.
+  * The pages of the data memory copied since the newest snapshot are kept with it. If the state of the simulation can't be saved the reverse
+  * execution is disabled.
+  */
+ private final void record()
+ {
+  ByteArrayOutputStream state;
+  DataOutputStream output;
+  
+  if(replay_log == null || !replay_log.isDue(number_of_cycles))
+	return;
+  state = new ByteArrayOutputStream();
+  output = new DataOutputStream(state);
+  try
+  {
+   save(output,false);
+   output.flush();
+  }
+  catch(CPUException e)
+  {
+   replay_log = null;
+   memory.setUndo(false);
+   return;
+  }
+  catch(MemoryException e)
+  {
+   replay_log = null;
+   memory.setUndo(false);
+   return;
+  }
+  catch(OPBDeviceException e)
+  {
+   replay_log = null;
+   memory.setUndo(false);
+   return;
+  }
+  catch(IOException e)
+  {
+   replay_log = null;
+   memory.setUndo(false);
+   return;
+  }
+  replay_log.add(state.toByteArray(),cpu.getNumberOfInstructions(),number_of_cycles,memory.takeUndo());
+ }
+ 
+ /**
+  * Returns the newest snapshot before the position given by the parameter position.
+  *
+  * @param position the position, the number of instructions executed.
+  * @return the index of the snapshot, -1 if the position is before the oldest snapshot.
+  */
+ private final int find(long position)
+ {
+  int aux;
+  
+  if(replay_log == null)
+	return -1;
+  for(aux = replay_log.size() - 1;aux >= 0;aux--)
+	if(replay_log.getInstructions(aux) <= position)
+	  return aux;
+  return -1;
+ }
+ 
+ /**
+  * Restores the simulation to the snapshot, the pages of the data memory copied after the snapshot are restored from the newest to the oldest
+  * and the snapshots newer than it are removed. The breakpoints must be suspended.
+  *
+  * @param snapshot the index of the snapshot, 0 is the oldest.
+  * @throws SysteMException if the snapshot can't be restored.
+  */
+ private final void rollback(int snapshot) throws SysteMException
+ {
+  int aux;
+  
+  memory.undo(memory.takeUndo());
+  for(aux = replay_log.size() - 2;aux >= snapshot;aux--)
+	memory.undo(replay_log.getPages(aux));
+  replay_log.trim(snapshot);
+  try
+  {
+   restore(ByteBuffer.wrap(replay_log.getState(snapshot)),false);
+  }
+  catch(MemoryException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(CPUException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+  catch(OPBDeviceException e)
+  {
+   throw new SysteMException(e.getMessage());
+  }
+ }
+ 
+ /**
+  * Performs the simulation until the position given by the parameter position, the first cycle where the number of instructions executed
+  * reaches the position with an instruction in the execute stage (as the method step). The breakpoints must be suspended.
+  *
+  * @param position the position, the number of instructions executed.
+  * @return the system status.
+  */
+ private final int replay(long position)
+ {
+  int sys_status;
+  
+  sys_status = Sys_Status.NORMAL;
+  while(sys_status == Sys_Status.NORMAL && (cpu.getNumberOfInstructions() < position || cpu.getStageInstruction(execute_stage).toString().length() == 0))
+  {
+   number_of_cycles++;
+   sys_status = cpu.cycle(interrupt);
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(sys_status == Sys_Status.NORMAL)
+     stall(Long.MAX_VALUE);
+  }
+  memory.clearWatch_hit();
+  return sys_status;
+ }
+ 
+ /**
+  * Performs the simulation until the position given by the parameter end and returns the last breakpoint or watchpoint hit before it. A breakpoint
+  * is hit in the positions where the instruction in the execute stage has a breakpoint, a watchpoint is hit in the position of the instruction
+  * which accessed the memory. The breakpoints must be suspended.
+  *
+  * @param end the position where the simulation stops, the number of instructions executed.
+  * @return the last hit, the position, the system status (BREAKPOINT or WATCHPOINT), the memory address and the kind of the watchpoint, null if no hit.
+  */
+ private final long[] scan(long end)
+ {
+  long[] event = null;
+  long number_instructions;
+  long position;
+  int sys_status;
+  
+  position = -1;
+  sys_status = Sys_Status.NORMAL;
+  memory.clearWatch_hit();
+  for(;;)
+  {
+   number_instructions = cpu.getNumberOfInstructions();
+   if(sys_status != Sys_Status.NORMAL || number_instructions >= end)
+	 return event;
+   if(number_instructions != position && cpu.getStageInstruction(execute_stage).toString().length() != 0)
+   {
+	position = number_instructions;
+	if(cpu.isBreakPoint(cpu.getStageInstruction(execute_stage).getPC()))
+	  event = new long[]{position,Sys_Status.BREAKPOINT,0,0};
+   }
+   number_of_cycles++;
+   sys_status = cpu.cycle(interrupt);
+   interrupt = scheduler.cycle(number_of_cycles);
+   if(sys_status == Sys_Status.NORMAL)
+     stall(Long.MAX_VALUE);
+   if(memory.getWatch_hit())
+   {
+	memory.clearWatch_hit();
+	event = new long[]{number_instructions,Sys_Status.WATCHPOINT,memory.getWatch_address(),memory.getWatch_kind()};
+   }
+  }
+ }
+ 
  // ------------------------------------
  // methods used to access other objects
  // ------------------------------------
@@ -623,4 +1759,35 @@ public class SysteM
  {
   return log_function_call;	 
  }
+ 
+ /**
+  * Returns the report of the data stalls of the functions in the simulation. For each bus and access kind the number of accesses
+  * and the stall cycles, index ((bus * Memory.STALL_KINDS + kind) * 2).
+  *
+  * @return the report of the data stalls of the functions in the simulation.
+  */
+ public final Map<Integer,long[]> getLog_function_stalls()
+ {
+  return log_function_stalls;
+ }
+ 
+ /**
+  * Returns the report of the number of samples of each function in the sampling simulation.
+  *
+  * @return the report of the number of samples of each function in the sampling simulation.
+  */
+ public final Map<Integer,Long> getLog_function_samples()
+ {
+  return log_function_samples;
+ }
+ 
+ /**
+  * Returns the number of samples of the sampling simulation whose memory address doesn't belong to a function.
+  *
+  * @return the number of samples whose memory address doesn't belong to a function.
+  */
+ public final long getLog_samples_unknown()
+ {
+  return log_samples_unknown;
+ }
 }
@@ -295,6 +295,8 @@ public class SystemConfiguration
 	memory.setOPB_range(system_config_parser.getOPB_begin(),system_config_parser.getOPB_end());
 	memory.setOPB_latency(system_config_parser.getOPB_read(),system_config_parser.getOPB_write());
    }
+   memory.setMemory_backend(system_config_parser.getMemory_backend());
+   memory.setLazy_decode(system_config_parser.getLazy_decode());
       
    memory.show();
    
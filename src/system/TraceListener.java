@@ -0,0 +1,21 @@
+package system;
+
+/**
+ * The TraceListener class. This class is notified by the system in the trace simulation each time an instruction reaches the execute stage.
+ */
+public abstract class TraceListener
+{
+ // -----------------------------------
+ // methods used to notify the listener
+ // -----------------------------------
+ 
+ /**
+  * Notifies that the instruction reached the execute stage, the previous instruction retired. The cycles between two notifications are the cycles
+  * performed by the previous instruction.
+  *
+  * @param pc the memory address of the instruction.
+  * @param cycle the cycle number.
+  * @return true if the trace simulation continues, false if the trace ended.
+  */
+ public abstract boolean execute(int pc,long cycle);
+}
@@ -0,0 +1,114 @@
+package system.cpu;
+
+/**
+ * The breakpoint map class. This class keeps the memory addresses of the breakpoints in a bitmap, one bit per instruction. The bitmap is
+ * divided in pages, a page is allocated in the first breakpoint inserted in the page, so the number of breakpoints is unlimited and the
+ * check of a memory address is one array access. The cpu checks the map when an instruction is fetched.
+ */
+public final class BreakPointMap
+{
+ /** The number of bits of the memory address inside a page. */
+ private static final int PAGE_BITS = 16;
+ /** The mask of the memory address inside a page. */
+ private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+ /** The pages of the bitmap, null if the page doesn't have breakpoints. */
+ private long[][] pages;
+ /** The number of breakpoints inserted. */
+ private int size;
+
+ /**
+  * Instantiates a new breakpoint map without breakpoints.
+  */
+ public BreakPointMap()
+ {
+  pages = new long[1 << (32 - PAGE_BITS)][];
+ }
+
+ // --------------------------------------
+ // methods used to handle the breakpoints
+ // --------------------------------------
+
+ /**
+  * Inserts the breakpoint in the memory address.
+  *
+  * @param address the memory address of the instruction.
+  * @return true if the breakpoint was inserted, false if the breakpoint already exists.
+  */
+ public final boolean insert(int address)
+ {
+  long[] page;
+  int bit;
+
+  page = pages[address >>> PAGE_BITS];
+  if(page == null)
+  {
+   page = new long[(1 << (PAGE_BITS - 2)) >>> 6];
+   pages[address >>> PAGE_BITS] = page;
+  }
+  bit = (address & PAGE_MASK) >>> 2;
+  if((page[bit >>> 6] & (1L << bit)) != 0)
+	return false;
+  page[bit >>> 6] |= 1L << bit;
+  size++;
+  return true;
+ }
+
+ /**
+  * Removes the breakpoint of the memory address.
+  *
+  * @param address the memory address of the instruction.
+  * @return true if the breakpoint was removed, false if the breakpoint doesn't exist.
+  */
+ public final boolean remove(int address)
+ {
+  long[] page;
+  int bit;
+
+  page = pages[address >>> PAGE_BITS];
+  bit = (address & PAGE_MASK) >>> 2;
+  if(page == null || (page[bit >>> 6] & (1L << bit)) == 0)
+	return false;
+  page[bit >>> 6] &= ~(1L << bit);
+  size--;
+  return true;
+ }
+
+ /**
+  * Removes all the breakpoints.
+  */
+ public final void clear()
+ {
+  pages = new long[1 << (32 - PAGE_BITS)][];
+  size = 0;
+ }
+
+ // -------------------------------------
+ // methods used to check the breakpoints
+ // -------------------------------------
+
+ /**
+  * Returns true if the breakpoint exists in the memory address.
+  *
+  * @param address the memory address of the instruction.
+  * @return true if the breakpoint exists.
+  */
+ public final boolean contains(int address)
+ {
+  long[] page;
+  int bit;
+
+  page = pages[address >>> PAGE_BITS];
+  bit = (address & PAGE_MASK) >>> 2;
+  return page != null && (page[bit >>> 6] & (1L << bit)) != 0;
+ }
+
+ /**
+  * Returns the number of breakpoints inserted.
+  *
+  * @return the number of breakpoints.
+  */
+ public final int size()
+ {
+  return size;
+ }
+}
@@ -1,5 +1,7 @@
 package system.cpu;
 
+import system.opb_device.*;
+
 /**
  * The cpu class. This class implements the processor. 
  */
@@ -17,6 +19,60 @@ public abstract class CPU
   */
  public abstract int cycle(int interrupt);
  
+ /**
+  * Returns the number of the next cycles where the cpu only stalls. In these cycles the cpu doesn't access the memory system and doesn't verify the interrupt status,
+  * so the cycles can be performed in one step by the method stall. The default implementation returns zero, all cycles are performed by the method cycle.
+  *
+  * @return the number of stall cycles.
+  */
+ public int getStall()
+ {
+  return 0;
+ }
+ 
+ /**
+  * Performs the stall cycles given by the parameter cycles in one step. The number of cycles can't be greater than the value returned by the method getStall.
+  *
+  * @param cycles the number of stall cycles.
+  */
+ public void stall(int cycles)
+ {
+ }
+ 
+ /**
+  * Performs the instructions in the functional mode, without the simulation of the pipeline, the stalls and the latencies, until the number of instructions
+  * given by the parameter instructions or until the memory address given by the parameter address. Each instruction counts as one cycle. The functional mode
+  * starts after the reset of the cpu, and the cycle accurate simulation continues in the next instruction. The default implementation performs one operation
+  * cycle of the cpu, the cpu doesn't have a functional mode.
+  *
+  * @param interrupt the interrupt status.
+  * @param instructions the maximum number of instructions performed.
+  * @param address the memory address where the functional mode stops, -1 if it doesn't stop in an address.
+  * @return the cpu status after the instructions.
+  */
+ public int functional(int interrupt,int instructions,long address)
+ {
+  return cycle(interrupt);
+ }
+ 
+ /**
+  * Ends the functional mode, the cycle accurate simulation starts in the next cycle.
+  */
+ public void endFunctional()
+ {
+ }
+ 
+ /**
+  * Returns the memory address of the next instruction performed in the functional mode. The default implementation returns the program counter
+  * register (PC) in GDB mode.
+  *
+  * @return the memory address of the next instruction.
+  */
+ public int getFunctionalPC()
+ {
+  return getRegisterGDB(32);
+ }
+ 
  // --------------------------------
  // methods used to access registers
  // --------------------------------
@@ -58,6 +114,28 @@ public abstract class CPU
   */
  public abstract void createProgram_Exit(long address) throws CPUException;
  
+ /**
+  * Sets the simulation engine of the cpu. The default implementation accepts only the cycle engine, the cpu doesn't have other engines.
+  *
+  * @param engine the simulation engine name.
+  * @throws CPUException if the simulation engine is unknown.
+  */
+ public void setEngine(String engine) throws CPUException
+ {
+  if(!engine.equals("cycle"))
+	throw new CPUException("the cpu " + toString() + " doesn't support the simulation engine " + engine + ".");
+ }
+ 
+ /**
+  * Sets the scheduler of the devices, used by the simulation engine to know the cycles where the interrupt status can change.
+  * The default implementation doesn't use the scheduler.
+  *
+  * @param scheduler the scheduler of the devices.
+  */
+ public void setScheduler(OPBScheduler scheduler)
+ {
+ }
+  
  /**
   * Returns the instruction in the stage defined by the parameter stage.
   *
@@ -115,22 +193,73 @@ public abstract class CPU
  public abstract Instruction createBreakPoint(Instruction instruction);
  
  /**
-  * Inserts the breakpoint in the pipeline if is the case.
+  * Inserts the breakpoint in the memory address. The instructions fetched from the memory address are replaced by the breakpoint control instruction,
+  * the breakpoint is also inserted in the pipeline if is the case.
   *
   * @param address the memory's address where the breakpoint should be placed.
-  * @return 1 - if the breakpoint was inserted.<br>
-  *         -1 - if the breakpoint wasn't inserted.
+  * @return 1 - if the breakpoint was inserted in the pipeline.<br>
+  *         -1 - if the breakpoint wasn't inserted in the pipeline.
   */
  public abstract int insertBreakPoint(int address);
  
  /**
-  * Removes the breakpoint in the pipeline if is the case.
+  * Removes the breakpoint of the memory address, also from the pipeline if is the case.
   *
   * @param address the address where the breakpoint should be remove.
-  * @return 1 - if the breakpoint was removed.<br>
-  *         -1 - if the breakpoint wasn't removed.
+  * @return 1 - if the breakpoint was removed from the pipeline.<br>
+  *         -1 - if the breakpoint wasn't removed from the pipeline.
   */
  public abstract int removeBreakPoint(int address);
+ 
+ /**
+  * Returns true if the breakpoint is inserted in the memory address. The default implementation returns false, the cpu doesn't keep the breakpoints.
+  *
+  * @param address the memory's address of the instruction.
+  * @return true if the breakpoint is inserted.
+  */
+ public boolean isBreakPoint(int address)
+ {
+  return false;
+ }
+ 
+ /**
+  * Suspends or resumes the breakpoints, is used by the reverse execution to replay the instructions between two positions. While the breakpoints
+  * are suspended the instructions fetched aren't replaced by the breakpoint control instruction and the instructions are performed one by one.
+  * The default implementation doesn't perform any action.
+  *
+  * @param suspend true to suspend the breakpoints, false to resume them (the breakpoints are also inserted in the pipeline).
+  */
+ public void suspendBreakPoints(boolean suspend)
+ {
+ }
+ 
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the cpu saved in the checkpoint (registers, pipeline and the progress of the instruction in the execute stage).
+  * The default implementation throws an exception, the cpu doesn't support checkpoints.
+  *
+  * @return the state of the cpu.
+  * @throws CPUException if the cpu doesn't support checkpoints.
+  */
+ public long[] getState() throws CPUException
+ {
+  throw new CPUException("the cpu " + toString() + " doesn't support checkpoints.");
+ }
+ 
+ /**
+  * Restores the state of the cpu saved in the checkpoint. The memory system must be restored before the cpu, the pipeline is fetched again from the memory.
+  * The default implementation throws an exception, the cpu doesn't support checkpoints.
+  *
+  * @param state the state of the cpu.
+  * @throws CPUException if the cpu doesn't support checkpoints or the state isn't valid.
+  */
+ public void putState(long[] state) throws CPUException
+ {
+  throw new CPUException("the cpu " + toString() + " doesn't support checkpoints.");
+ }
 
  // ------------------------------------
  // methods used to access other objects
@@ -142,4 +271,15 @@ public abstract class CPU
   * @return the instruction set architecture decoder of the cpu.
  */
  public abstract InstructionSetArchitecture getInstructionSetArchitectureClass();
+ 
+ // -----------------------------------
+ // methods used to display information
+ // -----------------------------------
+ 
+ /**
+  * Shows the statistics of the simulation engine of the cpu. The default implementation doesn't show anything, the cpu doesn't have statistics.
+  */
+ public void showEngine()
+ {
+ }
 }
@@ -5,6 +5,9 @@ package system.cpu;
  */
 public class Instruction 
 {
+ /** The opcode id of the instruction, the index of the instruction counters of the profiler. -1 if wasn't assigned. */
+ private int opcode_id = -1;
+ 
  // -----------------------------------------------
  // methods to operate instructions in the pipeline
  // -----------------------------------------------
@@ -20,6 +23,25 @@ public class Instruction
   return 0;
  }
  
+ /**
+  * Returns the number of the next operation cycles where the instruction only stalls (the instruction latency still not completed).
+  *
+  * @return the number of stall cycles.
+  */
+ public int getStall()
+ {
+  return 0;
+ }
+ 
+ /**
+  * Performs the stall cycles of the instruction given by the parameter cycles in one step.
+  *
+  * @param cycles the number of stall cycles.
+  */
+ public void stall(int cycles)
+ {
+ }
+ 
  // ------------------------------------
  // methods used to access other objects
  // ------------------------------------
@@ -48,4 +70,24 @@ public class Instruction
  {
   return 0;	 
  }
+ 
+ /**
+  * Returns the opcode id of the instruction, the index of the instruction counters of the profiler.
+  *
+  * @return the opcode id of the instruction, -1 if wasn't assigned.
+  */
+ public final int getOpcode_id()
+ {
+  return opcode_id;
+ }
+ 
+ /**
+  * Sets the opcode id of the instruction, the index of the instruction counters of the profiler. 
+  *
+  * @param opcode_id the opcode id of the instruction.
+  */
+ public final void setOpcode_id(int opcode_id)
+ {
+  this.opcode_id = opcode_id;
+ }
 }
@@ -18,6 +18,17 @@ public abstract class InstructionSetArchitecture
   */
  public abstract Instruction decode(int address,int cell_value);
  
+ /**
+  * Returns the general register written by the instruction. The default implementation returns zero, the instructions don't write a general register.
+  *
+  * @param cell_value the instruction value.
+  * @return the number of the general register written by the instruction, zero if the instruction doesn't write a general register.
+  */
+ public int getDestination(int cell_value)
+ {
+  return 0;
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
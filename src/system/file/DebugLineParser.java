@@ -0,0 +1,752 @@
+package system.file;
+
+import java.nio.channels.*;
+import java.nio.*;
+import java.util.*;
+import java.io.*;
+
+/**
+ * The debug line parser class. This class loads the line number information of the executable and linking format (ELF) file, the
+ * DWARF line number program (.debug_line section, versions 2 to 5) and the stabs line entries (.stab and .stabstr sections).
+ * The lines are sorted by the memory address, each line covers the memory addresses until the next line.
+ */
+public class DebugLineParser
+{
+ /** The executable and linking format (ELF) file name (path and name). */
+ private String file_name;
+ /** The list with the source files name. */
+ private List<String> source_name;
+ /** The index of each source file name in the list. */
+ private Map<String,Integer> source_index;
+ /** The first memory address of the lines. */
+ private long[] line_address;
+ /** The source file index of the lines, -1 in the end of a sequence. */
+ private int[] line_file;
+ /** The line number of the lines, 0 in the end of a sequence. */
+ private int[] line_number;
+ /** The number of lines. */
+ private int lines;
+ /** The byte order of the executable and linking format (ELF) file. */
+ private ByteOrder order;
+ /** The DW_LNS_copy standard opcode. */
+ private final int DW_LNS_COPY = 1;
+ /** The DW_LNS_advance_pc standard opcode. */
+ private final int DW_LNS_ADVANCE_PC = 2;
+ /** The DW_LNS_advance_line standard opcode. */
+ private final int DW_LNS_ADVANCE_LINE = 3;
+ /** The DW_LNS_set_file standard opcode. */
+ private final int DW_LNS_SET_FILE = 4;
+ /** The DW_LNS_const_add_pc standard opcode. */
+ private final int DW_LNS_CONST_ADD_PC = 8;
+ /** The DW_LNS_fixed_advance_pc standard opcode. */
+ private final int DW_LNS_FIXED_ADVANCE_PC = 9;
+ /** The DW_LNE_end_sequence extended opcode. */
+ private final int DW_LNE_END_SEQUENCE = 1;
+ /** The DW_LNE_set_address extended opcode. */
+ private final int DW_LNE_SET_ADDRESS = 2;
+ /** The DW_LNE_define_file extended opcode. */
+ private final int DW_LNE_DEFINE_FILE = 3;
+ /** The DW_LNCT_path content type. */
+ private final int DW_LNCT_PATH = 1;
+ /** The DW_LNCT_directory_index content type. */
+ private final int DW_LNCT_DIRECTORY_INDEX = 2;
+ /** The N_UNDF stab type, the header of the stabs of one compilation unit. */
+ private final int N_UNDF = 0x00;
+ /** The N_FUN stab type, the begin (name) or the end (size) of a function. */
+ private final int N_FUN = 0x24;
+ /** The N_SLINE stab type, the line number of the text, relative to the function. */
+ private final int N_SLINE = 0x44;
+ /** The N_SO stab type, the directory or the name of the source file. */
+ private final int N_SO = 0x64;
+ /** The N_SOL stab type, the name of the included source file. */
+ private final int N_SOL = 0x84;
+
+ // ----------------------------------------------
+ // methods used to read and load the line numbers
+ // ----------------------------------------------
+
+ /**
+  * Loads the line number information of the executable and linking format (ELF) file. The file without line number information
+  * is loaded without lines.
+  *
+  * @param file_name the executable and linking format (ELF) file name (path and name).
+  * @throws DebugLineParserException if any error occur when loads the line number information.
+  */
+ public void load(String file_name) throws DebugLineParserException
+ {
+  RandomAccessFile file;
+  FileChannel channel;
+  ByteBuffer buffer;
+  ByteBuffer debug_line;
+  ByteBuffer debug_line_str;
+  ByteBuffer debug_str;
+  ByteBuffer stab;
+  ByteBuffer stabstr;
+  String name;
+  int section_offset;
+  int section_size;
+  int sections;
+  int strings;
+  int header;
+  int aux;
+
+  this.file_name = file_name;
+  source_name = new ArrayList<String>();
+  source_index = new HashMap<String,Integer>();
+  line_address = new long[1024];
+  line_file = new int[1024];
+  line_number = new int[1024];
+  lines = 0;
+  debug_line = null;
+  debug_line_str = null;
+  debug_str = null;
+  stab = null;
+  stabstr = null;
+  try
+  {
+   file = new RandomAccessFile(file_name,"r");
+   channel = file.getChannel();
+   buffer = channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+   channel.close();
+   file.close();
+
+   if(buffer.limit() < 52 || buffer.getInt(0) != 0x7f454c46)
+	 throw new DebugLineParserException("not an ELF file type");
+   if(buffer.get(4) != 1)
+	 throw new DebugLineParserException("the ELF 64-bit class not inplement");
+   order = buffer.get(5) == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+   buffer.order(order);
+
+   // find the debug sections
+   section_offset = buffer.getInt(32);
+   sections = buffer.getShort(48) & 0xffff;
+   header = section_offset + (buffer.getShort(50) & 0xffff) * 40;
+   strings = buffer.getInt(header + 16);
+   for(aux = 0;aux < sections;aux++)
+   {
+	header = section_offset + aux * 40;
+	name = getString(buffer,strings + buffer.getInt(header));
+	if(buffer.getInt(header + 4) == 8)
+	  continue;
+	section_size = buffer.getInt(header + 20);
+	if(name.equals(".debug_line"))
+	  debug_line = section(buffer,buffer.getInt(header + 16),section_size);
+	else if(name.equals(".debug_line_str"))
+	  debug_line_str = section(buffer,buffer.getInt(header + 16),section_size);
+	else if(name.equals(".debug_str"))
+	  debug_str = section(buffer,buffer.getInt(header + 16),section_size);
+	else if(name.equals(".stab"))
+	  stab = section(buffer,buffer.getInt(header + 16),section_size);
+	else if(name.equals(".stabstr"))
+	  stabstr = section(buffer,buffer.getInt(header + 16),section_size);
+   }
+
+   if(debug_line != null)
+	 loadDebugLine(debug_line,debug_line_str,debug_str);
+   if(stab != null && stabstr != null)
+	 loadStabs(stab,stabstr);
+   sortLines();
+  }
+  catch(FileNotFoundException e)
+  {
+   throw new DebugLineParserException("file not found.");
+  }
+  catch(SecurityException e)
+  {
+   throw new DebugLineParserException("don't have permission to access file.");
+  }
+  catch(BufferUnderflowException e)
+  {
+   throw new DebugLineParserException("end of the line number information");
+  }
+  catch(IndexOutOfBoundsException e)
+  {
+   throw new DebugLineParserException("the line number information is out of bounds");
+  }
+  catch(IllegalArgumentException e)
+  {
+   throw new DebugLineParserException("the line number information is out of bounds");
+  }
+  catch(IOException e)
+  {
+   throw new DebugLineParserException(e.getMessage());
+  }
+ }
+
+ /**
+  * Loads the DWARF line number programs of the .debug_line section, one for each compilation unit.
+  *
+  * @param section the .debug_line section.
+  * @param line_str the .debug_line_str section, null if doesn't exist.
+  * @param str the .debug_str section, null if doesn't exist.
+  * @throws DebugLineParserException if the version of the line number program isn't supported.
+  */
+ private void loadDebugLine(ByteBuffer section,ByteBuffer line_str,ByteBuffer str) throws DebugLineParserException
+ {
+  List<String> directories;
+  List<Integer> files;
+  int[] opcode_lengths;
+  long unit_length;
+  long header_length;
+  long address;
+  int offset_size;
+  int address_size;
+  int min_inst_length;
+  int line_base;
+  int line_range;
+  int opcode_base;
+  int version;
+  int program;
+  int end;
+  int next;
+  int opcode;
+  int adjust;
+  int file;
+  int line;
+  int aux;
+
+  while(section.remaining() > 0)
+  {
+   unit_length = section.getInt() & 0xffffffffL;
+   offset_size = 4;
+   if(unit_length == 0xffffffffL)
+   {
+	unit_length = section.getLong();
+	offset_size = 8;
+   }
+   end = section.position() + (int)unit_length;
+   version = section.getShort() & 0xffff;
+   if(version < 2 || version > 5)
+	 throw new DebugLineParserException("the version " + version + " of the line number program isn't supported");
+   address_size = 4;
+   if(version >= 5)
+   {
+	address_size = section.get() & 0xff;
+	section.get();
+   }
+   header_length = offset_size == 8 ? section.getLong() : section.getInt() & 0xffffffffL;
+   program = section.position() + (int)header_length;
+   min_inst_length = section.get() & 0xff;
+   if(version >= 4)
+	 section.get();
+   section.get();
+   line_base = section.get();
+   line_range = section.get() & 0xff;
+   opcode_base = section.get() & 0xff;
+   opcode_lengths = new int[opcode_base];
+   for(aux = 1;aux < opcode_base;aux++)
+	 opcode_lengths[aux] = section.get() & 0xff;
+   if(line_range == 0)
+	 throw new DebugLineParserException("the line range of the line number program is zero");
+
+   // load the directories and the source files
+   directories = new ArrayList<String>();
+   files = new ArrayList<Integer>();
+   if(version >= 5)
+   {
+	directories.addAll(getEntries(section,line_str,str,offset_size,null));
+	for(String source : getEntries(section,line_str,str,offset_size,directories))
+	  files.add(source(source));
+   }
+   else
+   {
+	directories.add("");
+	while(section.get(section.position()) != 0)
+	  directories.add(getString(section));
+	section.get();
+	files.add(-1);
+	while(section.get(section.position()) != 0)
+	{
+	 files.add(source(path(directories,getString(section),(int)getULEB128(section))));
+	 getULEB128(section);
+	 getULEB128(section);
+	}
+   }
+
+   // run the line number program
+   section.position(program);
+   address = 0;
+   file = 1;
+   line = 1;
+   while(section.position() < end)
+   {
+	opcode = section.get() & 0xff;
+	if(opcode >= opcode_base)
+	{
+	 adjust = opcode - opcode_base;
+	 address = address + (adjust / line_range) * min_inst_length;
+	 line = line + line_base + adjust % line_range;
+	 addLine(address,file < files.size() ? files.get(file) : -1,line);
+	}
+	else if(opcode == 0)
+	{
+	 next = (int)getULEB128(section);
+	 next = section.position() + next;
+	 opcode = section.get() & 0xff;
+	 if(opcode == DW_LNE_END_SEQUENCE)
+	 {
+	  addLine(address,-1,0);
+	  address = 0;
+	  file = 1;
+	  line = 1;
+	 }
+	 else if(opcode == DW_LNE_SET_ADDRESS)
+	   address = address_size == 8 ? section.getLong() : section.getInt() & 0xffffffffL;
+	 else if(opcode == DW_LNE_DEFINE_FILE)
+	   files.add(source(path(directories,getString(section),(int)getULEB128(section))));
+	 section.position(next);
+	}
+	else if(opcode == DW_LNS_COPY)
+	  addLine(address,file < files.size() ? files.get(file) : -1,line);
+	else if(opcode == DW_LNS_ADVANCE_PC)
+	  address = address + getULEB128(section) * min_inst_length;
+	else if(opcode == DW_LNS_ADVANCE_LINE)
+	  line = line + (int)getSLEB128(section);
+	else if(opcode == DW_LNS_SET_FILE)
+	  file = (int)getULEB128(section);
+	else if(opcode == DW_LNS_CONST_ADD_PC)
+	  address = address + ((255 - opcode_base) / line_range) * min_inst_length;
+	else if(opcode == DW_LNS_FIXED_ADVANCE_PC)
+	  address = address + (section.getShort() & 0xffff);
+	else
+	{
+	 for(aux = 0;aux < opcode_lengths[opcode];aux++)
+	   getULEB128(section);
+	}
+   }
+   section.position(end);
+  }
+ }
+
+ /**
+  * Returns the directories or the source files of a DWARF version 5 line number program header, described by the entry formats.
+  *
+  * @param section the .debug_line section, positioned in the entry formats.
+  * @param line_str the .debug_line_str section, null if doesn't exist.
+  * @param str the .debug_str section, null if doesn't exist.
+  * @param offset_size the size of the section offsets (4 or 8 bytes).
+  * @param directories the directories, null if the entries are the directories.
+  * @return the list with the directories or the source files (path and name).
+  * @throws DebugLineParserException if the form of an entry isn't supported.
+  */
+ private List<String> getEntries(ByteBuffer section,ByteBuffer line_str,ByteBuffer str,int offset_size,List<String> directories) throws DebugLineParserException
+ {
+  List<String> entries;
+  int[] formats;
+  String name;
+  long value;
+  int directory;
+  int count;
+  int aux_a;
+  int aux_b;
+
+  formats = new int[(section.get() & 0xff) * 2];
+  for(aux_a = 0;aux_a < formats.length;aux_a++)
+	formats[aux_a] = (int)getULEB128(section);
+  count = (int)getULEB128(section);
+  entries = new ArrayList<String>();
+  for(aux_a = 0;aux_a < count;aux_a++)
+  {
+   name = "";
+   directory = 0;
+   for(aux_b = 0;aux_b < formats.length;aux_b = aux_b + 2)
+   {
+	switch(formats[aux_b + 1])
+	{
+	 case 0x08:value = -1;
+	           if(formats[aux_b] == DW_LNCT_PATH)
+	        	 name = getString(section);
+	           else
+	        	 getString(section);
+	           break;
+	 case 0x0e:
+	 case 0x1f:value = offset_size == 8 ? section.getLong() : section.getInt() & 0xffffffffL;
+	           if(formats[aux_b] == DW_LNCT_PATH)
+	        	 name = getString(formats[aux_b + 1] == 0x1f ? line_str : str,(int)value);
+	           break;
+	 case 0x0b:value = section.get() & 0xff;
+	           break;
+	 case 0x05:value = section.getShort() & 0xffff;
+	           break;
+	 case 0x06:value = section.getInt() & 0xffffffffL;
+	           break;
+	 case 0x07:value = section.getLong();
+	           break;
+	 case 0x0f:value = getULEB128(section);
+	           break;
+	 case 0x1e:value = -1;
+	           section.position(section.position() + 16);
+	           break;
+	 case 0x09:value = -1;
+	           section.position(section.position() + (int)getULEB128(section));
+	           break;
+	 default:throw new DebugLineParserException("the form 0x" + Integer.toHexString(formats[aux_b + 1]) + " of the line number program header isn't supported");
+	}
+	if(formats[aux_b] == DW_LNCT_DIRECTORY_INDEX)
+	  directory = (int)value;
+   }
+   entries.add(directories == null ? name : path(directories,name,directory));
+  }
+  return entries;
+ }
+
+ /**
+  * Loads the stabs line entries of the .stab section. The addresses of the line entries are relative to the function.
+  *
+  * @param stab the .stab section.
+  * @param stabstr the .stabstr section.
+  */
+ private void loadStabs(ByteBuffer stab,ByteBuffer stabstr)
+ {
+  String directory;
+  String name;
+  long function;
+  long value;
+  int next_base;
+  int base;
+  int file;
+  int type;
+  int desc;
+  int strx;
+
+  directory = "";
+  function = 0;
+  base = 0;
+  next_base = 0;
+  file = -1;
+  while(stab.remaining() >= 12)
+  {
+   strx = stab.getInt();
+   type = stab.get() & 0xff;
+   stab.get();
+   desc = stab.getShort() & 0xffff;
+   value = stab.getInt() & 0xffffffffL;
+   switch(type)
+   {
+	case N_UNDF:base = next_base;
+	            next_base = base + (int)value;
+	            break;
+	case N_SO:  name = getString(stabstr,base + strx);
+	            if(name.length() == 0)
+	            {
+	             if(value != 0)
+	               addLine(value,-1,0);
+	             directory = "";
+	             file = -1;
+	            }
+	            else if(name.endsWith("/"))
+	              directory = name;
+	            else
+	              file = source(name.startsWith("/") ? name : directory + name);
+	            break;
+	case N_SOL: name = getString(stabstr,base + strx);
+	            file = source(name.startsWith("/") ? name : directory + name);
+	            break;
+	case N_FUN: if(getString(stabstr,base + strx).length() == 0)
+	              addLine(function + value,-1,0);
+	            else
+	              function = value;
+	            break;
+	case N_SLINE:addLine(function + value,file,desc);
+	            break;
+   }
+  }
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Adds one line to the lines.
+  *
+  * @param address the first memory address of the line.
+  * @param file the source file index, -1 in the end of a sequence.
+  * @param line the line number, 0 in the end of a sequence.
+  */
+ private void addLine(long address,int file,int line)
+ {
+  if(lines == line_address.length)
+  {
+   line_address = Arrays.copyOf(line_address,lines * 2);
+   line_file = Arrays.copyOf(line_file,lines * 2);
+   line_number = Arrays.copyOf(line_number,lines * 2);
+  }
+  line_address[lines] = address & 0xffffffffL;
+  line_file[lines] = file;
+  line_number[lines] = line;
+  lines++;
+ }
+
+ /**
+  * Sorts the lines by the memory address. In the same memory address the end of a sequence is placed before the lines,
+  * the other lines keep the load order.
+  */
+ private void sortLines()
+ {
+  Integer[] sorted;
+  long[] address;
+  int[] file;
+  int[] number;
+  int aux;
+
+  sorted = new Integer[lines];
+  for(aux = 0;aux < lines;aux++)
+	sorted[aux] = aux;
+  Arrays.sort(sorted,new Comparator<Integer>()
+  {
+   public int compare(Integer a,Integer b)
+   {
+	if(line_address[a] != line_address[b])
+	  return line_address[a] < line_address[b] ? -1 : 1;
+	if((line_number[a] == 0) != (line_number[b] == 0))
+	  return line_number[a] == 0 ? -1 : 1;
+	return a - b;
+   }
+  });
+  address = new long[lines];
+  file = new int[lines];
+  number = new int[lines];
+  for(aux = 0;aux < lines;aux++)
+  {
+   address[aux] = line_address[sorted[aux]];
+   file[aux] = line_file[sorted[aux]];
+   number[aux] = line_number[sorted[aux]];
+  }
+  line_address = address;
+  line_file = file;
+  line_number = number;
+ }
+
+ /**
+  * Returns the index of the source file, the source file is added to the list if doesn't exist.
+  *
+  * @param name the source file name (path and name).
+  * @return the index of the source file.
+  */
+ private int source(String name)
+ {
+  Integer index;
+
+  index = source_index.get(name);
+  if(index == null)
+  {
+   index = source_name.size();
+   source_name.add(name);
+   source_index.put(name,index);
+  }
+  return index;
+ }
+
+ /**
+  * Returns the path of the source file in the directory.
+  *
+  * @param directories the directories of the line number program.
+  * @param name the source file name.
+  * @param directory the directory index.
+  * @return the path and the name of the source file.
+  */
+ private String path(List<String> directories,String name,int directory)
+ {
+  if(name.startsWith("/") || directory < 0 || directory >= directories.size() || directories.get(directory).length() == 0)
+	return name;
+  return directories.get(directory) + "/" + name;
+ }
+
+ /**
+  * Returns a section of the executable and linking format (ELF) file, with the byte order of the file.
+  *
+  * @param buffer the executable and linking format (ELF) file.
+  * @param offset the file offset of the section.
+  * @param size the size of the section.
+  * @return the section.
+  */
+ private ByteBuffer section(ByteBuffer buffer,int offset,int size)
+ {
+  ByteBuffer section;
+
+  section = buffer.duplicate();
+  section.limit(offset + size);
+  section.position(offset);
+  return section.slice().order(order);
+ }
+
+ /**
+  * Returns the null terminated string in the position of the buffer, the position of the buffer isn't changed.
+  *
+  * @param buffer the buffer.
+  * @param position the position of the string.
+  * @return the string.
+  */
+ private String getString(ByteBuffer buffer,int position)
+ {
+  StringBuilder string;
+
+  string = new StringBuilder();
+  while(buffer.get(position) != 0)
+	string.append((char)(buffer.get(position++) & 0xff));
+  return string.toString();
+ }
+
+ /**
+  * Returns the null terminated string in the current position of the buffer, the position is moved after the string.
+  *
+  * @param buffer the buffer.
+  * @return the string.
+  */
+ private String getString(ByteBuffer buffer)
+ {
+  String string;
+
+  string = getString(buffer,buffer.position());
+  buffer.position(buffer.position() + string.length() + 1);
+  return string;
+ }
+
+ /**
+  * Returns the next unsigned LEB128 value of the buffer.
+  *
+  * @param buffer the buffer.
+  * @return the value.
+  */
+ private long getULEB128(ByteBuffer buffer)
+ {
+  long value;
+  int shift;
+  int data;
+
+  value = 0;
+  shift = 0;
+  do
+  {
+   data = buffer.get();
+   if(shift < 64)
+	 value = value | ((long)(data & 0x7f) << shift);
+   shift = shift + 7;
+  }
+  while((data & 0x80) != 0);
+  return value;
+ }
+
+ /**
+  * Returns the next signed LEB128 value of the buffer.
+  *
+  * @param buffer the buffer.
+  * @return the value.
+  */
+ private long getSLEB128(ByteBuffer buffer)
+ {
+  long value;
+  int shift;
+  int data;
+
+  value = 0;
+  shift = 0;
+  do
+  {
+   data = buffer.get();
+   if(shift < 64)
+	 value = value | ((long)(data & 0x7f) << shift);
+   shift = shift + 7;
+  }
+  while((data & 0x80) != 0);
+  if(shift < 64 && (data & 0x40) != 0)
+	value = value | (-1L << shift);
+  return value;
+ }
+
+ //--------------------------------
+ // methods used for accessing data
+ //--------------------------------
+
+ /**
+  * Returns the index of the line with the memory address.
+  *
+  * @param address the memory address.
+  * @return the index of the line, -1 if the memory address doesn't have line number information.
+  */
+ public int findLine(long address)
+ {
+  int low;
+  int high;
+  int middle;
+
+  address = address & 0xffffffffL;
+  low = 0;
+  high = lines - 1;
+  while(low <= high)
+  {
+   middle = (low + high) >>> 1;
+   if(line_address[middle] <= address)
+	 low = middle + 1;
+   else
+	 high = middle - 1;
+  }
+  if(high < 0 || line_number[high] == 0)
+	return -1;
+  return high;
+ }
+
+ /**
+  * Returns the number of lines.
+  *
+  * @return the number of lines.
+  */
+ public int getNumberOfLines()
+ {
+  return lines;
+ }
+
+ /**
+  * Returns the first memory address of the line.
+  *
+  * @param line the index of the line.
+  * @return the first memory address of the line.
+  */
+ public long getLine_address(int line)
+ {
+  return line_address[line];
+ }
+
+ /**
+  * Returns the source file index of the line.
+  *
+  * @param line the index of the line.
+  * @return the source file index of the line, -1 in the end of a sequence.
+  */
+ public int getLine_file(int line)
+ {
+  return line_file[line];
+ }
+
+ /**
+  * Returns the line number of the line.
+  *
+  * @param line the index of the line.
+  * @return the line number, 0 in the end of a sequence.
+  */
+ public int getLine_number(int line)
+ {
+  return line_number[line];
+ }
+
+ /**
+  * Returns the list with the source files name.
+  *
+  * @return the list with the source files name (path and name).
+  */
+ public List<String> getSource_name()
+ {
+  return source_name;
+ }
+
+ /**
+  * Returns the executable and linking format (ELF) file name.
+  *
+  * @return the executable and linking format (ELF) file name (path and name).
+  */
+ public String getFile_name()
+ {
+  return file_name;
+ }
+}
@@ -0,0 +1,33 @@
+package system.file;
+
+/**
+ * The debug line parser exception class.
+ */
+public class DebugLineParserException extends Exception
+{
+ /** The serialVersionUID. */
+ private static final long serialVersionUID = 1L;
+ /** The error message. */
+ private String message;
+
+ /**
+  * Instantiates a new debug line parser exception.
+  *
+  * @param s the error message.
+  */
+ public DebugLineParserException(String s)
+ {
+  message = s;
+ }
+
+ /**
+  * Returns the error message.
+  *
+  * @return the error message.
+  * @see java.lang.Throwable#getMessage()
+  */
+ public String getMessage()
+ {
+  return message;
+ }
+}
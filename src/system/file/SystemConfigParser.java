@@ -58,6 +58,16 @@ public class SystemConfigParser
  private long opb_end;
  /** The on-chip peripheral bus latency value in the case of an access to a memory address not mapped. */
  private int mapped;
+ /** The data memory backend name.<p>
+  *  hash - the data memory is stored in an hash table.<br>
+  *  array - the data memory is stored in one array for each bus.
+  */
+ private String memory_backend = "hash";
+ /** The lazy decode flag.<p>
+  *  false - the instruction is decoded when the memory address is wrote (eager).<br>
+  *  true - the instruction is decoded in the first fetch of the memory address after the write (lazy).
+  */
+ private boolean lazy_decode = false;
  
  // device section
  /** The list with the memory address of the registers of all devices. */
@@ -390,6 +400,26 @@ public class SystemConfigParser
   return mapped;
  }
  
+ /**
+  * Returns the data memory backend name.
+  *
+  * @return the data memory backend name.
+  */
+ public String getMemory_backend()
+ {
+  return memory_backend;
+ }
+ 
+ /**
+  * Returns the lazy decode flag.
+  *
+  * @return the lazy decode flag.
+  */
+ public boolean getLazy_decode()
+ {
+  return lazy_decode;
+ }
+ 
  /**
   * Returns the list with the names of the classes of the devices.
   *
@@ -534,6 +564,11 @@ public class SystemConfigParser
   
   System.out.println("   . Not mapped: " + Util.toDecStringSpace(mapped,2));  
   
+  System.out.println("");
+  System.out.println("  Memory Backend");
+  System.out.println("   . Name: " + memory_backend);
+  System.out.println("   . Decode: " + (lazy_decode ? "lazy" : "eager"));
+  
   System.out.println("");
   System.out.println("  Memory Range");
   decimal = new DecimalFormat("0.000");
@@ -654,6 +689,22 @@ public class SystemConfigParser
 	{
 	 currentElement = qName;	
 	}
+	else if(qName.equalsIgnoreCase("MEMORY"))
+	{
+	 if(attributes.getValue("backend") != null)
+	   memory_backend = attributes.getValue("backend");
+	 if(!memory_backend.equalsIgnoreCase("hash") && !memory_backend.equalsIgnoreCase("array"))
+	   throw new SAXException("memory backend " + memory_backend + " is unknown.");
+	 if(attributes.getValue("decode") != null)
+	 {
+	  if(attributes.getValue("decode").equalsIgnoreCase("lazy"))
+		lazy_decode = true;
+	  else if(attributes.getValue("decode").equalsIgnoreCase("eager"))
+		lazy_decode = false;
+	  else
+		throw new SAXException("memory decode " + attributes.getValue("decode") + " is unknown.");
+	 }
+	}
 	else if(qName.equalsIgnoreCase("LMB"))
 	{
 	 try
@@ -0,0 +1,173 @@
+package system.memory;
+
+/**
+ * The array memory data class. This class stores the data memory in one array of words for each bus, the heap of all the memory range mapped is allocated
+ * when the memory system is configured. The memory not wrote by the program reads as zero, the words wrote are kept in a bitmap (one bit per word) so the
+ * memory contents are the same of the hash memory backend.
+ */
+public final class ArrayMemoryData extends MemoryData
+{
+ /** The data memory of the local memory bus. */
+ private int[] lmb_data;
+ /** The data memory of the on-chip peripheral bus. */
+ private int[] opb_data;
+ /** The bitmap of the words wrote in the local memory bus. */
+ private long[] lmb_written;
+ /** The bitmap of the words wrote in the on-chip peripheral bus. */
+ private long[] opb_written;
+ /** The lowest word address mapped in the local memory bus value. */
+ private int lmb_begin;
+ /** The highest word address mapped in the local memory bus value. */
+ private int lmb_end;
+ /** The lowest word address mapped in the on-chip peripheral bus value. */
+ private int opb_begin;
+ 
+ /**
+  * Instantiates a new array memory data.
+  *
+  * @param lmb_begin the lowest word address mapped in the local memory bus.
+  * @param lmb_end the highest word address mapped in the local memory bus.
+  * @param opb the on-chip peripheral bus flag.
+  * @param opb_begin the lowest word address mapped in the on-chip peripheral bus.
+  * @param opb_end the highest word address mapped in the on-chip peripheral bus.
+  * @throws MemoryException if the heap is not enough to allocate the memory range mapped.
+  */
+ public ArrayMemoryData(int lmb_begin,int lmb_end,boolean opb,int opb_begin,int opb_end) throws MemoryException
+ {
+  this.lmb_begin = lmb_begin;
+  this.lmb_end = lmb_end;
+  this.opb_begin = opb_begin;
+  
+  try
+  {
+   lmb_data = new int[lmb_end + 1 - lmb_begin];
+   if(opb)
+	 opb_data = new int[opb_end + 1 - opb_begin];
+   else
+	 opb_data = new int[0];
+   lmb_written = new long[(lmb_data.length + 63) >>> 6];
+   opb_written = new long[(opb_data.length + 63) >>> 6];
+  }
+  catch(OutOfMemoryError e)
+  {
+   throw new MemoryException("not enough heap to allocate the memory range mapped, use the hash memory backend");
+  }
+  catch(NegativeArraySizeException e)
+  {
+   throw new MemoryException("the memory range mapped is too large, use the hash memory backend");
+  }
+ }
+ 
+ // --------------------------------------
+ // methods used to handle the data memory
+ // --------------------------------------
+ 
+ /**
+  * Returns the word value stored in the memory address. If the memory address was never wrote returns zero.
+  *
+  * @param address the word address.
+  * @return the word value.
+  * @see system.memory.MemoryData#get(int)
+  */
+ public final int get(int address)
+ {
+  if(address >= lmb_begin && address <= lmb_end)
+	return lmb_data[address - lmb_begin];
+  return opb_data[address - opb_begin];
+ }
+ 
+ /**
+  * Stores an word value in the memory address.
+  *
+  * @param address the word address.
+  * @param data the word value.
+  * @see system.memory.MemoryData#put(int, int)
+  */
+ public final void put(int address,int data)
+ {
+  int index;
+  
+  if(address >= lmb_begin && address <= lmb_end)
+  {
+   index = address - lmb_begin;
+   lmb_data[index] = data;
+   lmb_written[index >>> 6] |= 1L << index;
+  }
+  else
+  {
+   index = address - opb_begin;
+   opb_data[index] = data;
+   opb_written[index >>> 6] |= 1L << index;
+  }
+ }
+ 
+ /**
+  * Returns true if the memory address was already wrote.
+  *
+  * @param address the word address.
+  * @return true if the memory address was already wrote.
+  * @see system.memory.MemoryData#isWritten(int)
+  */
+ public final boolean isWritten(int address)
+ {
+  int index;
+  
+  if(address >= lmb_begin && address <= lmb_end)
+  {
+   index = address - lmb_begin;
+   return (lmb_written[index >>> 6] & (1L << index)) != 0;
+  }
+  index = address - opb_begin;
+  return (opb_written[index >>> 6] & (1L << index)) != 0;
+ }
+ 
+ /**
+  * Resets the data memory.
+  *
+  * @see system.memory.MemoryData#reset()
+  */
+ public final void reset()
+ {
+  java.util.Arrays.fill(lmb_data,0);
+  java.util.Arrays.fill(opb_data,0);
+  java.util.Arrays.fill(lmb_written,0);
+  java.util.Arrays.fill(opb_written,0);
+ }
+ 
+ // -----------------------------------
+ // methods used to display information
+ // -----------------------------------
+ 
+ /**
+  * Returns the heap used by the data memory of the local memory bus (bytes).
+  *
+  * @return the heap used by the data memory of the local memory bus.
+  * @see system.memory.MemoryData#getLMB_heap()
+  */
+ public final long getLMB_heap()
+ {
+  return ((long)lmb_data.length << 2) + ((long)lmb_written.length << 3);
+ }
+ 
+ /**
+  * Returns the heap used by the data memory of the on-chip peripheral bus (bytes).
+  *
+  * @return the heap used by the data memory of the on-chip peripheral bus.
+  * @see system.memory.MemoryData#getOPB_heap()
+  */
+ public final long getOPB_heap()
+ {
+  return ((long)opb_data.length << 2) + ((long)opb_written.length << 3);
+ }
+ 
+ /**
+  * Returns the name of the data memory backend.
+  *
+  * @return the name of the data memory backend.
+  * @see system.memory.MemoryData#toString()
+  */
+ public final String toString()
+ {
+  return "array";
+ }
+}
@@ -0,0 +1,140 @@
+package system.memory;
+
+import java.util.*;
+
+/**
+ * The hash memory data class. This class stores the data memory in an hash table, only the memory addresses wrote by the program use heap.
+ */
+public final class HashMemoryData extends MemoryData
+{
+ /** The heap used by one entry of the hash table (node, key and value). */
+ private static final int ENTRY_HEAP = 64;
+ /** The data memory. */
+ private Map<Integer,Integer> memory_data;
+ /** The lowest word address mapped in the local memory bus value. */
+ private int lmb_begin;
+ /** The highest word address mapped in the local memory bus value. */
+ private int lmb_end;
+ /** The last word address read. */
+ private int last_address;
+ /** The last word value read, null if the last word address read was never wrote. */
+ private Integer last_data;
+ 
+ /**
+  * Instantiates a new hash memory data.
+  *
+  * @param lmb_begin the lowest word address mapped in the local memory bus.
+  * @param lmb_end the highest word address mapped in the local memory bus.
+  */
+ public HashMemoryData(int lmb_begin,int lmb_end)
+ {
+  this.lmb_begin = lmb_begin;
+  this.lmb_end = lmb_end;
+  
+  reset();
+ }
+ 
+ // --------------------------------------
+ // methods used to handle the data memory
+ // --------------------------------------
+ 
+ /**
+  * Returns the word value stored in the memory address. If the memory address was never wrote returns zero.
+  *
+  * @param address the word address.
+  * @return the word value.
+  * @see system.memory.MemoryData#get(int)
+  */
+ public final int get(int address)
+ {
+  last_address = address;
+  last_data = memory_data.get(address);
+  if(last_data == null)
+	return 0;
+  return last_data;
+ }
+ 
+ /**
+  * Stores an word value in the memory address.
+  *
+  * @param address the word address.
+  * @param data the word value.
+  * @see system.memory.MemoryData#put(int, int)
+  */
+ public final void put(int address,int data)
+ {
+  memory_data.put(address,data);
+  if(address == last_address)
+	last_data = data;
+ }
+ 
+ /**
+  * Returns true if the memory address was already wrote.
+  *
+  * @param address the word address.
+  * @return true if the memory address was already wrote.
+  * @see system.memory.MemoryData#isWritten(int)
+  */
+ public final boolean isWritten(int address)
+ {
+  if(address == last_address)
+	return last_data != null;
+  return memory_data.containsKey(address);
+ }
+ 
+ /**
+  * Resets the data memory.
+  *
+  * @see system.memory.MemoryData#reset()
+  */
+ public final void reset()
+ {
+  memory_data = new HashMap<Integer,Integer>();
+  last_address = -1;
+  last_data = null;
+ }
+ 
+ // -----------------------------------
+ // methods used to display information
+ // -----------------------------------
+ 
+ /**
+  * Returns the heap used by the data memory of the local memory bus (bytes). The value is an estimate of the current use.
+  *
+  * @return the heap used by the data memory of the local memory bus.
+  * @see system.memory.MemoryData#getLMB_heap()
+  */
+ public final long getLMB_heap()
+ {
+  long entries = 0;
+  
+  for(int address : memory_data.keySet())
+  {
+   if(address >= lmb_begin && address <= lmb_end)
+	 entries++;
+  }
+  return entries * ENTRY_HEAP;
+ }
+ 
+ /**
+  * Returns the heap used by the data memory of the on-chip peripheral bus (bytes). The value is an estimate of the current use.
+  *
+  * @return the heap used by the data memory of the on-chip peripheral bus.
+  * @see system.memory.MemoryData#getOPB_heap()
+  */
+ public final long getOPB_heap()
+ {
+  return (long)memory_data.size() * ENTRY_HEAP - getLMB_heap();
+ }
+ 
+ /**
+  * Returns the name of the data memory backend.
+  *
+  * @return the name of the data memory backend.
+  * @see system.memory.MemoryData#toString()
+  */
+ public final String toString()
+ {
+  return "hash";
+ }
+}
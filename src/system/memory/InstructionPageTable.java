@@ -0,0 +1,224 @@
+package system.memory;
+
+import system.cpu.*;
+
+/**
+ * The instruction page table class. This class stores the decoded instructions of the memory mapped in the local memory bus and in the on-chip peripheral bus.
+ * Each bus have a table of pages, a page is an array of instructions allocated in the first write of an instruction in the page. The instructions are indexed 
+ * by the word address (address >>> 2) minus the lowest word address of the bus, no hashing or boxing is performed to fetch an instruction.
+ */
+public final class InstructionPageTable
+{
+ /** The number of bits of the index of an instruction in the page. */
+ private static final int PAGE_BITS = 10;
+ /** The number of instructions of a page. */
+ private static final int PAGE_SIZE = 1 << PAGE_BITS;
+ /** The mask of the index of an instruction in the page. */
+ private static final int PAGE_MASK = PAGE_SIZE - 1;
+ /** The heap used by one page (array header and references). */
+ private static final int PAGE_HEAP = 16 + PAGE_SIZE * 4;
+ /** The stale instruction, marks the memory address wrote and not decoded yet (lazy decode). */
+ public static final Instruction STALE = new Instruction();
+ /** The pages of the local memory bus. */
+ private Instruction[][] lmb_pages;
+ /** The pages of the on-chip peripheral bus. */
+ private Instruction[][] opb_pages;
+ /** The lowest word address mapped in the local memory bus value. */
+ private int lmb_begin;
+ /** The highest word address mapped in the local memory bus value. */
+ private int lmb_end;
+ /** The lowest word address mapped in the on-chip peripheral bus value. */
+ private int opb_begin;
+ /** The highest word address mapped in the on-chip peripheral bus value. */
+ private int opb_end;
+ 
+ /**
+  * Instantiates a new instruction page table without memory mapped.
+  */
+ public InstructionPageTable()
+ {
+  lmb_pages = new Instruction[0][];
+  opb_pages = new Instruction[0][];
+  lmb_begin = 0;
+  lmb_end = -1;
+  opb_begin = 0;
+  opb_end = -1;
+ }
+ 
+ // -------------------------------------
+ // methods used for memory configuration 
+ // -------------------------------------
+ 
+ /**
+  * Sets the limits range of the memory mapped in the local memory bus. All the instructions stored in the local memory bus are removed.
+  *
+  * @param lmb_begin the lowest word address of the memory in the local memory bus.
+  * @param lmb_end the highest word address of the memory in the local memory bus.
+  */
+ public final void setLMB_range(int lmb_begin,int lmb_end)
+ {
+  this.lmb_begin = lmb_begin;
+  this.lmb_end = lmb_end;
+  lmb_pages = new Instruction[((lmb_end - lmb_begin) >>> PAGE_BITS) + 1][];
+ }
+ 
+ /**
+  * Sets the limits range of the memory mapped in the on-chip peripheral bus. All the instructions stored in the on-chip peripheral bus are removed.
+  *
+  * @param opb_begin the lowest word address of the memory in the on-chip peripheral bus.
+  * @param opb_end the highest word address of the memory in the on-chip peripheral bus.
+  */
+ public final void setOPB_range(int opb_begin,int opb_end)
+ {
+  this.opb_begin = opb_begin;
+  this.opb_end = opb_end;
+  opb_pages = new Instruction[((opb_end - opb_begin) >>> PAGE_BITS) + 1][];
+ }
+ 
+ // ----------------------------------------
+ // methods used to handle the instructions
+ // ----------------------------------------
+ 
+ /**
+  * Returns the instruction stored in the memory address.
+  *
+  * @param address the word address.
+  * @return the instruction, null if the memory address is not mapped or the instruction was never wrote.
+  */
+ public final Instruction get(int address)
+ {
+  Instruction[] page;
+  int index;
+  
+  if(address >= lmb_begin && address <= lmb_end)
+  {
+   index = address - lmb_begin;
+   page = lmb_pages[index >>> PAGE_BITS];
+  }
+  else if(address >= opb_begin && address <= opb_end)
+  {
+   index = address - opb_begin;
+   page = opb_pages[index >>> PAGE_BITS];
+  }
+  else
+	return null;
+  if(page == null)
+	return null;
+  return page[index & PAGE_MASK];
+ }
+ 
+ /**
+  * Stores an instruction in the memory address. The memory address must be mapped in the local memory bus or in the on-chip peripheral bus.
+  *
+  * @param address the word address.
+  * @param instruction the instruction.
+  */
+ public final void put(int address,Instruction instruction)
+ {
+  Instruction[][] pages;
+  int index;
+  
+  if(address >= lmb_begin && address <= lmb_end)
+  {
+   index = address - lmb_begin;
+   pages = lmb_pages;
+  }
+  else
+  {
+   index = address - opb_begin;
+   pages = opb_pages;
+  }
+  if(pages[index >>> PAGE_BITS] == null)
+	pages[index >>> PAGE_BITS] = new Instruction[PAGE_SIZE];
+  pages[index >>> PAGE_BITS][index & PAGE_MASK] = instruction;
+ }
+ 
+ /**
+  * Returns the first word address, from the word address given by the parameter address until the word address given by the parameter end, where an instruction
+  * is stored. The pages not allocated are skipped. Both addresses must be mapped in the same bus.
+  *
+  * @param address the first word address searched.
+  * @param end the last word address searched.
+  * @return the word address where an instruction is stored, end + 1 if doesn't exist.
+  */
+ public final int next(int address,int end)
+ {
+  Instruction[][] pages;
+  int begin;
+  int index;
+  
+  if(address >= lmb_begin && address <= lmb_end)
+  {
+   begin = lmb_begin;
+   pages = lmb_pages;
+  }
+  else
+  {
+   begin = opb_begin;
+   pages = opb_pages;
+  }
+  while(address <= end)
+  {
+   index = address - begin;
+   if(pages[index >>> PAGE_BITS] == null)
+	 address = begin + (index | PAGE_MASK) + 1;
+   else if(pages[index >>> PAGE_BITS][index & PAGE_MASK] != null)
+	 return address;
+   else
+	 address++;
+  }
+  return end + 1;
+ }
+ 
+ /**
+  * Removes all the instructions stored.
+  */
+ public final void reset()
+ {
+  lmb_pages = new Instruction[lmb_pages.length][];
+  opb_pages = new Instruction[opb_pages.length][];
+ }
+ 
+ // -----------------------------------
+ // methods used to display information
+ // -----------------------------------
+ 
+ /**
+  * Returns the heap used by the table and the pages allocated of the local memory bus (bytes). The instructions decoded aren't counted.
+  *
+  * @return the heap used by the pages of the local memory bus.
+  */
+ public final long getLMB_heap()
+ {
+  return getHeap(lmb_pages);
+ }
+ 
+ /**
+  * Returns the heap used by the table and the pages allocated of the on-chip peripheral bus (bytes). The instructions decoded aren't counted.
+  *
+  * @return the heap used by the pages of the on-chip peripheral bus.
+  */
+ public final long getOPB_heap()
+ {
+  return getHeap(opb_pages);
+ }
+ 
+ /**
+  * Returns the heap used by a table of pages and by its pages allocated (bytes).
+  *
+  * @param pages the table of pages.
+  * @return the heap used by the table of pages.
+  */
+ private final long getHeap(Instruction[][] pages)
+ {
+  long heap;
+  
+  heap = 16 + pages.length * 4L;
+  for(Instruction[] page : pages)
+  {
+   if(page != null)
+	 heap = heap + PAGE_HEAP;
+  }
+  return heap;
+ }
+}
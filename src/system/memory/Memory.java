@@ -1,6 +1,8 @@
 package system.memory;
 
 import java.util.*;
+import java.nio.*;
+import java.io.*;
 
 import system.opb_device.*;
 import system.cpu.*;
@@ -17,9 +19,9 @@ public final class Memory
  /** The devices registers list. */
  private Map<Integer,OPBRegister> devices_registers;
  /** The instruction memory. */
- private Map<Integer,Instruction> memory_inst;
+ private InstructionPageTable memory_inst;
  /** The data memory. */
- private Map<Integer,Integer> memory_data;
+ private MemoryData memory_data;
  /** The read latency value of the local memory bus. */
  private int lmb_read;
  /** The write latency value of the local memory bus. */
@@ -66,6 +68,38 @@ public final class Memory
  private static final int OPB = 2;
  /** The data device DEV. */
  private static final int DEV = 3;
+ /** The stall bus UNMAPPED. Access to a memory address not mapped. */
+ public static final int STALL_UNMAPPED   = 0;
+ /** The stall bus LMB. Access to the local memory bus. */
+ public static final int STALL_LMB        = LMB;
+ /** The stall bus OPB. Access to the on-chip peripheral bus. */
+ public static final int STALL_OPB        = OPB;
+ /** The stall bus DEV. Access to a register of a device. */
+ public static final int STALL_DEV        = DEV;
+ /** The number of stall buses. */
+ public static final int STALL_BUSES      = 4;
+ /** The stall kind BYTE_READ. */
+ public static final int STALL_BYTE_READ  = 0;
+ /** The stall kind HALF_READ. */
+ public static final int STALL_HALF_READ  = 1;
+ /** The stall kind WORD_READ. */
+ public static final int STALL_WORD_READ  = 2;
+ /** The stall kind BYTE_WRITE. */
+ public static final int STALL_BYTE_WRITE = 3;
+ /** The stall kind HALF_WRITE. */
+ public static final int STALL_HALF_WRITE = 4;
+ /** The stall kind WORD_WRITE. */
+ public static final int STALL_WORD_WRITE = 5;
+ /** The number of stall kinds. */
+ public static final int STALL_KINDS      = 6;
+ /** The watchpoint kind of the writes. */
+ public static final int WATCH_WRITE  = 1;
+ /** The watchpoint kind of the reads. */
+ public static final int WATCH_READ   = 2;
+ /** The watchpoint kind of the reads and writes. */
+ public static final int WATCH_ACCESS = WATCH_WRITE | WATCH_READ;
+ /** The number of bits of the memory address inside a page of the watch map. */
+ private static final int WATCH_PAGE_BITS = 12;
  /** The device or memory of the current data access memory. Attribute used to simulate the data memory latency.<p> 
   *  LMB - access to an memory address in the local memory bus.<br>
   *  OPB - access to an memory address in the on-chip peripheral bus.<br>
@@ -84,7 +118,7 @@ public final class Memory
  /** The address auxiliary for internal proposes. */
  private int address_aux;
  /** the data memory value of the methods which simulates the latency memory access and used by the instruction and cpu to access the memory. */
- private Integer data;
+ private int data;
  /** Define the byte number of an word.<p>
   *  0 - the byte 0 (MSB).<br>
   *  1 - the byte 1.<br>
@@ -92,6 +126,34 @@ public final class Memory
   *  3 - the byte 3 (LSB).
   */
  private int group;
+ /** The lazy decode flag.<p>
+  *  false - the instruction is decoded when the memory address is wrote.<br>
+  *  true - the instruction is decoded in the first fetch of the memory address after the write.
+  */
+ private boolean lazy_decode;
+ /** The number of instructions not decoded when the memory address was wrote (lazy decode). */
+ private long decodes_deferred;
+ /** The number of instructions decoded in the first fetch of the memory address (lazy decode). */
+ private long decodes_lazy;
+ /** The listener notified when an instruction of the memory is changed, null if doesn't exist. */
+ private MemoryListener memory_listener;
+ /** The memory address of the last data memory access started. */
+ private int data_address;
+ /** The number of data memory accesses started. */
+ private long data_accesses;
+ /** The data stall counters of the current function, null if the data stalls aren't counted. For each bus and access kind the
+  *  number of accesses and the stall cycles, index ((bus * STALL_KINDS + kind) * 2). */
+ private long[] data_stalls;
+ /** The watch map, for each page of the memory the kinds of the watchpoints in the page, null if no watchpoint is set. */
+ private byte[] watch_map;
+ /** The watchpoints, the memory address, the length (bytes) and the kind of each watchpoint. */
+ private List<int[]> watch_points = new ArrayList<int[]>();
+ /** The watchpoint hit flag, true if a data memory access hit a watchpoint. */
+ private boolean watch_hit;
+ /** The memory address of the watchpoint hit. */
+ private int watch_address;
+ /** The kind of the watchpoint hit. */
+ private int watch_kind;
  
  /**
   * Instantiates a new memory system.
@@ -101,8 +163,8 @@ public final class Memory
  public Memory() throws MemoryException
  {
   devices_registers = new HashMap<Integer,OPBRegister>();
-  memory_inst = new HashMap<Integer,Instruction>();
-  memory_data = new HashMap<Integer,Integer>();
+  memory_inst = new InstructionPageTable();
+  memory_data = new HashMemoryData(lmb_begin,lmb_end);
 
   data_status = STANBY;
   data_cycles = 1;
@@ -143,8 +205,14 @@ public final class Memory
   */
  public final void reset()
  {
-  memory_data = new HashMap<Integer,Integer>();
-  memory_inst = new HashMap<Integer,Instruction>();
+  memory_data.reset();
+  memory_inst.reset();
+  decodes_deferred = 0;
+  decodes_lazy = 0;
+  data_accesses = 0;
+  watch_hit = false;
+  if(memory_listener != null)
+	memory_listener.reset();
 	    
   data_status = STANBY;
   data_cycles = 1;
@@ -190,11 +258,33 @@ public final class Memory
    opb_size = (getOPB_end() + 1 - getOPB_begin()) / 1024d;
    System.out.println("   . OPB, Size: " + (getOPB_end() + 1 - getOPB_begin()) + "bytes   Size: " + opb_size + "kbytes");
   }
+  
+  if(memory_data instanceof ArrayMemoryData)
+  {
+   System.out.println("");
+   System.out.println("  Memory Heap (" + memory_data.toString() + ", " + (lazy_decode ? "lazy" : "eager") + " decode)"); 
+  
+   System.out.println("   . LMB, Heap: " + memory_data.getLMB_heap() + "bytes   Heap: " + (memory_data.getLMB_heap() / 1024d) + "kbytes");
+  
+   if(opb == true)
+	 System.out.println("   . OPB, Heap: " + memory_data.getOPB_heap() + "bytes   Heap: " + (memory_data.getOPB_heap() / 1024d) + "kbytes");
+  }
  }
  
- // -------------------------------------
+ /**
+  * Shows the heap used by the memory of each bus at the end of the simulation, the data memory and the pages of the decoded instructions.
+  * The heap of the hash backend grows with the memory addresses wrote, so it's only known after the simulation.
+  */
+ public final void showHeap()
+ {
+  System.out.println(" " + "<heap lmb>  : " + Util.toDecStringSpace(memory_data.getLMB_heap(),12) + " bytes data, " + memory_inst.getLMB_heap() + " bytes instructions (" + memory_data.toString() + ")");
+  if(opb == true)
+	System.out.println(" " + "<heap opb>  : " + Util.toDecStringSpace(memory_data.getOPB_heap(),12) + " bytes data, " + memory_inst.getOPB_heap() + " bytes instructions (" + memory_data.toString() + ")");
+ }
+ 
+ // --------------------------------------
  // methods used for memory configuration 
- // -------------------------------------
+ // --------------------------------------
  
  /**
   * Sets the instruction set architecture decoder of the cpu.
@@ -240,6 +330,7 @@ public final class Memory
  {
   this.lmb_begin = lmb_begin >>> 2;
   this.lmb_end = lmb_end >>> 2;
+  memory_inst.setLMB_range(this.lmb_begin,this.lmb_end);
  }
  
  /**
@@ -252,6 +343,47 @@ public final class Memory
  {
   this.opb_begin = opb_begin >>> 2;
   this.opb_end = opb_end >>> 2;
+  memory_inst.setOPB_range(this.opb_begin,this.opb_end);
+ }
+ 
+ /**
+  * Sets the data memory backend. Method used for memory configuration, must be called after the configuration of the memory ranges.<p>
+  * hash - the data memory is stored in an hash table, only the memory addresses wrote by the program use heap.<br>
+  * array - the data memory is stored in one array for each bus, all the memory range mapped is allocated.
+  *
+  * @param backend the data memory backend name.
+  * @throws MemoryException if the data memory backend is unknown or can't be allocated.
+  */
+ public final void setMemory_backend(String backend) throws MemoryException
+ {
+  if(backend.equalsIgnoreCase("hash"))
+	memory_data = new HashMemoryData(lmb_begin,lmb_end);
+  else if(backend.equalsIgnoreCase("array"))
+	memory_data = new ArrayMemoryData(lmb_begin,lmb_end,opb,opb_begin,opb_end);
+  else
+	throw new MemoryException("the memory backend " + backend + " is unknown");
+ }
+ 
+ /**
+  * Sets the listener notified when an instruction of the memory mapped in the local memory bus or in the on-chip peripheral bus is changed.
+  *
+  * @param memory_listener the listener, null to remove the listener.
+  */
+ public final void setMemoryListener(MemoryListener memory_listener)
+ {
+  this.memory_listener = memory_listener;
+ }
+ 
+ /**
+  * Sets the lazy decode flag. Method used for memory configuration.<p>
+  * false - the instruction is decoded when the memory address is wrote.<br>
+  * true - the instruction is decoded in the first fetch of the memory address after the write.
+  *
+  * @param lazy_decode the lazy decode flag value.
+  */
+ public final void setLazy_decode(boolean lazy_decode)
+ {
+  this.lazy_decode = lazy_decode;
  }
  
  /**
@@ -275,6 +407,17 @@ public final class Memory
   this.opb = opb;	 
  }
  
+ /**
+  * Sets the data stall counters where the accesses and the stall cycles of the data memory accesses started are added. Is used by the
+  * profile simulation to assign the data stalls to the function performed.
+  *
+  * @param data_stalls the data stall counters (STALL_BUSES * STALL_KINDS * 2 values), null if the data stalls aren't counted.
+  */
+ public final void setData_stalls(long[] data_stalls)
+ {
+  this.data_stalls = data_stalls;
+ }
+ 
  // -----------------------------------------------
  // methods used to access the memory configuration
  // -----------------------------------------------
@@ -330,6 +473,65 @@ public final class Memory
   return opb;	 
  }
  
+ /**
+  * Returns true if the memory address is mapped in the local memory bus or in the on-chip peripheral bus. The instructions of these memory addresses 
+  * are kept by the memory system until the memory address is wrote.
+  *
+  * @param address the memory address.
+  * @return true if the memory address is mapped in the local memory bus or in the on-chip peripheral bus.
+  */
+ public final boolean isMemory(int address)
+ {
+  int address_aux;
+  
+  address_aux = address >>> 2;
+  if(address_aux >= lmb_begin && address_aux <= lmb_end)
+	return true;
+  if(opb)
+	return address_aux >= opb_begin && address_aux <= opb_end;
+  return false;
+ }
+ 
+ /**
+  * Returns the lazy decode flag. Method used to access the memory configuration.
+  *
+  * @return the lazy decode flag.
+  */
+ public final boolean getLazy_decode()
+ {
+  return lazy_decode;
+ }
+ 
+ /**
+  * Returns the number of instructions decodes avoided by the lazy decode, the memory addresses wrote and never fetched or wrote again before the fetch.
+  *
+  * @return the number of instructions decodes avoided.
+  */
+ public final long getDecodes_avoided()
+ {
+  return decodes_deferred - decodes_lazy;
+ }
+ 
+ /**
+  * Returns the memory address of the last data memory access started by an instruction (effective address).
+  *
+  * @return the memory address of the last data memory access.
+  */
+ public final int getData_address()
+ {
+  return data_address;
+ }
+ 
+ /**
+  * Returns the number of data memory accesses started by the instructions. Is used to known if an instruction accessed to the data memory.
+  *
+  * @return the number of data memory accesses.
+  */
+ public final long getData_accesses()
+ {
+  return data_accesses;
+ }
+ 
  // -------------------------------------------------------
  // methods used by the GDB and the system to access memory
  // -------------------------------------------------------
@@ -345,7 +547,7 @@ public final class Memory
  {
   Instruction instruction;
   int address_aux;
-  Integer data;
+  int data;
   
   if((address & 0x00000003) != 0)
 	throw new MemoryException("the address 0x" + Util.toHexString(address,8) + " is un unligned adress");
@@ -355,6 +557,8 @@ public final class Memory
    instruction = memory_inst.get(address_aux);
    if(instruction == null)
 	 instruction = inst_set_arq.getIllegal(address);
+   else if(instruction == InstructionPageTable.STALE)
+	 instruction = decodeStale(address_aux);
    return instruction;
   }
   if(opb)
@@ -364,6 +568,8 @@ public final class Memory
 	instruction = memory_inst.get(address_aux);
 	if(instruction == null)
 	  instruction = inst_set_arq.getIllegal(address);
+	else if(instruction == InstructionPageTable.STALE)
+	  instruction = decodeStale(address_aux);
 	return instruction;
    }
   }
@@ -371,7 +577,7 @@ public final class Memory
   {
    if(devices_registers.containsKey(address_aux))
    {
-	data = devices_registers.get(address_aux).get();
+	data = devices_registers.get(address_aux).read();
 	instruction = inst_set_arq.decode(address,data);
 	return instruction;
    }
@@ -396,6 +602,8 @@ public final class Memory
   if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
   {
    memory_inst.put(address_aux,instruction);
+   if(memory_listener != null)
+	 memory_listener.write(address_aux);
    return;
   }
   if(opb)
@@ -403,6 +611,8 @@ public final class Memory
    if(address_aux >= opb_begin && address_aux <= opb_end)
    {
 	memory_inst.put(address_aux,instruction);
+	if(memory_listener != null)
+	  memory_listener.write(address_aux);
     return;
    }
   }
@@ -425,7 +635,7 @@ public final class Memory
  public final int getMemoryWord(int address) throws MemoryException
  {
   int address_aux;
-  Integer data;
+  int data;
 	 
   if((address & 0x00000003) != 0)
 	throw new MemoryException("the address 0x" + Util.toHexString(address,8) + " is un unligned adress");
@@ -433,8 +643,6 @@ public final class Memory
   if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
   {
    data = memory_data.get(address_aux);
-   if(data == null)
-     return 0;
    return data;
   }
   if(opb)
@@ -442,8 +650,6 @@ public final class Memory
    if(address_aux >= opb_begin && address_aux <= opb_end)
    {
 	data = memory_data.get(address_aux);
-	if(data == null)
-	  return 0;
 	return data;	
    }
   }
@@ -451,7 +657,7 @@ public final class Memory
   {
    if(devices_registers.containsKey(address_aux))
    {
-	data = devices_registers.get(address_aux).get();
+	data = devices_registers.get(address_aux).read();
     return data;
    }
   }
@@ -468,7 +674,6 @@ public final class Memory
   */
  public final void putMemoryWord(int address,int data) throws MemoryException
  {
-  Instruction instruction;
   int address_aux;
   
   if((address & 0x00000003) != 0)
@@ -477,8 +682,7 @@ public final class Memory
   if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
   {
    memory_data.put(address_aux,data);
-   instruction = inst_set_arq.decode(address,data);
-   memory_inst.put(address_aux,instruction);
+   decode(address_aux,data);
    return;
   }
   if(opb)
@@ -486,8 +690,7 @@ public final class Memory
    if(address_aux >= opb_begin && address_aux <= opb_end)
    {
 	memory_data.put(address_aux,data);
-	instruction = inst_set_arq.decode(address,data);
-	memory_inst.put(address_aux,instruction);    
+	decode(address_aux,data);
     return;
    }
   }
@@ -495,7 +698,7 @@ public final class Memory
   {
    if(devices_registers.containsKey(address_aux))
    {
-	devices_registers.get(address_aux).put(data);
+	devices_registers.get(address_aux).write(data);
 	return;
    }
   }
@@ -511,7 +714,7 @@ public final class Memory
  public final int getMemoryByte(int address)
  {
   int  address_aux;
-  Integer data;
+  int data;
   int  group;
 		 
   group = address & 0x00000003; 
@@ -519,8 +722,6 @@ public final class Memory
   if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
   {
    data = memory_data.get(address_aux);
-   if(data == null)
-	 return 0;	
    switch(group)
    {
 	case 0:data = data >>> 24;          break;
@@ -535,8 +736,6 @@ public final class Memory
    if(address_aux >= opb_begin && address_aux <= opb_end)
    {
 	data = memory_data.get(address_aux);
-	if(data == null)
-	  return 0;	
 	switch(group)
 	{
 	 case 0:data = data >>> 24;          break;
@@ -551,7 +750,7 @@ public final class Memory
   {
    if(devices_registers.containsKey(address_aux))
    {
-	data = devices_registers.get(address_aux).get();
+	data = devices_registers.get(address_aux).read();
 	switch(group)
 	{
 	 case 0:data = data >>> 24;          break;
@@ -575,9 +774,8 @@ public final class Memory
   */
  public final void putMemoryByte(int address,int data) throws MemoryException
  {
-  Instruction instruction;
   int address_aux;
-  Integer data_aux;
+  int data_aux;
   int group;
 	 
   group = address & 0x00000003; 
@@ -585,7 +783,7 @@ public final class Memory
   if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
   { 
    data_aux = memory_data.get(address_aux);
-   if(data_aux == null)
+   if(!memory_data.isWritten(address_aux))
    {
 	switch(group)
 	{
@@ -595,8 +793,7 @@ public final class Memory
 	 case 3:data_aux = data & 0xffff;
 	}
 	memory_data.put(address_aux,data_aux);
-    instruction = inst_set_arq.decode(address_aux << 2,data_aux);
-    memory_inst.put(address_aux,instruction);
+    decode(address_aux,data_aux);
 	return;
    }
    else
@@ -609,8 +806,7 @@ public final class Memory
 	 case 3:data_aux = (data_aux & 0xffffff00) | (data & 0xff);
 	}
     memory_data.put(address_aux,data_aux);
-    instruction = inst_set_arq.decode(address_aux << 2,data_aux);
-    memory_inst.put(address_aux,instruction);
+    decode(address_aux,data_aux);
 	return;
    }
   }
@@ -619,7 +815,7 @@ public final class Memory
    if(address_aux >= opb_begin && address_aux <= opb_end)
    {
 	data_aux = memory_data.get(address_aux);
-	if(data_aux == null)
+	if(!memory_data.isWritten(address_aux))
 	{
 	 switch(group)
 	 {
@@ -629,8 +825,7 @@ public final class Memory
 	  case 3:data_aux = data & 0xffff;
 	 }
 	 memory_data.put(address_aux,data_aux);
-	 instruction = inst_set_arq.decode(address_aux << 2,data_aux);
-	 memory_inst.put(address_aux,instruction);
+	 decode(address_aux,data_aux);
 	 return;
 	}
 	else
@@ -643,8 +838,7 @@ public final class Memory
 	  case 3:data_aux = (data_aux & 0xffffff00) | (data & 0xff);
 	 }
 	 memory_data.put(address_aux,data_aux);
-	 instruction = inst_set_arq.decode(address_aux << 2,data_aux);
-	 memory_inst.put(address_aux,instruction);
+	 decode(address_aux,data_aux);
 	 return;
 	}
    }
@@ -653,7 +847,7 @@ public final class Memory
   {
    if(devices_registers.containsKey(address_aux))
    {
-	data_aux = devices_registers.get(address_aux).get();
+	data_aux = devices_registers.get(address_aux).read();
 	switch(group)
 	{
 	 case 0:data_aux = (data_aux & 0x00ffffff) | ((data & 0xff) << 24); break;
@@ -661,7 +855,7 @@ public final class Memory
 	 case 2:data_aux = (data_aux & 0xffff00ff) | ((data & 0xff) << 8);  break;
 	 case 3:data_aux = (data_aux & 0xffffff00) | (data & 0xff);
 	}
-	devices_registers.get(address_aux).put(data_aux);
+	devices_registers.get(address_aux).write(data_aux);
 	return;
    }
   }
@@ -674,6 +868,7 @@ public final class Memory
  
  /**
   * Fetches an instruction from the memory. This method simulates the latency memory access and used by the instruction and cpu to access the memory.
+  * The instructions wrote in the local memory bus and in the on-chip peripheral bus are fetched directly from the instruction page table.
   *
   * @param address the memory address where the half word will be fetched. 
   * @return the instruction fetched.
@@ -682,31 +877,28 @@ public final class Memory
  {
   Instruction instruction;
   int address_aux;
-  Integer data;
+  int data;
 
   address_aux = address >>> 2;
-  if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
+  instruction = memory_inst.get(address_aux);
+  if(instruction != null)
   {
-   instruction = memory_inst.get(address_aux);
-   if(instruction == null)
-     instruction = inst_set_arq.getIllegal(address);
+   if(instruction == InstructionPageTable.STALE)
+	 instruction = decodeStale(address_aux);
    return instruction;
   }
+  if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
+    return inst_set_arq.getIllegal(address);
   if(opb)
   {
    if(address_aux >= opb_begin && address_aux <= opb_end)
-   {
-    instruction = memory_inst.get(address_aux);
-    if(instruction == null)
-      instruction = inst_set_arq.getIllegal(address);
-    return instruction;
-   }
+     return inst_set_arq.getIllegal(address);
   }
   if(dev)
   {
    if(devices_registers.containsKey(address_aux))
    {
-    data = devices_registers.get(address_aux).get();
+    data = devices_registers.get(address_aux).read();
 	instruction = inst_set_arq.decode(address,data);
 	return instruction;
    } 
@@ -732,7 +924,7 @@ public final class Memory
 	            	      data = memory_data.get(address_aux);
 	            	      data_cycles = 1;
 	            	      data_status = STANBY;
-	            	      if(data != null)
+	            	      if(memory_data.isWritten(address_aux))
 	            	        return Mem_Status.READY;
 	            	      else
 	            	      {
@@ -746,7 +938,7 @@ public final class Memory
           	              data = memory_data.get(address_aux);
           	              data_cycles = 1;
           	              data_status = STANBY;
-          	              if(data != null)
+          	              if(memory_data.isWritten(address_aux))
           	                return Mem_Status.READY;
           	              else
           	              {
@@ -757,7 +949,7 @@ public final class Memory
                          return Mem_Status.ACCESS;
 	            case DEV:if(data_cycles >= dev_read)
                          {
-          	              data = devices_registers.get(address_aux).get();
+          	              data = devices_registers.get(address_aux).read();
 	                      data_cycles = 1;
                           data_status = STANBY;
                           return Mem_Status.READY;
@@ -765,6 +957,12 @@ public final class Memory
                          return Mem_Status.ACCESS;
                }
    case STANBY:address_aux = address >>> 2;
+               data_address = address;
+               data_accesses++;
+               if(data_stalls != null)
+                 stall(STALL_WORD_READ,address);
+               if(watch_map != null)
+                 watch(address,4,WATCH_READ);
                if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
                {
 	            if((address & 0x00000003) != 0)
@@ -778,7 +976,7 @@ public final class Memory
        	         data = memory_data.get(address_aux);
        	         data_cycles = 1;
        	         data_status = STANBY;
-       	         if(data != null)
+       	         if(memory_data.isWritten(address_aux))
        	           return Mem_Status.READY;
        	         else
        	         {
@@ -805,7 +1003,7 @@ public final class Memory
   	              data = memory_data.get(address_aux);
   	              data_cycles = 1;
   	              data_status = STANBY;
-  	              if(data != null)
+  	              if(memory_data.isWritten(address_aux))
   	                return Mem_Status.READY;
   	              else
   	              {
@@ -831,7 +1029,7 @@ public final class Memory
             	 dev_read = devices_registers.get(address_aux).getOPBDeviceClass().getReadLatency();
             	 if(dev_read == 1)
                  {
-  	              data = devices_registers.get(address_aux).get();
+  	              data = devices_registers.get(address_aux).read();
                   data_cycles = 1;
                   data_status = STANBY;
                   return Mem_Status.READY;
@@ -868,8 +1066,6 @@ public final class Memory
   */
  public final int putWord(int address,int data)
  {
-  Instruction instruction;
-	  
   switch(data_status)
   {
    case ACCESS:data_cycles++;
@@ -878,8 +1074,7 @@ public final class Memory
 	            case LMB:if(data_cycles >= lmb_write)
 	                     {     	  
 	            	      memory_data.put(address_aux,data);
-          	              instruction = inst_set_arq.decode(address,data);
-          	              memory_inst.put(address_aux,instruction);
+          	              decode(address_aux,data);
           	              data_cycles = 1;
           	              data_status = STANBY;
           	              return Mem_Status.READY;
@@ -888,8 +1083,7 @@ public final class Memory
 	            case OPB:if(data_cycles >= opb_write)
 	                     {     	  
 	            	      memory_data.put(address_aux,data);
-     	                  instruction = inst_set_arq.decode(address,data);
-     	                  memory_inst.put(address_aux,instruction);
+     	                  decode(address_aux,data);
      	                  data_cycles = 1;
      	                  data_status = STANBY;
      	                  return Mem_Status.READY;
@@ -897,7 +1091,7 @@ public final class Memory
                          return Mem_Status.ACCESS;
                 case DEV:if(data_cycles >= dev_write)
 	                     {
-	            	      devices_registers.get(address_aux).put(data);
+	            	      devices_registers.get(address_aux).write(data);
      	                  data_cycles = 1;
                           data_status = STANBY;
                           return Mem_Status.READY;
@@ -905,6 +1099,12 @@ public final class Memory
 	                     return Mem_Status.ACCESS;
                }
    case STANBY:address_aux = address >>> 2;
+               data_address = address;
+               data_accesses++;
+               if(data_stalls != null)
+                 stall(STALL_WORD_WRITE,address);
+               if(watch_map != null)
+                 watch(address,4,WATCH_WRITE);
                if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
                {
                 if((address & 0x00000003) != 0)
@@ -916,8 +1116,7 @@ public final class Memory
                 if(lmb_write == 1)
                 {     	  
        	         memory_data.put(address_aux,data);
- 	             instruction = inst_set_arq.decode(address,data);
- 	             memory_inst.put(address_aux,instruction);
+ 	             decode(address_aux,data);
  	             data_cycles = 1;
  	             data_status = STANBY;
  	             return Mem_Status.READY;
@@ -939,8 +1138,7 @@ public final class Memory
                  if(opb_write == 1)
                  {     	  
         	      memory_data.put(address_aux,data);
-	              instruction = inst_set_arq.decode(address,data);
-	              memory_inst.put(address_aux,instruction);
+	              decode(address_aux,data);
 	              data_cycles = 1;
 	              data_status = STANBY;
 	              return Mem_Status.READY;
@@ -963,7 +1161,7 @@ public final class Memory
             	 dev_write = devices_registers.get(address_aux).getOPBDeviceClass().getWriteLatency();
             	 if(dev_write == 1)
                  {
-        	      devices_registers.get(address_aux).put(data);
+        	      devices_registers.get(address_aux).write(data);
                   data_cycles = 1;
                   data_status = STANBY;
                   return Mem_Status.READY;
@@ -1008,7 +1206,7 @@ public final class Memory
           	              data = memory_data.get(address_aux);
           	              data_cycles = 1;
           	              data_status = STANBY;
-          	              if(data != null)
+          	              if(memory_data.isWritten(address_aux))
           	              {
           	               switch(group)
   	            	       {
@@ -1029,7 +1227,7 @@ public final class Memory
     	                  data = memory_data.get(address_aux);
     	                  data_cycles = 1;
     	                  data_status = STANBY;
-    	                  if(data != null)
+    	                  if(memory_data.isWritten(address_aux))
     	                  {
     	                   switch(group)
             	           {
@@ -1047,7 +1245,7 @@ public final class Memory
                          return Mem_Status.ACCESS;
 	            case DEV:if(data_cycles >= dev_read)
                          { 
-	        	          data = devices_registers.get(address_aux).get();
+	        	          data = devices_registers.get(address_aux).read();
 	        	          data_cycles = 1;
                           data_status = STANBY;
 	        	          switch(group)
@@ -1060,6 +1258,12 @@ public final class Memory
                          return Mem_Status.ACCESS;
                }
    case STANBY:address_aux = address >>> 2;
+               data_address = address;
+               data_accesses++;
+               if(data_stalls != null)
+                 stall(STALL_HALF_READ,address);
+               if(watch_map != null)
+                 watch(address,2,WATCH_READ);
               if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
               {
            	   group = address & 0x00000003;
@@ -1074,7 +1278,7 @@ public final class Memory
 	            data = memory_data.get(address_aux);
 	            data_cycles = 1;
 	            data_status = STANBY;
-	            if(data != null)
+	            if(memory_data.isWritten(address_aux))
 	            {
 	             switch(group)
      	         {
@@ -1109,7 +1313,7 @@ public final class Memory
                  data = memory_data.get(address_aux);
                  data_cycles = 1;
                  data_status = STANBY;
-                 if(data != null)
+                 if(memory_data.isWritten(address_aux))
                  {
                   switch(group)
 	              {
@@ -1143,7 +1347,7 @@ public final class Memory
            	    dev_read = devices_registers.get(address_aux).getOPBDeviceClass().getReadLatency();
            	    if(dev_read == 1)
                 { 
-	             data = devices_registers.get(address_aux).get();
+	             data = devices_registers.get(address_aux).read();
 	             data_cycles = 1;
                  data_status = STANBY;
 	             switch(group)
@@ -1186,8 +1390,6 @@ public final class Memory
   */
  public final int putHalfWord(int address,int data)
  {
-  Instruction instruction;
-			  
   switch(data_status)
   {
    case ACCESS:data_cycles++;
@@ -1198,7 +1400,7 @@ public final class Memory
 		        	      this.data = memory_data.get(address_aux);
 		        	      data_cycles = 1;
     	                  data_status = STANBY;  
-    	                  if(this.data != null)
+    	                  if(memory_data.isWritten(address_aux))
           	              {
     	                   switch(group)
     		        	   {
@@ -1206,8 +1408,7 @@ public final class Memory
     		        	    case 2:this.data = (this.data & 0xffff0000) | (data & 0xffff);
     		        	   }	
     	                   memory_data.put(address_aux,this.data);
-     	                   instruction = inst_set_arq.decode(address_aux << 2,this.data);
-     	                   memory_inst.put(address_aux,instruction);
+     	                   decode(address_aux,this.data);
      	                   return Mem_Status.READY;
           	              }
     	                  else
@@ -1218,8 +1419,7 @@ public final class Memory
    		        		    case 2:this.data = data & 0xffff;
    		        	       }	
     	                   memory_data.put(address_aux,this.data);
-     	                   instruction = inst_set_arq.decode(address_aux << 2,this.data);
-     	                   memory_inst.put(address_aux,instruction);
+     	                   decode(address_aux,this.data);
      	                   return Mem_Status.READY;
     	                  }
 		                 }
@@ -1229,7 +1429,7 @@ public final class Memory
 		        	      this.data = memory_data.get(address_aux);
 	        	          data_cycles = 1;
 	                      data_status = STANBY;  
-	                      if(this.data != null)
+	                      if(memory_data.isWritten(address_aux))
     	                  {
 	                       switch(group)
 		        	       {
@@ -1237,8 +1437,7 @@ public final class Memory
 		        	        case 2:this.data = (this.data & 0xffff0000) | (data & 0xffff);
 		        	       }	
 	                       memory_data.put(address_aux,this.data);
-	                       instruction = inst_set_arq.decode(address_aux << 2,this.data);
-	                       memory_inst.put(address_aux,instruction);
+	                       decode(address_aux,this.data);
 	                       return Mem_Status.READY;
     	                  }
 	                      else
@@ -1249,21 +1448,20 @@ public final class Memory
 		        		    case 2:this.data = data & 0xffff;
 		        	       }	
 	                       memory_data.put(address_aux,this.data);
-	                       instruction = inst_set_arq.decode(address_aux << 2,this.data);
-	                       memory_inst.put(address_aux,instruction);
+	                       decode(address_aux,this.data);
 	                       return Mem_Status.READY;
 	                      }
 	                     }
 	                     return Mem_Status.ACCESS;
 		        case DEV:if(data_cycles >= dev_write)
                          {
-    	                  this.data = devices_registers.get(address_aux).get();
+    	                  this.data = devices_registers.get(address_aux).read();
     	                  switch(group)
 	                      {
 	                       case 0:this.data = (this.data & 0x0000ffff) | ((data & 0xffff) << 16); break;
 	                       case 2:this.data = (this.data & 0xffff0000) | (data & 0xffff);
 	                      }
-    	                  devices_registers.get(address_aux).put(this.data);
+    	                  devices_registers.get(address_aux).write(this.data);
                           data_cycles = 1;
                           data_status = STANBY;
                           return Mem_Status.READY;
@@ -1271,6 +1469,12 @@ public final class Memory
                          return Mem_Status.ACCESS;
                }
    case STANBY:address_aux = address >>> 2;
+               data_address = address;
+               data_accesses++;
+               if(data_stalls != null)
+                 stall(STALL_HALF_WRITE,address);
+               if(watch_map != null)
+                 watch(address,2,WATCH_WRITE);
                if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
 	           {
 	            group = address & 0x00000003;
@@ -1285,7 +1489,7 @@ public final class Memory
        	         this.data = memory_data.get(address_aux);
        	         data_cycles = 1;
                  data_status = STANBY;  
-                 if(this.data != null)
+                 if(memory_data.isWritten(address_aux))
  	             {
                   switch(group)
 	        	  {
@@ -1293,8 +1497,7 @@ public final class Memory
 	        	   case 2:this.data = (this.data & 0xffff0000) | (data & 0xffff);
 	        	  }	
                   memory_data.put(address_aux,this.data);
-                  instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                  memory_inst.put(address_aux,instruction);
+                  decode(address_aux,this.data);
                   return Mem_Status.READY;
  	             }
                  else
@@ -1305,8 +1508,7 @@ public final class Memory
 	        	   case 2:this.data = data & 0xffff;
 	        	  }	
                   memory_data.put(address_aux,this.data);
-                  instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                  memory_inst.put(address_aux,instruction);
+                  decode(address_aux,this.data);
                   return Mem_Status.READY;
                  }
                 }
@@ -1330,7 +1532,7 @@ public final class Memory
         	      this.data = memory_data.get(address_aux);
     	          data_cycles = 1;
                   data_status = STANBY;  
-                  if(this.data != null)
+                  if(memory_data.isWritten(address_aux))
                   {
                    switch(group)
         	       {
@@ -1338,8 +1540,7 @@ public final class Memory
         	        case 2:this.data = (this.data & 0xffff0000) | (data & 0xffff);
         	       }	
                    memory_data.put(address_aux,this.data);
-                   instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                   memory_inst.put(address_aux,instruction);
+                   decode(address_aux,this.data);
                    return Mem_Status.READY;
                   }
                   else
@@ -1350,8 +1551,7 @@ public final class Memory
         		    case 2:this.data = data & 0xffff;
         	       }	
                    memory_data.put(address_aux,this.data);
-                   instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                   memory_inst.put(address_aux,instruction);
+                   decode(address_aux,this.data);
                    return Mem_Status.READY;
                   }
                  }
@@ -1374,13 +1574,13 @@ public final class Memory
             	 dev_write = devices_registers.get(address_aux).getOPBDeviceClass().getWriteLatency();
             	 if(dev_write == 1)
                  {
-                  this.data = devices_registers.get(address_aux).get();
+                  this.data = devices_registers.get(address_aux).read();
                   switch(group)
                   {
                    case 0:this.data = (this.data & 0x0000ffff) | ((data & 0xffff) << 16); break;
                    case 2:this.data = (this.data & 0xffff0000) | (data & 0xffff);
                   }
-                  devices_registers.get(address_aux).put(this.data);
+                  devices_registers.get(address_aux).write(this.data);
                   data_cycles = 1;
                   data_status = STANBY;
                   return Mem_Status.READY;
@@ -1426,7 +1626,7 @@ public final class Memory
     	                  data = memory_data.get(address_aux);
     	                  data_cycles = 1;
     	                  data_status = STANBY;
-    	                  if(data != null)
+    	                  if(memory_data.isWritten(address_aux))
     	                  {
     	                   switch(group)
     	            	   {
@@ -1449,7 +1649,7 @@ public final class Memory
 	                      data = memory_data.get(address_aux);
 	                      data_cycles = 1;
 	                      data_status = STANBY;
-	                      if(data != null)
+	                      if(memory_data.isWritten(address_aux))
 	                      {
 	                       switch(group)
 	            	       {
@@ -1469,7 +1669,7 @@ public final class Memory
                          return Mem_Status.ACCESS;
 	            case DEV:if(data_cycles >= dev_read)
                          {
-                          data = devices_registers.get(address_aux).get();
+                          data = devices_registers.get(address_aux).read();
                           data_cycles = 1;
                           data_status = STANBY;
                           switch(group)
@@ -1484,6 +1684,12 @@ public final class Memory
                          return Mem_Status.ACCESS;
                }
    case STANBY:address_aux = address >>> 2;
+               data_address = address;
+               data_accesses++;
+               if(data_stalls != null)
+                 stall(STALL_BYTE_READ,address);
+               if(watch_map != null)
+                 watch(address,1,WATCH_READ);
                if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
                {
             	group = address & 0x00000003;   
@@ -1492,7 +1698,7 @@ public final class Memory
                  data = memory_data.get(address_aux);
                  data_cycles = 1;
                  data_status = STANBY;
-                 if(data != null)
+                 if(memory_data.isWritten(address_aux))
                  {
                   switch(group)
            	      {
@@ -1523,7 +1729,7 @@ public final class Memory
                   data = memory_data.get(address_aux);
                   data_cycles = 1;
                   data_status = STANBY;
-                  if(data != null)
+                  if(memory_data.isWritten(address_aux))
                   {
                    switch(group)
         	       {
@@ -1553,7 +1759,7 @@ public final class Memory
             	 dev_read = devices_registers.get(address_aux).getOPBDeviceClass().getReadLatency();
             	 if(dev_read == 1)
                  {
-                  data = devices_registers.get(address_aux).get();
+                  data = devices_registers.get(address_aux).read();
                   data_cycles = 1;
                   data_status = STANBY;
                   switch(group)
@@ -1594,8 +1800,6 @@ public final class Memory
   */
  public final int putByte(int address,int data)
  {
-  Instruction instruction;
-		  
   switch(data_status)
   {
    case ACCESS:data_cycles++;
@@ -1606,7 +1810,7 @@ public final class Memory
 	        	          this.data = memory_data.get(address_aux);
 	        	          data_cycles = 1;
 	                      data_status = STANBY;  
-	                      if(this.data != null)
+	                      if(memory_data.isWritten(address_aux))
     	                  {
 	                       switch(group)
 			        	   {
@@ -1616,8 +1820,7 @@ public final class Memory
 			        		default:this.data = (this.data & 0xffffff00) | (data & 0xff);
 			        	   }	
 	                       memory_data.put(address_aux,this.data);
-	                       instruction = inst_set_arq.decode(address_aux << 2,this.data);
-	                       memory_inst.put(address_aux,instruction);
+	                       decode(address_aux,this.data);
 	                       return Mem_Status.READY;
     	                  }
 	                      else
@@ -1630,8 +1833,7 @@ public final class Memory
 			        	    default:this.data = data & 0xffff;
 			        	   }	
 	                       memory_data.put(address_aux,this.data);
-	                       instruction = inst_set_arq.decode(address_aux << 2,this.data);
-	                       memory_inst.put(address_aux,instruction);
+	                       decode(address_aux,this.data);
 	                       return Mem_Status.READY;
 	                      }
 	                     }		        	
@@ -1641,7 +1843,7 @@ public final class Memory
       	                  this.data = memory_data.get(address_aux);
       	                  data_cycles = 1;
                           data_status = STANBY;  
-                          if(this.data != null)
+                          if(memory_data.isWritten(address_aux))
 	                      {
                            switch(group)
 		        	       {
@@ -1651,8 +1853,7 @@ public final class Memory
 		        		    default:this.data = (this.data & 0xffffff00) | (data & 0xff);
 		        	       }	
                            memory_data.put(address_aux,this.data);
-                           instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                           memory_inst.put(address_aux,instruction);
+                           decode(address_aux,this.data);
                            return Mem_Status.READY;
 	                      }
                           else
@@ -1665,15 +1866,14 @@ public final class Memory
 		        	        default:this.data = data & 0xffff;
 		        	       }	
                            memory_data.put(address_aux,this.data);
-                           instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                           memory_inst.put(address_aux,instruction);
+                           decode(address_aux,this.data);
                            return Mem_Status.READY;
                           }
                          }		     
 	                     return Mem_Status.ACCESS;
 		        case DEV:if(data_cycles >= dev_write)
                          {
-                          this.data = devices_registers.get(address_aux).get();
+                          this.data = devices_registers.get(address_aux).read();
                           switch(group)
                           {
                            case 0: this.data = (this.data & 0x00ffffff) | ((data & 0xff) << 24); break;
@@ -1681,7 +1881,7 @@ public final class Memory
 	        		       case 2: this.data = (this.data & 0xffff00ff) | ((data & 0xff) << 8);  break;
 	        		       default:this.data = (this.data & 0xffffff00) | (data & 0xff);
                           }
-                          devices_registers.get(address_aux).put(this.data);
+                          devices_registers.get(address_aux).write(this.data);
                           data_cycles = 1;
                           data_status = STANBY;
                           return Mem_Status.READY;
@@ -1689,6 +1889,12 @@ public final class Memory
                          return Mem_Status.ACCESS;
 	             }
    case STANBY:address_aux = address >>> 2;
+               data_address = address;
+               data_accesses++;
+               if(data_stalls != null)
+                 stall(STALL_BYTE_WRITE,address);
+               if(watch_map != null)
+                 watch(address,1,WATCH_WRITE);
                if(address_aux >= lmb_begin && address_aux <= lmb_end)	 
 	           {
             	group = address & 0x00000003;
@@ -1697,7 +1903,7 @@ public final class Memory
    	             this.data = memory_data.get(address_aux);
    	             data_cycles = 1;
                  data_status = STANBY;  
-                 if(this.data != null)
+                 if(memory_data.isWritten(address_aux))
                  {
                   switch(group)
 	        	  {
@@ -1707,8 +1913,7 @@ public final class Memory
 	        	   default:this.data = (this.data & 0xffffff00) | (data & 0xff);
 	        	  }	
                   memory_data.put(address_aux,this.data);
-                  instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                  memory_inst.put(address_aux,instruction);
+                  decode(address_aux,this.data);
                   return Mem_Status.READY;
                  }
                  else
@@ -1721,8 +1926,7 @@ public final class Memory
 	        	   default:this.data = data & 0xffff;
 	        	  }	
                   memory_data.put(address_aux,this.data);
-                  instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                  memory_inst.put(address_aux,instruction);
+                  decode(address_aux,this.data);
                   return Mem_Status.READY;
                  }
                 }		        	
@@ -1740,7 +1944,7 @@ public final class Memory
 	              this.data = memory_data.get(address_aux);
 	              data_cycles = 1;
                   data_status = STANBY;  
-                  if(this.data != null)
+                  if(memory_data.isWritten(address_aux))
                   {
                    switch(group)
         	       {
@@ -1750,8 +1954,7 @@ public final class Memory
         		    default:this.data = (this.data & 0xffffff00) | (data & 0xff);
         	       }	
                    memory_data.put(address_aux,this.data);
-                   instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                   memory_inst.put(address_aux,instruction);
+                   decode(address_aux,this.data);
                    return Mem_Status.READY;
                   }
                   else
@@ -1764,8 +1967,7 @@ public final class Memory
         	        default:this.data = data & 0xffff;
         	       }	
                    memory_data.put(address_aux,this.data);
-                   instruction = inst_set_arq.decode(address_aux << 2,this.data);
-                   memory_inst.put(address_aux,instruction);
+                   decode(address_aux,this.data);
                    return Mem_Status.READY;
                   }
                  }		
@@ -1782,7 +1984,7 @@ public final class Memory
             	 dev_write = devices_registers.get(address_aux).getOPBDeviceClass().getWriteLatency();
             	 if(dev_write == 1)
                  {
-                  this.data = devices_registers.get(address_aux).get();
+                  this.data = devices_registers.get(address_aux).read();
                   switch(group)
                   {
                    case 0: this.data = (this.data & 0x00ffffff) | ((data & 0xff) << 24); break;
@@ -1790,7 +1992,7 @@ public final class Memory
     		       case 2: this.data = (this.data & 0xffff00ff) | ((data & 0xff) << 8);  break;
     		       default:this.data = (this.data & 0xffffff00) | (data & 0xff);
                   }
-                  devices_registers.get(address_aux).put(this.data);
+                  devices_registers.get(address_aux).write(this.data);
                   data_cycles = 1;
                   data_status = STANBY;
                   return Mem_Status.READY;
@@ -1823,4 +2025,667 @@ public final class Memory
  {
   return data;	 
  }
+ 
+ // ---------------------------------------
+ // methods used by the just in time engine
+ // ---------------------------------------
+ 
+ /**
+  * Returns the number of cycles of a data memory access. This method is used by the translated code to access the memory without the memory status.
+  *
+  * @param address the memory address.
+  * @param size the size of the access (bytes), 1 - byte, 2 - half word, 4 - word.
+  * @param write the access type, false - read, true - write.
+  * @return the number of cycles of the access, zero if the access isn't performed in the data memory (unaligned address, device or not mapped).
+  */
+ public final int getAccessCycles(int address,int size,boolean write)
+ {
+  int address_word;
+  
+  if((address & (size - 1)) != 0)
+	return 0;
+  address_word = address >>> 2;
+  if(address_word >= lmb_begin && address_word <= lmb_end)
+	return write ? lmb_write : lmb_read;
+  if(opb && address_word >= opb_begin && address_word <= opb_end)
+	return write ? opb_write : opb_read;
+  return 0;
+ }
+ 
+ /**
+  * Reads a value from the data memory without the memory status. The access must be validated by the method getAccessCycles.
+  *
+  * @param address the memory address.
+  * @param size the size of the access (bytes), 1 - byte, 2 - half word, 4 - word.
+  * @return the value read.
+  */
+ public final int loadData(int address,int size)
+ {
+  int address_word;
+  int value;
+  
+  data_address = address;
+  data_accesses++;
+  if(watch_map != null)
+	watch(address,size,WATCH_READ);
+  address_word = address >>> 2;
+  if(!memory_data.isWritten(address_word))
+	return 0;
+  value = memory_data.get(address_word);
+  switch(size)
+  {
+   case 1:switch(address & 0x00000003)
+          {
+           case 0: return value >>> 24;
+           case 1: return (value >>> 16) & 0xff;
+           case 2: return (value >>> 8) & 0xff;
+           default:return value & 0xff;
+          }
+   case 2:if((address & 0x00000003) == 0)
+	        return value >>> 16;
+          return value & 0xffff;
+   default:return value;
+  }
+ }
+ 
+ /**
+  * Writes a value in the data memory without the memory status. The access must be validated by the method getAccessCycles.
+  *
+  * @param address the memory address.
+  * @param size the size of the access (bytes), 1 - byte, 2 - half word, 4 - word.
+  * @param data the value to be wrote.
+  */
+ public final void storeData(int address,int size,int data)
+ {
+  int address_word;
+  int value;
+  
+  data_address = address;
+  data_accesses++;
+  if(watch_map != null)
+	watch(address,size,WATCH_WRITE);
+  address_word = address >>> 2;
+  if(size == 4)
+	value = data;
+  else if(memory_data.isWritten(address_word))
+  {
+   value = memory_data.get(address_word);
+   if(size == 2)
+   {
+	if((address & 0x00000003) == 0)
+	  value = (value & 0x0000ffff) | ((data & 0xffff) << 16);
+	else
+	  value = (value & 0xffff0000) | (data & 0xffff);
+   }
+   else
+   {
+	switch(address & 0x00000003)
+	{
+	 case 0: value = (value & 0x00ffffff) | ((data & 0xff) << 24); break;
+	 case 1: value = (value & 0xff00ffff) | ((data & 0xff) << 16); break;
+	 case 2: value = (value & 0xffff00ff) | ((data & 0xff) << 8);  break;
+	 default:value = (value & 0xffffff00) | (data & 0xff);
+	}
+   }
+  }
+  else
+  {
+   if(size == 2)
+   {
+	if((address & 0x00000003) == 0)
+	  value = (data & 0xffff) << 16;
+	else
+	  value = data & 0xffff;
+   }
+   else
+   {
+	switch(address & 0x00000003)
+	{
+	 case 0: value = (data & 0xffff) << 24; break;
+	 case 1: value = (data & 0xffff) << 16; break;
+	 case 2: value = (data & 0xffff) << 8;  break;
+	 default:value = data & 0xffff;
+	}
+   }
+  }
+  memory_data.put(address_word,value);
+  decode(address_word,value);
+ }
+ 
+ // --------------------------------------
+ // methods used to handle the watchpoints
+ // --------------------------------------
+ 
+ /**
+  * Inserts the watchpoint in the memory range. The data memory accesses of the instructions to the memory range are checked,
+  * the accesses of the GDB and of the loader aren't checked.
+  *
+  * @param address the lowest memory address of the range.
+  * @param length the number of bytes of the range.
+  * @param kind the watchpoint kind, WATCH_WRITE, WATCH_READ or WATCH_ACCESS.
+  * @throws MemoryException if the range or the kind aren't valid.
+  */
+ public final void insertWatchPoint(int address,int length,int kind) throws MemoryException
+ {
+  if(length < 1 || ((long)address & 0xffffffffL) + length > 0x100000000L)
+	throw new MemoryException("the watchpoint range isn't valid.");
+  if(kind != WATCH_WRITE && kind != WATCH_READ && kind != WATCH_ACCESS)
+	throw new MemoryException("the watchpoint kind isn't valid.");
+  watch_points.add(new int[]{address,length,kind});
+  watchMap();
+ }
+ 
+ /**
+  * Removes the watchpoint of the memory range.
+  *
+  * @param address the lowest memory address of the range.
+  * @param length the number of bytes of the range.
+  * @param kind the watchpoint kind, WATCH_WRITE, WATCH_READ or WATCH_ACCESS.
+  * @return true if the watchpoint was removed, false if the watchpoint doesn't exist.
+  */
+ public final boolean removeWatchPoint(int address,int length,int kind)
+ {
+  int[] watch_point;
+  int aux;
+  
+  for(aux = 0;aux < watch_points.size();aux++)
+  {
+   watch_point = watch_points.get(aux);
+   if(watch_point[0] == address && watch_point[1] == length && watch_point[2] == kind)
+   {
+	watch_points.remove(aux);
+	watchMap();
+	return true;
+   }
+  }
+  return false;
+ }
+ 
+ /**
+  * Returns true if a data memory access hit a watchpoint and the access is complete.
+  *
+  * @return true if a watchpoint was hit.
+  */
+ public final boolean getWatch_hit()
+ {
+  return watch_hit && data_status == STANBY;
+ }
+ 
+ /**
+  * Clears the watchpoint hit flag, is called when the simulation stops in the watchpoint.
+  */
+ public final void clearWatch_hit()
+ {
+  watch_hit = false;
+ }
+ 
+ /**
+  * Returns the memory address of the last watchpoint hit, the first byte of the access inside the watchpoint range.
+  *
+  * @return the memory address of the watchpoint hit.
+  */
+ public final int getWatch_address()
+ {
+  return watch_address;
+ }
+ 
+ /**
+  * Returns the kind of the last watchpoint hit.
+  *
+  * @return the watchpoint kind, WATCH_WRITE, WATCH_READ or WATCH_ACCESS.
+  */
+ public final int getWatch_kind()
+ {
+  return watch_kind;
+ }
+ 
+ /**
+  * Sets the memory address and the kind of the last watchpoint hit, is called by the reverse execution when the simulation stops
+  * before the instruction which hit the watchpoint.
+  *
+  * @param address the memory address of the watchpoint hit.
+  * @param kind the watchpoint kind, WATCH_WRITE, WATCH_READ or WATCH_ACCESS.
+  */
+ public final void setWatch(int address,int kind)
+ {
+  watch_address = address;
+  watch_kind = kind;
+ }
+ 
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Saves the memory system in the checkpoint: the memory range mapped, the state of the current data access memory, the words wrote in the local memory bus
+  * and in the on-chip peripheral bus (in runs of consecutive memory addresses) and the state of the devices registers.
+  *
+  * @param output the output stream of the checkpoint file.
+  * @throws IOException if any error occurs when writing the checkpoint file.
+  * @throws MemoryException if a device register doesn't support checkpoints.
+  */
+ public final void save(DataOutputStream output) throws IOException, MemoryException
+ {
+  output.writeInt(lmb_begin);
+  output.writeInt(lmb_end);
+  output.writeBoolean(opb);
+  output.writeInt(opb_begin);
+  output.writeInt(opb_end);
+  
+  saveAccess(output);
+  
+  save(output,lmb_begin,lmb_end);
+  if(opb)
+	save(output,opb_begin,opb_end);
+  output.writeInt(0);
+  output.writeInt(0);
+  
+  saveRegisters(output);
+ }
+ 
+ /**
+  * Restores the memory system saved in the checkpoint. The words with a value different of the current value are wrote and the instructions decoded again,
+  * the other words keep the current instructions (including the program exit and the breakpoints).<p>
+  * The words that aren't saved in the checkpoint keep the current value, they aren't cleared. The memory must hold the image just loaded of the same
+  * binary file of the checkpoint (checked by the identity of the checkpoint header in SysteM.restore): the checkpoint saves all the words wrote,
+  * the words of the binary file included, so the words not saved weren't wrote in both memories.
+  *
+  * @param input the checkpoint file mapped in the memory, positioned in the memory system.
+  * @throws MemoryException if the memory range mapped or the devices registers are different of the checkpoint.
+  */
+ public final void restore(ByteBuffer input) throws MemoryException
+ {
+  int address;
+  int length;
+  int value;
+  int aux;
+  
+  if(input.getInt() != lmb_begin || input.getInt() != lmb_end || (input.get() != 0) != opb || input.getInt() != opb_begin || input.getInt() != opb_end)
+	throw new MemoryException("the memory range mapped is different of the checkpoint.");
+  
+  restoreAccess(input);
+  
+  for(;;)
+  {
+   address = input.getInt();
+   length = input.getInt();
+   if(length == 0)
+	 break;
+   for(aux = 0;aux < length;aux++,address++)
+   {
+	value = input.getInt();
+	if(memory_inst.get(address) == null || memory_data.get(address) != value)
+	{
+	 memory_data.put(address,value);
+	 decode(address,value);
+	}
+   }
+  }
+  
+  restoreRegisters(input);
+ }
+ 
+ /**
+  * Saves the memory system in the snapshot of the reverse execution: the state of the current data access memory and the state of the devices registers.
+  * The words of the data memory aren't saved, they are restored by the undo of the pages copied.
+  *
+  * @param output the output stream of the snapshot.
+  * @throws IOException if any error occurs when writing the snapshot.
+  * @throws MemoryException if a device register doesn't support checkpoints.
+  */
+ public final void saveState(DataOutputStream output) throws IOException, MemoryException
+ {
+  saveAccess(output);
+  saveRegisters(output);
+ }
+ 
+ /**
+  * Restores the memory system saved in the snapshot of the reverse execution by the method saveState.
+  *
+  * @param input the snapshot, positioned in the memory system.
+  * @throws MemoryException if the devices registers are different of the snapshot.
+  */
+ public final void restoreState(ByteBuffer input) throws MemoryException
+ {
+  restoreAccess(input);
+  restoreRegisters(input);
+ }
+ 
+ /**
+  * Saves the state of the current data access memory.
+  *
+  * @param output the output stream of the checkpoint file.
+  * @throws IOException if any error occurs when writing the checkpoint file.
+  */
+ private final void saveAccess(DataOutputStream output) throws IOException
+ {
+  output.writeInt(data_device);
+  output.writeInt(data_status);
+  output.writeInt(data_cycles);
+  output.writeInt(address_aux);
+  output.writeInt(data);
+  output.writeInt(group);
+ }
+ 
+ /**
+  * Restores the state of the current data access memory saved by the method saveAccess.
+  *
+  * @param input the checkpoint file mapped in the memory.
+  */
+ private final void restoreAccess(ByteBuffer input)
+ {
+  data_device = input.getInt();
+  data_status = input.getInt();
+  data_cycles = input.getInt();
+  address_aux = input.getInt();
+  data = input.getInt();
+  group = input.getInt();
+ }
+ 
+ /**
+  * Saves the state of the devices registers, sorted by the memory address.
+  *
+  * @param output the output stream of the checkpoint file.
+  * @throws IOException if any error occurs when writing the checkpoint file.
+  * @throws MemoryException if a device register doesn't support checkpoints.
+  */
+ private final void saveRegisters(DataOutputStream output) throws IOException, MemoryException
+ {
+  long[] state;
+  
+  output.writeInt(devices_registers.size());
+  for(int address : new TreeSet<Integer>(devices_registers.keySet()))
+  {
+   try
+   {
+	state = devices_registers.get(address).getState();
+   }
+   catch(OPBDeviceException e)
+   {
+	throw new MemoryException(e.getMessage());
+   }
+   output.writeInt(address);
+   output.writeInt(state.length);
+   for(long value : state)
+	 output.writeLong(value);
+  }
+ }
+ 
+ /**
+  * Restores the state of the devices registers saved by the method saveRegisters.
+  *
+  * @param input the checkpoint file mapped in the memory.
+  * @throws MemoryException if the devices registers are different of the checkpoint or a device register doesn't support checkpoints.
+  */
+ private final void restoreRegisters(ByteBuffer input) throws MemoryException
+ {
+  OPBRegister opb_register;
+  long[] state;
+  int address;
+  int length;
+  int aux;
+  
+  length = input.getInt();
+  if(length != devices_registers.size())
+	throw new MemoryException("the devices registers are different of the checkpoint.");
+  for(aux = 0;aux < length;aux++)
+  {
+   address = input.getInt();
+   opb_register = devices_registers.get(address);
+   if(opb_register == null)
+	 throw new MemoryException("the devices registers are different of the checkpoint.");
+   state = new long[input.getInt()];
+   input.asLongBuffer().get(state);
+   input.position(input.position() + (state.length << 3));
+   try
+   {
+	opb_register.putState(state);
+   }
+   catch(OPBDeviceException e)
+   {
+	throw new MemoryException(e.getMessage());
+   }
+  }
+ }
+ 
+ /**
+  * Saves in the checkpoint the words wrote in the memory range given by the parameters begin and end, in runs of consecutive memory addresses.
+  * Each run is saved with the first word address, the number of words and the words values.
+  *
+  * @param output the output stream of the checkpoint file.
+  * @param begin the lowest word address of the memory range.
+  * @param end the highest word address of the memory range.
+  * @throws IOException if any error occurs when writing the checkpoint file.
+  */
+ private final void save(DataOutputStream output,int begin,int end) throws IOException
+ {
+  int address;
+  int length;
+  
+  address = memory_inst.next(begin,end);
+  while(address <= end)
+  {
+   length = 1;
+   while(address + length <= end && memory_inst.get(address + length) != null)
+     length++;
+   output.writeInt(address);
+   output.writeInt(length);
+   for(;length > 0;length--,address++)
+	 output.writeInt(memory_data.get(address));
+   address = memory_inst.next(address,end);
+  }
+ }
+ 
+ // --------------------------------------------
+ // methods used to handle the reverse execution
+ // --------------------------------------------
+ 
+ /**
+  * Enables or disables the copy of the pages of the data memory wrote, used by the reverse execution to restore the data memory of the snapshots.
+  * Must be called after the configuration of the data memory backend.
+  *
+  * @param undo true to copy the pages in the first write after each snapshot, false to stop the copy.
+  */
+ public final void setUndo(boolean undo)
+ {
+  if(undo && !(memory_data instanceof UndoMemoryData))
+	memory_data = new UndoMemoryData(memory_data,memory_inst);
+  else if(!undo && memory_data instanceof UndoMemoryData)
+	memory_data = ((UndoMemoryData)memory_data).getMemoryData();
+ }
+ 
+ /**
+  * Returns the pages of the data memory copied since the last call, before their first write, and starts the copy of the next snapshot.
+  *
+  * @return the pages copied (UndoMemoryData.takePages), empty if the copy of the pages isn't enabled.
+  */
+ public final Map<Integer,long[]> takeUndo()
+ {
+  if(memory_data instanceof UndoMemoryData)
+	return ((UndoMemoryData)memory_data).takePages();
+  return new HashMap<Integer,long[]>();
+ }
+ 
+ /**
+  * Restores the data memory of the pages copied. The words with a value different of the current value are wrote and the instructions decoded again,
+  * the words that weren't wrote when the page was copied are removed. The words restored aren't copied again.
+  *
+  * @param pages the pages copied, returned by the method takeUndo.
+  */
+ public final void undo(Map<Integer,long[]> pages)
+ {
+  MemoryData memory_data_aux;
+  long[] page;
+  int address;
+  int aux;
+  
+  memory_data_aux = memory_data;
+  if(memory_data instanceof UndoMemoryData)
+	memory_data_aux = ((UndoMemoryData)memory_data).getMemoryData();
+  for(Map.Entry<Integer,long[]> entry : pages.entrySet())
+  {
+   page = entry.getValue();
+   address = entry.getKey() << UndoMemoryData.PAGE_BITS;
+   for(aux = 0;aux < UndoMemoryData.PAGE_SIZE;aux++,address++)
+   {
+	if(!isMemory(address << 2))
+	  continue;
+	if((page[aux] & UndoMemoryData.WRITTEN) != 0)
+	{
+	 if(memory_inst.get(address) == null || memory_data_aux.get(address) != (int)page[aux])
+	 {
+	  memory_data_aux.put(address,(int)page[aux]);
+	  decode(address,(int)page[aux]);
+	 }
+	}
+	else if(memory_inst.get(address) != null)
+	{
+	 memory_data_aux.put(address,0);
+	 memory_inst.put(address,null);
+	 if(memory_listener != null)
+	   memory_listener.write(address);
+	}
+   }
+  }
+ }
+ 
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+ 
+ /**
+  * Updates the instruction of the memory address wrote. In the lazy decode the instruction is marked as stale and decoded in the first fetch.
+  *
+  * @param address the word address.
+  * @param data the word value wrote.
+  */
+ private final void decode(int address,int data)
+ {
+  if(lazy_decode)
+  {
+   memory_inst.put(address,InstructionPageTable.STALE);
+   decodes_deferred++;
+  }
+  else
+	memory_inst.put(address,inst_set_arq.decode(address << 2,data));
+  if(memory_listener != null)
+	memory_listener.write(address);
+ }
+ 
+ /**
+  * Decodes the stale instruction of the memory address from the data memory.
+  *
+  * @param address the word address.
+  * @return the instruction decoded.
+  */
+ private final Instruction decodeStale(int address)
+ {
+  Instruction instruction;
+  
+  instruction = inst_set_arq.decode(address << 2,memory_data.get(address));
+  memory_inst.put(address,instruction);
+  decodes_lazy++;
+  return instruction;
+ }
+ 
+ /**
+  * Adds the data memory access started to the data stall counters. The stall cycles are the cycles waited by the instruction until the end
+  * of the access, the latency of the bus or of the device minus one, the latency of the memory address not mapped or one for the unaligned access.
+  *
+  * @param kind the stall kind of the access.
+  * @param address the memory address of the access.
+  */
+ private final void stall(int kind,int address)
+ {
+  boolean write;
+  int address_aux;
+  int cycles;
+  int bus;
+  
+  address_aux = address >>> 2;
+  write = kind >= STALL_BYTE_WRITE;
+  if(address_aux >= lmb_begin && address_aux <= lmb_end)
+  {
+   bus = STALL_LMB;
+   cycles = (write ? lmb_write : lmb_read) - 1;
+  }
+  else if(opb && address_aux >= opb_begin && address_aux <= opb_end)
+  {
+   bus = STALL_OPB;
+   cycles = (write ? opb_write : opb_read) - 1;
+  }
+  else if(dev && devices_registers.containsKey(address_aux))
+  {
+   bus = STALL_DEV;
+   if(write)
+	 cycles = devices_registers.get(address_aux).getOPBDeviceClass().getWriteLatency() - 1;
+   else
+	 cycles = devices_registers.get(address_aux).getOPBDeviceClass().getReadLatency() - 1;
+  }
+  else
+  {
+   data_stalls[(STALL_UNMAPPED * STALL_KINDS + kind) * 2]++;
+   data_stalls[(STALL_UNMAPPED * STALL_KINDS + kind) * 2 + 1] += mapped;
+   return;
+  }
+  if((kind == STALL_WORD_READ || kind == STALL_WORD_WRITE) && (address & 3) != 0 || (kind == STALL_HALF_READ || kind == STALL_HALF_WRITE) && (address & 1) != 0)
+	cycles = 1;
+  data_stalls[(bus * STALL_KINDS + kind) * 2]++;
+  data_stalls[(bus * STALL_KINDS + kind) * 2 + 1] += cycles;
+ }
+ 
+ /**
+  * Checks the data memory access against the watchpoints. The watch map of the pages of the access is checked first, only the accesses
+  * to a page with watchpoints of the same kind are checked against the watchpoints.
+  *
+  * @param address the memory address of the access.
+  * @param size the size of the access (bytes), 1 - byte, 2 - half word, 4 - word.
+  * @param kind the access kind, WATCH_WRITE or WATCH_READ.
+  */
+ private final void watch(int address,int size,int kind)
+ {
+  long begin;
+  long end;
+  int[] watch_point;
+  int aux;
+  
+  if(watch_hit || ((watch_map[address >>> WATCH_PAGE_BITS] | watch_map[(address + size - 1) >>> WATCH_PAGE_BITS]) & kind) == 0)
+	return;
+  begin = (long)address & 0xffffffffL;
+  end = begin + size;
+  for(aux = 0;aux < watch_points.size();aux++)
+  {
+   watch_point = watch_points.get(aux);
+   if((watch_point[2] & kind) != 0 && begin < ((long)watch_point[0] & 0xffffffffL) + watch_point[1] && end > ((long)watch_point[0] & 0xffffffffL))
+   {
+	watch_hit = true;
+	watch_address = (int)Math.max(begin,(long)watch_point[0] & 0xffffffffL);
+	watch_kind = watch_point[2];
+	return;
+   }
+  }
+ }
+ 
+ /**
+  * Builds the watch map from the watchpoints, the watch map is removed if no watchpoint is set.
+  */
+ private final void watchMap()
+ {
+  int[] watch_point;
+  long page;
+  int aux;
+  
+  if(watch_points.isEmpty())
+  {
+   watch_map = null;
+   return;
+  }
+  watch_map = new byte[1 << (32 - WATCH_PAGE_BITS)];
+  for(aux = 0;aux < watch_points.size();aux++)
+  {
+   watch_point = watch_points.get(aux);
+   for(page = ((long)watch_point[0] & 0xffffffffL) >>> WATCH_PAGE_BITS;page <= (((long)watch_point[0] & 0xffffffffL) + watch_point[1] - 1) >>> WATCH_PAGE_BITS;page++)
+	 watch_map[(int)page] |= watch_point[2];
+  }
+ }
 }
\ No newline at end of file
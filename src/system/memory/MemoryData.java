@@ -0,0 +1,66 @@
+package system.memory;
+
+/**
+ * The MemoryData class. This class implements the storage of the data memory mapped in the local memory bus and in the on-chip peripheral bus.
+ * The memory addresses used by this class are word addresses (address >>> 2), the range check of the address is performed by the memory system.
+ */
+public abstract class MemoryData
+{
+ // --------------------------------------
+ // methods used to handle the data memory
+ // --------------------------------------
+
+ /**
+  * Returns the word value stored in the memory address. If the memory address was never wrote returns zero.
+  *
+  * @param address the word address.
+  * @return the word value.
+  */
+ public abstract int get(int address);
+
+ /**
+  * Stores an word value in the memory address.
+  *
+  * @param address the word address.
+  * @param data the word value.
+  */
+ public abstract void put(int address,int data);
+
+ /**
+  * Returns true if the memory address was already wrote.
+  *
+  * @param address the word address.
+  * @return true if the memory address was already wrote.
+  */
+ public abstract boolean isWritten(int address);
+
+ /**
+  * Resets the data memory.
+  */
+ public abstract void reset();
+
+ // -----------------------------------
+ // methods used to display information
+ // -----------------------------------
+
+ /**
+  * Returns the heap used by the data memory of the local memory bus (bytes).
+  *
+  * @return the heap used by the data memory of the local memory bus.
+  */
+ public abstract long getLMB_heap();
+
+ /**
+  * Returns the heap used by the data memory of the on-chip peripheral bus (bytes).
+  *
+  * @return the heap used by the data memory of the on-chip peripheral bus.
+  */
+ public abstract long getOPB_heap();
+
+ /**
+  * Returns the name of the data memory backend.
+  *
+  * @return the name of the data memory backend.
+  */
+ public abstract String toString();
+}
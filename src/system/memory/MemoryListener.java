@@ -0,0 +1,24 @@
+package system.memory;
+
+/**
+ * The MemoryListener class. This class is notified by the memory system when an instruction of the memory mapped in the local memory bus 
+ * or in the on-chip peripheral bus is changed.
+ */
+public abstract class MemoryListener
+{
+ // -----------------------------------
+ // methods used to notify the listener
+ // -----------------------------------
+ 
+ /**
+  * Notifies that the instruction in the memory address was changed by a write in the memory or by the GDB.
+  *
+  * @param address the word address (address >>> 2).
+  */
+ public abstract void write(int address);
+ 
+ /**
+  * Notifies that all the instructions of the memory were removed.
+  */
+ public abstract void reset();
+}
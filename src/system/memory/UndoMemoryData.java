@@ -0,0 +1,178 @@
+package system.memory;
+
+import java.util.*;
+
+/**
+ * The undo memory data class. This class keeps the words of the data memory changed since the last snapshot of the reverse execution,
+ * the words are stored by the data memory backend given in the constructor. In the first write of a page after the snapshot the words of
+ * the page are copied (copy on write), so the data memory of the snapshot is restored writing the pages copied (undo).
+ */
+public final class UndoMemoryData extends MemoryData
+{
+ /** The number of bits of the index of a word in the page. */
+ public static final int PAGE_BITS = 8;
+ /** The number of words of a page. */
+ public static final int PAGE_SIZE = 1 << PAGE_BITS;
+ /** The written flag of a word copied, the word value is in the low 32 bits. */
+ public static final long WRITTEN = 1L << 32;
+ /** The data memory backend. */
+ private MemoryData memory_data;
+ /** The instruction memory, a word was already wrote if it has an instruction. */
+ private InstructionPageTable memory_inst;
+ /** The pages copied since the last snapshot, indexed by the page number (word address >>> PAGE_BITS). */
+ private Map<Integer,long[]> pages;
+ /** The page number of the last page wrote, -1 if no page was wrote since the last snapshot. */
+ private int last_page;
+
+ /**
+  * Instantiates a new undo memory data.
+  *
+  * @param memory_data the data memory backend.
+  * @param memory_inst the instruction memory.
+  */
+ public UndoMemoryData(MemoryData memory_data,InstructionPageTable memory_inst)
+ {
+  this.memory_data = memory_data;
+  this.memory_inst = memory_inst;
+  pages = new HashMap<Integer,long[]>();
+  last_page = -1;
+ }
+
+ // --------------------------------------
+ // methods used to handle the data memory
+ // --------------------------------------
+
+ /**
+  * Returns the word value stored in the memory address. If the memory address was never wrote returns zero.
+  *
+  * @param address the word address.
+  * @return the word value.
+  * @see system.memory.MemoryData#get(int)
+  */
+ public final int get(int address)
+ {
+  return memory_data.get(address);
+ }
+
+ /**
+  * Stores an word value in the memory address. The page of the memory address is copied in the first write after the snapshot.
+  *
+  * @param address the word address.
+  * @param data the word value.
+  * @see system.memory.MemoryData#put(int, int)
+  */
+ public final void put(int address,int data)
+ {
+  long[] page;
+  int page_number;
+  int word;
+  int aux;
+
+  page_number = address >>> PAGE_BITS;
+  if(page_number != last_page)
+  {
+   if(!pages.containsKey(page_number))
+   {
+	page = new long[PAGE_SIZE];
+	word = page_number << PAGE_BITS;
+	for(aux = 0;aux < PAGE_SIZE;aux++,word++)
+	  if(memory_inst.get(word) != null)
+		page[aux] = WRITTEN | ((long)memory_data.get(word) & 0xffffffffL);
+	pages.put(page_number,page);
+   }
+   last_page = page_number;
+  }
+  memory_data.put(address,data);
+ }
+
+ /**
+  * Returns true if the memory address was already wrote.
+  *
+  * @param address the word address.
+  * @return true if the memory address was already wrote.
+  * @see system.memory.MemoryData#isWritten(int)
+  */
+ public final boolean isWritten(int address)
+ {
+  return memory_data.isWritten(address);
+ }
+
+ /**
+  * Resets the data memory and removes the pages copied.
+  *
+  * @see system.memory.MemoryData#reset()
+  */
+ public final void reset()
+ {
+  memory_data.reset();
+  pages = new HashMap<Integer,long[]>();
+  last_page = -1;
+ }
+
+ // ---------------------------------------
+ // methods used to handle the pages copied
+ // ---------------------------------------
+
+ /**
+  * Returns the pages copied since the last snapshot and starts the copy of the pages of the next snapshot. Each word of a page is the word value
+  * (low 32 bits) with the WRITTEN flag, the words never wrote are zero.
+  *
+  * @return the pages copied, indexed by the page number (word address >>> PAGE_BITS).
+  */
+ public final Map<Integer,long[]> takePages()
+ {
+  Map<Integer,long[]> pages_aux;
+
+  pages_aux = pages;
+  pages = new HashMap<Integer,long[]>();
+  last_page = -1;
+  return pages_aux;
+ }
+
+ /**
+  * Returns the data memory backend, the words wrote in the backend aren't copied.
+  *
+  * @return the data memory backend.
+  */
+ public final MemoryData getMemoryData()
+ {
+  return memory_data;
+ }
+
+ // -----------------------------------
+ // methods used to display information
+ // -----------------------------------
+
+ /**
+  * Returns the heap used by the data memory of the local memory bus (bytes).
+  *
+  * @return the heap used by the data memory of the local memory bus.
+  * @see system.memory.MemoryData#getLMB_heap()
+  */
+ public final long getLMB_heap()
+ {
+  return memory_data.getLMB_heap();
+ }
+
+ /**
+  * Returns the heap used by the data memory of the on-chip peripheral bus (bytes).
+  *
+  * @return the heap used by the data memory of the on-chip peripheral bus.
+  * @see system.memory.MemoryData#getOPB_heap()
+  */
+ public final long getOPB_heap()
+ {
+  return memory_data.getOPB_heap();
+ }
+
+ /**
+  * Returns the name of the data memory backend.
+  *
+  * @return the name of the data memory backend.
+  * @see system.memory.MemoryData#toString()
+  */
+ public final String toString()
+ {
+  return memory_data.toString();
+ }
+}
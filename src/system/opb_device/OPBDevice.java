@@ -5,6 +5,17 @@ package system.opb_device;
  */
 public abstract class OPBDevice
 {	
+ /** The scheduler where the device is registered. */
+ OPBScheduler scheduler;
+ /** The awake flag. Is set when a register of the device is accessed.<p>
+  *  false - the device is ticked only in the cycle requested by getNextCycle.<br>
+  *  true - the device is ticked in the current cycle. */
+ boolean awake = true;
+ /** The cycle number of the next operation cycle of the device. */
+ long next;
+ /** The last interrupt state of the device. */
+ int signal;
+ 
  // --------------------------------------
  // methods used to control the simulation
  // --------------------------------------
@@ -16,6 +27,42 @@ public abstract class OPBDevice
   */
  public abstract int cycle();
  
+ /**
+  * Returns the cycle number where the device needs to perform the next operation cycle. Is called after each operation cycle of the device,
+  * until that cycle the device isn't ticked and the last interrupt state is kept, unless a register of the device is accessed.
+  * The default implementation returns the next cycle, the device is ticked in all cycles (polling devices).
+  *
+  * @param cycle the cycle number of the operation cycle performed.
+  * @return the cycle number of the next operation cycle.
+  */
+ public long getNextCycle(long cycle)
+ {
+  return cycle + 1;
+ }
+ 
+ /**
+  * Returns the cycle number of the last operation cycle performed by the devices. While the processor performs a cycle returns the previous cycle number,
+  * while the devices perform a cycle returns the current cycle number.
+  *
+  * @return the cycle number of the last operation cycle performed by the devices.
+  */
+ public final long getCycle()
+ {
+  if(scheduler == null)
+    return 0;
+  return scheduler.getCycle();
+ }
+ 
+ /**
+  * Wakes the device, the device is ticked in the current cycle.
+  */
+ public final void wake()
+ {
+  awake = true;
+  if(scheduler != null)
+    scheduler.wake();
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -50,4 +97,32 @@ public abstract class OPBDevice
   * Clears all registers of the device.
   */
  public abstract void reset();
+ 
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the device saved in the checkpoint, the state of the device registers is saved by the registers.
+  * The default implementation throws an exception, a device that doesn't implement this method can't be saved in the checkpoint.
+  *
+  * @return the state of the device.
+  * @throws OPBDeviceException if the device doesn't support checkpoints.
+  */
+ public long[] getState() throws OPBDeviceException
+ {
+  throw new OPBDeviceException("the device " + toString() + " doesn't support checkpoints.");
+ }
+ 
+ /**
+  * Restores the state of the device saved in the checkpoint.
+  * The default implementation throws an exception, a device that doesn't implement this method can't be restored from the checkpoint.
+  *
+  * @param state the state of the device.
+  * @throws OPBDeviceException if the device doesn't support checkpoints.
+  */
+ public void putState(long[] state) throws OPBDeviceException
+ {
+  throw new OPBDeviceException("the device " + toString() + " doesn't support checkpoints.");
+ }
 }
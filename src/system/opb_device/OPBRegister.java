@@ -28,6 +28,28 @@ public abstract class OPBRegister
   */
  public abstract void update();
  
+ /**
+  * Returns the current value of the register and wakes the device to which the register belongs.
+  *
+  * @return the current value of the register.
+  */
+ public final int read()
+ {
+  getOPBDeviceClass().wake();
+  return get();
+ }
+ 
+ /**
+  * Sets the temporary value of the register and wakes the device to which the register belongs.
+  *
+  * @param value the temporary value of the register.
+  */
+ public final void write(int value)
+ {
+  put(value);
+  getOPBDeviceClass().wake();
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
@@ -38,6 +60,34 @@ public abstract class OPBRegister
   * @return the device to which the register belongs.
   */
  public abstract OPBDevice getOPBDeviceClass();
+ 
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the register saved in the checkpoint. The default implementation throws an exception, a register that doesn't implement
+  * this method can't be saved in the checkpoint.
+  *
+  * @return the state of the register.
+  * @throws OPBDeviceException if the register doesn't support checkpoints.
+  */
+ public long[] getState() throws OPBDeviceException
+ {
+  throw new OPBDeviceException("the register " + toString() + " of the device " + deviceName() + " doesn't support checkpoints.");
+ }
+ 
+ /**
+  * Restores the state of the register saved in the checkpoint. The default implementation throws an exception, a register that doesn't implement
+  * this method can't be restored from the checkpoint.
+  *
+  * @param state the state of the register.
+  * @throws OPBDeviceException if the register doesn't support checkpoints.
+  */
+ public void putState(long[] state) throws OPBDeviceException
+ {
+  throw new OPBDeviceException("the register " + toString() + " of the device " + deviceName() + " doesn't support checkpoints.");
+ }
 
  // -----------------------------------
  // methods used to display information
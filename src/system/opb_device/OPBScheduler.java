@@ -0,0 +1,230 @@
+package system.opb_device;
+
+/**
+ * The OPBScheduler class. This class implements the event driven scheduling of the OPB Devices.
+ * Each device reports the cycle number where it needs to perform the next operation cycle, the device is only ticked in that cycle
+ * or when a register of the device is accessed. In the other cycles the last interrupt state of the device is kept.
+ */
+public final class OPBScheduler
+{
+ /** The array with the scheduled devices. */
+ private OPBDevice[] opb_device;
+ /** The number of scheduled devices. */
+ private int devices;
+ /** The cycle number of the next operation cycle of all devices. */
+ private long next_event;
+ /** The interrupt state of all devices. */
+ private int interrupt;
+ /** The wake flag. Is set when a device is woken.<p>
+  *  false - no device was woken.<br>
+  *  true - at least one device was woken. */
+ private boolean woken;
+ /** The cycle number of the last operation cycle performed by the devices. */
+ private long cycle;
+
+ /**
+  * Instantiates a new OPB Device scheduler.
+  */
+ public OPBScheduler()
+ {
+  opb_device = new OPBDevice[0];
+  woken = true;
+ }
+
+ // ------------------------------------
+ // methods used for auxiliary functions
+ // ------------------------------------
+
+ /**
+  * Registers the device in the scheduler.
+  *
+  * @param opb_device the device to be registered.
+  */
+ public void register(OPBDevice opb_device)
+ {
+  OPBDevice[] device_aux;
+
+  device_aux = new OPBDevice[devices + 1];
+  System.arraycopy(this.opb_device,0,device_aux,0,devices);
+  device_aux[devices] = opb_device;
+  this.opb_device = device_aux;
+  devices++;
+  opb_device.scheduler = this;
+  opb_device.wake();
+ }
+
+ /**
+  * Resets the scheduler, all devices are ticked in the next cycle.
+  */
+ public void reset()
+ {
+  int aux;
+
+  for(aux = 0;aux < devices;aux++)
+  {
+   opb_device[aux].next = 0;
+   opb_device[aux].signal = 0;
+   opb_device[aux].awake = true;
+  }
+  next_event = 0;
+  interrupt = 0;
+  cycle = 0;
+  woken = true;
+ }
+
+ /**
+  * Returns the cycle number of the last operation cycle performed by the devices.
+  *
+  * @return the cycle number of the last operation cycle performed by the devices.
+  */
+ public long getCycle()
+ {
+  return cycle;
+ }
+
+ /**
+  * Returns the number of cycles after the next cycle where the interrupt state of all devices doesn't change, no device is ticked in these cycles.
+  *
+  * @return the number of cycles, 0 if a device was woken.
+  */
+ public long getWindow()
+ {
+  if(woken)
+	return 0;
+  return next_event - cycle - 1;
+ }
+
+ // --------------------------------------
+ // methods used to control the simulation
+ // --------------------------------------
+
+ /**
+  * Performs one operation cycle of the devices that need it in the cycle number given by the parameter cycle.
+  *
+  * @param cycle the cycle number.
+  * @return the interrupt state of all devices.
+  */
+ public int cycle(long cycle)
+ {
+  this.cycle = cycle;
+  if(cycle < next_event && !woken)
+    return interrupt;
+  return schedule(cycle);
+ }
+
+ /**
+  * Performs in one step the cycles after the cycle number given by the parameter cycle, the number of cycles is given by the parameter cycles.
+  * Only the devices that need it are ticked, in the exact cycle number where they need it.
+  *
+  * @param cycle the cycle number of the last cycle performed.
+  * @param cycles the number of cycles.
+  * @return the interrupt state of all devices after the last cycle.
+  */
+ public int stall(long cycle,int cycles)
+ {
+  long last;
+
+  last = cycle + cycles;
+  while(cycle < last)
+  {
+   if(!woken && next_event > cycle + 1)
+   {
+	if(next_event > last)
+	  break;
+	cycle = next_event;
+   }
+   else
+	 cycle++;
+   cycle(cycle);
+  }
+  this.cycle = last;
+  return interrupt;
+ }
+
+ /**
+  * Performs one operation cycle of the devices that were woken or that reached the cycle number of the next operation cycle.
+  *
+  * @param cycle the cycle number.
+  * @return the interrupt state of all devices.
+  */
+ private int schedule(long cycle)
+ {
+  OPBDevice device;
+  int aux;
+
+  woken = false;
+  next_event = Long.MAX_VALUE;
+  interrupt = 0;
+  for(aux = 0;aux < devices;aux++)
+  {
+   device = opb_device[aux];
+   if(device.awake || device.next <= cycle)
+   {
+	device.awake = false;
+	device.signal = device.cycle();
+	device.next = device.getNextCycle(cycle);
+   }
+   interrupt = interrupt + device.signal;
+   if(device.next < next_event)
+     next_event = device.next;
+  }
+  return interrupt;
+ }
+
+ // -------------------------------------
+ // methods used to handle the checkpoint
+ // -------------------------------------
+ 
+ /**
+  * Returns the state of the scheduler saved in the checkpoint, including the scheduling of each device.
+  *
+  * @return the state of the scheduler.
+  */
+ public long[] getState()
+ {
+  long[] state;
+  int aux;
+  
+  state = new long[4 + devices * 3];
+  state[0] = next_event;
+  state[1] = interrupt;
+  state[2] = woken ? 1 : 0;
+  state[3] = cycle;
+  for(aux = 0;aux < devices;aux++)
+  {
+   state[4 + aux * 3] = opb_device[aux].next;
+   state[5 + aux * 3] = opb_device[aux].signal;
+   state[6 + aux * 3] = opb_device[aux].awake ? 1 : 0;
+  }
+  return state;
+ }
+ 
+ /**
+  * Restores the state of the scheduler saved in the checkpoint.
+  *
+  * @param state the state of the scheduler.
+  */
+ public void putState(long[] state)
+ {
+  int aux;
+  
+  next_event = state[0];
+  interrupt = (int)state[1];
+  woken = state[2] != 0;
+  cycle = state[3];
+  for(aux = 0;aux < devices;aux++)
+  {
+   opb_device[aux].next = state[4 + aux * 3];
+   opb_device[aux].signal = (int)state[5 + aux * 3];
+   opb_device[aux].awake = state[6 + aux * 3] != 0;
+  }
+ }
+ 
+ /**
+  * Notifies the scheduler that a device was woken.
+  */
+ void wake()
+ {
+  woken = true;
+ }
+}
@@ -0,0 +1,463 @@
+package tools;
+
+import java.text.*;
+import java.util.*;
+import java.io.*;
+
+import system.file.*;
+import system.*;
+
+/**
+ * The coverage mode class. This class performs the coverage mode. The executed instructions and the directions of the conditional branches
+ * are kept in bitsets during the simulation (Coverage), and are assigned to the functions of the elf binary file and to the source lines
+ * of the line number information (DWARF .debug_line or stabs). The coverage is saved in the lcov tracefile format, and optionally in a
+ * coverage data file. The data files of several simulations are merged without simulate the binary file.
+ */
+public class Cov
+{
+ /** The system. */
+ private SysteM system;
+ /** The system XML configuration file (path and name). */
+ private String systemconfig_file;
+ /** The lcov output file (path and name). */
+ private String coverage_file;
+ /** The elf binary file (path and name). */
+ private String binary_file;
+ /** The coverage data output file (path and name), null if the data file isn't saved. */
+ private String data_file;
+ /** The coverage data files merged instead of simulate the binary file, null if the binary file is simulated. */
+ private String[] merge_files;
+ /** The coverage of the simulation. */
+ private Coverage coverage;
+ /** The line number information of the elf binary file. */
+ private DebugLineParser debug_line;
+ /** The simulation time. The time spent by the computer to perform the simulation. */
+ private float time_simulation;
+ /** The begin time. When starts counting the simulation time. */
+ private long  time_begin;
+ /** The real time. The time spent by the real system to execute the software. */
+ private float time_real;
+ /** The end time. When stops counting the simulation time. */
+ private long  time_end;
+ /** The ratio value between the simulation time and the real time. */
+ private float ratio;
+ /** The cycles per instruction value of the simulation. */
+ private float cpi;
+ /** The number of functions and the number of functions executed. */
+ private int[] functions;
+ /** The number of lines and the number of lines executed. */
+ private int[] lines;
+
+ /**
+  * Instantiates a new coverage mode.
+  *
+  * @param systemconfig_file the XML system configuration file (path and name).
+  * @param coverage_file the lcov file (path and name). Where the coverage will be saved.
+  * @param binary_file the elf binary file (path and name).
+  * @param data_file the coverage data file (path and name). Where the bitsets of the coverage will be saved, null if isn't saved.
+  * @param merge_files the list separated by commas of the coverage data files merged instead of simulate the binary file, null if the binary file is simulated.
+  */
+ public Cov(String systemconfig_file,String coverage_file,String binary_file,String data_file,String merge_files)
+ {
+  try
+  {
+   this.systemconfig_file = systemconfig_file;
+   this.coverage_file = coverage_file;
+   this.binary_file = binary_file;
+   this.data_file = data_file;
+   if(merge_files != null)
+	 this.merge_files = merge_files.split(",");
+   system = new SysteM(systemconfig_file,binary_file,false,true);
+   coverage = new Coverage(system);
+   debug_line = new DebugLineParser();
+   debug_line.load(binary_file);
+  }
+  catch(SysteMException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+  catch(DebugLineParserException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: error in the line numbers of <" + binary_file + "> file, " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+ }
+
+ // ------------------------------------
+ // method used to generate the coverage
+ // ------------------------------------
+
+ /**
+  * This method simulates the elf binary file, or merges the coverage data files. Saves the coverage in the output files and shows the results.
+  */
+ public final void main()
+ {
+  int aux;
+
+  tab();
+  if(merge_files == null)
+  {
+   time_begin = System.nanoTime();
+   system.coverage(coverage);
+   time_end  = System.nanoTime();
+
+   time_simulation = (time_end - time_begin) / 1E9f;
+   time_real = system.getNumberOfCycles() / system.getFrequency();
+   ratio = (time_simulation - time_real) / time_real;
+   cpi = (float)system.getNumberOfCycles() / (float)system.getCPUClass().getNumberOfInstructions();
+
+   tab();
+   System.out.println("Results");
+   System.out.println("");
+   System.out.println(" " + "instructions: " + Util.toDecStringSpace(system.getCPUClass().getNumberOfInstructions(),12));
+   System.out.println(" " + "cycles      : " + Util.toDecStringSpace(system.getNumberOfCycles(),12));
+   System.out.println(" " + "cpi         : " + Util.toDecStringSpace(cpi,12));
+   System.out.println(" " + "<frequency> : " + Util.toDecStringSpace((float)(system.getFrequency() / 1E6),12) + "MHz");
+   System.out.println(" " + "simulation  : " + Util.toDecStringSpace(time_simulation,12) + "s");
+   System.out.println(" " + "real        : " + Util.toDecStringSpace(time_real,12)      + "s");
+   System.out.println(" " + "ratio       : " + Util.toDecStringSpace(ratio,12));
+  }
+  else
+  {
+   System.out.println("Merge");
+   System.out.println("");
+   try
+   {
+	for(aux = 0;aux < merge_files.length;aux++)
+	{
+	 coverage.merge(merge_files[aux]);
+	 System.out.println(" " + merge_files[aux]);
+	}
+   }
+   catch(SysteMException e)
+   {
+	System.out.println(" " + "!Warning: " + e.getMessage());
+	System.out.println("");
+	System.exit(0);
+   }
+  }
+
+  tab();
+  try
+  {
+   saveCoverage();
+  }
+  catch(IOException e)
+  {
+   System.out.println(" " + "!Warning: error in <" + coverage_file + "> file, " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+  System.out.println("Coverage");
+  System.out.println("");
+  System.out.println(" " + "instructions: " + count(instructions()));
+  System.out.println(" " + "functions   : " + count(functions));
+  System.out.println(" " + "branches    : " + count(branches()));
+  System.out.println(" " + "lines       : " + count(lines));
+
+  tab();
+  System.out.println(" " + "Coverage saved in the <" + coverage_file + "> file.");
+  System.out.println("");
+  if(data_file != null)
+  {
+   try
+   {
+	coverage.save(data_file);
+	System.out.println(" " + "Coverage data saved in the <" + data_file + "> file.");
+	System.out.println("");
+   }
+   catch(SysteMException e)
+   {
+	System.out.println(" " + "!Warning: " + e.getMessage());
+	System.out.println("");
+   }
+  }
+  System.exit(0);
+ }
+
+ // ----------------------------------
+ // methods used to save the lcov file
+ // ----------------------------------
+
+ /**
+  * Saves the coverage in the lcov tracefile. For each source file a record with the functions (FN, FNDA), the branch directions (BRDA, one block
+  * per conditional branch of the line, branch 0 taken and branch 1 not taken) and the lines (DA). The functions and the instructions without line
+  * number information are saved in a record of the elf binary file, the line of each instruction is its word offset in the code range plus one.
+  *
+  * @throws IOException if any error occurs when save the lcov file.
+  */
+ private final void saveCoverage() throws IOException
+ {
+  List<Map<Integer,List<Long>>> source_lines;
+  List<Map<String,int[]>> source_functions;
+  Map<Integer,List<Long>> unknown_lines;
+  Map<String,int[]> unknown_functions;
+  List<String> source_name;
+  PrintStream output;
+  List<Long> list;
+  long address;
+  long begin;
+  long end;
+  int line;
+  int hit;
+  int aux_a;
+
+  source_name = debug_line.getSource_name();
+  source_lines = new ArrayList<Map<Integer,List<Long>>>();
+  source_functions = new ArrayList<Map<String,int[]>>();
+  for(aux_a = 0;aux_a < source_name.size();aux_a++)
+  {
+   source_lines.add(new TreeMap<Integer,List<Long>>());
+   source_functions.add(new LinkedHashMap<String,int[]>());
+  }
+  unknown_lines = new TreeMap<Integer,List<Long>>();
+  unknown_functions = new LinkedHashMap<String,int[]>();
+  functions = new int[2];
+  lines = new int[2];
+
+  // assign the instructions to the source lines
+  for(address = coverage.getBase();address < coverage.getBase() + coverage.getSize() * 4;address = address + 4)
+  {
+   line = debug_line.findLine(address);
+   if(line < 0 || debug_line.getLine_file(line) < 0)
+   {
+	list = new ArrayList<Long>();
+	list.add(address);
+	unknown_lines.put(unknownLine(address),list);
+	continue;
+   }
+   list = source_lines.get(debug_line.getLine_file(line)).get(debug_line.getLine_number(line));
+   if(list == null)
+   {
+	list = new ArrayList<Long>();
+	source_lines.get(debug_line.getLine_file(line)).put(debug_line.getLine_number(line),list);
+   }
+   list.add(address);
+  }
+
+  // assign the functions to the source files, with the line of the first instruction
+  for(aux_a = 0;aux_a < system.getFunction_name().size();aux_a++)
+  {
+   begin = system.getFunction_begin().get(aux_a);
+   end = system.getFunction_end().get(aux_a);
+   if(end < begin)
+	 continue;
+   hit = 0;
+   for(address = begin & ~3L;address <= end && hit == 0;address = address + 4)
+   {
+	if(coverage.isExecuted(address))
+	  hit = 1;
+   }
+   line = debug_line.findLine(begin);
+   if(line < 0 || debug_line.getLine_file(line) < 0)
+	 unknown_functions.put(system.getFunction_name().get(aux_a),new int[]{unknownLine(begin & ~3L),hit});
+   else
+	 source_functions.get(debug_line.getLine_file(line)).put(system.getFunction_name().get(aux_a),new int[]{debug_line.getLine_number(line),hit});
+  }
+
+  output = new PrintStream(new BufferedOutputStream(new FileOutputStream(coverage_file),1 << 16));
+  for(aux_a = 0;aux_a < source_name.size();aux_a++)
+  {
+   if(source_lines.get(aux_a).size() == 0 && source_functions.get(aux_a).size() == 0)
+	 continue;
+   output.println("TN:" + test());
+   output.println("SF:" + source_name.get(aux_a));
+   saveFunctions(output,source_functions.get(aux_a));
+   saveLines(output,source_lines.get(aux_a));
+   output.println("end_of_record");
+  }
+  if(unknown_functions.size() != 0 || unknown_lines.size() != 0)
+  {
+   output.println("TN:" + test());
+   output.println("SF:" + new File(binary_file).getAbsolutePath());
+   saveFunctions(output,unknown_functions);
+   saveLines(output,unknown_lines);
+   output.println("end_of_record");
+  }
+  output.close();
+  if(output.checkError())
+	throw new IOException("can't write the file.");
+ }
+
+ /**
+  * Saves the functions of the record (FN, FNDA, FNF and FNH) in the lcov file.
+  *
+  * @param output the lcov file.
+  * @param record_functions the functions of the record, the line of the first instruction and the hit flag of each function.
+  */
+ private final void saveFunctions(PrintStream output,Map<String,int[]> record_functions)
+ {
+  int hit;
+
+  hit = 0;
+  for(String name : record_functions.keySet())
+	output.println("FN:" + record_functions.get(name)[0] + "," + name);
+  for(String name : record_functions.keySet())
+  {
+   output.println("FNDA:" + record_functions.get(name)[1] + "," + name);
+   hit = hit + record_functions.get(name)[1];
+  }
+  output.println("FNF:" + record_functions.size());
+  output.println("FNH:" + hit);
+  functions[0] += record_functions.size();
+  functions[1] += hit;
+ }
+
+ /**
+  * Saves the branch directions (BRDA, BRF and BRH) and the lines (DA, LF and LH) of the record in the lcov file.
+  *
+  * @param output the lcov file.
+  * @param addresses the lines of the record, the memory addresses of the instructions of each line.
+  */
+ private final void saveLines(PrintStream output,Map<Integer,List<Long>> addresses)
+ {
+  List<Long> list;
+  long address;
+  int found;
+  int block;
+  int hit;
+  int aux;
+
+  found = 0;
+  hit = 0;
+  for(Integer number : addresses.keySet())
+  {
+   list = addresses.get(number);
+   block = 0;
+   for(aux = 0;aux < list.size();aux++)
+   {
+	address = list.get(aux);
+	if(!coverage.isBranch(address))
+	  continue;
+	if(coverage.isExecuted(address))
+	{
+	 output.println("BRDA:" + number + "," + block + ",0," + (coverage.isTaken(address) ? 1 : 0));
+	 output.println("BRDA:" + number + "," + block + ",1," + (coverage.isNotTaken(address) ? 1 : 0));
+	}
+	else
+	{
+	 output.println("BRDA:" + number + "," + block + ",0,-");
+	 output.println("BRDA:" + number + "," + block + ",1,-");
+	}
+	found = found + 2;
+	hit = hit + (coverage.isTaken(address) ? 1 : 0) + (coverage.isNotTaken(address) ? 1 : 0);
+	block++;
+   }
+  }
+  output.println("BRF:" + found);
+  output.println("BRH:" + hit);
+
+  hit = 0;
+  for(Integer number : addresses.keySet())
+  {
+   list = addresses.get(number);
+   block = 0;
+   for(aux = 0;aux < list.size() && block == 0;aux++)
+   {
+	if(coverage.isExecuted(list.get(aux)))
+	  block = 1;
+   }
+   output.println("DA:" + number + "," + block);
+   hit = hit + block;
+  }
+  output.println("LF:" + addresses.size());
+  output.println("LH:" + hit);
+  lines[0] += addresses.size();
+  lines[1] += hit;
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Returns the test name of the lcov records, the name of the elf binary file with the characters other than letters, digits and
+  * underscores replaced by underscores.
+  *
+  * @return the test name.
+  */
+ private final String test()
+ {
+  return new File(binary_file).getName().replaceAll("[^A-Za-z0-9_]","_");
+ }
+
+ /**
+  * Returns the line of an instruction without line number information in the record of the elf binary file, the word offset of the instruction
+  * in the code range plus one (the lines of the lcov file start in one).
+  *
+  * @param address the memory address of the instruction.
+  * @return the line of the instruction.
+  */
+ private final int unknownLine(long address)
+ {
+  return (int)((address - coverage.getBase()) >> 2) + 1;
+ }
+
+ /**
+  * Returns the number of instructions of the code range and the number of instructions executed.
+  *
+  * @return the number of instructions and the number of instructions executed.
+  */
+ private final int[] instructions()
+ {
+  int[] count;
+  long address;
+
+  count = new int[2];
+  for(address = coverage.getBase();address < coverage.getBase() + coverage.getSize() * 4;address = address + 4)
+  {
+   count[0]++;
+   if(coverage.isExecuted(address))
+	 count[1]++;
+  }
+  return count;
+ }
+
+ /**
+  * Returns the number of directions of the conditional branches of the code range (two for each branch) and the number of directions executed.
+  *
+  * @return the number of branch directions and the number of branch directions executed.
+  */
+ private final int[] branches()
+ {
+  int[] count;
+  long address;
+
+  count = new int[2];
+  for(address = coverage.getBase();address < coverage.getBase() + coverage.getSize() * 4;address = address + 4)
+  {
+   if(!coverage.isBranch(address))
+	 continue;
+   count[0] = count[0] + 2;
+   count[1] = count[1] + (coverage.isTaken(address) ? 1 : 0) + (coverage.isNotTaken(address) ? 1 : 0);
+  }
+  return count;
+ }
+
+ /**
+  * Returns the number executed, the total number and the percentage of the coverage.
+  *
+  * @param count the total number and the number executed.
+  * @return the number executed, the total number and the percentage.
+  */
+ private final String count(int[] count)
+ {
+  return Util.toDecStringSpace(count[1],12) + " / " + Util.toDecStringSpace(count[0],12) + "  " +
+		 Util.toStringSpace(new DecimalFormat("0.00").format(count[0] == 0 ? 0 : (float)count[1] / (float)count[0] * 100),6) + "%";
+ }
+
+ /**
+  * Displays one line on the screen. Is used to separate contents.
+  */
+ private final void tab()
+ {
+  System.out.println("");
+  System.out.print("--------------------------------------------------------------------------------");
+  System.out.println("");
+ }
+}
@@ -1,5 +1,7 @@
 package tools;
 
+import java.nio.channels.*;
+import java.nio.*;
 import java.net.*;
 import java.io.*;
 
@@ -9,19 +11,23 @@ import system.*;
 
 /**
  * The debug (GDB server) mode class. This class performs the debug (GDB server) mode, it implements the Remote Serial Protocol of the GNU Debugger.
+ * In the multi-session mode the server accepts several GDB Clients on the same port, each connection is served by a session (an instance
+ * of this class) with its own system and thread. The sessions start with the system configuration file of the server, a session loads
+ * another one with the monitor command "syscf &lt;systemconfig_file&gt;" (qRcmd). The sessions share the keyboard (System.in) of the
+ * process, so the devices of their systems don't read it.
  */
-public class Gdb
+public class Gdb implements Runnable
 {
- /** The server socket, server socket waits for requests to come in over the network. */
- private ServerSocket server_socket;
+ /** The time between two checks of the socket while the simulation is performed (milliseconds). */
+ private static final long POLL_TIME = 10;
+ /** The server socket channel, waits for requests to come in over the network. */
+ private ServerSocketChannel server_socket;
  /** The net_address, consists of an IP address and possibly its corresponding host name. */
  private InetAddress net_address;
- /** The DataInputStream, lets an application read primitive data types. */
- private DataInputStream in;
- /** The BufferedRriter, character-output stream. */
- private BufferedWriter out;
- /** The socket used in the communication between the development tools an the GDB Client, client socket. */
- private Socket socket;
+ /** The socket channel used in the communication between the development tools an the GDB Client. */
+ private SocketChannel channel;
+ /** The packet codec of the communication with the GDB Client. */
+ private GdbPacket packet;
  /** The system. */
  private SysteM system;	 
  /** The status of the system. */
@@ -40,6 +46,26 @@ public class Gdb
   * true - displays the GDB Protocol communication. 
   */
  private boolean debug;
+ /** The number of cycles simulated between two checks of the break from the GDB Client. */
+ private long batch;
+ /** The worker thread, performs the simulation of the continue command. */
+ private GdbWorker worker;
+ /** The maximum number of snapshots of the reverse execution, 0 if the reverse execution is disabled. */
+ private int replay_snapshots;
+ /** The minimum number of cycles between two snapshots of the reverse execution. */
+ private long replay_cycles;
+ /** The maximum number of sessions served at the same time, 0 in the single session mode (one GDB Client at a time). */
+ private int max_sessions;
+ /** The number of sessions being served by the server of the multi-session mode. */
+ private int sessions;
+ /** The number of sessions started by the server of the multi-session mode. */
+ private int started_sessions;
+ /** The server of the multi-session mode, null if this instance isn't a session. */
+ private Gdb server;
+ /** The number of the session. */
+ private int session_number;
+ /** The closed flag, true when the GDB Client of the session terminated the connection. */
+ private boolean closed;
  
  /**
   * Instantiates a new debug (GDB server) mode.
@@ -52,13 +78,21 @@ public class Gdb
   * @param events The cpu events flag.<p>
   * false - doesn't notify if any cpu events occur.<br>
   * true - notify if any cpu events occur.
+  * @param batch the number of cycles simulated between two checks of the break from the GDB Client.
+  * @param replay_snapshots the maximum number of snapshots of the reverse execution, 0 disables the reverse execution.
+  * @param replay_cycles the minimum number of cycles between two snapshots of the reverse execution.
+  * @param max_sessions the maximum number of sessions served at the same time, 0 to serve one GDB Client at a time.
   */
- public Gdb(String systemconfig_file,int port_number,boolean debug,boolean events)
+ public Gdb(String systemconfig_file,int port_number,boolean debug,boolean events,long batch,int replay_snapshots,long replay_cycles,int max_sessions)
  {
   this.systemconfig_file = systemconfig_file;
   this.port_number = port_number;
   this.debug = debug;
   this.events = events;
+  this.batch = batch;
+  this.replay_snapshots = replay_snapshots;
+  this.replay_cycles = replay_cycles;
+  this.max_sessions = max_sessions;
  }
  
  // -------------------------------------------
@@ -66,28 +100,36 @@ public class Gdb
  // -------------------------------------------
  
  /**
-  * Waits by the first GDB Client connection and performs the connection within.
+  * Waits by the first GDB Client connection and performs the connection within. In the multi-session mode serves the sessions.
   */
  public final void main()
  {
   char character;
   
+  if(max_sessions > 0)
+  {
+   sessions();
+   return;
+  }
   try
   {
    system = new SysteM(systemconfig_file,null,events,false);
+   if(replay_snapshots > 0)
+	 system.setReplayLog(replay_snapshots,replay_cycles);
+   worker = new GdbWorker(system,batch);
+   worker.start();
    tab();
    System.out.println(" " + "Waiting for connections...");
-   server_socket = new ServerSocket(port_number);
+   server_socket = ServerSocketChannel.open();
+   server_socket.socket().bind(new InetSocketAddress(port_number));
    net_address = InetAddress.getLocalHost();
    System.out.println(" " + " . hostname: " + net_address.getHostName());
    System.out.println(" " + " . ip: " + net_address.getHostAddress());
    System.out.println(" " + " . port: " + port_number);
-   socket = server_socket.accept();
-   
-   in = new DataInputStream(socket.getInputStream());
-   out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+   channel = server_socket.accept();
+   packet = new GdbPacket(channel,debug);
    
-   character = (char)in.read();
+   character = (char)packet.read();
    if(character == '+')
    {
     System.out.println(" " + "Communication start...");
@@ -132,6 +174,18 @@ public class Gdb
  {
   char character;
 	  
+  if(server != null)
+  {
+   closed = true;
+   try
+   {
+	channel.close();
+   }
+   catch(IOException e)
+   {
+   }
+   return;
+  }
   try
   {
    tab();
@@ -140,12 +194,11 @@ public class Gdb
    System.out.println(" " + " . ip: " + net_address.getHostAddress());
    System.out.println(" " + " . port: " + port_number);
    
-   socket = server_socket.accept();
-	   
-   in = new DataInputStream(socket.getInputStream());
-   out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+   channel.close();
+   channel = server_socket.accept();
+   packet = new GdbPacket(channel,debug);
    
-   character = (char)in.read();
+   character = (char)packet.read();
    if(character == '+')
    {
     System.out.println(" " + "Communication start...");
@@ -178,58 +231,17 @@ public class Gdb
  
  /**
   * Receives the command from the GDB Client.<br>
-  * Receives the command from the GDB Client, calculates the checksum of the response and sends the acknowledgment.
-  * @return the string
+  * Receives the packet of the command from the GDB Client, the packet codec checks the checksum and sends the acknowledgment.
+  *
+  * @return the command received, null if the connection failed.
   */
- private final String gdbGetCommand()
+ private final ByteBuffer gdbGetCommand()
  {
-  StringBuffer command = new StringBuffer();
-  byte received_checksum_byte_one;
-  byte received_checksum_byte_two;
-  byte received_checksum = 0;
-  byte checksum = 0;
-  byte character;
-  
+  if(closed)
+	return null;
   try
   {
-   do 
-   {
-	character = in.readByte();
-   }  
-   while(character != '$');
-   for(;;)
-   {
-	character = in.readByte();
-	if(character == '#')
-	  break;
-	checksum = (byte)(checksum + character);
-	command.append((char)character);
-   }
-   received_checksum_byte_one = in.readByte();
-   received_checksum_byte_two = in.readByte();
-   received_checksum = (byte)(hexToByte(received_checksum_byte_one) << 4);
-   received_checksum = (byte)(received_checksum + hexToByte(received_checksum_byte_two));
-   
-   if(debug)
-   {
-    if(command.charAt(0) == 'X')
-	  System.out.print("<-: $" + command.substring(0,command.indexOf(":",0) + 1) + "#" + (char)received_checksum_byte_one + (char)received_checksum_byte_two + "...");   
-    else
-      System.out.print("<-: $" + command.toString() + "#" + (char)received_checksum_byte_one + (char)received_checksum_byte_two + "...");
-   }
-   
-   if(checksum == received_checksum)
-   {
-	out.write('+');
-    out.flush();
-    if(debug)
-      System.out.print("Ack\n");
-    return command.toString();
-   }
-   out.write('-');
-   out.flush();
-   if(debug)
-     System.out.print("nAck\n");
+   return packet.receive();
   }
   catch(IOException e) 
   {
@@ -243,52 +255,29 @@ public class Gdb
  
  /**
   * Sends the response to the GDB Client.<br>
-  * Calculates the checksum of the response, sends the response to the GDB Client and waits by the acknowledgment. 
+  * The packet codec calculates the checksum of the response, sends the response to the GDB Client and waits by the acknowledgment. 
   *
   * @param string the command to be sent.
   */
  private final void gdbSendCommand(String string)
  {
-  char sent_checksum_char_one = 0;
-  char sent_checksum_char_two = 0;
-  byte checksum;
-  byte character;
-  int try_to_send;
-  int aux;
-  
+  gdbSendCommand(string,false);
+ }
+ 
+ /**
+  * Sends the response to the GDB Client, with the repeated characters run-length encoded if the parameter encode is true.
+  * Is used to send the hexadecimal data of the registers and of the memory.
+  *
+  * @param string the command to be sent.
+  * @param encode the run-length encoding flag.
+  */
+ private final void gdbSendCommand(String string,boolean encode)
+ {
+  if(closed)
+	return;
   try
   {
-   for(try_to_send = 0;try_to_send < 10;try_to_send++)
-   {
-	out.write('$');
-	checksum = 0;
-	for(aux = 0;aux < string.length();aux++) // the checksum calculation
-	{
-	 out.write(string.charAt(aux));
-	 checksum += (byte)(string.charAt(aux));
-	}
-	out.write('#');
-	sent_checksum_char_one = intToHexASCIIChar((checksum & 0xf0)>> 4); // converts the checksum value to hexadecimal ascii character  
-	sent_checksum_char_two = intToHexASCIIChar(checksum & 0x0f);
-	out.write(sent_checksum_char_one);
-	out.write(sent_checksum_char_two);
-	out.flush();
-	if(debug)
-	  System.out.print("->: $" + string + "#" + sent_checksum_char_one + sent_checksum_char_two + "..."); 
-    do
-    {
-	 character = in.readByte();   
-    }
-    while(character != '+' && character != '-');
-    if(character == '+')
-    {
-     if(debug)
-       System.out.print("Ack\n");
-     break;
-    }
-    if(debug)
-      System.out.print("nAck\n");
-   }
+   packet.send(string,encode);
   }
   catch(IOException e) 
   {
@@ -308,29 +297,45 @@ public class Gdb
   */
  private final void gdbMonitor()
  {
+  ByteBuffer buffer;
   String command;
   
-  for(;;)
+  while(!closed)
   {
    do
    {
-    command = gdbGetCommand();
+    buffer = gdbGetCommand();
+   }
+   while(buffer == null && !closed);
+   if(closed)
+	 return;
+   if(buffer.limit() == 0)
+   {
+	gdbSendCommand("");
+	continue;
+   }
+   switch(buffer.get(0)) // the memory data is decoded from the buffer
+   {
+    case 'M':writeMemory(buffer);    // write memory
+             continue;
+    case 'X':writeMemoryBin(buffer); // write memory in binary format
+             continue;
    }
-   while(command == null);
+   command = GdbPacket.toString(buffer,0,buffer.limit());
    switch(command.charAt(0))
    {
     case 'G':writeRegisters(command); // write registers
              break;
     case 'H':setThread(command);      // set thread
 	         break;
-    case 'M':writeMemory(command);    // write memory
-             break;
     case 'P':writeRegister(command);  // write register
              break;
-    case 'X':writeMemoryBin(command); // write memory in binary format
+    case 'Q':setQuery(command);       // set query
              break;
     case 'Z':insertBreak(command);    // insert break or watchpoint
              break;
+    case 'b':reverse(command);        // reverse step or continue
+             break;
     case 'c':continue_(command);      // continue
 	         break;
     case 'g':readRegisters(command);  // read registers
@@ -434,116 +439,45 @@ public class Gdb
  }
  
  /**
-  * Performs write memory command. [M]
+  * Performs write memory command. [M]<br>
+  * The hexadecimal data is decoded from the buffer of the command received.
   *
   * @param command the command received.
   */
- private final void writeMemory(String command)
+ private final void writeMemory(ByteBuffer command)
  {
-  int  command_length;
-  String string_aux;
-  int  address;
-  int  value;
+  long address;
   long bytes;
-  int aux;
+  long value;
   
   try
   {
-   aux = command.indexOf(",");
-   if(aux == -1)
-   {
-	gdbSendCommand("");
-	return;
-   }
-   string_aux = command.substring(1,aux);
-   if(string_aux.length() < 1 || string_aux.length() > 8)
-   {
-	gdbSendCommand("E01");
-	return;
-   }
-   address = (int)Long.parseLong(string_aux,16);
-   command = command.substring(aux);
-
-   aux = command.indexOf(":");
-   if(aux == -1)
-   {
-	gdbSendCommand("");
-	return;
-   }
-   string_aux = command.substring(1,aux);
-   if(string_aux.length() < 1 || string_aux.length() > 8)
+   command.position(1);
+   address = getHex(command,',');
+   bytes = getHex(command,':');
+   if(address < 0 || bytes < 0 || command.remaining() != bytes * 2)
    {
 	gdbSendCommand("E01");
 	return;
    }
-   bytes = Long.valueOf(string_aux,16).longValue();
-   
-   command = command.substring(aux);
-   command_length = command.length();
-   if(command_length <= 2)
+   while(bytes > 0)
    {
-	if(bytes == 0L)
+	if(bytes >= 4 && (address % 4) == 0)
 	{
-     gdbSendCommand("OK");
-	 return;	
+	 value = getHexDigits(command,8);
+	 system.getMemoryClass().putMemoryWord((int)address,(int)value);
+	 address = address + 4;
+	 bytes = bytes - 4;
 	}
 	else
 	{
-	 gdbSendCommand("E01");
-	 return;	
-	}
-   }
-  
-   command = command.substring(1);
-   command_length = command.length();
-   if(command_length / bytes == 2)
-   {	
-	do
-	{
-     if(bytes >= 4)
-	 {
-	  if((address % 4) == 0)
-	  {
-	   value = (int)Long.parseLong(command.substring(0,8),16);
-	   system.getMemoryClass().putMemoryWord(address,value);
-	   command = command.substring(8);
-	   address = address + 4;
-	   bytes = bytes - 4;
-	  }
-	  else
-	  {
-	   value = Integer.parseInt(command.substring(0,2),16);
-	   system.getMemoryClass().putMemoryByte(address,value);
-	   command = command.substring(2);
-	   address++; 
-	   bytes--;  
-	  }
-	 }
-     else
-	 {	 
-	  value = Integer.parseInt(command.substring(0,2),16);
-	  system.getMemoryClass().putMemoryByte(address,value);
-	  command = command.substring(2);
-	  address++; 
-	  bytes--; 
-	 }
+	 value = getHexDigits(command,2);
+	 system.getMemoryClass().putMemoryByte((int)address,(int)value);
+	 address++; 
+	 bytes--;  
 	}
-	while(bytes > 0);
-    gdbSendCommand("OK");
-    return;
-   }
-   else
-   {
-    gdbSendCommand("E01");
-    return;   
    }
-  }
-  catch(NullPointerException e)
-  {
-   System.out.println("");
-   System.out.println(" " + "!Warning: wrong or incomplete command.");
-   System.out.println("");
-   gdbSendCommand("");
+   gdbSendCommand("OK");
   }
   catch(NumberFormatException e)
   {
@@ -629,113 +563,42 @@ public class Gdb
  }
  
  /**
-  * Performs write memory with binary data. [X]
+  * Performs write memory with binary data. [X]<br>
+  * The binary data is decoded in place in the buffer of the command received.
   *
   * @param command the command received.
   */
- private final void writeMemoryBin(String command)
+ private final void writeMemoryBin(ByteBuffer command)
  {
-  int  command_length;  
-  String string_aux;
-  int  address;
-  int  value;
+  long address;
   long bytes;
-  int  aux;
 	   
   try
   {
-   aux = command.indexOf(",");
-   if(aux == -1)
-   {
-	gdbSendCommand("");
-	return;
-   }
-   string_aux = command.substring(1,aux);
-   if(string_aux.length() < 1 || string_aux.length() > 8)
-   {
-	gdbSendCommand("E01");
-	return;
-   }
-   address = (int)Long.parseLong(string_aux,16);
-   command = command.substring(aux);
-
-   aux = command.indexOf(":");
-   if(aux == -1)
-   {
-	gdbSendCommand("");
-	return;
-   }
-   string_aux = command.substring(1,aux);
-   if(string_aux.length() < 1 || string_aux.length() > 8)
+   command.position(1);
+   address = getHex(command,',');
+   bytes = getHex(command,':');
+   if(address < 0 || bytes < 0 || GdbPacket.unescape(command) != bytes)
    {
 	gdbSendCommand("E01");
 	return;
    }
-   bytes = Long.valueOf(string_aux,16).longValue();
-   
-   command = command.substring(aux);
-   command_length = command.length();
-   if(command_length <= 1)
+   while(bytes > 0)
    {
-	if(bytes == 0L)
+	if(bytes >= 4 && (address % 4) == 0)
 	{
-     gdbSendCommand("OK");
-	 return;	
+	 system.getMemoryClass().putMemoryWord((int)address,command.getInt());
+	 address = address + 4;
+	 bytes = bytes - 4;
 	}
 	else
 	{
-	 gdbSendCommand("E01");
-	 return;	
-	}
-   }
-   command = command.substring(1);
-   command = commandBinaryMemory(command);
-   command_length = command.length();
-     
-   if(command_length == bytes)
-   {
-	do
-	{      
-     if(bytes >= 4)
-	 {
-	  if((address % 4) == 0)
-	  {
-	   value = (((byte)command.charAt(0) & 0xff) << 24) | (((byte)command.charAt(1) & 0xff) << 16) | (((byte)command.charAt(2) & 0xff) << 8) | ((byte)command.charAt(3) & 0xff);
-	   system.getMemoryClass().putMemoryWord(address,value);
-	   command = command.substring(4);
-	   address = address + 4;
-	   bytes = bytes - 4;
-	  }
-	  else
-	  {
-	   value = (byte)command.charAt(0) & 0xff;
-	   system.getMemoryClass().putMemoryByte(address,value);
-	   command = command.substring(1);
-	   address++; 
-	   bytes--;  
-	  }
-	 }
-	 else
-	 {	 
-	  value = (byte)command.charAt(0) & 0xff;
-	  system.getMemoryClass().putMemoryByte(address,value);
-	  command = command.substring(1);
-	  address++; 
-	  bytes--; 
-	 }
+	 system.getMemoryClass().putMemoryByte((int)address,command.get() & 0xff);
+	 address++; 
+	 bytes--; 
 	}
-	while(bytes != 0);
-    gdbSendCommand("OK");
-    return;
    }
-   gdbSendCommand("E01");
-  }
-  catch(NullPointerException e)
-  {
-   System.out.println("");
-   System.out.println(" " + "!Warning: wrong or incomplete command.");
-   System.out.println("");
-   gdbSendCommand("");
+   gdbSendCommand("OK");
   }
   catch(NumberFormatException e)
   {
@@ -752,85 +615,59 @@ public class Gdb
    gdbSendCommand("E01");
   }
  }
- 
+
  /**
-  * Performs insert breakpoint command. [Z]
+  * Performs insert breakpoint command. [Z]<br>
+  * The software (Z0) and hardware (Z1) breakpoints are inserted in the breakpoint map of the cpu, the write (Z2), read (Z3) and access (Z4)
+  * watchpoints are inserted in the watch map of the memory.
   *
   * @param command the command received.
   */
  private final void insertBreak(String command)
  {
-  Instruction instruction;
-  String string_aux;
   int address;
   int length;
   int type;
-  int aux;
   
   try
   {
-   aux = command.indexOf(",");
-   if(aux == -1)
-   {
-	gdbSendCommand("");
-	return;
-   }
-   
-   string_aux = command.substring(1,aux);
-   if(string_aux.length() != 1)
-   {
-	gdbSendCommand("E01");
-	return;   
-   }
-   type = Integer.parseInt(string_aux,16);
-   
-   command = command.substring(aux + 1);
-   aux = command.indexOf(",");
-   if(aux == -1)
+   type = breakType(command);
+   if(type < 0)
    {
 	gdbSendCommand("");
 	return;
    }
+   command = command.substring(3);
+   address = (int)Long.parseLong(command.substring(0,command.indexOf(",")),16);
+   length = Integer.parseInt(command.substring(command.indexOf(",") + 1),16);
    
-   string_aux = command.substring(0,aux);
-   if(string_aux.length() < 1 || string_aux.length() > 8)
-   {
-	gdbSendCommand("E01");
-	return;
-   }
-   address = (int)Long.parseLong(string_aux,16);
-   command = command.substring(aux + 1);
-   
-   length = Integer.parseInt(command,16);
-   
-   if(type != 0)
-   {
-	gdbSendCommand("");
-	return;  
-   }
-   if(length != 4)
-   {
-	gdbSendCommand("");
-	return;  
-   }
-   
-   instruction = system.getMemoryClass().getMemoryInstruction(address);
-   system.getCPUClass().insertBreakPoint(address);
-   if(instruction.toString().equals("breakpoint"))
+   if(type <= 1)
    {
-	gdbSendCommand("OK");
-	return;
+	if(length != 4)
+	{
+	 gdbSendCommand("");
+	 return;
+	}
+	system.getCPUClass().insertBreakPoint(address);
    }
-   system.getMemoryClass().putMemoryInstruction(system.getCPUClass().createBreakPoint(instruction),address);
+   else
+	 system.getMemoryClass().insertWatchPoint(address,length,watchKind(type));
    gdbSendCommand("OK");
    
    if(debug)
    {
     System.out.println("");
-    System.out.println(" " + "Insert breakpoint at 0x" + Util.toHexString(address,8) + ".");
+    System.out.println(" " + "Insert " + (type <= 1 ? "breakpoint" : "watchpoint") + " at 0x" + Util.toHexString(address,8) + ".");
     System.out.println("");
    }
   }
+  catch(StringIndexOutOfBoundsException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: wrong or incomplete command.");
+   System.out.println("");
+   gdbSendCommand("E01");
+  }
   catch(NullPointerException e)
   {
    System.out.println("");
@@ -854,6 +691,67 @@ public class Gdb
   }
  }
  
+ /**
+  * Performs the reverse step and the reverse continue commands. [bs] [bc]<br>
+  * The simulation is restored from the snapshots of the replay log, when the oldest snapshot is reached the stop reply has the replaylog
+  * reason.
+  *
+  * @param command the command received.
+  */
+ private final void reverse(String command)
+ {
+  String message;
+  String reply;
+  
+  if(!system.hasReplayLog() || !command.equals("bs") && !command.equals("bc"))
+  {
+   gdbSendCommand("");
+   return;
+  }
+  try
+  {
+   if(command.equals("bc"))
+	 status = system.reverseContinue();
+   else
+	 status = system.reverseStep();
+  }
+  catch(SysteMException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println("");
+   gdbSendCommand("E01");
+   return;
+  }
+  reply = null;
+  switch(status)
+  {
+   case Sys_Status.BREAKPOINT:status = 5;
+                              message = status + ". (breakpoint)";
+                              break;                     
+   case Sys_Status.WATCHPOINT:status = 5;
+                              message = status + ". (watchpoint)";
+                              reply = watchReply();
+                              break;                     
+   case Sys_Status.REPLAY_BEGIN:status = 5;
+                                message = status + ". (begin of the replay log)";
+                                reply = "T05replaylog:begin;";
+                                break;                     
+   default:status = 5;
+	       message = status + ".";
+  }
+  if(reply == null)
+	reply = "S" + Util.toHexString(status,2);
+  gdbSendCommand(reply);
+  
+  if(debug)
+  {
+   System.out.println("");
+   System.out.println(" " + "Program stopped with signal " + message);
+   System.out.println("");
+  }
+ }
+ 
  /**
   * Performs continue command. [c]
   *
@@ -862,29 +760,51 @@ public class Gdb
  private final void continue_(String command)
  {
   String message;
+  String reply;
  
   if(command.length()!= 1)
   {
    gdbSendCommand("");
    return;
   } 
-  if(debug)
+  try
   {
-   tab();
-   status = system.continue_();
-   tab();
+   if(debug)
+   {
+	tab();
+	status = simulate();
+	tab();
+   }
+   else
+	 status = simulate();
   }
-  else
-	status = system.continue_();
+  catch(SysteMException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println("");
+   gdbSendCommand("E01");
+   return;
+  }
+  reply = null;
   switch(status)
   {
    case Sys_Status.BREAKPOINT:status = 5;
                               message = status + ". (breakpoint)";
                               break;                     
+   case Sys_Status.WATCHPOINT:status = 5;
+                              message = status + ". (watchpoint)";
+                              reply = watchReply();
+                              break;                     
+   case Sys_Status.NORMAL:status = 2;
+                          message = status + ". (interrupt)";
+                          break;                     
    default:status = 5;
 	       message = status + ".";
   }
-  gdbSendCommand("S" + Util.toHexString(status,2));
+  if(reply == null)
+	reply = "S" + Util.toHexString(status,2);
+  gdbSendCommand(reply);
   
   if(debug)
   {
@@ -911,7 +831,7 @@ public class Gdb
   }
   for(aux = 0;aux < 50;aux++)
     string.append(Util.toHexString(system.getCPUClass().getRegisterGDB(aux),8));
-  gdbSendCommand(string.toString());
+  gdbSendCommand(string.toString(),true);
  }
  
  /**
@@ -999,7 +919,7 @@ public class Gdb
 	 else
 	 {
 	  value = system.getMemoryClass().getMemoryByte(address);	 
-	  string.append(Util.toHexString(value,8));	 
+	  string.append(Util.toHexString(value,2));	 
 	  address++; 
 	  bytes--; 
 	 }
@@ -1007,13 +927,13 @@ public class Gdb
 	else
 	{	 
      value = system.getMemoryClass().getMemoryByte(address);	 
-	 string.append(Util.toHexString(value,8));	 
+	 string.append(Util.toHexString(value,2));	 
 	 address++; 
 	 bytes--;
 	}
    }
    while(bytes != 0);
-   gdbSendCommand(string.toString());
+   gdbSendCommand(string.toString(),true);
    return;
   }
   catch(NullPointerException e)
@@ -1086,7 +1006,15 @@ public class Gdb
  {
   String string_aux;
   
-  if(command.equals("qC"))
+  if(command.startsWith("qSupported"))
+  {
+   if(system.hasReplayLog())
+	 gdbSendCommand("PacketSize=" + Integer.toHexString(GdbPacket.PACKET_SIZE) + ";QStartNoAckMode+;ReverseContinue+;ReverseStep+");
+   else
+	 gdbSendCommand("PacketSize=" + Integer.toHexString(GdbPacket.PACKET_SIZE) + ";QStartNoAckMode+");
+   return;
+  }
+  else if(command.equals("qC"))
   {
    gdbSendCommand("");	  
    return;
@@ -1101,7 +1029,12 @@ public class Gdb
    gdbSendCommand("");
    return;
   }
-  else if(command.substring(0,5).equals("qxil,"))
+  else if(command.startsWith("qRcmd,"))
+  {
+   monitor(commandFullPathFileName(command.substring(command.indexOf(',') + 1)).trim());
+   return;
+  }
+  else if(command.startsWith("qxil,"))
   {
    command = command.substring(command.indexOf(',') + 1);
    command = command.substring(command.indexOf(',') + 1);
@@ -1124,6 +1057,65 @@ public class Gdb
   gdbSendCommand("");
  }
  
+ /**
+  * Performs the monitor command. [qRcmd]<br>
+  * The command "syscf &lt;systemconfig_file&gt;" replaces the system by a new one built with the system configuration file, the
+  * program must be loaded again.
+  *
+  * @param command the monitor command received (decoded).
+  */
+ private final void monitor(String command)
+ {
+  SysteM new_system;
+  
+  if(!command.startsWith("syscf "))
+  {
+   gdbSendCommand("");
+   return;
+  }
+  command = command.substring(command.indexOf(' ') + 1).trim();
+  try
+  {
+   new_system = new SysteM(command,null,events,false);
+   new_system.setConsoleInput(server == null);
+   if(replay_snapshots > 0)
+	 new_system.setReplayLog(replay_snapshots,replay_cycles);
+  }
+  catch(SysteMException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " +  e.getMessage());
+   System.out.println("");
+   gdbSendCommand("E01");
+   return;
+  }
+  worker.interrupt();
+  systemconfig_file = command;
+  system = new_system;
+  worker = new GdbWorker(system,batch);
+  worker.start();
+  gdbSendCommand("OK");
+  
+  if(!debug)
+    tab();
+ }
+ 
+ /**
+  * Performs the set query command. [Q]
+  *
+  * @param command the command received.
+  */
+ private final void setQuery(String command)
+ {
+  if(command.equals("QStartNoAckMode"))
+  {
+   gdbSendCommand("OK");
+   packet.startNoAckMode();
+   return;
+  }
+  gdbSendCommand("");
+ }
+ 
  /**
   * Performs the step command. [s]
   *
@@ -1132,6 +1124,7 @@ public class Gdb
  private final void step(String command)
  {
   String message;
+  String reply;
   
   if(command.length() != 1)
   {
@@ -1139,15 +1132,22 @@ public class Gdb
    return;
   }
   status = system.step();
+  reply = null;
   switch(status)
   {
    case Sys_Status.BREAKPOINT:status = 5;
                               message = status + ". (break point)";
                               break;                     
+   case Sys_Status.WATCHPOINT:status = 5;
+                              message = status + ". (watchpoint)";
+                              reply = watchReply();
+                              break;                     
    default:status = 5;
 	       message = status + ".";
   }
-  gdbSendCommand("S" + Util.toHexString(status,2));
+  if(reply == null)
+	reply = "S" + Util.toHexString(status,2);
+  gdbSendCommand(reply);
   
   if(debug )
   {
@@ -1164,95 +1164,60 @@ public class Gdb
   */
  private final void removeBreak(String command)
  {
-  Instruction instruction;
-  String string_aux;
   int address;
   int length;
   int type;
-  int aux;
   
   try
   {
-   aux = command.indexOf(",");
-   if(aux == -1)
-   {
-	gdbSendCommand("");
-	return;
-   }
-   
-   string_aux = command.substring(1,aux);
-   if(string_aux.length() != 1)
-   {
-	gdbSendCommand("E01");
-	return;   
-   }
-   type = Integer.parseInt(string_aux,16);
-   command = command.substring(aux + 1);
-   
-   aux = command.indexOf(",");
-   if(aux == -1)
+   type = breakType(command);
+   if(type < 0)
    {
 	gdbSendCommand("");
 	return;
    }
+   command = command.substring(3);
+   address = (int)Long.parseLong(command.substring(0,command.indexOf(",")),16);
+   length = Integer.parseInt(command.substring(command.indexOf(",") + 1),16);
    
-   string_aux = command.substring(0,aux);
-   if(string_aux.length() < 1 || string_aux.length() > 8)
-   {
-	gdbSendCommand("E01");
-	return;
-   }
-   address = (int)Long.parseLong(string_aux,16);
-   command = command.substring(aux + 1);
-   
-   length = Integer.parseInt(command,16);
-   
-   if(type != 0)
-   {
-	gdbSendCommand("");
-	return;  
-   }
-   if(length != 4)
-   {
-	gdbSendCommand("");
-	return;  
-   } 
-   
-   instruction = system.getMemoryClass().getMemoryInstruction(address);
-   if(!instruction.toString().equals("breakpoint"))
+   if(type <= 1)
    {
-	gdbSendCommand("OK");
-	return;
+	if(length != 4)
+	{
+	 gdbSendCommand("");
+	 return;
+	}
+	system.getCPUClass().removeBreakPoint(address);
    }
-   system.getMemoryClass().putMemoryInstruction(instruction.getInstruction(),address);
-   system.getCPUClass().removeBreakPoint(address);
+   else
+	 system.getMemoryClass().removeWatchPoint(address,length,watchKind(type));
    gdbSendCommand("OK");
    
    if(debug)
    {
     System.out.println("");
-    System.out.println(" " + "Remove breakpoint at 0x" + Util.toHexString(address,8) + ".");
+    System.out.println(" " + "Remove " + (type <= 1 ? "breakpoint" : "watchpoint") + " at 0x" + Util.toHexString(address,8) + ".");
     System.out.println("");
    }
   }
-  catch(NullPointerException e)
+  catch(StringIndexOutOfBoundsException e)
   {
    System.out.println("");
    System.out.println(" " + "!Warning: wrong or incomplete command.");
    System.out.println("");
-   gdbSendCommand("");
+   gdbSendCommand("E01");
   }
-  catch(NumberFormatException e)
+  catch(NullPointerException e)
   {
    System.out.println("");
-   System.out.println(" " + "!Warning: the command contain a no hexadecimal digit.");
+   System.out.println(" " + "!Warning: wrong or incomplete command.");
    System.out.println("");
-   gdbSendCommand("E01");
+   gdbSendCommand("");
   }
-  catch(MemoryException e)
+  catch(NumberFormatException e)
   {
    System.out.println("");
-   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println(" " + "!Warning: the command contain a no hexadecimal digit.");
    System.out.println("");
    gdbSendCommand("E01");
   }
@@ -1273,41 +1238,283 @@ public class Gdb
   gdbSendCommand("S" + Util.toHexString(status,2));
  }
 
+ // ----------------------------------------------
+ // methods used to perform the multi-session mode
+ // ----------------------------------------------
+
+ /**
+  * Serves the sessions of the multi-session mode. Waits by the GDB Client connections in the port and starts a session (thread) for
+  * each connection, while the maximum number of sessions are being served the new connections wait in the socket.
+  */
+ private final void sessions()
+ {
+  Gdb gdb;
+  
+  try
+  {
+   tab();
+   System.out.println(" " + "Waiting for connections (" + max_sessions + " sessions)...");
+   server_socket = ServerSocketChannel.open();
+   server_socket.socket().bind(new InetSocketAddress(port_number));
+   net_address = InetAddress.getLocalHost();
+   System.out.println(" " + " . hostname: " + net_address.getHostName());
+   System.out.println(" " + " . ip: " + net_address.getHostAddress());
+   System.out.println(" " + " . port: " + port_number);
+   for(;;)
+   {
+	waitSession();
+	gdb = new Gdb(systemconfig_file,port_number,debug,events,batch,replay_snapshots,replay_cycles,0);
+	gdb.server = this;
+	gdb.session_number = ++started_sessions;
+	gdb.channel = server_socket.accept();
+	new Thread(gdb,"gdb session " + gdb.session_number).start();
+   }
+  }
+  catch(UnknownHostException e) 
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: no IP address found.");
+   System.out.println("");
+   System.exit(0);
+  }
+  catch(IOException e) 
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: can't open the socket or I/O error.");
+   System.out.println("");
+   System.exit(0);
+  }
+ }
+
+ /**
+  * Performs a session of the multi-session mode, the session has its own system and worker thread and ends when the GDB Client
+  * terminates the connection.
+  */
+ public final void run()
+ {
+  char character;
+  
+  try
+  {
+   System.out.println(" " + "Session " + session_number + " connected.");
+   system = new SysteM(systemconfig_file,null,events,false);
+   system.setConsoleInput(false);
+   if(replay_snapshots > 0)
+	 system.setReplayLog(replay_snapshots,replay_cycles);
+   worker = new GdbWorker(system,batch);
+   worker.start();
+   packet = new GdbPacket(channel,debug);
+   character = (char)packet.read();
+   if(character == '+')
+	 gdbMonitor();
+   else
+   {
+	System.out.println("");
+	System.out.println(" " + "!Warning: bad response from the gdb client (session " + session_number + ").");
+	System.out.println("");
+   }
+  }
+  catch(SysteMException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " +  e.getMessage() + " (session " + session_number + ")");
+   System.out.println("");
+  }
+  catch(IOException e) 
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: I/O error (session " + session_number + ").");
+   System.out.println("");
+  }
+  finally
+  {
+   try
+   {
+	channel.close();
+   }
+   catch(IOException e)
+   {
+   }
+   if(worker != null)
+	 worker.interrupt();
+   System.out.println(" " + "Session " + session_number + " closed.");
+   server.endSession();
+  }
+ }
+
+ /**
+  * Waits until the number of sessions being served is lower than the maximum number of sessions and counts the new session.
+  */
+ private final synchronized void waitSession()
+ {
+  while(sessions >= max_sessions)
+  {
+   try
+   {
+	wait();
+   }
+   catch(InterruptedException e)
+   {
+	Thread.currentThread().interrupt();
+	return;
+   }
+  }
+  sessions++;
+ }
+
+ /**
+  * Ends a session, is called by the session thread when the GDB Client terminates the connection.
+  */
+ private final synchronized void endSession()
+ {
+  sessions--;
+  notifyAll();
+ }
+
  // -------------------
  // methods auxiliaries
  // -------------------
 
  /**
-  * Translates the binary data received in the command write memory with binary data to binary memory.
+  * Performs the simulation in the worker thread until the system stops. While the simulation is performed the socket is watched,
+  * if the GDB Client sends the break (0x03) the simulation is stopped at the end of the current batch of cycles.
   *
-  * @param command the binary data received.
-  * @return the binary memory translated.
+  * @return the system status, NORMAL if the simulation was stopped by the break.
+  * @throws SysteMException if the simulation threw an exception or error, or the worker thread died.
   */
- private final String commandBinaryMemory(String command)
+ private final int simulate() throws SysteMException
  {
-  StringBuffer binary = new StringBuffer();
-  int  command_length;
-  byte character;
-  int  aux;
-	
-  command_length = command.length();
-  for(aux = 0;aux < command_length;aux++)
-  {  
-   character = (byte)command.charAt(aux);
-   if(character == 0x7d || character == 0x23 || character == 0x24)
+  worker.continue_();
+  try
+  {
+   while(!worker.waitSimulation(POLL_TIME))
    {
-	do
+	if(!worker.isAlive())
+	  throw new SysteMException("the simulation worker thread died.");
+	if(packet.poll())
 	{
-	 aux++;
-	 character = (byte)command.charAt(aux);
+	 worker.breakSimulation();
+	 if(debug)
+	   System.out.println("<-: break");
 	}
-	while(character == 0x7d || character == 0x23 || character == 0x24);
-    binary.append((char)(0x20 ^ character));
    }
-   else
-     binary.append((char)character);
   }
-  return binary.toString();	 
+  catch(IOException e)
+  {
+   worker.breakSimulation();
+   while(!worker.waitSimulation(POLL_TIME));
+   System.out.println("");
+   System.out.println(" " + "!Warning: the gdb client terminated the connection or I/O error.");
+   System.out.println("");
+   gdbConnect();
+  }
+  if(worker.getFailure() != null)
+	throw new SysteMException("the simulation failed, " + worker.getFailure() + ".");
+  return worker.getStatus();
+ }
+
+ /**
+  * Returns the type of the insert or remove breakpoint command.
+  *
+  * @param command the command received.
+  * @return the type, 0 - software breakpoint, 1 - hardware breakpoint, 2 - write watchpoint, 3 - read watchpoint, 4 - access watchpoint,
+  * -1 if the type isn't supported.
+  */
+ private final int breakType(String command)
+ {
+  if(command.length() < 3 || command.charAt(2) != ',' || command.charAt(1) < '0' || command.charAt(1) > '4')
+	return -1;
+  return command.charAt(1) - '0';
+ }
+ 
+ /**
+  * Returns the watchpoint kind of the memory of the watchpoint type of the insert or remove breakpoint command.
+  *
+  * @param type the type, 2 - write watchpoint, 3 - read watchpoint, 4 - access watchpoint.
+  * @return the watchpoint kind of the memory.
+  */
+ private final int watchKind(int type)
+ {
+  switch(type)
+  {
+   case 2: return Memory.WATCH_WRITE;
+   case 3: return Memory.WATCH_READ;
+   default:return Memory.WATCH_ACCESS;
+  }
+ }
+ 
+ /**
+  * Returns the stop reply of the watchpoint hit, with the signal 5 (trap), the watchpoint kind and the memory address of the access.
+  *
+  * @return the stop reply.
+  */
+ private final String watchReply()
+ {
+  String kind;
+  
+  switch(system.getMemoryClass().getWatch_kind())
+  {
+   case Memory.WATCH_WRITE: kind = "watch";
+                            break;
+   case Memory.WATCH_READ:  kind = "rwatch";
+                            break;
+   default:kind = "awatch";
+  }
+  return "T05" + kind + ":" + Util.toHexString(system.getMemoryClass().getWatch_address(),8) + ";";
+ }
+ 
+ /**
+  * Reads the hexadecimal number of the command until the separator, the position of the buffer moves after the separator.
+  *
+  * @param command the command received.
+  * @param separator the character after the number.
+  * @return the number, -1 if the separator isn't found or the number doesn't have 1 to 8 digits.
+  * @throws NumberFormatException if the number contains a no hexadecimal digit.
+  */
+ private final long getHex(ByteBuffer command,int separator)
+ {
+  long value;
+  int character;
+  int digits;
+  int digit;
+  
+  value = 0;
+  for(digits = 0;command.hasRemaining();digits++)
+  {
+   character = command.get() & 0xff;
+   if(character == separator)
+	 return digits >= 1 && digits <= 8 ? value : -1;
+   digit = GdbPacket.hexToInt(character);
+   if(digit < 0)
+	 throw new NumberFormatException();
+   value = (value << 4) | digit;
+  }
+  return -1;
+ }
+ 
+ /**
+  * Reads the number of hexadecimal digits given by the parameter digits from the command.
+  *
+  * @param command the command received.
+  * @param digits the number of hexadecimal digits.
+  * @return the number.
+  * @throws NumberFormatException if the number contains a no hexadecimal digit.
+  */
+ private final long getHexDigits(ByteBuffer command,int digits)
+ {
+  long value;
+  int digit;
+  int aux;
+  
+  value = 0;
+  for(aux = 0;aux < digits;aux++)
+  {
+   digit = GdbPacket.hexToInt(command.get() & 0xff);
+   if(digit < 0)
+	 throw new NumberFormatException();
+   value = (value << 4) | digit;
+  }
+  return value;
  }
  
  /**
@@ -1354,19 +1561,6 @@ public class Gdb
   return 0;	 
  }
 
- /**
-  * Converts integer to hexadecimal ascii char.
-  *
-  * @param hex_value_number the integer to be converted.
-  * @return the char converted.
-  */
- private final char intToHexASCIIChar(int hex_value_number)
- {
-  String aux = "0123456789abcdef";
-  
-  return aux.charAt(hex_value_number);
- }
- 
  /**
   * Displays one line on the screen. Is used to separate contents.
   */
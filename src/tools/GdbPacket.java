@@ -0,0 +1,385 @@
+package tools;
+
+import java.nio.channels.*;
+import java.nio.*;
+import java.io.*;
+
+/**
+ * The GDB Remote Serial Protocol packet class. This class encodes and decodes the packets exchanged with the GDB Client over a socket
+ * channel, the bytes are read and written in blocks through byte buffers. The received packet is returned in a byte buffer, so the binary
+ * data of the X command is decoded without strings. The replies can be run-length encoded and the acknowledgments are dropped after
+ * the QStartNoAckMode command.
+ */
+public final class GdbPacket
+{
+ /** The maximum size of the packets received (bytes), announced to the GDB Client in the reply to qSupported. */
+ public static final int PACKET_SIZE = 0x10000;
+ /** The number of times a packet is sent while the GDB Client doesn't acknowledge it. */
+ private static final int RETRIES = 10;
+ /** The maximum number of repetitions of a run-length encoded character (the count character must be printable). */
+ private static final int MAXIMUM_REPEAT = 126 - 29;
+ /** The break character sent by the GDB Client to interrupt the simulation (Ctrl-C). */
+ private static final int BREAK = 0x03;
+ /** The hexadecimal digits. */
+ private static final byte[] HEX = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d','e','f'};
+ /** The socket channel connected to the GDB Client. */
+ private SocketChannel channel;
+ /** The input buffer, the bytes received but still not decoded. */
+ private ByteBuffer input;
+ /** The output buffer, the packet being sent. */
+ private ByteBuffer output;
+ /** The payload of the packet received. */
+ private ByteBuffer payload;
+ /** The no acknowledgment flag, true after the QStartNoAckMode command. */
+ private boolean no_ack;
+ /** The debug flag.<p>
+  * false - doesn't display the GDB Protocol communication.<br>
+  * true - displays the GDB Protocol communication.
+  */
+ private boolean debug;
+
+ /**
+  * Instantiates a new GDB packet codec over the socket channel, the channel is used in the blocking mode.
+  *
+  * @param channel the socket channel connected to the GDB Client.
+  * @param debug the debug flag.<p>
+  * false - doesn't display the GDB Protocol communication.<br>
+  * true - displays the GDB Protocol communication.
+  * @throws IOException if the socket channel can't be configured.
+  */
+ public GdbPacket(SocketChannel channel,boolean debug) throws IOException
+ {
+  this.channel = channel;
+  this.debug = debug;
+  channel.configureBlocking(true);
+  channel.socket().setTcpNoDelay(true);
+  input = ByteBuffer.allocate(PACKET_SIZE + 4);
+  input.flip();
+  output = ByteBuffer.allocate(PACKET_SIZE + 4);
+  payload = ByteBuffer.allocate(PACKET_SIZE);
+ }
+
+ // ----------------------------------------
+ // methods used to receive and send packets
+ // ----------------------------------------
+
+ /**
+  * Reads the next byte sent by the GDB Client, waits if no byte was received.
+  *
+  * @return the byte read.
+  * @throws IOException if the GDB Client terminated the connection or I/O error.
+  */
+ public final int read() throws IOException
+ {
+  while(!input.hasRemaining())
+  {
+   input.clear();
+   if(channel.read(input) < 0)
+   {
+	input.flip();
+	throw new EOFException();
+   }
+   input.flip();
+  }
+  return input.get() & 0xff;
+ }
+
+ /**
+  * Receives the next packet from the GDB Client. The bytes before the packet start ('$') are ignored, the checksum of the packet
+  * is checked and the acknowledgment is sent (if the acknowledgments weren't dropped), the packet is received again while the checksum is wrong.
+  *
+  * @return the payload of the packet, between the position 0 and the limit. The buffer is reused by the next packet.
+  * @throws IOException if the GDB Client terminated the connection or I/O error.
+  */
+ public final ByteBuffer receive() throws IOException
+ {
+  ByteBuffer buffer;
+  int received_checksum_one;
+  int received_checksum_two;
+  int checksum;
+  int character;
+
+  for(;;)
+  {
+   do
+	 character = read();
+   while(character != '$');
+   payload.clear();
+   checksum = 0;
+   for(;;)
+   {
+	character = read();
+	if(character == '#')
+	  break;
+	checksum = checksum + character;
+	if(!payload.hasRemaining())
+	{
+	 buffer = ByteBuffer.allocate(payload.capacity() * 2);
+	 payload.flip();
+	 buffer.put(payload);
+	 payload = buffer;
+	}
+	payload.put((byte)character);
+   }
+   received_checksum_one = read();
+   received_checksum_two = read();
+   payload.flip();
+
+   if(debug)
+   {
+	if(payload.limit() > 0 && payload.get(0) == 'X')
+	  System.out.print("<-: $" + toString(payload,0,indexOf(payload,0,':') + 1) + "#" + (char)received_checksum_one + (char)received_checksum_two + "...");
+	else
+	  System.out.print("<-: $" + toString(payload,0,payload.limit()) + "#" + (char)received_checksum_one + (char)received_checksum_two + "...");
+   }
+
+   if(no_ack)
+   {
+	if(debug)
+	  System.out.print("\n");
+	return payload;
+   }
+   if((checksum & 0xff) == ((hexToInt(received_checksum_one) << 4) | hexToInt(received_checksum_two)))
+   {
+	acknowledge('+');
+	if(debug)
+	  System.out.print("Ack\n");
+	return payload;
+   }
+   acknowledge('-');
+   if(debug)
+	 System.out.print("nAck\n");
+  }
+ }
+
+ /**
+  * Sends the packet to the GDB Client and waits for the acknowledgment (if the acknowledgments weren't dropped), the packet is sent again
+  * while the GDB Client doesn't acknowledge it.
+  *
+  * @param data the payload of the packet.
+  * @param encode the run-length encoding flag, true to encode the repeated characters of the payload.
+  * @throws IOException if the GDB Client terminated the connection or I/O error.
+  */
+ public final void send(CharSequence data,boolean encode) throws IOException
+ {
+  int try_to_send;
+  int character;
+  int checksum;
+  int repeat;
+  int length;
+  int aux;
+
+  length = data.length();
+  if(output.capacity() < length + 4)
+	output = ByteBuffer.allocate(length + 4);
+  output.clear();
+  output.put((byte)'$');
+  checksum = 0;
+  for(aux = 0;aux < length;aux = aux + repeat + 1)
+  {
+   character = data.charAt(aux) & 0xff;
+   output.put((byte)character);
+   checksum = checksum + character;
+   repeat = 0;
+   if(encode)
+   {
+	while(aux + repeat + 1 < length && repeat < MAXIMUM_REPEAT && data.charAt(aux + repeat + 1) == character)
+	  repeat++;
+	if(repeat == 6 || repeat == 7) // the count characters '#' and '$' can't be used
+	  repeat = 5;
+	if(repeat < 3)
+	  repeat = 0;
+	else
+	{
+	 output.put((byte)'*');
+	 output.put((byte)(repeat + 29));
+	 checksum = checksum + '*' + repeat + 29;
+	}
+   }
+  }
+  output.put((byte)'#');
+  output.put(HEX[(checksum >> 4) & 0xf]);
+  output.put(HEX[checksum & 0xf]);
+  output.flip();
+
+  for(try_to_send = 0;try_to_send < RETRIES;try_to_send++)
+  {
+   output.rewind();
+   while(output.hasRemaining())
+	 channel.write(output);
+   if(debug)
+   {
+	output.rewind();
+	System.out.print("->: " + toString(output,0,output.limit()) + "...");
+   }
+   if(no_ack)
+   {
+	if(debug)
+	  System.out.print("\n");
+	return;
+   }
+   do
+	 character = read();
+   while(character != '+' && character != '-');
+   if(character == '+')
+   {
+	if(debug)
+	  System.out.print("Ack\n");
+	return;
+   }
+   if(debug)
+	 System.out.print("nAck\n");
+  }
+ }
+
+ /**
+  * Checks the bytes received while the simulation is performed, without waiting. The break characters are removed from the input buffer.
+  *
+  * @return true if the GDB Client sent the break (0x03).
+  * @throws IOException if the GDB Client terminated the connection or I/O error.
+  */
+ public final boolean poll() throws IOException
+ {
+  boolean break_received;
+  int length;
+  int aux;
+
+  input.compact();
+  channel.configureBlocking(false);
+  try
+  {
+   length = channel.read(input);
+  }
+  finally
+  {
+   input.flip();
+   channel.configureBlocking(true);
+  }
+  if(length < 0)
+	throw new EOFException();
+  break_received = false;
+  length = input.position();
+  for(aux = input.position();aux < input.limit();aux++)
+  {
+   if(input.get(aux) == BREAK)
+	 break_received = true;
+   else
+   {
+	input.put(length,input.get(aux));
+	length++;
+   }
+  }
+  input.limit(length);
+  return break_received;
+ }
+
+ /**
+  * Drops the acknowledgments of the packets, is called after the reply to the QStartNoAckMode command.
+  */
+ public final void startNoAckMode()
+ {
+  no_ack = true;
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Decodes the escaped bytes of the binary data ('}' followed by the byte xor 0x20), between the position and the limit of the buffer.
+  * The data is decoded in place and the limit of the buffer is moved to the end of the decoded data.
+  *
+  * @param data the binary data.
+  * @return the number of bytes decoded.
+  */
+ public static final int unescape(ByteBuffer data)
+ {
+  int length;
+  int aux;
+
+  length = data.position();
+  for(aux = data.position();aux < data.limit();aux++)
+  {
+   if(data.get(aux) == 0x7d && aux + 1 < data.limit())
+   {
+	aux++;
+	data.put(length,(byte)(data.get(aux) ^ 0x20));
+   }
+   else
+	 data.put(length,data.get(aux));
+   length++;
+  }
+  data.limit(length);
+  return data.remaining();
+ }
+
+ /**
+  * Converts the bytes of the buffer to a string (one character per byte).
+  *
+  * @param buffer the buffer.
+  * @param begin the index of the first byte.
+  * @param end the index after the last byte.
+  * @return the string.
+  */
+ public static final String toString(ByteBuffer buffer,int begin,int end)
+ {
+  StringBuilder string = new StringBuilder(Math.max(end - begin,0));
+  int aux;
+
+  for(aux = begin;aux < end;aux++)
+	string.append((char)(buffer.get(aux) & 0xff));
+  return string.toString();
+ }
+
+ /**
+  * Returns the index of the first occurrence of the character in the buffer, from the index given by the parameter begin.
+  *
+  * @param buffer the buffer.
+  * @param begin the index where the search starts.
+  * @param character the character.
+  * @return the index of the character, the limit of the buffer if the character doesn't occur.
+  */
+ private static final int indexOf(ByteBuffer buffer,int begin,int character)
+ {
+  int aux;
+
+  for(aux = begin;aux < buffer.limit();aux++)
+	if(buffer.get(aux) == character)
+	  return aux;
+  return buffer.limit();
+ }
+
+ /**
+  * Converts the hexadecimal ascii character to integer.
+  *
+  * @param character the hexadecimal ascii character.
+  * @return the integer value, -1 if the character isn't a hexadecimal digit.
+  */
+ public static final int hexToInt(int character)
+ {
+  if(character >= '0' && character <= '9')
+	return character - '0';
+  if(character >= 'a' && character <= 'f')
+	return character - 'a' + 10;
+  if(character >= 'A' && character <= 'F')
+	return character - 'A' + 10;
+  return -1;
+ }
+
+ /**
+  * Sends the acknowledgment of the packet received.
+  *
+  * @param character the acknowledgment, '+' if the packet was received or '-' to receive it again.
+  * @throws IOException if the GDB Client terminated the connection or I/O error.
+  */
+ private final void acknowledge(int character) throws IOException
+ {
+  ByteBuffer ack;
+
+  ack = ByteBuffer.allocate(1);
+  ack.put((byte)character);
+  ack.flip();
+  while(ack.hasRemaining())
+	channel.write(ack);
+ }
+}
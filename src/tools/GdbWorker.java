@@ -0,0 +1,162 @@
+package tools;
+
+import system.*;
+
+/**
+ * The GDB server worker class. This thread performs the continue command of the GDB server, the simulation is performed in batches of
+ * cycles and between them the break flag is checked. The socket thread waits for the end of the simulation watching the socket, when the
+ * GDB client sends the break (0x03) the socket thread sets the break flag and the simulation stops at the end of the batch.
+ * An unchecked exception or error thrown by the simulation (cpu, memory, devices or jit) ends the simulation, it is kept for the socket thread
+ * and the worker waits for the next continue command.
+ */
+public final class GdbWorker extends Thread
+{
+ /** The system. */
+ private SysteM system;
+ /** The number of cycles of each batch. */
+ private long batch;
+ /** The break flag, set by the socket thread when the GDB client sends the break. */
+ private volatile boolean break_flag;
+ /** The running flag, true while the simulation is performed. */
+ private boolean running;
+ /** The system status at the end of the simulation. */
+ private int status;
+ /** The exception or error thrown by the last simulation, null if the simulation ended normally. */
+ private Throwable failure;
+
+ /**
+  * Instantiates a new GDB server worker. The thread is a daemon, it doesn't prevent the exit of the development tools.
+  *
+  * @param system the system.
+  * @param batch the number of cycles of each batch.
+  */
+ public GdbWorker(SysteM system,long batch)
+ {
+  super("gdb worker");
+  this.system = system;
+  this.batch = batch;
+  setDaemon(true);
+ }
+
+ // ---------------------------------
+ // methods used by the socket thread
+ // ---------------------------------
+
+ /**
+  * Starts the simulation until the system stops or the break flag is set.
+  */
+ public final synchronized void continue_()
+ {
+  break_flag = false;
+  running = true;
+  notifyAll();
+ }
+
+ /**
+  * Sets the break flag, the simulation stops at the end of the current batch.
+  */
+ public final void breakSimulation()
+ {
+  break_flag = true;
+ }
+
+ /**
+  * Waits for the end of the simulation during the time given by the parameter timeout.
+  *
+  * @param timeout the maximum time to wait (milliseconds).
+  * @return true if the simulation ended.
+  */
+ public final synchronized boolean waitSimulation(long timeout)
+ {
+  try
+  {
+   if(running)
+	 wait(timeout);
+  }
+  catch(InterruptedException e)
+  {
+   Thread.currentThread().interrupt();
+  }
+  return !running;
+ }
+
+ /**
+  * Returns the system status at the end of the simulation, NORMAL if the simulation was stopped by the break flag.
+  *
+  * @return the system status.
+  */
+ public final synchronized int getStatus()
+ {
+  return status;
+ }
+ 
+ /**
+  * Returns the exception or error thrown by the last simulation.
+  *
+  * @return the exception or error, null if the simulation ended normally.
+  */
+ public final synchronized Throwable getFailure()
+ {
+  return failure;
+ }
+
+ // --------------------------------
+ // method used by the worker thread
+ // --------------------------------
+
+ /**
+  * Waits for the continue command and performs the simulation in batches of cycles, until the system stops or the break flag is set.
+  * The end of the simulation is always notified, also when the simulation throws an exception or error.
+  *
+  * @see java.lang.Thread#run()
+  */
+ public final void run()
+ {
+  Throwable sys_failure;
+  int sys_status;
+
+  for(;;)
+  {
+   synchronized(this)
+   {
+	while(!running)
+	{
+	 try
+	 {
+	  wait();
+	 }
+	 catch(InterruptedException e)
+	 {
+	  return;
+	 }
+	}
+   }
+   sys_status = Sys_Status.NORMAL;
+   sys_failure = null;
+   try
+   {
+	do
+	  sys_status = system.continue_(batch);
+	while(sys_status == Sys_Status.NORMAL && !break_flag);
+   }
+   catch(RuntimeException e)
+   {
+	sys_failure = e;
+   }
+   catch(Error e)
+   {
+	sys_failure = e;
+   }
+   finally
+   {
+	synchronized(this)
+	{
+	 status = sys_status;
+	 failure = sys_failure;
+	 running = false;
+	 notifyAll();
+	}
+   }
+  }
+ }
+}
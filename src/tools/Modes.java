@@ -25,7 +25,31 @@ public class Modes
   String binary_file = null;
   String trace_file = null;
   String port_number = null;
+  String batch_cycles = null;
+  String replay_snapshots = null;
+  String replay_cycles = null;
+  String max_sessions = null;
+  String engine = null;
+  String warmup = null;
+  String checkpoint_file = null;
+  String restore_file = null;
+  String callgrind_file = null;
+  String folded_file = null;
+  String hotspot_file = null;
+  String hotspot_lines = null;
+  String branch_file = null;
+  String json_file = null;
+  String coverage_file = null;
+  String coverage_data_file = null;
+  String coverage_merge = null;
+  String sample_period = null;
+  String sample_jitter = null;
   boolean events = false;
+  boolean trace_binary = false;
+  boolean trace_compressed = false;
+  String trace_start = null;
+  String trace_stop = null;
+  String trace_ranges = null;
   boolean debug = false;
   boolean devices_debug = false;
   boolean system_debug = false;
@@ -78,7 +102,7 @@ public class Modes
    }
    else if(args[0].equals("-sim"))
    {
-    if(args.length >=2 && args.length <= 5)
+    if(args.length >=2 && args.length <= 13)
     {
      for(aux = 1;aux < args.length;aux++)
      {
@@ -88,6 +112,30 @@ public class Modes
        arguments = arguments + 2;
        aux++;
       }
+      else if(args[aux].equals("--engm") && engine == null)
+      {
+       engine = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--ckptf") && checkpoint_file == null)
+      {
+       checkpoint_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--rstrf") && restore_file == null)
+      {
+       restore_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--wupu") && warmup == null)
+      {
+       warmup = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
       else if(args[aux].equals("--eventv") && events == false)
       {
        events = true;
@@ -102,7 +150,7 @@ public class Modes
     } 
     
     if(args.length == arguments && binary_file != null)
-      sim(systemconfig_file,binary_file,events);
+      sim(systemconfig_file,binary_file,engine,warmup,checkpoint_file,restore_file,events);
      
    }
    else if(args[0].equals("-gdb"))
@@ -121,6 +169,30 @@ public class Modes
       aux++;
       arguments = arguments + 2;
      }
+     else if(args[aux].equals("--batchc") && batch_cycles == null)
+     {
+      batch_cycles = args[aux + 1];
+      aux++;
+      arguments = arguments + 2;
+     }
+     else if(args[aux].equals("--rvsn") && replay_snapshots == null)
+     {
+      replay_snapshots = args[aux + 1];
+      aux++;
+      arguments = arguments + 2;
+     }
+     else if(args[aux].equals("--rvsc") && replay_cycles == null)
+     {
+      replay_cycles = args[aux + 1];
+      aux++;
+      arguments = arguments + 2;
+     }
+     else if(args[aux].equals("--sessc") && max_sessions == null)
+     {
+      max_sessions = args[aux + 1];
+      aux++;
+      arguments = arguments + 2;
+     }
      else if(args[aux].equals("--eventv") && events == false)
      {
       events = true;
@@ -134,12 +206,12 @@ public class Modes
     }
     
     if(args.length == arguments)
-      gdb(systemconfig_file,port_number,debug,events);
+      gdb(systemconfig_file,port_number,batch_cycles,replay_snapshots,replay_cycles,max_sessions,debug,events);
     
    }
    else if(args[0].equals("-prf"))
    {
-    if(args.length >= 2 && args.length <= 8)
+    if(args.length >= 2 && args.length <= 26)
     {
      for(aux = 1;aux < args.length;aux++)
      {
@@ -155,6 +227,60 @@ public class Modes
        arguments = arguments + 2;
        aux++;
       }
+      else if(args[aux].equals("--wupu") && warmup == null)
+      {
+       warmup = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--cgf") && callgrind_file == null)
+      {
+       callgrind_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--fldf") && folded_file == null)
+      {
+       folded_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--hsf") && hotspot_file == null)
+      {
+       hotspot_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--hsn") && hotspot_lines == null)
+      {
+       hotspot_lines = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--brf") && branch_file == null)
+      {
+       branch_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--jsonf") && json_file == null)
+      {
+       json_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--smp") && sample_period == null)
+      {
+       sample_period = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--smpj") && sample_jitter == null)
+      {
+       sample_jitter = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
       else if(binary_file == null)
       {
  	   binary_file = args[aux];
@@ -164,12 +290,12 @@ public class Modes
     }
      
     if(args.length == arguments && binary_file != null)
-      prf(systemconfig_file,profile_file,binary_file);
+      prf(systemconfig_file,profile_file,binary_file,warmup,callgrind_file,folded_file,hotspot_file,hotspot_lines,branch_file,json_file,sample_period,sample_jitter);
  
    }
    else if(args[0].equals("-trc"))
    {
-    if(args.length >= 2 && args.length <= 8)
+    if(args.length >= 2 && args.length <= 18)
     {
      for(aux = 1;aux < args.length;aux++)
      {
@@ -185,6 +311,40 @@ public class Modes
        arguments = arguments + 2;
        aux++;
       }
+      else if(args[aux].equals("--wupu") && warmup == null)
+      {
+       warmup = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--trcb") && trace_binary == false)
+      {
+       trace_binary = true;
+       arguments++;
+      }
+      else if(args[aux].equals("--trcz") && trace_compressed == false)
+      {
+       trace_compressed = true;
+       arguments++;
+      }
+      else if(args[aux].equals("--trcs") && trace_start == null)
+      {
+       trace_start = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--trce") && trace_stop == null)
+      {
+       trace_stop = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--trcr") && trace_ranges == null)
+      {
+       trace_ranges = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
       else if(binary_file == null)
       {
  	   binary_file = args[aux];
@@ -194,7 +354,79 @@ public class Modes
     }
      
     if(args.length == arguments && binary_file != null)
-      trc(systemconfig_file,trace_file,binary_file);
+      trc(systemconfig_file,trace_file,binary_file,warmup,trace_binary,trace_compressed,trace_start,trace_stop,trace_ranges);
+ 
+   }
+   else if(args[0].equals("-trcdump"))
+   {
+    if(args.length >= 2 && args.length <= 6)
+    {
+     for(aux = 1;aux < args.length;aux++)
+     {
+      if(args[aux].equals("--syscf") && systemconfig_file == null)
+      {
+       systemconfig_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--trcf") && trace_file == null)
+      {
+       trace_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(binary_file == null)
+      {
+ 	   binary_file = args[aux];
+ 	   arguments++;
+      }
+ 	 }     
+    }
+     
+    if(args.length == arguments && binary_file != null)
+      trcdump(systemconfig_file,trace_file,binary_file);
+ 
+   }
+   else if(args[0].equals("-cov"))
+   {
+    if(args.length >= 2 && args.length <= 10)
+    {
+     for(aux = 1;aux < args.length;aux++)
+     {
+      if(args[aux].equals("--syscf") && systemconfig_file == null)
+      {
+       systemconfig_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--covf") && coverage_file == null)
+      {
+       coverage_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--covd") && coverage_data_file == null)
+      {
+       coverage_data_file = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(args[aux].equals("--covm") && coverage_merge == null)
+      {
+       coverage_merge = args[aux + 1];
+       arguments = arguments + 2;
+       aux++;
+      }
+      else if(binary_file == null)
+      {
+ 	   binary_file = args[aux];
+ 	   arguments++;
+      }
+ 	 }     
+    }
+     
+    if(args.length == arguments && binary_file != null)
+      cov(systemconfig_file,coverage_file,binary_file,coverage_data_file,coverage_merge);
  
    }
    else if(args[0].equals("-elf"))
@@ -331,11 +563,15 @@ public class Modes
   *
   * @param systemconfig_file the XML system configuration file (path and name).
   * @param binary_file the binary file to be simulated (path and name).
+  * @param engine the simulation engine of the cpu (cycle, block or jit), null to use the cycle engine.
+  * @param warmup the warmup condition (memory address, number of instructions or function name), null if the simulation is all cycle accurate.
+  * @param checkpoint_file the checkpoint file where the state of the simulation is saved after the warmup, null if the checkpoint isn't saved.
+  * @param restore_file the checkpoint file where the simulation starts, null if the simulation starts in the reset state.
   * @param events the cpu events flag.<p>
   * false - doesn't notify if any cpu events occur.<br>
   * true - notify if any cpu events occur.
   */
- private static void sim(String systemconfig_file,String binary_file,boolean events)
+ private static void sim(String systemconfig_file,String binary_file,String engine,String warmup,String checkpoint_file,String restore_file,boolean events)
  { 
   Sim sim;
   
@@ -345,7 +581,15 @@ public class Modes
   System.out.println("Simulator mode:");
   if(systemconfig_file == null)
 	systemconfig_file = Configuration.systemconfig_file_default_full_path;
-  sim = new Sim(systemconfig_file,binary_file,events);
+  if(engine == null)
+	engine = "cycle";
+  if(warmup != null && restore_file != null)
+  {
+   System.out.println(" " + "!Warning: the warmup can't be performed after the restore of a checkpoint.");
+   System.out.println("");
+   System.exit(0);
+  }
+  sim = new Sim(systemconfig_file,binary_file,engine,warmup,checkpoint_file,restore_file,events);
   sim.main();
  }
 
@@ -354,15 +598,23 @@ public class Modes
   *
   * @param systemconfig_file the XML system configuration file (path and name).
   * @param port_number the port_number
+  * @param batch_cycles the number of cycles simulated between two checks of the break from the GDB client, null to use the default.
+  * @param replay_snapshots the maximum number of snapshots of the reverse execution (0 disables it), null to use the default.
+  * @param replay_cycles the minimum number of cycles between two snapshots of the reverse execution, null to use the default.
+  * @param max_sessions the maximum number of GDB clients served at the same time (multi-session mode), null to serve one GDB client at a time.
   * @param debug the debug flag.
   * @param events the cpu events flag.<p>
   * false - doesn't notify if any cpu events occur.<br>
   * true - notify if any cpu events occur.x
   */
- private static void gdb(String systemconfig_file,String port_number,boolean debug,boolean events)
+ private static void gdb(String systemconfig_file,String port_number,String batch_cycles,String replay_snapshots,String replay_cycles,String max_sessions,boolean debug,boolean events)
  {
   Gdb gdb;
   int port = Configuration.port_number_default;
+  long batch = Configuration.gdb_batch_default;
+  int snapshots = Configuration.replay_snapshots_default;
+  long interval = Configuration.replay_cycles_default;
+  int sessions = 0;
   
   System.out.println(Configuration.program_name + " " + Configuration.version  + " (" + Configuration.command + ") [" + Configuration.date + "]");
   System.out.println("by " + Configuration.name + " (email: " + Configuration.email + ")");
@@ -387,9 +639,77 @@ public class Modes
     System.exit(0);
    }
   }
+  if(batch_cycles != null)
+  {
+   try
+   {
+	batch = Long.parseLong(batch_cycles);
+   }
+   catch(NumberFormatException e)
+   {
+	batch = 0;
+   }
+   if(batch < 1)
+   {
+	System.out.println(" " + "!Warning: the number of batch cycles <" + batch_cycles + "> isn't valid.");
+	System.out.println("");
+	System.exit(0);
+   }
+  }
+  if(replay_snapshots != null)
+  {
+   try
+   {
+	snapshots = Integer.parseInt(replay_snapshots);
+   }
+   catch(NumberFormatException e)
+   {
+	snapshots = -1;
+   }
+   if(snapshots < 0)
+   {
+	System.out.println(" " + "!Warning: the number of snapshots <" + replay_snapshots + "> isn't valid.");
+	System.out.println("");
+	System.exit(0);
+   }
+  }
+  if(replay_cycles != null)
+  {
+   try
+   {
+	interval = Long.parseLong(replay_cycles);
+   }
+   catch(NumberFormatException e)
+   {
+	interval = 0;
+   }
+   if(interval < 1)
+   {
+	System.out.println(" " + "!Warning: the number of cycles between snapshots <" + replay_cycles + "> isn't valid.");
+	System.out.println("");
+	System.exit(0);
+   }
+  }
+  if(max_sessions != null)
+  {
+   try
+   {
+	sessions = Integer.parseInt(max_sessions);
+   }
+   catch(NumberFormatException e)
+   {
+	sessions = 0;
+   }
+   if(sessions < 1)
+   {
+	System.out.println(" " + "!Warning: the number of sessions <" + max_sessions + "> isn't valid.");
+	System.out.println("");
+	System.exit(0);
+   }
+  }
   if(systemconfig_file == null)
 	systemconfig_file = Configuration.systemconfig_file_default_full_path;
-  gdb = new Gdb(systemconfig_file,port,debug,events);
+  gdb = new Gdb(systemconfig_file,port,debug,events,batch,snapshots,interval,sessions);
   gdb.main();
  }
   
@@ -399,11 +719,23 @@ public class Modes
   * @param systemconfig_file the XML system configuration file (path and name).
   * @param profile_file the profiler (performance analysis) file (path and name). Where the profile results of the simulation will be saved.
   * @param binary_file the binary file to be simulated (path and name).
+  * @param warmup the warmup condition (memory address, number of instructions or function name), null if the simulation is all cycle accurate.
+  * @param callgrind_file the callgrind file (path and name). Where the call graph will be saved, null if isn't saved.
+  * @param folded_file the folded stacks file (path and name). Where the call stacks will be saved, null if aren't saved.
+  * @param hotspot_file the hot spot file (path and name). Where the hottest source lines and instructions will be saved, null if aren't saved.
+  * @param hotspot_lines the number of lines and instructions in the hottest lists, null to use the default.
+  * @param branch_file the branch file (path and name). Where the statistics of each branch site will be saved, null if aren't saved.
+  * @param json_file the JSON summary file (path and name). Where the performance and the memory stalls will be saved, null if isn't saved.
+  * @param sample_period the number of cycles between two samples of the sampling profiler, null if the profile is performed instruction by instruction.
+  * @param sample_jitter the maximum random change of the period of the sampling profiler, null to use the default.
   */
- private static void prf(String systemconfig_file,String profile_file,String binary_file)
+ private static void prf(String systemconfig_file,String profile_file,String binary_file,String warmup,String callgrind_file,String folded_file,String hotspot_file,String hotspot_lines,String branch_file,String json_file,String sample_period,String sample_jitter)
  {
   File file;
   Prf prf;
+  long period;
+  long jitter;
+  int lines;
 
   System.out.println(Configuration.program_name + " " + Configuration.version  + " (" + Configuration.command + ") [" + Configuration.date + "]");
   System.out.println("by " + Configuration.name + " (email: " + Configuration.email + ")");
@@ -432,7 +764,69 @@ public class Modes
 	System.exit(0);   
    }
   }
-  prf = new Prf(systemconfig_file,profile_file,binary_file);
+  lines = Configuration.hotspot_lines_default;
+  if(hotspot_lines != null)
+  {
+   try
+   {
+	lines = Integer.parseInt(hotspot_lines);
+   }
+   catch(NumberFormatException e)
+   {
+	lines = 0;
+   }
+   if(lines < 1)
+   {
+	System.out.println(" !Warning: the number of hot spot lines <" + hotspot_lines + "> isn't valid");
+	System.exit(0);
+   }
+  }
+  period = 0;
+  jitter = 0;
+  if(sample_period != null)
+  {
+   try
+   {
+	period = Long.parseLong(sample_period);
+   }
+   catch(NumberFormatException e)
+   {
+	period = 0;
+   }
+   if(period < 1)
+   {
+	System.out.println(" !Warning: the sampling period <" + sample_period + "> isn't valid");
+	System.exit(0);
+   }
+   if(callgrind_file != null || folded_file != null || hotspot_file != null || branch_file != null || json_file != null)
+   {
+	System.out.println(" !Warning: the sampling profiler doesn't save the call graph, the hot spots, the branches or the summary");
+	System.exit(0);
+   }
+   jitter = period / Configuration.sample_jitter_divisor_default;
+   if(sample_jitter != null)
+   {
+	try
+	{
+	 jitter = Long.parseLong(sample_jitter);
+	}
+	catch(NumberFormatException e)
+	{
+	 jitter = -1;
+	}
+	if(jitter < 0 || jitter >= period)
+	{
+	 System.out.println(" !Warning: the sampling jitter <" + sample_jitter + "> isn't valid");
+	 System.exit(0);
+	}
+   }
+  }
+  else if(sample_jitter != null)
+  {
+   System.out.println(" !Warning: the sampling jitter needs the sampling period");
+   System.exit(0);
+  }
+  prf = new Prf(systemconfig_file,profile_file,binary_file,warmup,callgrind_file,folded_file,hotspot_file,lines,branch_file,json_file,period,jitter);
   prf.main();
  }
  
@@ -442,8 +836,18 @@ public class Modes
   * @param systemconfig_file the XML system configuration file (path and name).
   * @param trace_file the instruction trace file (path and name). Where the results of the instruction trace simulation will be saved.
   * @param binary_file the binary file to be simulated (path and name).
+  * @param warmup the warmup condition (memory address, number of instructions or function name), null if the simulation is all cycle accurate.
+  * @param trace_binary the binary trace flag.<p>
+  * false - the trace is saved in the text format.<br>
+  * true - the trace is saved in the binary format.
+  * @param trace_compressed the compressed trace flag.<p>
+  * false - the binary trace records are saved with the fixed width.<br>
+  * true - the binary trace records are delta encoded and compressed.
+  * @param trace_start the start condition of the trace, null if the trace starts in the first instruction.
+  * @param trace_stop the stop condition of the trace, null if the trace ends in the last instruction.
+  * @param trace_ranges the list of address ranges and function names of the saved instructions, null if all the instructions are saved.
   */
- private static void trc(String systemconfig_file,String trace_file,String binary_file)
+ private static void trc(String systemconfig_file,String trace_file,String binary_file,String warmup,boolean trace_binary,boolean trace_compressed,String trace_start,String trace_stop,String trace_ranges)
  {
   File file;
   Trc trc;
@@ -455,7 +859,7 @@ public class Modes
   if(systemconfig_file == null)
 	systemconfig_file = Configuration.systemconfig_file_default_full_path;  
   if(trace_file == null)
-	trace_file = Configuration.trace_file_default;
+	trace_file = trace_binary || trace_compressed ? Configuration.trace_binary_file_default : Configuration.trace_file_default;
   else
   {
    if(trace_file.contains("/") || trace_file.contains(":") || trace_file.contains("*") || trace_file.contains("?") || trace_file.contains("\""))
@@ -475,10 +879,96 @@ public class Modes
 	System.exit(0);   
    }
   }  
-  trc = new Trc(systemconfig_file,trace_file,binary_file);
+  trc = new Trc(systemconfig_file,trace_file,binary_file,warmup,trace_binary,trace_compressed,trace_start,trace_stop,trace_ranges);
   trc.main();
  }
  
+ /**
+  * This method starts the trace dump mode.
+  *
+  * @param systemconfig_file the XML system configuration file (path and name), null to use the file saved in the binary trace file.
+  * @param trace_file the instruction trace file (path and name). Where the instruction trace will be saved in the text format.
+  * @param binary_trace_file the binary trace file (path and name).
+  */
+ private static void trcdump(String systemconfig_file,String trace_file,String binary_trace_file)
+ {
+  File file;
+  TrcDump trcdump;
+  
+  System.out.println(Configuration.program_name + " " + Configuration.version  + " (" + Configuration.command + ") [" + Configuration.date + "]");
+  System.out.println("by " + Configuration.name + " (email: " + Configuration.email + ")");
+  System.out.println("");
+  System.out.println("Trace dump mode:");
+  if(trace_file == null)
+	trace_file = Configuration.trace_file_default;
+  else
+  {
+   if(trace_file.contains("/") || trace_file.contains(":") || trace_file.contains("*") || trace_file.contains("?") || trace_file.contains("\""))
+   {
+	System.out.println(" !Warning: the filename <" + trace_file + "> contains unsupported characters");
+	System.exit(0);
+   }
+	     
+   try
+   {
+	file = new File(trace_file);
+	file.createNewFile();		
+   }
+   catch(Exception e)
+   {
+	System.out.println(" !Warning: the file <" + trace_file + "> can't be created");
+	System.exit(0);   
+   }
+  }  
+  trcdump = new TrcDump(systemconfig_file,trace_file,binary_trace_file);
+  trcdump.main();
+ }
+ 
+ /**
+  * This method starts the coverage mode.
+  *
+  * @param systemconfig_file the XML system configuration file (path and name).
+  * @param coverage_file the lcov file (path and name). Where the coverage will be saved.
+  * @param binary_file the binary file to be simulated (path and name).
+  * @param data_file the coverage data file (path and name). Where the bitsets of the coverage will be saved, null if isn't saved.
+  * @param merge_files the list separated by commas of the coverage data files merged instead of simulate the binary file, null if the binary file is simulated.
+  */
+ private static void cov(String systemconfig_file,String coverage_file,String binary_file,String data_file,String merge_files)
+ {
+  File file;
+  Cov cov;
+  
+  System.out.println(Configuration.program_name + " " + Configuration.version  + " (" + Configuration.command + ") [" + Configuration.date + "]");
+  System.out.println("by " + Configuration.name + " (email: " + Configuration.email + ")");
+  System.out.println("");
+  System.out.println("Coverage mode:");
+  if(systemconfig_file == null)
+	systemconfig_file = Configuration.systemconfig_file_default_full_path;  
+  if(coverage_file == null)
+	coverage_file = Configuration.coverage_file_default;
+  else
+  {
+   if(coverage_file.contains("/") || coverage_file.contains(":") || coverage_file.contains("*") || coverage_file.contains("?") || coverage_file.contains("\""))
+   {
+	System.out.println(" !Warning: the filename <" + coverage_file + "> contains unsupported characters");
+	System.exit(0);
+   }
+	     
+   try
+   {
+	file = new File(coverage_file);
+	file.createNewFile();		
+   }
+   catch(Exception e)
+   {
+	System.out.println(" !Warning: the file <" + coverage_file + "> can't be created");
+	System.exit(0);   
+   }
+  }  
+  cov = new Cov(systemconfig_file,coverage_file,binary_file,data_file,merge_files);
+  cov.main();
+ }
+ 
  /**
   * This method starts the executable and linking format (ELF) mode. Only used for debug purposes.
   *
@@ -548,6 +1038,7 @@ private static void version()
   System.out.println(" <systemconfig_file> : " + Configuration.systemconfig_file_default);
   System.out.println(" <profile_file>      : " + Configuration.profile_file_default);
   System.out.println(" <trace_file>        : " + Configuration.trace_file_default);
+  System.out.println(" <binary_trace_file> : " + Configuration.trace_binary_file_default);
   System.out.println("");
   System.out.println("<systemconfig_file> file path:");
   System.out.println("");
@@ -556,6 +1047,11 @@ private static void version()
   System.out.println("Default values:");
   System.out.println("");
   System.out.println(" <port_number>       : " + Configuration.port_number_default);
+  System.out.println(" <batch_cycles>      : " + Configuration.gdb_batch_default);
+  System.out.println(" <snapshots>         : " + Configuration.replay_snapshots_default);
+  System.out.println(" <snapshot_cycles>   : " + Configuration.replay_cycles_default);
+  System.out.println(" <hotspot_lines>     : " + Configuration.hotspot_lines_default);
+  System.out.println(" <jitter>            : <period> / " + Configuration.sample_jitter_divisor_default);
   System.out.println("");
   System.exit(0); 
  }
@@ -581,6 +1077,11 @@ private static void version()
   System.out.println("usage: " + Configuration.command + " -sim [OPTION]... <binary_file>");
   System.out.println("[OPTION]...");
   System.out.println("  --syscf <systemconfig_file>    ,XML file with the system configuration");
+  System.out.println("  --engm <cycle|block|jit>       ,simulation engine mode (default cycle)");
+  System.out.println("  --wupu <pc|func|n>             ,functional simulation until the address,");
+  System.out.println("                                  function or number of instructions");
+  System.out.println("  --ckptf <checkpoint_file>      ,saves the checkpoint after the warmup and stops");
+  System.out.println("  --rstrf <checkpoint_file>      ,restores the checkpoint and continues");
   System.out.println("  --eventv                       ,verbose the exceptions and interruptions");
   System.out.println("<binary_file>                    ,ELF binary file for FireWorks CPU");
   System.out.println("");
@@ -590,6 +1091,10 @@ private static void version()
   System.out.println("[OPTION]...");
   System.out.println("  --syscf <systemconfig_file>    ,XML file with the system configuration");
   System.out.println("  --portc <port_number>          ,port number for the TCP/IP protocol");
+  System.out.println("  --batchc <batch_cycles>        ,cycles simulated between the checks of Ctrl-C");
+  System.out.println("  --rvsn <snapshots>             ,snapshots kept for the reverse execution (0 off)");
+  System.out.println("  --rvsc <snapshot_cycles>       ,cycles between the snapshots of the reverse execution");
+  System.out.println("  --sessc <max_sessions>         ,GDB clients served at the same time (multi-session)");
   System.out.println("  --prtclv                       ,verbose the GDB remote serial protocol");
   System.out.println("  --eventv                       ,verbose the exceptions and interruptions");
   System.out.println("");
@@ -599,6 +1104,16 @@ private static void version()
   System.out.println("[OPTION]...");
   System.out.println("  --syscf <systemconfig_file>    ,XML file with the system configuration");
   System.out.println("  --prff <profile_file>          ,output file with the simulation profile");
+  System.out.println("  --wupu <pc|func|n>             ,functional simulation until the address,");
+  System.out.println("                                  function or number of instructions");
+  System.out.println("  --cgf <callgrind_file>         ,output file with the call graph (callgrind)");
+  System.out.println("  --fldf <folded_file>           ,output file with the call stacks (flame graph)");
+  System.out.println("  --hsf <hotspot_file>           ,output file with the hottest source lines");
+  System.out.println("  --hsn <hotspot_lines>          ,number of lines in the hottest lists");
+  System.out.println("  --brf <branch_file>            ,output file with the statistics of each branch");
+  System.out.println("  --jsonf <json_file>            ,output file with the summary and the memory stalls");
+  System.out.println("  --smp <period>                 ,sampling profiler, one sample every period cycles");
+  System.out.println("  --smpj <jitter>                ,random change of the sampling period");
   System.out.println("");
   System.out.println("");
   System.out.println("Trace mode:");
@@ -606,6 +1121,34 @@ private static void version()
   System.out.println("[OPTION]...");
   System.out.println("  --syscf <systemconfig_file>    ,XML file with the system configuration");
   System.out.println("  --trcf <trace_file >           ,output file with the simulation trace");
+  System.out.println("  --trcb                         ,saves the trace in the binary format");
+  System.out.println("  --trcz                         ,saves the trace in the compressed binary format");
+  System.out.println("  --trcs <pc|func|n|cN>          ,starts the trace in the address, function,");
+  System.out.println("                                  number of instructions or cycle number");
+  System.out.println("  --trce <pc|func|n|cN>          ,stops the trace in the address, function,");
+  System.out.println("                                  number of instructions or cycle number");
+  System.out.println("  --trcr <ranges>                ,only traces the address ranges (0x..-0x..)");
+  System.out.println("                                  and functions of the list (comma separated)");
+  System.out.println("  --wupu <pc|func|n>             ,functional simulation until the address,");
+  System.out.println("                                  function or number of instructions");
+  System.out.println("");
+  System.out.println("");
+  System.out.println("Trace dump mode:");
+  System.out.println("usage: " + Configuration.command + " -trcdump [OPTION]... <binary_trace_file>");
+  System.out.println("[OPTION]...");
+  System.out.println("  --syscf <systemconfig_file>    ,XML file with the system configuration");
+  System.out.println("  --trcf <trace_file >           ,output file with the trace in the text format");
+  System.out.println("<binary_trace_file>              ,binary or compressed trace file saved by the trace mode");
+  System.out.println("");
+  System.out.println("");
+  System.out.println("Coverage mode:");
+  System.out.println("usage: " + Configuration.command + " -cov [OPTION]... <binary_file>");
+  System.out.println("[OPTION]...");
+  System.out.println("  --syscf <systemconfig_file>    ,XML file with the system configuration");
+  System.out.println("  --covf <coverage_file>         ,output file with the coverage (lcov)");
+  System.out.println("  --covd <coverage_data_file>    ,output file with the coverage bitsets");
+  System.out.println("  --covm <data_file>[,...]       ,merges the coverage data files instead of");
+  System.out.println("                                  simulate the binary file");
   System.out.println("");
   System.out.println("");
   System.out.println("ELF binary file mode:");
@@ -4,6 +4,8 @@ import java.text.*;
 import java.util.*;
 import java.io.*;
 
+import system.memory.*;
+import system.file.*;
 import system.*;
 
 /**
@@ -19,6 +21,34 @@ public class Prf
  private String profile_file;
  /** The elf binary file (path and name). */
  private String binary_file;
+ /** The warmup condition, where the cycle accurate simulation starts (memory address, number of instructions or function name). Null if the simulation is all cycle accurate. */
+ private String warmup;
+ /** The callgrind output file (path and name), null if the call graph isn't saved. */
+ private String callgrind_file;
+ /** The folded stacks output file (path and name), null if the call stacks aren't saved. */
+ private String folded_file;
+ /** The call graph profiler, null if the call graph and the call stacks aren't saved. */
+ private PrfCallGraph call_graph;
+ /** The hot spot output file (path and name), null if the hot spots aren't saved. */
+ private String hotspot_file;
+ /** The hot spot profiler, null if the hot spots aren't saved. */
+ private PrfHotspot hotspot;
+ /** The branch output file (path and name), null if the branch statistics aren't saved. */
+ private String branch_file;
+ /** The branch profiler, null if the branch statistics aren't saved. */
+ private PrfBranch branch;
+ /** The JSON summary output file (path and name), null if the summary isn't saved. */
+ private String json_file;
+ /** The number of cycles between two samples of the sampling profiler, 0 if the profile is performed instruction by instruction. */
+ private long sample_period;
+ /** The maximum random change of the period of the sampling profiler. */
+ private long sample_jitter;
+ /** The name of each stall bus, indexed by the stall bus of the memory system. */
+ private static final String[] STALL_BUS = {"unmapped","LMB","OPB","device"};
+ /** The stall buses in the order of the reports. */
+ private static final int[] STALL_ORDER = {Memory.STALL_LMB,Memory.STALL_OPB,Memory.STALL_DEV,Memory.STALL_UNMAPPED};
+ /** The name of each stall kind, indexed by the stall kind of the memory system. */
+ private static final String[] STALL_KIND = {"byte read","half read","word read","byte write","half write","word write"};
  /** The simulation time. The time spent by the computer to perform the simulation. */
  private float time_simulation;
  /** The begin time. When starts counting the simulation time. */
@@ -38,15 +68,47 @@ public class Prf
   * @param systemconfig_file the XML system configuration file (path and name).
   * @param profile_file the profiler (performance analysis) file (path and name). Where the profile results of the simulation will be saved.
   * @param binary_file the elf binary file to be simulated (path and name).
+  * @param warmup the warmup condition, the simulation is performed in the functional mode of the cpu until it. Null if the simulation is all cycle accurate.
+  * @param callgrind_file the callgrind file (path and name). Where the call graph will be saved, null if isn't saved.
+  * @param folded_file the folded stacks file (path and name). Where the call stacks will be saved for the flame graphs, null if aren't saved.
+  * @param hotspot_file the hot spot file (path and name). Where the hottest source lines and instructions will be saved, null if aren't saved.
+  * @param hotspot_lines the number of lines and instructions in the hottest lists, and of branch sites in the worst branch sites list.
+  * @param branch_file the branch file (path and name). Where the statistics of each branch site will be saved, null if aren't saved.
+  * @param json_file the JSON summary file (path and name). Where the performance and the memory stalls will be saved, null if isn't saved.
+  * @param sample_period the number of cycles between two samples of the sampling profiler, 0 if the profile is performed instruction by instruction.
+  * @param sample_jitter the maximum random change of the period of the sampling profiler.
   */
- public Prf(String systemconfig_file,String profile_file,String binary_file)
+ public Prf(String systemconfig_file,String profile_file,String binary_file,String warmup,String callgrind_file,String folded_file,String hotspot_file,int hotspot_lines,String branch_file,String json_file,long sample_period,long sample_jitter)
  {
   try
   {
    this.systemconfig_file = systemconfig_file; 
    this.profile_file = profile_file;
    this.binary_file = binary_file;
+   this.warmup = warmup;
+   this.callgrind_file = callgrind_file;
+   this.folded_file = folded_file;
+   this.hotspot_file = hotspot_file;
+   this.branch_file = branch_file;
+   this.json_file = json_file;
+   this.sample_period = sample_period;
+   this.sample_jitter = sample_jitter;
    system = new SysteM(systemconfig_file,binary_file,false,true);
+   if(callgrind_file != null || folded_file != null)
+   {
+	call_graph = new PrfCallGraph(system,binary_file,callgrind_file,folded_file);
+	system.addProfileListener(call_graph);
+   }
+   if(hotspot_file != null)
+   {
+	hotspot = new PrfHotspot(system,binary_file,hotspot_file,hotspot_lines);
+	system.addProfileListener(hotspot);
+   }
+   if(branch_file != null)
+   {
+	branch = new PrfBranch(system,binary_file,branch_file,hotspot_lines);
+	system.addProfileListener(branch);
+   }
   }
   catch(SysteMException e)
   {
@@ -55,6 +117,20 @@ public class Prf
    System.out.println("");
    System.exit(0);
   }  
+  catch(IOException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: error in the call graph files, " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }  
+  catch(DebugLineParserException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: error in the line numbers of <" + binary_file + "> file, " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }  
  }
  
  // -----------------------------------
@@ -68,7 +144,11 @@ public class Prf
  {	  
   tab();
   time_begin = System.nanoTime();
-  system.profile();
+  warmup();
+  if(sample_period > 0)
+	system.sample(sample_period,sample_jitter);
+  else
+	system.profile();
   time_end  = System.nanoTime();
   
   time_simulation = (time_end - time_begin) / 1E9f;
@@ -86,14 +166,17 @@ public class Prf
   System.out.println(" " + "simulation  : " + Util.toDecStringSpace(time_simulation,12) + "s");
   System.out.println(" " + "real        : " + Util.toDecStringSpace(time_real,12)      + "s");
   System.out.println(" " + "ratio       : " + Util.toDecStringSpace(ratio,12));
+  system.getMemoryClass().showHeap();
   
   tab();
   try
   {
-   saveProfile();
+   if(sample_period > 0)
+	 saveSamples();
+   else
+	 saveProfile();
    System.out.println(" " + "Profile saved in the <" + profile_file + "> file.");
    System.out.println("");
-   System.exit(0);
   }
   catch(Exception e)
   {
@@ -101,6 +184,66 @@ public class Prf
    System.out.println("");
    System.exit(0);
   }
+  if(call_graph != null)
+  {
+   try
+   {
+	call_graph.close();
+	if(callgrind_file != null)
+	  System.out.println(" " + "Call graph saved in the <" + callgrind_file + "> file.");
+	if(folded_file != null)
+	  System.out.println(" " + "Call stacks saved in the <" + folded_file + "> file.");
+	System.out.println("");
+   }
+   catch(IOException e)
+   {
+	System.out.println(" " + "!Warning: error in the call graph files, " + e.getMessage());
+	System.out.println("");
+   }
+  }
+  if(json_file != null)
+  {
+   try
+   {
+	saveJson();
+	System.out.println(" " + "Summary saved in the <" + json_file + "> file.");
+	System.out.println("");
+   }
+   catch(IOException e)
+   {
+	System.out.println(" " + "!Warning: error in <" + json_file + "> file, " + e.getMessage());
+	System.out.println("");
+   }
+  }
+  if(hotspot != null)
+  {
+   try
+   {
+	hotspot.close();
+	System.out.println(" " + "Hot spots saved in the <" + hotspot_file + "> file.");
+	System.out.println("");
+   }
+   catch(IOException e)
+   {
+	System.out.println(" " + "!Warning: error in <" + hotspot_file + "> file, " + e.getMessage());
+	System.out.println("");
+   }
+  }
+  if(branch != null)
+  {
+   try
+   {
+	branch.close();
+	System.out.println(" " + "Branch statistics saved in the <" + branch_file + "> file.");
+	System.out.println("");
+   }
+   catch(IOException e)
+   {
+	System.out.println(" " + "!Warning: error in <" + branch_file + "> file, " + e.getMessage());
+	System.out.println("");
+   }
+  }
+  System.exit(0);
  }
  
  // -----------------------------------------------
@@ -297,6 +440,8 @@ public class Prf
    output.println("");
    output.println("");
    
+   saveStalls(output,cycles);
+   
    // sum total of each instruction, starting from subtotals of each function
    function_inst_temp = system.getCPU_instruction();
    function_inst = new HashMap<String,Long>(function_inst_temp);
@@ -391,10 +536,322 @@ public class Prf
   }	 
  }
  
+ /**
+  * This method saves the memory stall profile in the output file. The stall cycles of the data memory accesses by bus and access kind and
+  * the stall cycles of each function by bus.
+  *
+  * @param output the profile output file.
+  * @param cycles the number of cycles of the simulation.
+  */
+ private final void saveStalls(PrintStream output,long cycles)
+ {
+  Map<Integer,long[]> log_function_stalls;
+  Map<Integer,String> function_name;
+  final long[] function_stalls;
+  DecimalFormat decimal;
+  Integer[] functions;
+  long[] total_stalls;
+  long[] stalls;
+  long total;
+  int aux_a;
+  int aux_b;
+  
+  log_function_stalls = system.getLog_function_stalls();
+  function_name = system.getFunction_name();
+  decimal = new DecimalFormat("0.00");
+  total_stalls = new long[Memory.STALL_BUSES * Memory.STALL_KINDS * 2];
+  for(aux_a = 0;aux_a < log_function_stalls.size();aux_a++)
+  {
+   stalls = log_function_stalls.get(aux_a);
+   for(aux_b = 0;aux_b < stalls.length;aux_b++)
+	 total_stalls[aux_b] += stalls[aux_b];
+  }
+  
+  output.println("Memory stall profile");
+  output.println("");
+  output.println(" " + Util.toStringFixed("bus",10) + Util.toStringFixed("access",12) + Util.toStringSpace("accesses",12) + "  " + Util.toStringSpace("stall cycles",12) + "  " + Util.toStringSpace("%",7));
+  total = 0;
+  for(aux_a = 0;aux_a < STALL_ORDER.length;aux_a++)
+  {
+   for(aux_b = 0;aux_b < Memory.STALL_KINDS;aux_b++)
+   {
+	stalls = new long[]{total_stalls[(STALL_ORDER[aux_a] * Memory.STALL_KINDS + aux_b) * 2],total_stalls[(STALL_ORDER[aux_a] * Memory.STALL_KINDS + aux_b) * 2 + 1]};
+	if(stalls[0] == 0)
+	  continue;
+	total = total + stalls[1];
+	output.println(" " + Util.toStringFixed(STALL_BUS[STALL_ORDER[aux_a]],10) + Util.toStringFixed(STALL_KIND[aux_b],12) + Util.toDecStringSpace(stalls[0],12) + "  " + Util.toDecStringSpace(stalls[1],12) + "  " + Util.toStringSpace(decimal.format((float)stalls[1] / (float)cycles * 100),7));
+   }
+  }
+  output.println(" " + Util.toStringFixed("total",22) + Util.toStringSpace(" ",12) + "  " + Util.toDecStringSpace(total,12) + "  " + Util.toStringSpace(decimal.format((float)total / (float)cycles * 100),7));
+  output.println("");
+  
+  // order the functions in descending order the number of stall cycles
+  functions = new Integer[log_function_stalls.size()];
+  for(aux_a = 0;aux_a < functions.length;aux_a++)
+	functions[aux_a] = aux_a;
+  function_stalls = new long[functions.length];
+  for(aux_a = 0;aux_a < functions.length;aux_a++)
+	function_stalls[aux_a] = stallCycles(log_function_stalls.get(aux_a),-1);
+  java.util.Arrays.sort(functions,new Comparator<Integer>()
+  {
+   public int compare(Integer a,Integer b)
+   {
+	if(function_stalls[a] != function_stalls[b])
+	  return function_stalls[a] > function_stalls[b] ? -1 : 1;
+	return a - b;
+   }
+  });
+  output.print(" " + Util.toStringSpace("stall cycles",12));
+  for(aux_a = 0;aux_a < STALL_ORDER.length;aux_a++)
+	output.print("  " + Util.toStringSpace(STALL_BUS[STALL_ORDER[aux_a]],10));
+  output.println("  " + "function");
+  for(aux_a = 0;aux_a < functions.length && function_stalls[functions[aux_a]] != 0;aux_a++)
+  {
+   output.print(" " + Util.toDecStringSpace(function_stalls[functions[aux_a]],12));
+   for(aux_b = 0;aux_b < STALL_ORDER.length;aux_b++)
+	 output.print("  " + Util.toDecStringSpace(stallCycles(log_function_stalls.get(functions[aux_a]),STALL_ORDER[aux_b]),10));
+   output.println("  " + function_name.get(functions[aux_a]));
+  }
+  
+  output.println("");
+  output.println("");
+ }
+ 
+ /**
+  * This method saves the sampled profile results of the simulation in the output file. For each function the percentage of the samples,
+  * with the 95% confidence interval of the percentage (normal approximation of the binomial distribution), and the cycles estimated
+  * from the percentage of the samples.
+  *
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ private final void saveSamples() throws IOException
+ {
+  Map<Integer,Long> log_function_samples;
+  Map<Integer,String> function_name;
+  final long[] samples;
+  DecimalFormat decimal;
+  PrintStream output;
+  Integer[] functions;
+  long total_samples;
+  long total_cycles;
+  long cycles;
+  double share;
+  int aux;
+  
+  log_function_samples = system.getLog_function_samples();
+  function_name = system.getFunction_name();
+  cycles = system.getNumberOfCycles();
+  samples = new long[log_function_samples.size()];
+  total_samples = system.getLog_samples_unknown();
+  for(aux = 0;aux < samples.length;aux++)
+  {
+   samples[aux] = log_function_samples.get(aux);
+   total_samples = total_samples + samples[aux];
+  }
+  
+  output = new PrintStream(new FileOutputStream(profile_file));
+  output.println("System configuration file");
+  output.println("");
+  output.println(" " + systemconfig_file);
+  output.println("");
+  output.println("");
+  output.println("Binary file");
+  output.println("");
+  output.println(" " + binary_file);
+  output.println("");
+  output.println("");
+  output.println("Performance");
+  output.println("");
+  output.println(" " + "instructions: " + Util.toDecStringSpace(system.getCPUClass().getNumberOfInstructions(),12));
+  output.println(" " + "cycles      : " + Util.toDecStringSpace(cycles,12));
+  output.println(" " + "cpi         : " + Util.toDecStringSpace(cpi,12));
+  output.println(" " + "<frequency> : " + Util.toDecStringSpace((float)(system.getFrequency() / 1E6),12) + "MHz");
+  output.println(" " + "simulation  : " + Util.toDecStringSpace(time_simulation,12) + "s");
+  output.println(" " + "real        : " + Util.toDecStringSpace(time_real,12)      + "s");
+  output.println(" " + "ratio       : " + Util.toDecStringSpace(ratio,12));
+  output.println(" " + "period      : " + Util.toDecStringSpace(sample_period,12));
+  output.println(" " + "jitter      : " + Util.toDecStringSpace(sample_jitter,12));
+  output.println(" " + "samples     : " + Util.toDecStringSpace(total_samples,12));
+  output.println("");
+  output.println("");
+  
+  // order the functions in descending order the number of samples
+  functions = new Integer[samples.length];
+  for(aux = 0;aux < functions.length;aux++)
+	functions[aux] = aux;
+  java.util.Arrays.sort(functions,new Comparator<Integer>()
+  {
+   public int compare(Integer a,Integer b)
+   {
+	if(samples[a] != samples[b])
+	  return samples[a] > samples[b] ? -1 : 1;
+	return a - b;
+   }
+  });
+  
+  output.println("Sampled flat profile");
+  output.println("");
+  output.println("    %       +/-     cumulative          self                  ");
+  output.println("   time     95%       cycles           cycles    samples  function");
+  decimal = new DecimalFormat("0.00");
+  total_cycles = 0;
+  for(aux = 0;aux < functions.length && samples[functions[aux]] != 0;aux++)
+  {
+   share = (double)samples[functions[aux]] / (double)total_samples;
+   total_cycles = total_cycles + Math.round(share * cycles);
+   output.println(" " + Util.toStringSpace(decimal.format(share * 100),6) + " " + Util.toStringSpace(decimal.format(confidence(share,total_samples)),7) + " " + Util.toDecStringSpace(total_cycles,14) + " " + Util.toDecStringSpace(Math.round(share * cycles),14) + " " + Util.toDecStringSpace(samples[functions[aux]],10) + "  " + function_name.get(functions[aux]));
+  }
+  if(system.getLog_samples_unknown() != 0)
+  {
+   share = (double)system.getLog_samples_unknown() / (double)total_samples;
+   total_cycles = total_cycles + Math.round(share * cycles);
+   output.println(" " + Util.toStringSpace(decimal.format(share * 100),6) + " " + Util.toStringSpace(decimal.format(confidence(share,total_samples)),7) + " " + Util.toDecStringSpace(total_cycles,14) + " " + Util.toDecStringSpace(Math.round(share * cycles),14) + " " + Util.toDecStringSpace(system.getLog_samples_unknown(),10) + "  " + "<unknown>");
+  }
+  output.close();
+ }
+ 
+ /**
+  * Returns the half width of the 95% confidence interval of the percentage of the samples of a function.
+  *
+  * @param share the fraction of the samples of the function.
+  * @param samples the total number of samples.
+  * @return the half width of the 95% confidence interval, in percentage.
+  */
+ private final double confidence(double share,long samples)
+ {
+  if(samples == 0)
+	return 0;
+  return 1.96 * Math.sqrt(share * (1 - share) / samples) * 100;
+ }
+ 
+ // -------------------------------------------
+ // method used to create the JSON summary file
+ // -------------------------------------------
+ 
+ /**
+  * This method saves the performance and the memory stalls of the simulation in the JSON summary file. The summary has the totals, the stalls
+  * by bus and access kind and for each function executed the cycles, the calls and the stall cycles by bus.
+  *
+  * @throws IOException if any error occurs when save the JSON summary file.
+  */
+ private final void saveJson() throws IOException
+ {
+  Map<Integer,long[]> log_function_stalls;
+  Map<Integer,String> function_name;
+  PrintStream output;
+  long[] total_stalls;
+  long[] stalls;
+  boolean first;
+  int aux_a;
+  int aux_b;
+  
+  log_function_stalls = system.getLog_function_stalls();
+  function_name = system.getFunction_name();
+  total_stalls = new long[Memory.STALL_BUSES * Memory.STALL_KINDS * 2];
+  for(aux_a = 0;aux_a < log_function_stalls.size();aux_a++)
+  {
+   stalls = log_function_stalls.get(aux_a);
+   for(aux_b = 0;aux_b < stalls.length;aux_b++)
+	 total_stalls[aux_b] += stalls[aux_b];
+  }
+  
+  output = new PrintStream(new BufferedOutputStream(new FileOutputStream(json_file)));
+  output.println("{");
+  output.println("  \"binary_file\": " + json(binary_file) + ",");
+  output.println("  \"systemconfig_file\": " + json(systemconfig_file) + ",");
+  output.println("  \"instructions\": " + system.getCPUClass().getNumberOfInstructions() + ",");
+  output.println("  \"cycles\": " + system.getNumberOfCycles() + ",");
+  output.println("  \"frequency\": " + system.getFrequency() + ",");
+  output.println("  \"stall_cycles\": " + stallCycles(total_stalls,-1) + ",");
+  output.println("  \"stalls\": [");
+  first = true;
+  for(aux_a = 0;aux_a < STALL_ORDER.length;aux_a++)
+  {
+   for(aux_b = 0;aux_b < Memory.STALL_KINDS;aux_b++)
+   {
+	if(total_stalls[(STALL_ORDER[aux_a] * Memory.STALL_KINDS + aux_b) * 2] == 0)
+	  continue;
+	output.print(first ? "" : ",\n");
+	output.print("    {\"bus\": " + json(STALL_BUS[STALL_ORDER[aux_a]]) + ", \"access\": " + json(STALL_KIND[aux_b]) +
+			     ", \"accesses\": " + total_stalls[(STALL_ORDER[aux_a] * Memory.STALL_KINDS + aux_b) * 2] +
+			     ", \"stall_cycles\": " + total_stalls[(STALL_ORDER[aux_a] * Memory.STALL_KINDS + aux_b) * 2 + 1] + "}");
+	first = false;
+   }
+  }
+  output.println(first ? "  ]," : "\n  ],");
+  output.println("  \"functions\": [");
+  first = true;
+  for(aux_a = 0;aux_a < function_name.size();aux_a++)
+  {
+   if(system.getLog_function_execute().get(aux_a) == 0)
+	 continue;
+   stalls = log_function_stalls.get(aux_a);
+   output.print(first ? "" : ",\n");
+   output.print("    {\"name\": " + json(function_name.get(aux_a)) + ", \"cycles\": " + system.getLog_function_cycle().get(aux_a) +
+		        ", \"calls\": " + system.getLog_function_call().get(aux_a) + ", \"stall_cycles\": " + stallCycles(stalls,-1) + ", \"stalls\": {");
+   for(aux_b = 0;aux_b < STALL_ORDER.length;aux_b++)
+	 output.print((aux_b == 0 ? "" : ", ") + json(STALL_BUS[STALL_ORDER[aux_b]]) + ": " + stallCycles(stalls,STALL_ORDER[aux_b]));
+   output.print("}}");
+   first = false;
+  }
+  output.println(first ? "  ]" : "\n  ]");
+  output.println("}");
+  output.close();
+  if(output.checkError())
+	throw new IOException("can't write the file.");
+ }
+ 
  // -------------------
  // methods auxiliaries
  // -------------------
  
+ /**
+  * Returns the stall cycles of the data stall counters in the bus.
+  *
+  * @param stalls the data stall counters.
+  * @param bus the stall bus, -1 for all the buses.
+  * @return the stall cycles.
+  */
+ private final long stallCycles(long[] stalls,int bus)
+ {
+  long cycles;
+  int aux;
+  
+  cycles = 0;
+  for(aux = 0;aux < Memory.STALL_BUSES * Memory.STALL_KINDS;aux++)
+  {
+   if(bus < 0 || aux / Memory.STALL_KINDS == bus)
+	 cycles = cycles + stalls[aux * 2 + 1];
+  }
+  return cycles;
+ }
+ 
+ /**
+  * Returns the string as a JSON string, between quotes and with the special characters escaped.
+  *
+  * @param string the string.
+  * @return the JSON string.
+  */
+ private final String json(String string)
+ {
+  StringBuilder json;
+  char character;
+  int aux;
+  
+  json = new StringBuilder("\"");
+  for(aux = 0;aux < string.length();aux++)
+  {
+   character = string.charAt(aux);
+   if(character == '"' || character == '\\')
+	 json.append('\\').append(character);
+   else if(character < 0x20)
+	 json.append("\\u").append(Util.toHexString(character,4));
+   else
+	 json.append(character);
+  }
+  return json.append('"').toString();
+ }
+ 
  /**
   * Displays one line on the screen. Is used to separate contents.
   */
@@ -404,4 +861,27 @@ public class Prf
   System.out.print("--------------------------------------------------------------------------------");
   System.out.println("");
  }
+ 
+ /**
+  * Performs the simulation in the functional mode of the cpu until the warmup condition, where the cycle accurate simulation starts.
+  *
+  * @return the system status.
+  */
+ private final int warmup()
+ {
+  if(warmup == null)
+	return Sys_Status.NORMAL;
+  try
+  {
+   return system.warmup(warmup);
+  }
+  catch(SysteMException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+  return Sys_Status.STOP;
+ }
 }
@@ -0,0 +1,451 @@
+package tools;
+
+import java.text.*;
+import java.util.*;
+import java.io.*;
+
+import system.memory.*;
+import system.cpu.*;
+import system.*;
+
+/**
+ * The branch profiler class. This class counts the behaviour of each conditional branch site (beq, bne, blt, ble, bgt, bge and their
+ * immediate and delay slot variants) during the profile simulation, in a table of primitive arrays indexed by the memory address of the
+ * branch. For each site the taken and not taken executions, the cycles spent in the execute stage by the taken branches (conditional
+ * latency), the cycles of the pipeline flushes (execute stage empty until the next instruction of the path) and the use of the delay slot.
+ * The report has the totals, the totals of each branch instruction and the sites which waste more cycles.
+ */
+public final class PrfBranch extends ProfileListener
+{
+ /** The instruction kind OTHER. The instruction isn't a conditional branch. */
+ private static final byte OTHER  = 0;
+ /** The instruction kind BRANCH. The instruction is a conditional branch without delay slot. */
+ private static final byte BRANCH = 1;
+ /** The instruction kind DELAY. The instruction is a conditional branch with delay slot. */
+ private static final byte DELAY  = 2;
+ /** The counter of the number of executions of the site. */
+ private static final int EXECUTIONS       = 0;
+ /** The counter of the number of taken executions of the site. */
+ private static final int TAKEN            = 1;
+ /** The counter of the cycles spent in the execute stage by the taken executions (conditional latency). */
+ private static final int TAKEN_CYCLES     = 2;
+ /** The counter of the cycles of the pipeline flushes of the taken executions. */
+ private static final int FLUSH_CYCLES     = 3;
+ /** The counter of the cycles spent by the not taken executions. */
+ private static final int NOT_TAKEN_CYCLES = 4;
+ /** The number of counters of each site. */
+ private static final int COUNTERS         = 5;
+ /** The instruction word of the nop instruction (or r0, r0, r0). */
+ private static final int NOP = 0x80000000;
+ /** The system. */
+ private SysteM system;
+ /** The elf binary file (path and name). */
+ private String binary_file;
+ /** The branch output file (path and name). */
+ private String branch_file;
+ /** The number of sites in the list of the sites which waste more cycles. */
+ private int branch_lines;
+ /** The instruction kind of each opcode id. */
+ private byte[] opcode_kind;
+ /** The hash table of the sites, for each slot the site number plus one, 0 if the slot is free. */
+ private int[] table;
+ /** The memory address of each site. */
+ private int[] site_pc;
+ /** The opcode id of each site. */
+ private int[] site_opcode;
+ /** The counters of each site, COUNTERS counters per site. */
+ private long[] site_counters;
+ /** The number of sites. */
+ private int sites;
+ /** The site of the branch waiting for the next instruction of the path, -1 if doesn't exist. */
+ private int pending = -1;
+ /** The memory address of the pending branch. */
+ private int pending_pc;
+ /** The instruction kind of the pending branch. */
+ private byte pending_kind;
+ /** The delay slot flag, true if the delay slot of the pending branch already reached the execute stage. */
+ private boolean pending_slot;
+ /** The cycle number where the pending branch (or its delay slot) reached the execute stage. */
+ private long pending_cycle;
+ /** The cycles spent in the execute stage by the pending branch with delay slot. */
+ private long pending_cycles;
+ /** The empty cycles of the execute stage after the pending branch. */
+ private long pending_empty;
+ /** The cycle number where the profile simulation started. */
+ private long begin_cycle;
+ /** The cycle number where the profile simulation ended. */
+ private long end_cycle;
+
+ /**
+  * Instantiates a new branch profiler.
+  *
+  * @param system the system.
+  * @param binary_file the elf binary file (path and name).
+  * @param branch_file the branch output file (path and name).
+  * @param branch_lines the number of sites in the list of the sites which waste more cycles.
+  */
+ public PrfBranch(SysteM system,String binary_file,String branch_file,int branch_lines)
+ {
+  this.system = system;
+  this.binary_file = binary_file;
+  this.branch_file = branch_file;
+  this.branch_lines = branch_lines;
+  opcode_kind = new byte[0];
+  table = new int[1024];
+  site_pc = new int[512];
+  site_opcode = new int[512];
+  site_counters = new long[512 * COUNTERS];
+ }
+
+ // -----------------------------------
+ // methods used to notify the listener
+ // -----------------------------------
+
+ /**
+  * Notifies that the profile simulation started.
+  *
+  * @param cycle the cycle number.
+  */
+ public final void begin(long cycle)
+ {
+  begin_cycle = cycle;
+  end_cycle = cycle;
+ }
+
+ /**
+  * Notifies that the instruction reached the execute stage. If a branch is pending, the instruction is its delay slot or the next
+  * instruction of the path, which decides if the branch was taken.
+  *
+  * @param pc the memory address of the instruction.
+  * @param opcode the opcode id of the instruction.
+  * @param cycle the cycle number.
+  */
+ public final void execute(int pc,int opcode,long cycle)
+ {
+  byte kind;
+  int index;
+
+  if(pending >= 0)
+  {
+   if(pending_kind == DELAY && !pending_slot)
+   {
+	pending_slot = true;
+	pending_cycles = cycle - pending_cycle;
+	pending_cycle = cycle;
+	pending_empty = 0;
+	return;
+   }
+   index = pending * COUNTERS;
+   if(pending_kind == BRANCH)
+	 pending_cycles = cycle - pending_cycle - pending_empty;
+   site_counters[index + EXECUTIONS]++;
+   if(pc != pending_pc + (pending_kind == DELAY ? 8 : 4))
+   {
+	site_counters[index + TAKEN]++;
+	site_counters[index + TAKEN_CYCLES] += pending_cycles;
+	site_counters[index + FLUSH_CYCLES] += pending_empty;
+   }
+   else
+	 site_counters[index + NOT_TAKEN_CYCLES] += pending_cycles + pending_empty;
+   pending = -1;
+  }
+
+  kind = kind(opcode);
+  if(kind != OTHER)
+  {
+   pending = site(pc,opcode);
+   pending_pc = pc;
+   pending_kind = kind;
+   pending_slot = false;
+   pending_cycle = cycle;
+   pending_empty = 0;
+  }
+ }
+
+ /**
+  * Notifies that the execute stage is empty in the cycle. The empty cycles after a branch are the cycles of the pipeline flush.
+  *
+  * @param cycle the cycle number.
+  */
+ public final void empty(long cycle)
+ {
+  if(pending >= 0)
+	pending_empty++;
+ }
+
+ /**
+  * Notifies that the profile simulation ended. The pending branch isn't counted, the next instruction of the path wasn't executed.
+  *
+  * @param cycle the cycle number.
+  */
+ public final void end(long cycle)
+ {
+  pending = -1;
+  end_cycle = cycle;
+ }
+
+ // -----------------------------------
+ // method used to save the branch file
+ // -----------------------------------
+
+ /**
+  * Saves the branch totals, the totals of each branch instruction and the sites which waste more cycles in the branch output file.
+  *
+  * @throws IOException if any error occurs when save the branch output file.
+  */
+ public final void close() throws IOException
+ {
+  final long[] wasted;
+  Map<String,long[]> instructions;
+  InstructionSetArchitecture inst_set_arq;
+  PrintStream output;
+  Integer[] worst;
+  String[] names;
+  String instruction;
+  String slot;
+  long[] total;
+  long[] value;
+  long nops;
+  long delays;
+  int index;
+  int aux_a;
+  int aux_b;
+
+  inst_set_arq = system.getCPUClass().getInstructionSetArchitectureClass();
+  wasted = new long[sites];
+  total = new long[COUNTERS];
+  instructions = new TreeMap<String,long[]>();
+  nops = 0;
+  delays = 0;
+  for(aux_a = 0;aux_a < sites;aux_a++)
+  {
+   index = aux_a * COUNTERS;
+   wasted[aux_a] = wasted(index);
+   value = instructions.get(system.getOpcode_name(site_opcode[aux_a]));
+   if(value == null)
+   {
+	value = new long[COUNTERS];
+	instructions.put(system.getOpcode_name(site_opcode[aux_a]),value);
+   }
+   for(aux_b = 0;aux_b < COUNTERS;aux_b++)
+   {
+	value[aux_b] += site_counters[index + aux_b];
+	total[aux_b] += site_counters[index + aux_b];
+   }
+   if(kind(site_opcode[aux_a]) == DELAY)
+   {
+	delays = delays + site_counters[index + EXECUTIONS];
+	if(word(site_pc[aux_a] + 4) == NOP)
+	  nops = nops + site_counters[index + EXECUTIONS];
+   }
+  }
+
+  output = new PrintStream(new BufferedOutputStream(new FileOutputStream(branch_file),1 << 16));
+  output.println("Binary file");
+  output.println("");
+  output.println(" " + binary_file);
+  output.println("");
+  output.println("");
+  output.println("Branch summary");
+  output.println("");
+  output.println(" " + "cycles             : " + Util.toDecStringSpace(end_cycle - begin_cycle,12));
+  output.println(" " + "branch sites       : " + Util.toDecStringSpace(sites,12));
+  output.println(" " + "branches           : " + Util.toDecStringSpace(total[EXECUTIONS],12));
+  output.println(" " + "taken              : " + Util.toDecStringSpace(total[TAKEN],12) + "  " + percent(total[TAKEN],total[EXECUTIONS]) + "%");
+  output.println(" " + "delay slot branches: " + Util.toDecStringSpace(delays,12) + "  " + percent(delays,total[EXECUTIONS]) + "%");
+  output.println(" " + "delay slot nops    : " + Util.toDecStringSpace(nops,12) + "  " + percent(nops,delays) + "%");
+  output.println(" " + "taken cycles       : " + Util.toDecStringSpace(total[TAKEN_CYCLES],12));
+  output.println(" " + "flush cycles       : " + Util.toDecStringSpace(total[FLUSH_CYCLES],12));
+  output.println(" " + "wasted cycles      : " + Util.toDecStringSpace(wasted(total,0),12) + "  " + percent(wasted(total,0),end_cycle - begin_cycle) + "%");
+  output.println("");
+  output.println("");
+
+  output.println("Branch instructions");
+  output.println("");
+  output.println(" " + Util.toStringFixed("instruction",12) + Util.toStringSpace("executions",12) + "  " + Util.toStringSpace("taken",12) + "  " + Util.toStringSpace("%",6) + "  " +
+		         Util.toStringSpace("taken cycles",12) + "  " + Util.toStringSpace("flush cycles",12) + "  " + Util.toStringSpace("wasted",12));
+  names = instructions.keySet().toArray(new String[instructions.size()]);
+  for(aux_a = 0;aux_a < names.length;aux_a++)
+  {
+   value = instructions.get(names[aux_a]);
+   output.println(" " + Util.toStringFixed(names[aux_a],12) + Util.toDecStringSpace(value[EXECUTIONS],12) + "  " + Util.toDecStringSpace(value[TAKEN],12) + "  " + percent(value[TAKEN],value[EXECUTIONS]) + "  " +
+		          Util.toDecStringSpace(value[TAKEN_CYCLES],12) + "  " + Util.toDecStringSpace(value[FLUSH_CYCLES],12) + "  " + Util.toDecStringSpace(wasted(value,0),12));
+  }
+  output.println("");
+  output.println("");
+
+  // order the sites in descending order the wasted cycles
+  worst = new Integer[sites];
+  for(aux_a = 0;aux_a < sites;aux_a++)
+	worst[aux_a] = aux_a;
+  Arrays.sort(worst,new Comparator<Integer>()
+  {
+   public int compare(Integer a,Integer b)
+   {
+	if(wasted[a] != wasted[b])
+	  return wasted[a] > wasted[b] ? -1 : 1;
+	return a - b;
+   }
+  });
+  output.println("Worst branch sites");
+  output.println("");
+  output.println(" " + Util.toStringSpace("wasted",12) + "  " + Util.toStringSpace("executions",12) + "  " + Util.toStringSpace("%taken",6) + "  " + Util.toStringSpace("taken cycles",12) + "  " +
+		         Util.toStringSpace("flush cycles",12) + "  " + Util.toStringFixed("slot",5) + "address     instruction");
+  for(aux_a = 0;aux_a < worst.length && aux_a < branch_lines && site_counters[worst[aux_a] * COUNTERS + EXECUTIONS] != 0;aux_a++)
+  {
+   index = worst[aux_a] * COUNTERS;
+   instruction = inst_set_arq.toString(word(site_pc[worst[aux_a]]));
+   if(kind(site_opcode[worst[aux_a]]) != DELAY)
+	 slot = "-";
+   else
+	 slot = word(site_pc[worst[aux_a]] + 4) == NOP ? "nop" : "used";
+   output.println(" " + Util.toDecStringSpace(wasted[worst[aux_a]],12) + "  " + Util.toDecStringSpace(site_counters[index + EXECUTIONS],12) + "  " +
+		          percent(site_counters[index + TAKEN],site_counters[index + EXECUTIONS]) + "  " + Util.toDecStringSpace(site_counters[index + TAKEN_CYCLES],12) + "  " +
+		          Util.toDecStringSpace(site_counters[index + FLUSH_CYCLES],12) + "  " + Util.toStringFixed(slot,5) + "0x" + Util.toHexString(site_pc[worst[aux_a]],8) + "  " +
+		          Util.toStringFixed(instruction,28) + " " + function(site_pc[worst[aux_a]]));
+  }
+  output.println("");
+  output.println("");
+
+  output.close();
+  if(output.checkError())
+	throw new IOException("can't write the file.");
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Returns the site of the memory address, the site is created if doesn't exist. The sites are found in a hash table with linear probing,
+  * the table is doubled when is half full.
+  *
+  * @param pc the memory address of the branch.
+  * @param opcode the opcode id of the branch.
+  * @return the site number.
+  */
+ private final int site(int pc,int opcode)
+ {
+  int slot;
+  int aux;
+
+  for(slot = ((pc >>> 2) * 0x9e3779b1) & (table.length - 1);table[slot] != 0;slot = (slot + 1) & (table.length - 1))
+  {
+   if(site_pc[table[slot] - 1] == pc)
+	 return table[slot] - 1;
+  }
+  if(sites == site_pc.length)
+  {
+   site_pc = Arrays.copyOf(site_pc,sites * 2);
+   site_opcode = Arrays.copyOf(site_opcode,sites * 2);
+   site_counters = Arrays.copyOf(site_counters,sites * 2 * COUNTERS);
+  }
+  site_pc[sites] = pc;
+  site_opcode[sites] = opcode;
+  table[slot] = ++sites;
+  if(sites * 2 > table.length)
+  {
+   table = new int[table.length * 2];
+   for(aux = 0;aux < sites;aux++)
+   {
+	for(slot = ((site_pc[aux] >>> 2) * 0x9e3779b1) & (table.length - 1);table[slot] != 0;slot = (slot + 1) & (table.length - 1));
+	table[slot] = aux + 1;
+   }
+  }
+  return sites - 1;
+ }
+
+ /**
+  * Returns the instruction kind of the opcode id.
+  *
+  * @param opcode the opcode id.
+  * @return the instruction kind.
+  */
+ private final byte kind(int opcode)
+ {
+  String name;
+  int aux;
+
+  if(opcode >= opcode_kind.length)
+  {
+   aux = opcode_kind.length;
+   opcode_kind = Arrays.copyOf(opcode_kind,system.getOpcodes());
+   for(;aux < opcode_kind.length;aux++)
+   {
+	name = system.getOpcode_name(aux);
+	if(name.matches("b(eq|ne|lt|le|gt|ge)i?d"))
+	  opcode_kind[aux] = DELAY;
+	else if(name.matches("b(eq|ne|lt|le|gt|ge)i?"))
+	  opcode_kind[aux] = BRANCH;
+   }
+  }
+  return opcode_kind[opcode];
+ }
+
+ /**
+  * Returns the cycles wasted by the branches, the cycles spent beyond one cycle per execution.
+  *
+  * @param counters the counters of the branches.
+  * @param index the index of the first counter.
+  * @return the wasted cycles.
+  */
+ private final long wasted(long[] counters,int index)
+ {
+  return counters[index + TAKEN_CYCLES] + counters[index + FLUSH_CYCLES] + counters[index + NOT_TAKEN_CYCLES] - counters[index + EXECUTIONS];
+ }
+
+ /**
+  * Returns the cycles wasted by the site.
+  *
+  * @param index the index of the first counter of the site.
+  * @return the wasted cycles.
+  */
+ private final long wasted(int index)
+ {
+  return wasted(site_counters,index);
+ }
+
+ /**
+  * Returns the instruction word of the memory address.
+  *
+  * @param address the memory address.
+  * @return the instruction word, 0 if the memory address isn't mapped.
+  */
+ private final int word(int address)
+ {
+  try
+  {
+   return system.getMemoryClass().getMemoryWord(address);
+  }
+  catch(MemoryException e)
+  {
+   return 0;
+  }
+ }
+
+ /**
+  * Returns the percentage, with two decimal places.
+  *
+  * @param value the value.
+  * @param total the total.
+  * @return the percentage.
+  */
+ private final String percent(long value,long total)
+ {
+  return Util.toStringSpace(new DecimalFormat("0.00").format(total == 0 ? 0 : (float)value / (float)total * 100),6);
+ }
+
+ /**
+  * Returns the name of the function of the memory address.
+  *
+  * @param address the memory address.
+  * @return the name of the function, ? if the memory address is outside of the functions.
+  */
+ private final String function(int address)
+ {
+  int function;
+
+  function = system.getFunction((long)address & 0xffffffffL);
+  return function < 0 ? "?" : system.getFunction_name().get(function);
+ }
+}
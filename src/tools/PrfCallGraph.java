@@ -0,0 +1,523 @@
+package tools;
+
+import java.util.*;
+import java.io.*;
+
+import system.memory.*;
+import system.*;
+
+/**
+ * The call graph profiler class. This class keeps a shadow call stack during the profile simulation and reports the exclusive cycles and
+ * instructions of each function and the inclusive cycles and instructions of each call edge. The report is saved in the callgrind format
+ * and the call stacks are saved in the folded stacks format (flame graphs).<p>
+ * A frame is pushed by the calls with the link register r15 (brlid, brld, brald and bralid) and by the entry in the vectors of the interrupts,
+ * exceptions and breaks. A frame is popped by the returns (rtsd r15, rtid, rted and rtbd), the frames are matched by the return address,
+ * so the frames left by calls without return are also popped.
+ */
+public final class PrfCallGraph extends ProfileListener
+{
+ /** The instruction kind NORMAL. */
+ private static final int NORMAL           = 0;
+ /** The instruction kind CALL. The branch and link instructions with delay slot. */
+ private static final int CALL             = 1;
+ /** The instruction kind RETURN. The return from subroutine. */
+ private static final int RETURN           = 2;
+ /** The instruction kind RETURN_INTERRUPT. The return from interrupt. */
+ private static final int RETURN_INTERRUPT = 3;
+ /** The instruction kind RETURN_EXCEPTION. The return from exception. */
+ private static final int RETURN_EXCEPTION = 4;
+ /** The instruction kind RETURN_BREAK. The return from break. */
+ private static final int RETURN_BREAK     = 5;
+ /** The link register of the subroutine calls. */
+ private static final int LINK             = 15;
+ /** The first memory address after the vectors. */
+ private static final int VECTORS_END      = 0x28;
+ /** The maximum number of call stacks kept in memory before they are saved in the folded stacks file. */
+ private static final int FOLDED_LIMIT     = 4096;
+ /** The system. */
+ private SysteM system;
+ /** The memory system. */
+ private Memory memory;
+ /** The callgrind output file (path and name), null if isn't saved. */
+ private String callgrind_file;
+ /** The elf binary file (path and name). */
+ private String binary_file;
+ /** The folded stacks output file, null if isn't saved. */
+ private PrintStream folded;
+ /** The instruction kind of each opcode id. */
+ private int[] opcode_kind;
+ /** The number of functions, the function with this number is the unknown function. */
+ private int functions;
+ /** The function of each frame of the shadow call stack. */
+ private int[] frame_function;
+ /** The kind of the return that pops each frame. */
+ private int[] frame_kind;
+ /** The return address of each frame. */
+ private long[] frame_return;
+ /** The cycle number where each frame was pushed. */
+ private long[] frame_cycle;
+ /** The number of instructions when each frame was pushed. */
+ private long[] frame_instructions;
+ /** The frame vector flag, the function of the frame pushed by a vector is known after the vectors. */
+ private boolean[] frame_vector;
+ /** The number of frames of the shadow call stack. */
+ private int depth;
+ /** The exclusive cycles of each function. */
+ private long[] self_cycles;
+ /** The exclusive instructions of each function. */
+ private long[] self_instructions;
+ /** The call edges, the key is the caller and the callee functions, the values are the calls, the inclusive cycles and the inclusive instructions. */
+ private Map<Long,long[]> edges;
+ /** The cycles of the call stacks not saved in the folded stacks file. */
+ private Map<String,long[]> stacks;
+ /** The current call stack in the folded stacks format, null if must be created. */
+ private String stack;
+ /** The number of instructions notified. */
+ private long instructions;
+ /** The memory address of the previous instruction. */
+ private long last_pc;
+ /** The cycle number of the previous instruction. */
+ private long last_cycle;
+ /** The number of instructions until the called function starts (the delay slot), zero if doesn't exist a call. */
+ private int pending_call;
+ /** The return address of the call pending. */
+ private long pending_address;
+ /** The number of instructions until the return is performed (the delay slot), zero if doesn't exist a return. */
+ private int pending_return;
+ /** The kind of the return pending. */
+ private int pending_kind;
+ /** The error occurred when the folded stacks are saved, null if doesn't exist. */
+ private IOException error;
+
+ /**
+  * Instantiates a new call graph profiler.
+  *
+  * @param system the system.
+  * @param binary_file the elf binary file (path and name).
+  * @param callgrind_file the callgrind output file (path and name), null if isn't saved.
+  * @param folded_file the folded stacks output file (path and name), null if isn't saved.
+  * @throws IOException if any error occurs when create the output files.
+  */
+ public PrfCallGraph(SysteM system,String binary_file,String callgrind_file,String folded_file) throws IOException
+ {
+  this.system = system;
+  this.binary_file = binary_file;
+  this.callgrind_file = callgrind_file;
+  memory = system.getMemoryClass();
+  if(folded_file != null)
+	folded = new PrintStream(new BufferedOutputStream(new FileOutputStream(folded_file),1 << 16));
+  opcode_kind = new int[0];
+  frame_function = new int[64];
+  frame_kind = new int[64];
+  frame_return = new long[64];
+  frame_cycle = new long[64];
+  frame_instructions = new long[64];
+  frame_vector = new boolean[64];
+  edges = new HashMap<Long,long[]>();
+  stacks = new HashMap<String,long[]>();
+ }
+
+ // -----------------------------------
+ // methods used to notify the listener
+ // -----------------------------------
+
+ /**
+  * Notifies that the profile simulation started.
+  *
+  * @param cycle the cycle number.
+  */
+ public final void begin(long cycle)
+ {
+  last_cycle = cycle;
+ }
+
+ /**
+  * Notifies that the instruction reached the execute stage. The cycles performed by the previous instruction are assigned to the top frame,
+  * after it the pending calls and returns and the vectors entries are performed. The cycles before the first instruction are assigned to it.
+  *
+  * @param pc the memory address of the instruction.
+  * @param opcode the opcode id of the instruction.
+  * @param cycle the cycle number.
+  */
+ public final void execute(int pc,int opcode,long cycle)
+ {
+  boolean first;
+  long address;
+  int kind;
+  int word;
+
+  address = (long)pc & 0xffffffffL;
+  first = depth == 0;
+  if(first)
+  {
+   functions = system.getFunction_name().size();
+   self_cycles = new long[functions + 1];
+   self_instructions = new long[functions + 1];
+   push(function(address),NORMAL,-1,last_cycle);
+  }
+  else
+  {
+   assign(cycle);
+   if(pending_call > 0 && --pending_call == 0)
+	 push(function(address),RETURN,pending_address,cycle);
+   if(pending_return > 0 && --pending_return == 0)
+	 pop(address,pending_kind,cycle);
+   if((address == 0x08 || address == 0x10 || address == 0x18 || address == 0x20) && address != last_pc + 4)
+	 vector(address,cycle);
+  }
+  if(frame_vector[depth - 1] && address >= VECTORS_END)
+  {
+   frame_vector[depth - 1] = false;
+   frame_function[depth - 1] = function(address);
+   stack = null;
+  }
+
+  kind = kind(opcode);
+  if(kind != NORMAL)
+  {
+   try
+   {
+	word = memory.getMemoryWord(pc);
+	if(kind == CALL && ((word >>> 21) & 0x1f) == LINK)
+	{
+	 pending_call = 2;
+	 pending_address = address + 8;
+	}
+	else if(kind == RETURN && ((word >>> 16) & 0x1f) == LINK || kind > RETURN)
+	{
+	 pending_return = 2;
+	 pending_kind = kind;
+	}
+   }
+   catch(MemoryException e)
+   {
+   }
+  }
+  last_pc = address;
+  if(!first)
+	last_cycle = cycle;
+ }
+
+ /**
+  * Notifies that the profile simulation ended. The cycles performed by the last instruction are assigned and all the frames are popped.
+  *
+  * @param cycle the cycle number.
+  */
+ public final void end(long cycle)
+ {
+  if(depth == 0)
+	return;
+  assign(cycle);
+  while(depth > 1)
+	popFrame(cycle);
+  last_cycle = cycle;
+ }
+
+ // -----------------------------------------
+ // methods used to save the call graph files
+ // -----------------------------------------
+
+ /**
+  * Saves the call graph in the callgrind file and the remaining call stacks in the folded stacks file.
+  *
+  * @throws IOException if any error occurs when save to the output files.
+  */
+ public final void close() throws IOException
+ {
+  PrintStream output;
+  Iterator<Map.Entry<Long,long[]>> iterator;
+  Map.Entry<Long,long[]> entry;
+  long[][] edge;
+  long[] keys;
+  long total_cycles;
+  long total_instructions;
+  int caller;
+  int aux_a;
+  int aux_b;
+
+  if(folded != null)
+  {
+   flush();
+   folded.close();
+   if(folded.checkError() && error == null)
+	 error = new IOException("the folded stacks file can't be saved.");
+  }
+  if(error != null)
+	throw error;
+  if(callgrind_file == null || depth == 0)
+	return;
+
+  keys = new long[edges.size()];
+  edge = new long[edges.size()][];
+  iterator = edges.entrySet().iterator();
+  for(aux_a = 0;iterator.hasNext();aux_a++)
+  {
+   entry = iterator.next();
+   keys[aux_a] = entry.getKey();
+  }
+  Arrays.sort(keys);
+  for(aux_a = 0;aux_a < keys.length;aux_a++)
+	edge[aux_a] = edges.get(keys[aux_a]);
+
+  total_cycles = 0;
+  total_instructions = 0;
+  for(aux_a = 0;aux_a <= functions;aux_a++)
+  {
+   total_cycles = total_cycles + self_cycles[aux_a];
+   total_instructions = total_instructions + self_instructions[aux_a];
+  }
+
+  output = new PrintStream(new BufferedOutputStream(new FileOutputStream(callgrind_file),1 << 16));
+  output.println("# callgrind format");
+  output.println("version: 1");
+  output.println("creator: " + Configuration.program_name + " " + Configuration.version);
+  output.println("cmd: " + binary_file);
+  output.println("positions: line");
+  output.println("events: Cycles Instructions");
+  output.println("summary: " + total_cycles + " " + total_instructions);
+  output.println("");
+  output.println("fl=" + binary_file);
+  aux_b = 0;
+  for(caller = 0;caller <= functions;caller++)
+  {
+   if(self_cycles[caller] == 0 && self_instructions[caller] == 0 && (aux_b == keys.length || (keys[aux_b] >>> 32) != caller))
+	 continue;
+   output.println("fn=" + name(caller));
+   output.println("0 " + self_cycles[caller] + " " + self_instructions[caller]);
+   for(;aux_b < keys.length && (keys[aux_b] >>> 32) == caller;aux_b++)
+   {
+	output.println("cfn=" + name((int)(keys[aux_b] & 0xffffffffL)));
+	output.println("calls=" + edge[aux_b][0] + " 0");
+	output.println("0 " + edge[aux_b][1] + " " + edge[aux_b][2]);
+   }
+   output.println("");
+  }
+  output.close();
+  if(output.checkError())
+	throw new IOException("the callgrind file can't be saved.");
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Assigns the cycles and the instruction performed by the previous instruction to the function of the top frame and to the current call stack.
+  *
+  * @param cycle the cycle number.
+  */
+ private final void assign(long cycle)
+ {
+  long[] value;
+
+  self_cycles[frame_function[depth - 1]] += cycle - last_cycle;
+  self_instructions[frame_function[depth - 1]]++;
+  instructions++;
+  if(folded == null)
+	return;
+  if(stack == null)
+	stack = stack();
+  value = stacks.get(stack);
+  if(value == null)
+  {
+   if(stacks.size() >= FOLDED_LIMIT)
+	 flush();
+   value = new long[1];
+   stacks.put(stack,value);
+  }
+  value[0] += cycle - last_cycle;
+ }
+
+ /**
+  * Pushes a frame in the shadow call stack.
+  *
+  * @param function the function of the frame.
+  * @param kind the kind of the return that pops the frame.
+  * @param address the return address of the frame.
+  * @param cycle the cycle number.
+  */
+ private final void push(int function,int kind,long address,long cycle)
+ {
+  if(depth == frame_function.length)
+  {
+   frame_function = Arrays.copyOf(frame_function,depth * 2);
+   frame_kind = Arrays.copyOf(frame_kind,depth * 2);
+   frame_return = Arrays.copyOf(frame_return,depth * 2);
+   frame_cycle = Arrays.copyOf(frame_cycle,depth * 2);
+   frame_instructions = Arrays.copyOf(frame_instructions,depth * 2);
+   frame_vector = Arrays.copyOf(frame_vector,depth * 2);
+  }
+  frame_function[depth] = function;
+  frame_kind[depth] = kind;
+  frame_return[depth] = address;
+  frame_cycle[depth] = cycle;
+  frame_instructions[depth] = instructions;
+  frame_vector[depth] = false;
+  depth++;
+  stack = null;
+ }
+
+ /**
+  * Pushes the frame of an interrupt, exception or break vector entry. The function of the frame is known after the vectors.
+  *
+  * @param address the memory address of the vector.
+  * @param cycle the cycle number.
+  */
+ private final void vector(long address,long cycle)
+ {
+  switch((int)address)
+  {
+   case 0x10:push(functions,RETURN_INTERRUPT,(long)system.getCPUClass().getRegister(14) & 0xffffffffL,cycle); break;
+   case 0x18:push(functions,RETURN_BREAK,(long)system.getCPUClass().getRegister(16) & 0xffffffffL,cycle); break;
+   default:  push(functions,RETURN_EXCEPTION,(long)system.getCPUClass().getRegister(17) & 0xffffffffL,cycle);
+  }
+  frame_vector[depth - 1] = true;
+ }
+
+ /**
+  * Pops the frames of the return performed to the memory address. The frames are popped until the frame with the return address,
+  * if it doesn't exist only the top frame is popped if it was pushed by the same kind of call.
+  *
+  * @param address the memory address where the return was performed.
+  * @param kind the kind of the return.
+  * @param cycle the cycle number.
+  */
+ private final void pop(long address,int kind,long cycle)
+ {
+  int aux;
+
+  for(aux = depth - 1;aux > 0;aux--)
+  {
+   if(frame_return[aux] == address)
+   {
+	while(depth > aux)
+	  popFrame(cycle);
+	return;
+   }
+  }
+  if(depth > 1 && frame_kind[depth - 1] == kind)
+	popFrame(cycle);
+ }
+
+ /**
+  * Pops the top frame of the shadow call stack and adds its inclusive cycles and instructions to the call edge.
+  *
+  * @param cycle the cycle number.
+  */
+ private final void popFrame(long cycle)
+ {
+  long[] value;
+  long key;
+
+  depth--;
+  key = ((long)frame_function[depth - 1] << 32) | frame_function[depth];
+  value = edges.get(key);
+  if(value == null)
+  {
+   value = new long[3];
+   edges.put(key,value);
+  }
+  value[0]++;
+  value[1] += cycle - frame_cycle[depth];
+  value[2] += instructions - frame_instructions[depth];
+  stack = null;
+ }
+
+ /**
+  * Saves the call stacks kept in memory in the folded stacks file.
+  */
+ private final void flush()
+ {
+  Iterator<Map.Entry<String,long[]>> iterator;
+  Map.Entry<String,long[]> entry;
+
+  iterator = stacks.entrySet().iterator();
+  while(iterator.hasNext())
+  {
+   entry = iterator.next();
+   if(entry.getValue()[0] != 0)
+	 folded.println(entry.getKey() + " " + entry.getValue()[0]);
+  }
+  stacks.clear();
+ }
+
+ /**
+  * Returns the current call stack in the folded stacks format, the function names from the bottom to the top separated by semicolons.
+  *
+  * @return the current call stack.
+  */
+ private final String stack()
+ {
+  StringBuilder builder;
+  int aux;
+
+  builder = new StringBuilder();
+  for(aux = 0;aux < depth;aux++)
+  {
+   if(aux > 0)
+	 builder.append(';');
+   builder.append(name(frame_function[aux]));
+  }
+  return builder.toString();
+ }
+
+ /**
+  * Returns the instruction kind of the opcode id.
+  *
+  * @param opcode the opcode id.
+  * @return the instruction kind.
+  */
+ private final int kind(int opcode)
+ {
+  String name;
+  int aux;
+
+  if(opcode >= opcode_kind.length)
+  {
+   aux = opcode_kind.length;
+   opcode_kind = Arrays.copyOf(opcode_kind,system.getOpcodes());
+   for(;aux < opcode_kind.length;aux++)
+   {
+	name = system.getOpcode_name(aux);
+	if(name.equals("brlid") || name.equals("brld") || name.equals("brald") || name.equals("bralid"))
+	  opcode_kind[aux] = CALL;
+	else if(name.equals("rtsd"))
+	  opcode_kind[aux] = RETURN;
+	else if(name.equals("rtid"))
+	  opcode_kind[aux] = RETURN_INTERRUPT;
+	else if(name.equals("rted"))
+	  opcode_kind[aux] = RETURN_EXCEPTION;
+	else if(name.equals("rtbd"))
+	  opcode_kind[aux] = RETURN_BREAK;
+   }
+  }
+  return opcode_kind[opcode];
+ }
+
+ /**
+  * Returns the function of the memory address.
+  *
+  * @param address the memory address.
+  * @return the function number, the unknown function if the memory address doesn't belong to a function.
+  */
+ private final int function(long address)
+ {
+  int function;
+
+  function = system.getFunction(address);
+  return function < 0 ? functions : function;
+ }
+
+ /**
+  * Returns the name of the function.
+  *
+  * @param function the function number.
+  * @return the name of the function.
+  */
+ private final String name(int function)
+ {
+  if(function == functions)
+	return "<unknown>";
+  return system.getFunction_name().get(function);
+ }
+}
@@ -0,0 +1,398 @@
+package tools;
+
+import java.text.*;
+import java.util.*;
+import java.io.*;
+
+import system.memory.*;
+import system.file.*;
+import system.cpu.*;
+import system.*;
+
+/**
+ * The hot spot profiler class. This class counts the executions and the cycles of each instruction during the profile simulation, in dense
+ * arrays indexed by the memory address over the code range of the functions. The counters are assigned to the source lines with the line
+ * number information of the elf binary file (DWARF .debug_line or stabs), the report has the hottest lines, the hottest instructions and
+ * the source files annotated with the counters of each line.
+ */
+public final class PrfHotspot extends ProfileListener
+{
+ /** The maximum number of instructions covered by the counters. */
+ private static final long COUNTERS_LIMIT = 1L << 22;
+ /** The system. */
+ private SysteM system;
+ /** The elf binary file (path and name). */
+ private String binary_file;
+ /** The hot spot output file (path and name). */
+ private String hotspot_file;
+ /** The number of lines and instructions in the hottest lists. */
+ private int hotspot_lines;
+ /** The line number information of the elf binary file. */
+ private DebugLineParser debug_line;
+ /** The lowest memory address of the counters. */
+ private long base;
+ /** The number of instructions covered by the counters, the counter with this index has the instructions outside the code range. */
+ private int size;
+ /** The number of executions of each instruction. */
+ private long[] executions;
+ /** The cycles of each instruction. */
+ private long[] cycles;
+ /** The counter index of the previous instruction, -1 if doesn't exist. */
+ private int last_index = -1;
+ /** The cycle number of the previous instruction. */
+ private long last_cycle;
+
+ /**
+  * Instantiates a new hot spot profiler.
+  *
+  * @param system the system.
+  * @param binary_file the elf binary file (path and name).
+  * @param hotspot_file the hot spot output file (path and name).
+  * @param hotspot_lines the number of lines and instructions in the hottest lists.
+  * @throws DebugLineParserException if any error occurs when load the line number information of the elf binary file.
+  */
+ public PrfHotspot(SysteM system,String binary_file,String hotspot_file,int hotspot_lines) throws DebugLineParserException
+ {
+  Map<Integer,Long> function_begin;
+  Map<Integer,Long> function_end;
+  long begin;
+  long end;
+  int aux;
+
+  this.system = system;
+  this.binary_file = binary_file;
+  this.hotspot_file = hotspot_file;
+  this.hotspot_lines = hotspot_lines;
+  debug_line = new DebugLineParser();
+  debug_line.load(binary_file);
+
+  function_begin = system.getFunction_begin();
+  function_end = system.getFunction_end();
+  begin = Long.MAX_VALUE;
+  end = -1;
+  for(aux = 0;aux < function_begin.size();aux++)
+  {
+   begin = Math.min(begin,function_begin.get(aux) & ~3L);
+   end = Math.max(end,function_end.get(aux));
+  }
+  if(end < begin || ((end - begin) >>> 2) >= COUNTERS_LIMIT)
+  {
+   begin = 0;
+   end = -1;
+  }
+  base = begin;
+  size = (int)((end - begin + 1) >>> 2);
+  executions = new long[size + 1];
+  cycles = new long[size + 1];
+ }
+
+ // -----------------------------------
+ // methods used to notify the listener
+ // -----------------------------------
+
+ /**
+  * Notifies that the profile simulation started.
+  *
+  * @param cycle the cycle number.
+  */
+ public final void begin(long cycle)
+ {
+  last_cycle = cycle;
+ }
+
+ /**
+  * Notifies that the instruction reached the execute stage. The cycles performed by the previous instruction are assigned to it,
+  * the cycles before the first instruction are assigned to the first instruction.
+  *
+  * @param pc the memory address of the instruction.
+  * @param opcode the opcode id of the instruction.
+  * @param cycle the cycle number.
+  */
+ public final void execute(int pc,int opcode,long cycle)
+ {
+  long offset;
+
+  if(last_index >= 0)
+  {
+   cycles[last_index] += cycle - last_cycle;
+   last_cycle = cycle;
+  }
+  offset = (((long)pc & 0xffffffffL) - base) >>> 2;
+  last_index = offset < size ? (int)offset : size;
+  executions[last_index]++;
+ }
+
+ /**
+  * Notifies that the profile simulation ended. The cycles performed by the last instruction are assigned to it.
+  *
+  * @param cycle the cycle number.
+  */
+ public final void end(long cycle)
+ {
+  if(last_index >= 0)
+	cycles[last_index] += cycle - last_cycle;
+  last_index = -1;
+  last_cycle = cycle;
+ }
+
+ // -------------------------------------
+ // method used to save the hot spot file
+ // -------------------------------------
+
+ /**
+  * Saves the hottest lines, the hottest instructions and the annotated source files in the hot spot output file.
+  *
+  * @throws IOException if any error occurs when save the hot spot output file.
+  */
+ public final void close() throws IOException
+ {
+  final Map<Long,long[]> lines;
+  List<String> source_name;
+  PrintStream output;
+  Long[] keys;
+  long[] value;
+  long total_cycles;
+  long total_executions;
+  long key;
+  int line;
+  int aux;
+
+  source_name = debug_line.getSource_name();
+  total_cycles = 0;
+  total_executions = 0;
+  for(aux = 0;aux <= size;aux++)
+  {
+   total_cycles = total_cycles + cycles[aux];
+   total_executions = total_executions + executions[aux];
+  }
+
+  // assign the counters to the source lines, the key is the source file and the line number
+  lines = new HashMap<Long,long[]>();
+  for(aux = 0;aux < size;aux++)
+  {
+   if(executions[aux] == 0)
+	 continue;
+   line = debug_line.findLine(base + aux * 4L);
+   if(line < 0)
+	 continue;
+   key = ((long)debug_line.getLine_file(line) << 32) | debug_line.getLine_number(line);
+   value = lines.get(key);
+   if(value == null)
+   {
+	value = new long[]{0,0,base + aux * 4L};
+	lines.put(key,value);
+   }
+   value[0] += cycles[aux];
+   value[1] += executions[aux];
+  }
+
+  output = new PrintStream(new BufferedOutputStream(new FileOutputStream(hotspot_file),1 << 16));
+  output.println("Binary file");
+  output.println("");
+  output.println(" " + binary_file);
+  output.println("");
+  output.println("");
+  output.println("Performance");
+  output.println("");
+  output.println(" " + "instructions: " + Util.toDecStringSpace(total_executions,12));
+  output.println(" " + "cycles      : " + Util.toDecStringSpace(total_cycles,12));
+  output.println(" " + "lines       : " + Util.toDecStringSpace(debug_line.getNumberOfLines(),12));
+  output.println("");
+  output.println("");
+
+  output.println("Hot lines");
+  output.println("");
+  if(lines.size() == 0)
+	output.println(" the binary file doesn't have line number information (compile with -g).");
+  else
+  {
+   output.println("    %         cycles   executions  line");
+   keys = lines.keySet().toArray(new Long[lines.size()]);
+   Arrays.sort(keys,new Comparator<Long>()
+   {
+	public int compare(Long a,Long b)
+	{
+	 if(lines.get(a)[0] != lines.get(b)[0])
+	   return lines.get(a)[0] > lines.get(b)[0] ? -1 : 1;
+	 return a.compareTo(b);
+	}
+   });
+   for(aux = 0;aux < keys.length && aux < hotspot_lines;aux++)
+   {
+	value = lines.get(keys[aux]);
+	output.println(" " + percent(value[0],total_cycles) + " " + Util.toDecStringSpace(value[0],14) + " " + Util.toDecStringSpace(value[1],12) + "  " +
+			       name(source_name.get((int)(keys[aux] >>> 32))) + ":" + (keys[aux] & 0xffffffffL) + " (" + function(value[2]) + ")");
+   }
+  }
+  output.println("");
+  output.println("");
+
+  saveInstructions(output,total_cycles);
+
+  output.println("Annotated source");
+  for(aux = 0;aux < source_name.size();aux++)
+	saveSource(output,lines,aux);
+  output.println("");
+  output.println("");
+
+  output.close();
+  if(output.checkError())
+	throw new IOException("can't write the file.");
+ }
+
+ /**
+  * Saves the hottest instructions with the function and the disassembly.
+  *
+  * @param output the hot spot output file.
+  * @param total_cycles the cycles of all the instructions.
+  */
+ private final void saveInstructions(PrintStream output,long total_cycles)
+ {
+  InstructionSetArchitecture inst_set_arq;
+  Memory memory;
+  Integer[] hottest;
+  String instruction;
+  int line;
+  int aux;
+
+  inst_set_arq = system.getCPUClass().getInstructionSetArchitectureClass();
+  memory = system.getMemoryClass();
+  hottest = new Integer[size];
+  for(aux = 0;aux < size;aux++)
+	hottest[aux] = aux;
+  Arrays.sort(hottest,new Comparator<Integer>()
+  {
+   public int compare(Integer a,Integer b)
+   {
+	if(cycles[a] != cycles[b])
+	  return cycles[a] > cycles[b] ? -1 : 1;
+	return a - b;
+   }
+  });
+
+  output.println("Hot instructions");
+  output.println("");
+  output.println("    %         cycles   executions  address     instruction");
+  for(aux = 0;aux < hottest.length && aux < hotspot_lines && executions[hottest[aux]] != 0;aux++)
+  {
+   try
+   {
+	instruction = inst_set_arq.toString(memory.getMemoryWord((int)(base + hottest[aux] * 4L)));
+   }
+   catch(MemoryException e)
+   {
+	instruction = "?";
+   }
+   line = debug_line.findLine(base + hottest[aux] * 4L);
+   output.println(" " + percent(cycles[hottest[aux]],total_cycles) + " " + Util.toDecStringSpace(cycles[hottest[aux]],14) + " " +
+		          Util.toDecStringSpace(executions[hottest[aux]],12) + "  0x" + Util.toHexString((int)(base + hottest[aux] * 4L),8) + "  " +
+		          Util.toStringFixed(instruction,28) + " " + function(base + hottest[aux] * 4L) +
+		          (line < 0 ? "" : " " + name(debug_line.getSource_name().get(debug_line.getLine_file(line))) + ":" + debug_line.getLine_number(line)));
+  }
+  if(executions[size] != 0)
+	output.println(" " + percent(cycles[size],total_cycles) + " " + Util.toDecStringSpace(cycles[size],14) + " " + Util.toDecStringSpace(executions[size],12) + "  outside of the functions");
+  output.println("");
+  output.println("");
+ }
+
+ /**
+  * Saves the source file annotated with the cycles and the executions of each line. The source file is searched in the path of the
+  * line number information and in the folder of the elf binary file, if isn't found only the lines executed are saved.
+  *
+  * @param output the hot spot output file.
+  * @param lines the counters of the source lines.
+  * @param source the source file index.
+  */
+ private final void saveSource(PrintStream output,Map<Long,long[]> lines,int source)
+ {
+  BufferedReader input;
+  List<Integer> executed;
+  String path;
+  String text;
+  File file;
+  long[] value;
+  int number;
+
+  executed = new ArrayList<Integer>();
+  for(Long key : lines.keySet())
+  {
+   if((key >>> 32) == source)
+	 executed.add((int)(key & 0xffffffffL));
+  }
+  if(executed.size() == 0)
+	return;
+  Collections.sort(executed);
+
+  path = debug_line.getSource_name().get(source);
+  file = new File(path);
+  if(!file.isFile())
+	file = new File(new File(binary_file).getAbsoluteFile().getParentFile(),name(path));
+  output.println("");
+  output.println(" " + path);
+  output.println("");
+  try
+  {
+   input = new BufferedReader(new FileReader(file));
+   for(number = 1;(text = input.readLine()) != null;number++)
+   {
+	value = lines.get(((long)source << 32) | number);
+	if(value == null)
+	  output.println("                            " + Util.toDecStringSpace(number,6) + "  " + text);
+	else
+	  output.println(" " + Util.toDecStringSpace(value[0],14) + Util.toDecStringSpace(value[1],12) + " " + Util.toDecStringSpace(number,6) + "  " + text);
+   }
+   input.close();
+  }
+  catch(IOException e)
+  {
+   output.println(" the source file isn't found, only the lines executed are shown.");
+   output.println("");
+   for(number = 0;number < executed.size();number++)
+   {
+	value = lines.get(((long)source << 32) | executed.get(number));
+	output.println(" " + Util.toDecStringSpace(value[0],14) + Util.toDecStringSpace(value[1],12) + " " + Util.toDecStringSpace(executed.get(number),6));
+   }
+  }
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Returns the percentage of the cycles, with two decimal places.
+  *
+  * @param value the cycles.
+  * @param total the cycles of all the instructions.
+  * @return the percentage of the cycles.
+  */
+ private final String percent(long value,long total)
+ {
+  return Util.toStringSpace(new DecimalFormat("0.00").format(total == 0 ? 0 : (float)value / (float)total * 100),6);
+ }
+
+ /**
+  * Returns the name of the function of the memory address.
+  *
+  * @param address the memory address.
+  * @return the name of the function, ? if the memory address is outside of the functions.
+  */
+ private final String function(long address)
+ {
+  int function;
+
+  function = system.getFunction(address);
+  return function < 0 ? "?" : system.getFunction_name().get(function);
+ }
+
+ /**
+  * Returns the name of the source file without the path.
+  *
+  * @param path the source file (path and name).
+  * @return the name of the source file.
+  */
+ private final String name(String path)
+ {
+  return path.substring(path.lastIndexOf('/') + 1);
+ }
+}
@@ -1,6 +1,7 @@
 package tools;
 
 import system.*;
+import system.cpu.*;
 
 /**
  * The simulator mode class. This class performs the simulator mode.
@@ -9,21 +10,34 @@ public class Sim
 {
  /** The system. */
  private SysteM system;
+ /** The warmup condition, where the cycle accurate simulation starts (memory address, number of instructions or function name). Null if the simulation is all cycle accurate. */
+ private String warmup;
+ /** The checkpoint file (path and name) where the state of the simulation is saved after the warmup. Null if the checkpoint isn't saved. */
+ private String checkpoint_file;
  
  /**
   * Instantiates a new simulator mode.
   *
   * @param config_file the XML system configuration file (path and name).
   * @param binary_file the elf binary file to be simulated (path and name).
+  * @param engine the simulation engine of the cpu (cycle, block or jit).
+  * @param warmup the warmup condition, the simulation is performed in the functional mode of the cpu until it. Null if the simulation is all cycle accurate.
+  * @param checkpoint_file the checkpoint file where the state of the simulation is saved after the warmup, the simulation stops after it. Null if the checkpoint isn't saved.
+  * @param restore_file the checkpoint file where the simulation starts. Null if the simulation starts in the reset state.
   * @param events the cpu events flag.<p>
   * false - doesn't notify if any cpu events occur.<br>
   * true - notify if any cpu events occur.
   */
- public Sim(String config_file,String binary_file,boolean events)
+ public Sim(String config_file,String binary_file,String engine,String warmup,String checkpoint_file,String restore_file,boolean events)
  {
   try
   {
+   this.warmup = warmup;
+   this.checkpoint_file = checkpoint_file;
    system = new SysteM(config_file,binary_file,events,false);
+   system.getCPUClass().setEngine(engine);
+   if(restore_file != null)
+	 system.restore(restore_file);
   }
   catch(SysteMException e)
   {
@@ -32,6 +46,13 @@ public class Sim
    System.out.println("");
    System.exit(0);
   }  
+  catch(CPUException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }  
  }
  
  // -------------------------------------
@@ -52,7 +73,8 @@ public class Sim
   
   tab();
   time_begin = System.nanoTime();
-  system.continue_();
+  if(warmup() == Sys_Status.NORMAL && checkpoint_file == null)
+    system.continue_();
   time_end  = System.nanoTime();
   
   time_simulation = (time_end - time_begin) / 1E9f;
@@ -70,6 +92,12 @@ public class Sim
   System.out.println(" " + "simulation  : " + Util.toDecStringSpace(time_simulation,12) + "s");
   System.out.println(" " + "real        : " + Util.toDecStringSpace(time_real,12)      + "s");
   System.out.println(" " + "ratio       : " + Util.toDecStringSpace(ratio,12));
+  if(system.getMemoryClass().getLazy_decode())
+	System.out.println(" " + "<decodes>   : " + Util.toDecStringSpace(system.getMemoryClass().getDecodes_avoided(),12) + " avoided");
+  system.getMemoryClass().showHeap();
+  system.getCPUClass().showEngine();
+  if(checkpoint_file != null)
+	checkpoint();
   System.out.println("");
   System.exit(0);
  }
@@ -87,4 +115,45 @@ public class Sim
   System.out.print("--------------------------------------------------------------------------------");
   System.out.println("");
  }
+ 
+ /**
+  * Performs the simulation in the functional mode of the cpu until the warmup condition, where the cycle accurate simulation starts.
+  *
+  * @return the system status.
+  */
+ private final int warmup()
+ {
+  if(warmup == null)
+	return Sys_Status.NORMAL;
+  try
+  {
+   return system.warmup(warmup);
+  }
+  catch(SysteMException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+  return Sys_Status.STOP;
+ }
+ 
+ /**
+  * Saves the state of the simulation in the checkpoint file.
+  */
+ private final void checkpoint()
+ {
+  try
+  {
+   system.save(checkpoint_file);
+   tab();
+   System.out.println(" " + "Checkpoint saved in the <" + checkpoint_file + "> file.");
+  }
+  catch(SysteMException e)
+  {
+   tab();
+   System.out.println(" " + "!Warning: " + e.getMessage());
+  }
+ }
 }
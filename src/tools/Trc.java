@@ -3,13 +3,17 @@ package tools;
 import java.io.*;
 
 import system.memory.*;
+import system.cpu.*;
 import system.*;
 
 /**
- * The instruction trace mode class. This class implements the instruction trace mode. 
+ * The instruction trace mode class. This class implements the instruction trace mode. The binary trace is recorded when each instruction reaches
+ * the execute stage, the register written by the previous instruction is decoded from its instruction word and its data memory access is read from the memory system.
  */
-public class Trc 
+public class Trc extends TraceListener
 {
+ /** The number of entries of the decoded instructions cache, a power of two. */
+ private static final int DECODED_SIZE = 4096;
  /** The system. */
  private SysteM system;
  /** The system XML configuration file (path and name). */
@@ -18,6 +22,43 @@ public class Trc
  private String trace_file;
  /** The elf binary file (path and name). */
  private String binary_file;
+ /** The warmup condition, where the cycle accurate simulation starts (memory address, number of instructions or function name). Null if the simulation is all cycle accurate. */
+ private String warmup;
+ /** The binary trace flag.<p>
+  *  false - the trace is saved in the text format.<br>
+  *  true - the trace is saved in the binary format. */
+ private boolean trace_binary;
+ /** The compressed trace flag.<p>
+  *  false - the binary trace records are saved with the fixed width.<br>
+  *  true - the binary trace records are delta encoded and compressed. */
+ private boolean trace_compressed;
+ /** The binary trace writer, null if the trace is saved in the text format. */
+ private TrcWriter trace_writer;
+ /** The trace filter, the start and stop conditions and the address ranges of the saved instructions. Null if all the instructions are saved. */
+ private TrcFilter trace_filter;
+ /** The pending flag, true if the instruction being recorded in the binary trace was accepted by the trace filter. */
+ private boolean pending;
+ /** The cycle number where the instruction being recorded reached the execute stage. */
+ private long pending_cycle;
+ /** The memory address of the instruction being recorded. */
+ private int pending_pc;
+ /** The opcode of the instruction being recorded, zero in the compressed binary trace. */
+ private int pending_opcode;
+ /** The general register written by the instruction being recorded, zero if the instruction doesn't write a general register. */
+ private int pending_register;
+ /** The instructions of the decoded instructions cache, indexed by the word address. An entry is valid while the cpu executes the same instruction
+  *  object, a write in the code decodes a new instruction. */
+ private Instruction[] decoded_instruction;
+ /** The instruction words of the decoded instructions cache. */
+ private int[] decoded_word;
+ /** The general registers written by the instructions of the decoded instructions cache. */
+ private int[] decoded_register;
+ /** The number of data memory accesses when the instruction being recorded reached the execute stage. */
+ private long pending_accesses;
+ /** The error occurred when the instruction was read from the memory during the binary trace, null if doesn't exist. */
+ private MemoryException memory_error;
+ /** The error occurred when the record was saved during the binary trace, null if doesn't exist. */
+ private IOException trace_error;
  /** The simulation time. The time spent by the computer to perform the simulation. */
  private float time_simulation;
  /** The begin time. When starts counting the simulation time. */
@@ -37,15 +78,30 @@ public class Trc
   * @param systemconfig_file the XML system configuration file (path and name).
   * @param trace_file the instruction trace file (path and name). Where the results of the instruction trace simulation will be saved.
   * @param binary_file the elf binary file (path and name).
+  * @param warmup the warmup condition, the simulation is performed in the functional mode of the cpu until it. Null if the simulation is all cycle accurate.
+  * @param trace_binary the binary trace flag.<p>
+  * false - the trace is saved in the text format.<br>
+  * true - the trace is saved in the binary format.
+  * @param trace_compressed the compressed trace flag.<p>
+  * false - the binary trace records are saved with the fixed width.<br>
+  * true - the binary trace records are delta encoded and compressed.
+  * @param trace_start the start condition of the trace (memory address, function name, number of instructions or cycle number), null if the trace starts in the first instruction.
+  * @param trace_stop the stop condition of the trace (memory address, function name, number of instructions or cycle number), null if the trace ends in the last instruction.
+  * @param trace_ranges the list of address ranges and function names of the saved instructions, null if all the instructions are saved.
   */
- public Trc(String systemconfig_file,String trace_file,String binary_file)
+ public Trc(String systemconfig_file,String trace_file,String binary_file,String warmup,boolean trace_binary,boolean trace_compressed,String trace_start,String trace_stop,String trace_ranges)
  {
   try
   {
    this.systemconfig_file = systemconfig_file; 
    this.trace_file = trace_file;
    this.binary_file = binary_file;
+   this.warmup = warmup;
+   this.trace_binary = trace_binary || trace_compressed;
+   this.trace_compressed = trace_compressed;
    system = new SysteM(systemconfig_file,binary_file,false,true);
+   if(trace_start != null || trace_stop != null || trace_ranges != null)
+	 trace_filter = new TrcFilter(system,trace_start,trace_stop,trace_ranges);
   }
   catch(SysteMException e)
   {
@@ -65,21 +121,32 @@ public class Trc
   */
  public final void main()
  {	  
-  FileOutputStream file_output;
-  PrintStream output;
+  FileOutputStream file_output = null;
+  PrintStream output = null;
   File file;
 
   file = new File(trace_file);
   try
   {
-   file_output = new FileOutputStream(file);
-   output = new PrintStream(file_output);
-   output.println("Trace");
-   output.println("");
+   if(trace_binary)
+     trace_writer = new TrcWriter(trace_file,systemconfig_file,binary_file,system.getFrequency(),trace_compressed);
+   else
+   {
+	file_output = new FileOutputStream(file);
+	output = new PrintStream(file_output);
+	output.println("Trace");
+	output.println("");
+   }
    
    tab();
    time_begin = System.nanoTime();
-   saveTrace(output);
+   if(warmup() == Sys_Status.NORMAL)
+   {
+	if(trace_binary)
+	  saveBinaryTrace();
+	else
+	  saveTrace(output);
+   }
    time_end  = System.nanoTime();
 
   
@@ -99,6 +166,15 @@ public class Trc
    System.out.println(" " + "real        : " + Util.toDecStringSpace(time_real,12)      + "s");
    System.out.println(" " + "ratio       : " + Util.toDecStringSpace(ratio,12));
  
+   if(trace_binary)
+   {
+	trace_writer.close(system.getCPUClass().getNumberOfInstructions(),system.getNumberOfCycles(),time_simulation);
+	tab();
+	System.out.println(" " + "Trace saved in the <" + trace_file + "> file.");
+	System.out.println("");
+	System.exit(0);
+   }
+   
    output.println("");
    output.println("");
    
@@ -164,7 +240,8 @@ public class Trc
  // ---------------------------------------------
  
  /**
-  * Saves the executed the disassembled instruction in the output file.
+  * Saves the executed the disassembled instruction in the output file. Only the instructions accepted by the trace filter are saved,
+  * the simulation runs without checking each instruction until the start condition and after the stop condition continues without trace.
   *
   * @param output the output file stream.
   * @throws MemoryException if any error occurs when accessing to the memory system.  
@@ -178,15 +255,133 @@ public class Trc
   
   int sys_status;
    
+  sys_status = Sys_Status.NORMAL;
+  if(trace_filter != null)
+	sys_status = trace_filter.start(system);
+  if(sys_status != Sys_Status.NORMAL)
+	return;
   do
   {
    pc = system.getCPUClass().getStageInstruction(3).getPC();
-   value = system.getMemoryClass().getMemoryWord(pc);
-   instruction = system.getCPUClass().getInstructionSetArchitectureClass().toString(value);
-   output.println("0x" + Util.toHexString(pc,8) + "  " + instruction);
+   if(trace_filter == null || trace_filter.trace(system.getNumberOfCycles(),system.getCPUClass().getNumberOfInstructions(),pc))
+   {
+	value = system.getMemoryClass().getMemoryWord(pc);
+	instruction = system.getCPUClass().getInstructionSetArchitectureClass().toString(value);
+	output.println("0x" + Util.toHexString(pc,8) + "  " + instruction);
+   }
    sys_status = system.step();
   }
-  while(sys_status == Sys_Status.NORMAL); 
+  while(sys_status == Sys_Status.NORMAL && (trace_filter == null || !trace_filter.isStopped())); 
+  if(sys_status == Sys_Status.NORMAL)
+	system.continue_();
+ }
+ 
+ /**
+  * Saves the record of each executed instruction in the binary trace file. The record includes the register wrote by the instruction 
+  * and the memory address of the data memory access. Only the instructions accepted by the trace filter are saved, the simulation runs without
+  * checking each instruction until the start condition and after the stop condition continues without trace.
+  *
+  * @throws MemoryException if any error occurs when accessing to the memory system.  
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ private final void saveBinaryTrace() throws MemoryException, IOException
+ { 
+  CPU cpu;
+  
+  int sys_status;
+  
+  sys_status = Sys_Status.NORMAL;
+  if(trace_filter != null)
+	sys_status = trace_filter.start(system);
+  if(sys_status != Sys_Status.NORMAL)
+	return;
+  cpu = system.getCPUClass();
+  decoded_instruction = new Instruction[DECODED_SIZE];
+  decoded_word = new int[DECODED_SIZE];
+  decoded_register = new int[DECODED_SIZE];
+  if(execute(cpu.getStageInstruction(3).getPC(),system.getNumberOfCycles()))
+	sys_status = system.trace(this);
+  if(memory_error != null)
+	throw memory_error;
+  if(trace_error != null)
+	throw trace_error;
+  if(sys_status == Sys_Status.NORMAL)
+	system.continue_();
+ }
+ 
+ /**
+  * Saves the record of the previous instruction, it is complete when the next instruction reaches the execute stage. The instruction is recorded
+  * if is accepted by the trace filter, the general register written by the instruction is decoded from the instruction word. The instruction word
+  * and the register are kept in the decoded instructions cache, the memory is only read when the instruction isn't in the cache.
+  *
+  * @param pc the memory address of the instruction.
+  * @param cycle the cycle number.
+  * @return true if the trace continues, false if the stop condition was reached or an error occurred.
+  */
+ public final boolean execute(int pc,long cycle)
+ {
+  Instruction instruction;
+  Memory memory;
+  int index;
+  
+  if(!record())
+	return false;
+  memory = system.getMemoryClass();
+  pending_accesses = memory.getData_accesses();
+  if(trace_filter != null && !trace_filter.trace(cycle,system.getCPUClass().getNumberOfInstructions(),pc))
+	return !trace_filter.isStopped();
+  instruction = system.getCPUClass().getStageInstruction(3);
+  index = (pc >>> 2) & (DECODED_SIZE - 1);
+  if(decoded_instruction[index] != instruction)
+  {
+   try
+   {
+	decoded_word[index] = memory.getMemoryWord(pc);
+   }
+   catch(MemoryException e)
+   {
+	memory_error = e;
+	return false;
+   }
+   decoded_register[index] = system.getCPUClass().getInstructionSetArchitectureClass().getDestination(decoded_word[index]);
+   decoded_instruction[index] = instruction;
+  }
+  pending_opcode = trace_compressed ? 0 : decoded_word[index];
+  pending_register = decoded_register[index];
+  pending_cycle = cycle;
+  pending_pc = pc;
+  pending = true;
+  return true;
+ }
+ 
+ /**
+  * Saves the record of the instruction being recorded in the binary trace, if it was accepted by the trace filter. The value of the general register
+  * written by the instruction is read from the cpu, the next instruction didn't execute yet.
+  *
+  * @return true if the record was saved, false if an error occurred.
+  */
+ private final boolean record()
+ {
+  Memory memory;
+  int flags;
+  
+  if(!pending)
+	return true;
+  pending = false;
+  memory = system.getMemoryClass();
+  flags = pending_register == 0 ? 0 : TrcWriter.REGISTER | (pending_register << 8);
+  if(memory.getData_accesses() != pending_accesses)
+	flags = flags | TrcWriter.MEMORY;
+  try
+  {
+   trace_writer.record(pending_cycle,pending_pc,pending_opcode,flags,pending_register == 0 ? 0 : system.getCPUClass().getRegister(pending_register),(flags & TrcWriter.MEMORY) != 0 ? memory.getData_address() : 0);
+  }
+  catch(IOException e)
+  {
+   trace_error = e;
+   return false;
+  }
+  return true;
  }
  
  // -------------------
@@ -202,4 +397,27 @@ public class Trc
   System.out.print("--------------------------------------------------------------------------------");
   System.out.println("");
  }
+ 
+ /**
+  * Performs the simulation in the functional mode of the cpu until the warmup condition, where the cycle accurate simulation starts.
+  *
+  * @return the system status.
+  */
+ private final int warmup()
+ {
+  if(warmup == null)
+	return Sys_Status.NORMAL;
+  try
+  {
+   return system.warmup(warmup);
+  }
+  catch(SysteMException e)
+  {
+   System.out.println("");
+   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+  return Sys_Status.STOP;
+ }
 }
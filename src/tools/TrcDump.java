@@ -0,0 +1,353 @@
+package tools;
+
+import java.nio.channels.*;
+import java.util.zip.*;
+import java.nio.*;
+import java.io.*;
+
+import system.memory.*;
+import system.cpu.*;
+import system.*;
+
+/**
+ * The trace dump mode class. This class implements the trace dump mode, converts the binary trace file to the text format of the instruction trace mode.
+ * The opcodes of the compressed binary trace file are recovered from the elf binary file.
+ */
+public class TrcDump
+{
+ /** The system XML configuration file (path and name), null to use the file saved in the binary trace file. */
+ private String systemconfig_file;
+ /** The instruction trace output file (path and name). */
+ private String trace_file;
+ /** The binary trace file (path and name). */
+ private String binary_trace_file;
+
+ /**
+  * Instantiates a new trace dump mode.
+  *
+  * @param systemconfig_file the XML system configuration file (path and name), null to use the file saved in the binary trace file.
+  * @param trace_file the instruction trace file (path and name). Where the instruction trace will be saved in the text format.
+  * @param binary_trace_file the binary trace file (path and name).
+  */
+ public TrcDump(String systemconfig_file,String trace_file,String binary_trace_file)
+ {
+  this.systemconfig_file = systemconfig_file;
+  this.trace_file = trace_file;
+  this.binary_trace_file = binary_trace_file;
+ }
+
+ // ------------------------------------------
+ // method used to perform the trace dump path
+ // ------------------------------------------
+
+ /**
+  * This method loads the binary trace file and saves it in the output file with the text format of the instruction trace mode.
+  */
+ public final void main()
+ {
+  FileOutputStream file_output;
+  RandomAccessFile input;
+  PrintStream output;
+  SysteM system;
+  String binary_file;
+  String config_file;
+  float frequency;
+  float time_simulation;
+  float time_real;
+  float ratio;
+  float cpi;
+  long instructions;
+  long cycles;
+  long records;
+  int version;
+
+  try
+  {
+   input = new RandomAccessFile(binary_trace_file,"r");
+   if(input.length() < 8 + TrcWriter.TRAILER_SIZE || input.readInt() != TrcWriter.TRACE_ID)
+	 throw new IOException("isn't a binary trace file.");
+   version = input.readInt();
+   if(version != TrcWriter.TRACE_VERSION && version != TrcWriter.TRACE_COMPRESSED)
+	 throw new IOException("the version of the binary trace file isn't supported.");
+   config_file = input.readUTF();
+   binary_file = input.readUTF();
+   frequency = input.readFloat();
+
+   if(systemconfig_file == null)
+	 systemconfig_file = config_file;
+   system = new SysteM(systemconfig_file,version == TrcWriter.TRACE_COMPRESSED ? binary_file : null,false,false);
+
+   file_output = new FileOutputStream(trace_file);
+   output = new PrintStream(new BufferedOutputStream(file_output,1 << 16));
+   output.println("Trace");
+   output.println("");
+
+   if(version == TrcWriter.TRACE_COMPRESSED)
+	 records = dumpBlocks(input,output,system);
+   else
+	 records = dumpRecords(input,output,system);
+
+   input.seek(input.length() - TrcWriter.TRAILER_SIZE);
+   instructions = input.readLong();
+   cycles = input.readLong();
+   time_simulation = input.readFloat();
+   if(input.readInt() != TrcWriter.TRACE_ID)
+	 throw new IOException("the binary trace file is truncated.");
+   input.close();
+
+   time_real = cycles / frequency;
+   ratio = (time_simulation - time_real) / time_real;
+   cpi = (float)cycles / (float)instructions;
+
+   output.println("");
+   output.println("");
+
+   output.println("System configuration file");
+   output.println("");
+   output.println(" " + config_file);
+
+   output.println("");
+   output.println("");
+
+   output.println("Binary file");
+   output.println("");
+   output.println(" " + binary_file);
+
+   output.println("");
+   output.println("");
+
+   output.println("Performance");
+   output.println("");
+   output.println(" " + "instructions: " + Util.toDecStringSpace(instructions,12));
+   output.println(" " + "cycles      : " + Util.toDecStringSpace(cycles,12));
+   output.println(" " + "cpi         : " + Util.toDecStringSpace(cpi,12));
+   output.println(" " + "<frequency> : " + Util.toDecStringSpace((float)(frequency / 1E6),12) + "MHz");
+   output.println(" " + "simulation  : " + Util.toDecStringSpace(time_simulation,12) + "s");
+   output.println(" " + "real        : " + Util.toDecStringSpace(time_real,12) + "s");
+   output.println(" " + "ratio       : " + Util.toDecStringSpace(ratio,12));
+
+   output.println("");
+   output.println("");
+
+   output.close();
+
+   tab();
+   System.out.println(" " + "Records     : " + Util.toDecStringSpace(records,12));
+   System.out.println("");
+   System.out.println(" " + "Trace saved in the <" + trace_file + "> file.");
+   System.out.println("");
+   System.exit(0);
+  }
+  catch(MemoryException e)
+  {
+   tab();
+   System.out.println(" " + "!Warning: instruction not exist in memory " + e.getMessage());
+   System.out.println("");
+   System.exit(0);	  
+  }
+  catch(DataFormatException e)
+  {
+   tab();
+   System.out.println(" " + "!Warning: error in <" + binary_trace_file + "> file, " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+  catch(SysteMException e)
+  {
+   tab();
+   System.out.println(" " + "!Warning: " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+  catch(IOException e)
+  {
+   tab();
+   System.out.println(" " + "!Warning: error in <" + binary_trace_file + "> file, " + e.getMessage());
+   System.out.println("");
+   System.exit(0);
+  }
+ }
+
+ // ------------------------------------------------
+ // methods used to convert the binary trace records
+ // ------------------------------------------------
+
+ /**
+  * Saves in the output file the instructions of the fixed width records of the binary trace file.
+  *
+  * @param input the binary trace file, positioned in the first record.
+  * @param output the output file stream.
+  * @param system the system, used to disassemble the instructions.
+  * @return the number of records.
+  * @throws IOException if any error occurs when load the binary trace file.
+  */
+ private final long dumpRecords(RandomAccessFile input,PrintStream output,SysteM system) throws IOException
+ {
+  InstructionSetArchitecture inst_set_arq;
+  ByteBuffer buffer;
+  long records;
+  long aux;
+
+  records = (input.length() - input.getFilePointer() - TrcWriter.TRAILER_SIZE) / TrcWriter.RECORD_SIZE;
+  if(input.getFilePointer() + records * TrcWriter.RECORD_SIZE + TrcWriter.TRAILER_SIZE != input.length())
+	throw new IOException("the binary trace file is truncated.");
+
+  inst_set_arq = system.getCPUClass().getInstructionSetArchitectureClass();
+  buffer = ByteBuffer.allocateDirect(4096 * TrcWriter.RECORD_SIZE);
+  buffer.flip();
+  for(aux = 0;aux < records;aux++)
+  {
+   if(buffer.remaining() < TrcWriter.RECORD_SIZE)
+	 fill(input.getChannel(),buffer);
+   buffer.getLong();
+   output.println("0x" + Util.toHexString(buffer.getInt(),8) + "  " + inst_set_arq.toString(buffer.getInt()));
+   buffer.position(buffer.position() + 12);
+  }
+  return records;
+ }
+
+ /**
+  * Saves in the output file the instructions of the compressed blocks of the binary trace file. The opcodes are recovered from the elf binary file.
+  *
+  * @param input the binary trace file, positioned in the first block.
+  * @param output the output file stream.
+  * @param system the system with the elf binary file loaded, used to recover and disassemble the instructions.
+  * @return the number of records.
+  * @throws IOException if any error occurs when load the binary trace file.
+  * @throws DataFormatException if a block of the binary trace file is corrupted.
+  * @throws MemoryException if the instruction doesn't exist in the memory.
+  */
+ private final long dumpBlocks(RandomAccessFile input,PrintStream output,SysteM system) throws IOException, DataFormatException, MemoryException
+ {
+  InstructionSetArchitecture inst_set_arq;
+  Memory memory;
+  Inflater inflater;
+  ByteBuffer encoded;
+  byte[] compressed;
+  long records;
+  long begin;
+  long end;
+  int number;
+  int length;
+  int size;
+  int prefix;
+  int pc;
+  int aux;
+
+  begin = input.getFilePointer();
+  input.seek(input.length() - TrcWriter.TRAILER_SIZE - 4);
+  end = input.length() - TrcWriter.TRAILER_SIZE - 4 - input.readInt() * 8L;
+  input.seek(begin);
+  inst_set_arq = system.getCPUClass().getInstructionSetArchitectureClass();
+  memory = system.getMemoryClass();
+  inflater = new Inflater();
+  records = 0;
+  while(input.getFilePointer() < end)
+  {
+   if(input.readInt() != TrcWriter.TRACE_SYNC)
+	 throw new IOException("the block sync of the binary trace file is missing.");
+   number = input.readInt();
+   length = input.readInt();
+   size = input.readInt();
+   compressed = new byte[size];
+   input.readFully(compressed);
+
+   encoded = ByteBuffer.allocate(length);
+   inflater.reset();
+   inflater.setInput(compressed);
+   if(inflater.inflate(encoded.array()) != length)
+	 throw new IOException("the binary trace file is truncated.");
+
+   pc = -4;
+   for(aux = 0;aux < number;aux++)
+   {
+	prefix = encoded.get();
+	if((prefix & TrcWriter.NEXT_CYCLE) == 0)
+	  getVarint(encoded);
+	if((prefix & TrcWriter.SEQUENTIAL) == 0)
+	  pc = pc + 4 + unzigzag(getVarint(encoded));
+	else
+	  pc = pc + 4;
+	if((prefix & TrcWriter.REGISTER) != 0)
+	{
+	 if((prefix & 0xf0) == 0xf0)
+	   encoded.get();
+	 getVarint(encoded);
+	}
+	if((prefix & TrcWriter.MEMORY) != 0)
+	  getVarint(encoded);
+	output.println("0x" + Util.toHexString(pc,8) + "  " + inst_set_arq.toString(memory.getMemoryWord(pc)));
+   }
+   records = records + number;
+  }
+  inflater.end();
+  return records;
+ }
+
+ /**
+  * Returns the next unsigned value of the buffer with the variable length encoding, 7 bits in each byte.
+  *
+  * @param buffer the buffer.
+  * @return the value.
+  */
+ private final long getVarint(ByteBuffer buffer)
+ {
+  long value;
+  int shift;
+  int data;
+
+  value = 0;
+  shift = 0;
+  do
+  {
+   data = buffer.get();
+   value = value | ((long)(data & 0x7f) << shift);
+   shift = shift + 7;
+  }
+  while((data & 0x80) != 0);
+  return value;
+ }
+
+ /**
+  * Returns the signed value of a zigzag encoded value.
+  *
+  * @param value the zigzag encoded value.
+  * @return the signed value.
+  */
+ private final int unzigzag(long value)
+ {
+  return (int)(value >>> 1) ^ -(int)(value & 1);
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Reads the next records of the binary trace file to the buffer, the bytes not consumed are kept.
+  *
+  * @param channel the binary trace file channel.
+  * @param buffer the buffer.
+  * @throws IOException if any error occurs when load the binary trace file.
+  */
+ private final void fill(FileChannel channel,ByteBuffer buffer) throws IOException
+ {
+  buffer.compact();
+  while(buffer.position() < TrcWriter.RECORD_SIZE)
+  {
+   if(channel.read(buffer) < 0)
+	 throw new IOException("the binary trace file is truncated.");
+  }
+  buffer.flip();
+ }
+
+ /**
+  * Displays one line on the screen. Is used to separate contents.
+  */
+ private final void tab()
+ {
+  System.out.println("");
+  System.out.print("--------------------------------------------------------------------------------");
+  System.out.println("");
+ }
+}
@@ -0,0 +1,278 @@
+package tools;
+
+import java.util.Map;
+
+import system.cpu.*;
+import system.*;
+
+/**
+ * The trace filter class. This class decides which executed instructions are saved by the instruction trace mode.
+ * The trace starts when the start condition is reached and ends when the stop condition is reached, between them only the instructions
+ * inside the filter address ranges are saved. The conditions are:<p>
+ * 0x... - the memory address (hexadecimal) of the instruction.<br>
+ * decimal number - the number of instructions performed.<br>
+ * c followed by a decimal number - the cycle number.<br>
+ * other - the name of the function (symbol of the elf binary file), the first instruction of the function.<p>
+ * The filter is a list separated by commas of address ranges (0x...-0x...) and function names, it is converted to a bitmap with one bit per instruction.
+ */
+public final class TrcFilter
+{
+ /** The condition type NONE. The condition is always reached. */
+ private static final int NONE        = 0;
+ /** The condition type ADDRESS. The condition is reached in the memory address. */
+ private static final int ADDRESS     = 1;
+ /** The condition type INSTRUCTION. The condition is reached after the number of instructions. */
+ private static final int INSTRUCTION = 2;
+ /** The condition type CYCLE. The condition is reached in the cycle number. */
+ private static final int CYCLE       = 3;
+ /** The maximum number of instructions covered by the filter bitmap. */
+ private static final long BITMAP_LIMIT = 1L << 26;
+ /** The type of the start condition. */
+ private int start_type;
+ /** The value of the start condition. */
+ private long start_value;
+ /** The type of the stop condition. */
+ private int stop_type;
+ /** The value of the stop condition. */
+ private long stop_value;
+ /** The filter bitmap, one bit per instruction from the filter base address. Null if all the instructions are saved. */
+ private long[] bitmap;
+ /** The lowest memory address of the filter bitmap. */
+ private int base;
+ /** The number of instructions covered by the filter bitmap. */
+ private long size;
+ /** The started flag.<p>
+  *  false - the start condition wasn't reached.<br>
+  *  true - the start condition was reached. */
+ private boolean started;
+ /** The stopped flag.<p>
+  *  false - the stop condition wasn't reached.<br>
+  *  true - the stop condition was reached, the trace ended. */
+ private boolean stopped;
+
+ /**
+  * Instantiates a new trace filter.
+  *
+  * @param system the system with the elf binary file loaded, used to resolve the function names.
+  * @param start the start condition, null if the trace starts in the first instruction.
+  * @param stop the stop condition, null if the trace ends in the last instruction.
+  * @param filter the list of address ranges and function names, null if all the instructions are saved.
+  * @throws SysteMException if a condition or the filter isn't valid.
+  */
+ public TrcFilter(SysteM system,String start,String stop,String filter) throws SysteMException
+ {
+  long[] condition;
+
+  condition = condition(system,start);
+  start_type = (int)condition[0];
+  start_value = condition[1];
+  started = start_type == NONE;
+  condition = condition(system,stop);
+  stop_type = (int)condition[0];
+  stop_value = condition[1];
+  if(filter != null)
+	filter(system,filter);
+ }
+
+ // ---------------------------------------
+ // methods used to filter the instructions
+ // ---------------------------------------
+
+ /**
+  * Returns true if the instruction must be saved in the trace. Is called before the instruction is performed, in the order of execution.
+  *
+  * @param cycle the cycle number.
+  * @param instructions the number of instructions performed.
+  * @param pc the memory address of the instruction.
+  * @return true if the instruction must be saved in the trace.
+  */
+ public final boolean trace(long cycle,long instructions,int pc)
+ {
+  long offset;
+
+  if(!started)
+  {
+   if(!reached(start_type,start_value,cycle,instructions,pc))
+	 return false;
+   started = true;
+  }
+  if(stop_type != NONE && reached(stop_type,stop_value,cycle,instructions,pc))
+	stopped = true;
+  if(stopped)
+	return false;
+  if(bitmap == null)
+	return true;
+  offset = ((long)pc - base) & 0xffffffffL;
+  return offset >>> 2 < size && (bitmap[(int)(offset >>> 8)] & (1L << (offset >>> 2))) != 0;
+ }
+
+ /**
+  * Performs the simulation until the start condition without checking each instruction. The simulation stops before the first instruction
+  * which can reach the start condition is in the execute stage, the exact start is decided by the method trace.
+  *
+  * @param system the system.
+  * @return the system status.
+  */
+ public final int start(SysteM system)
+ {
+  CPU cpu;
+  int sys_status;
+
+  cpu = system.getCPUClass();
+  sys_status = Sys_Status.NORMAL;
+  switch(start_type)
+  {
+   case ADDRESS:     if(((long)cpu.getStageInstruction(3).getPC() & 0xffffffffL) != start_value)
+                       sys_status = system.toMemoryAddress((int)start_value);
+                     break;
+   case INSTRUCTION: if(cpu.getNumberOfInstructions() < start_value - 1)
+                       sys_status = system.toInstructionNumber(start_value - 1);
+                     break;
+   case CYCLE:       if(system.getNumberOfCycles() < start_value - 1)
+                       sys_status = system.toCycleNumber(start_value - 1);
+                     break;
+  }
+  while(sys_status == Sys_Status.NORMAL && cpu.getStageInstruction(3).toString().length() == 0)
+	sys_status = system.cycle();
+  return sys_status;
+ }
+
+ /**
+  * Returns true if the stop condition was reached, the next instructions aren't saved.
+  *
+  * @return true if the stop condition was reached.
+  */
+ public final boolean isStopped()
+ {
+  return stopped;
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Returns true if the condition is reached.
+  *
+  * @param type the type of the condition.
+  * @param value the value of the condition.
+  * @param cycle the cycle number.
+  * @param instructions the number of instructions performed.
+  * @param pc the memory address of the instruction.
+  * @return true if the condition is reached.
+  */
+ private final boolean reached(int type,long value,long cycle,long instructions,int pc)
+ {
+  switch(type)
+  {
+   case ADDRESS:     return ((long)pc & 0xffffffffL) == value;
+   case INSTRUCTION: return instructions >= value;
+   case CYCLE:       return cycle >= value;
+   default:          return true;
+  }
+ }
+
+ /**
+  * Decodes one condition.
+  *
+  * @param system the system, used to resolve the function names.
+  * @param condition the condition, null if doesn't exist.
+  * @return the type and the value of the condition.
+  * @throws SysteMException if the condition isn't valid.
+  */
+ private final long[] condition(SysteM system,String condition) throws SysteMException
+ {
+  if(condition == null)
+	return new long[]{NONE,0};
+  try
+  {
+   if(condition.startsWith("0x"))
+	 return new long[]{ADDRESS,Long.parseLong(condition.substring(2),16) & 0xffffffffL};
+   if(condition.matches("[0-9]+"))
+	 return new long[]{INSTRUCTION,Long.parseLong(condition,10)};
+   if(condition.matches("c[0-9]+"))
+	 return new long[]{CYCLE,Long.parseLong(condition.substring(1),10)};
+  }
+  catch(NumberFormatException e)
+  {
+   throw new SysteMException("the trace condition " + condition + " isn't valid.");
+  }
+  return new long[]{ADDRESS,function(system,condition)[0]};
+ }
+
+ /**
+  * Creates the filter bitmap from the list of address ranges and function names.
+  *
+  * @param system the system, used to resolve the function names.
+  * @param filter the list of address ranges and function names.
+  * @throws SysteMException if the filter isn't valid.
+  */
+ private final void filter(SysteM system,String filter) throws SysteMException
+ {
+  String[] entries;
+  long[][] ranges;
+  long address;
+  long begin;
+  long end;
+  int aux;
+
+  entries = filter.split(",");
+  ranges = new long[entries.length][];
+  begin = Long.MAX_VALUE;
+  end = -1;
+  for(aux = 0;aux < entries.length;aux++)
+  {
+   try
+   {
+	if(entries[aux].matches("0x[0-9a-fA-F]+-0x[0-9a-fA-F]+"))
+	  ranges[aux] = new long[]{Long.parseLong(entries[aux].substring(2,entries[aux].indexOf('-')),16) & 0xffffffffL,
+			                   Long.parseLong(entries[aux].substring(entries[aux].indexOf('-') + 3),16) & 0xffffffffL};
+	else if(entries[aux].startsWith("0x"))
+	  throw new SysteMException("the trace filter " + entries[aux] + " isn't valid.");
+	else
+	  ranges[aux] = function(system,entries[aux]);
+   }
+   catch(NumberFormatException e)
+   {
+	throw new SysteMException("the trace filter " + entries[aux] + " isn't valid.");
+   }
+   if(ranges[aux][1] < ranges[aux][0])
+	 throw new SysteMException("the trace filter " + entries[aux] + " isn't valid.");
+   begin = Math.min(begin,ranges[aux][0] & ~3L);
+   end = Math.max(end,ranges[aux][1]);
+  }
+
+  size = ((end - begin) >>> 2) + 1;
+  if(size > BITMAP_LIMIT)
+	throw new SysteMException("the trace filter " + filter + " covers too many instructions.");
+  base = (int)begin;
+  bitmap = new long[(int)((size + 63) >>> 6)];
+  for(aux = 0;aux < ranges.length;aux++)
+  {
+   for(address = (ranges[aux][0] & ~3L) - begin;address <= ranges[aux][1] - begin;address = address + 4)
+	 bitmap[(int)(address >>> 8)] |= 1L << (address >>> 2);
+  }
+ }
+
+ /**
+  * Returns the first and the last memory address of the function.
+  *
+  * @param system the system, used to resolve the function names.
+  * @param name the name of the function.
+  * @return the first and the last memory address of the function.
+  * @throws SysteMException if the function doesn't exist in the binary file.
+  */
+ private final long[] function(SysteM system,String name) throws SysteMException
+ {
+  Map<Integer,String> function_name;
+  int aux;
+
+  function_name = system.getFunction_name();
+  for(aux = 0;aux < function_name.size();aux++)
+  {
+   if(function_name.get(aux).equals(name))
+	 return new long[]{system.getFunction_begin().get(aux),system.getFunction_end().get(aux)};
+  }
+  throw new SysteMException("the function " + name + " doesn't exist in the binary file.");
+ }
+}
@@ -0,0 +1,485 @@
+package tools;
+
+import java.nio.channels.*;
+import java.util.zip.*;
+import java.util.*;
+import java.nio.*;
+import java.io.*;
+
+/**
+ * The binary trace writer class. This class saves the instruction trace in the binary format, each executed instruction is saved in a fixed width record.
+ * The records are stored in a ring buffer of primitive arrays that is drained to the output file by a background thread, the simulation only stores
+ * the fields of each record and waits when the ring buffer is full. The encoding and the compression are performed by the background thread.<p>
+ * The binary trace file is composed by:<br>
+ * header - magic number (int), version (int), system configuration file (UTF), binary file (UTF) and frequency (float).<br>
+ * records - cycle (long), pc (int), opcode (int), flags (int), register value (int) and memory address (int).<br>
+ * trailer - number of instructions (long), number of cycles (long), simulation time (float) and magic number (int).<p>
+ * In the compressed version the records are replaced by blocks, each block is one chunk of the ring buffer compressed by the background thread.
+ * The delta encoding is restarted in each block, so each block is a sync point that can be decoded alone. The opcodes aren't saved, they are
+ * recovered from the elf binary file. The block is composed by a sync number (int), the number of records (int), the encoded size (int),
+ * the compressed size (int) and the compressed records. Each encoded record is composed by:<br>
+ * prefix (byte) - SEQUENTIAL, NEXT_CYCLE, REGISTER and MEMORY flags in the low bits, the register number in the high bits (15 if the register number is 15 or higher).<br>
+ * cycle delta (varint) - only if the cycle isn't the next of the previous record.<br>
+ * pc delta (zigzag varint) - from the sequential next pc of the previous record, only if the pc isn't the sequential next.<br>
+ * register number (byte) - only if the instruction wrote the register and the register number is 15 or higher.<br>
+ * register value delta (zigzag varint) - from the previous value written in the same register in the block, only if the instruction wrote the register.<br>
+ * memory address delta (zigzag varint) - from the memory address of the previous record, only if the instruction accessed to the data memory.<br>
+ * Before the trailer is saved the blocks index, the offset of each block (long) and the number of blocks (int).
+ */
+public final class TrcWriter implements Runnable
+{
+ /** The magic number of the binary trace file. */
+ public static final int TRACE_ID       = 0x46575452;
+ /** The version of the binary trace file. */
+ public static final int TRACE_VERSION  = 1;
+ /** The version of the compressed binary trace file. */
+ public static final int TRACE_COMPRESSED = 3;
+ /** The sync number of the blocks of the compressed binary trace file. */
+ public static final int TRACE_SYNC     = 0x46575342;
+ /** The size of the header of one block of the compressed binary trace file (bytes). */
+ public static final int BLOCK_SIZE     = 16;
+ /** The size of one record of the binary trace file (bytes). */
+ public static final int RECORD_SIZE    = 28;
+ /** The size of the trailer of the binary trace file (bytes). */
+ public static final int TRAILER_SIZE   = 24;
+ /** The record flag REGISTER. The instruction wrote the register, the bits 8 to 12 of the flags are the register number. */
+ public static final int REGISTER       = 0x01;
+ /** The record flag MEMORY. The instruction accessed to the data memory. */
+ public static final int MEMORY         = 0x02;
+ /** The encoded record flag SEQUENTIAL. The pc is the sequential next pc of the previous record. */
+ public static final int SEQUENTIAL     = 0x04;
+ /** The encoded record flag NEXT_CYCLE. The cycle is the next cycle of the previous record. */
+ public static final int NEXT_CYCLE     = 0x08;
+ /** The number of chunks of the ring buffer. */
+ private static final int CHUNKS        = 8;
+ /** The number of records of one chunk of the ring buffer. */
+ private static final int CHUNK_RECORDS = 32768;
+ /** The number of int fields of one record in the ring buffer (pc, opcode, flags, register value and memory address). */
+ private static final int FIELDS        = 5;
+ /** The output file channel. */
+ private FileChannel channel;
+ /** The cycles of the records of the ring buffer, composed by chunks of records. */
+ private long[][] ring_cycles;
+ /** The int fields of the records of the ring buffer, composed by chunks of records. */
+ private int[][] ring_fields;
+ /** The cycles of the chunk of the ring buffer being filled by the simulation. */
+ private long[] cycles;
+ /** The int fields of the chunk of the ring buffer being filled by the simulation. */
+ private int[] fields;
+ /** The number of records of each chunk of the ring buffer. */
+ private int[] chunk_records;
+ /** The number of chunks filled by the simulation. */
+ private long head;
+ /** The number of chunks drained to the output file. */
+ private long tail;
+ /** The closed flag.<p>
+  *  false - the simulation can fill more chunks.<br>
+  *  true - the simulation ended, the background thread drains the remaining chunks and ends. */
+ private boolean closed;
+ /** The error occurred in the background thread, null if doesn't exist. */
+ private IOException error;
+ /** The background thread which drains the ring buffer. */
+ private Thread thread;
+ /** The compressed flag.<p>
+  *  false - the records are saved with the fixed width.<br>
+  *  true - the records are delta encoded and compressed in blocks. */
+ private boolean compressed;
+ /** The number of records of the chunk being filled by the simulation. */
+ private int records;
+ /** The cycle of the previous record of the block. Used by the background thread in the compressed version. */
+ private long last_cycle;
+ /** The pc of the previous record of the block. Used by the background thread in the compressed version. */
+ private int last_pc;
+ /** The memory address of the previous record of the block which accessed to the data memory. Used by the background thread in the compressed version. */
+ private int last_address;
+ /** The previous value written in each general register in the block. Used by the background thread in the compressed version. */
+ private int[] last_values;
+ /** The fixed width records buffer used by the background thread. */
+ private ByteBuffer record_buffer;
+ /** The compressor used by the background thread. */
+ private Deflater deflater;
+ /** The compressed block buffer used by the background thread. */
+ private byte[] block;
+ /** The encoded block buffer used by the background thread. */
+ private byte[] encoded;
+ /** The number of bytes of the encoded block buffer. */
+ private int length;
+ /** The offset of each block saved in the output file. */
+ private long[] index;
+ /** The number of blocks saved in the output file. */
+ private int blocks;
+ /** The offset of the next block in the output file. */
+ private long offset;
+
+ /**
+  * Instantiates a new binary trace writer, saves the header of the binary trace file and starts the background thread.
+  *
+  * @param trace_file the binary trace file (path and name).
+  * @param systemconfig_file the XML system configuration file (path and name).
+  * @param binary_file the elf binary file (path and name).
+  * @param frequency the frequency of the system.
+  * @param compressed the compressed flag.<p>
+  * false - the records are saved with the fixed width.<br>
+  * true - the records are delta encoded and compressed in blocks.
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ public TrcWriter(String trace_file,String systemconfig_file,String binary_file,float frequency,boolean compressed) throws IOException
+ {
+  ByteArrayOutputStream header;
+  DataOutputStream output;
+  int aux;
+
+  header = new ByteArrayOutputStream();
+  output = new DataOutputStream(header);
+  output.writeInt(TRACE_ID);
+  output.writeInt(compressed ? TRACE_COMPRESSED : TRACE_VERSION);
+  output.writeUTF(systemconfig_file);
+  output.writeUTF(binary_file);
+  output.writeFloat(frequency);
+  output.close();
+
+  this.compressed = compressed;
+  channel = new FileOutputStream(trace_file).getChannel();
+  write(ByteBuffer.wrap(header.toByteArray()));
+  offset = header.size();
+  if(compressed)
+  {
+   deflater = new Deflater(Deflater.BEST_SPEED);
+   encoded = new byte[CHUNK_RECORDS * RECORD_SIZE];
+   block = new byte[CHUNK_RECORDS * RECORD_SIZE + 1024];
+   index = new long[64];
+   last_values = new int[32];
+  }
+  else
+	record_buffer = ByteBuffer.allocateDirect(CHUNK_RECORDS * RECORD_SIZE);
+
+  ring_cycles = new long[CHUNKS][CHUNK_RECORDS];
+  ring_fields = new int[CHUNKS][CHUNK_RECORDS * FIELDS];
+  chunk_records = new int[CHUNKS];
+  cycles = ring_cycles[0];
+  fields = ring_fields[0];
+  thread = new Thread(this,"trace writer");
+  thread.setDaemon(true);
+  thread.start();
+ }
+
+ // ---------------------------------------
+ // methods used to save the binary records
+ // ---------------------------------------
+
+ /**
+  * Saves the record of one executed instruction in the ring buffer. The record is encoded by the background thread.
+  *
+  * @param cycle the cycle number where the instruction was in the execute stage.
+  * @param pc the memory address of the instruction.
+  * @param opcode the opcode of the instruction.
+  * @param flags the record flags, REGISTER and MEMORY, and the register number.
+  * @param value the value wrote in the register, zero if the instruction doesn't wrote a register.
+  * @param address the memory address of the data memory access, zero if the instruction doesn't access to the data memory.
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ public final void record(long cycle,int pc,int opcode,int flags,int value,int address) throws IOException
+ {
+  int position;
+
+  position = records * FIELDS;
+  cycles[records] = cycle;
+  fields[position] = pc;
+  fields[position + 1] = opcode;
+  fields[position + 2] = flags;
+  fields[position + 3] = value;
+  fields[position + 4] = address;
+  records++;
+  if(records == CHUNK_RECORDS)
+	publish();
+ }
+
+ /**
+  * Drains the ring buffer, saves the trailer of the binary trace file and closes the output file.
+  *
+  * @param instructions the number of instructions executed.
+  * @param cycles the number of cycles.
+  * @param time_simulation the simulation time.
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ public final void close(long instructions,long cycles,float time_simulation) throws IOException
+ {
+  ByteBuffer trailer;
+  int aux;
+
+  if(records > 0)
+	publish();
+  synchronized(this)
+  {
+   closed = true;
+   notifyAll();
+  }
+  try
+  {
+   thread.join();
+  }
+  catch(InterruptedException e)
+  {
+   throw new IOException("the trace writer was interrupted.");
+  }
+  if(error != null)
+	throw error;
+
+  if(compressed)
+  {
+   deflater.end();
+   trailer = ByteBuffer.allocate(blocks * 8 + 4);
+   for(aux = 0;aux < blocks;aux++)
+	 trailer.putLong(index[aux]);
+   trailer.putInt(blocks);
+   trailer.flip();
+   write(trailer);
+  }
+  trailer = ByteBuffer.allocate(TRAILER_SIZE);
+  trailer.putLong(instructions);
+  trailer.putLong(cycles);
+  trailer.putFloat(time_simulation);
+  trailer.putInt(TRACE_ID);
+  trailer.flip();
+  write(trailer);
+  channel.close();
+ }
+
+ /**
+  * Drains the chunks of the ring buffer to the output file. Method performed by the background thread.
+  */
+ public void run()
+ {
+  int chunk;
+
+  while(true)
+  {
+   synchronized(this)
+   {
+	while(tail == head && !closed)
+	  waitRing();
+	if(tail == head)
+	  return;
+	chunk = (int)(tail % CHUNKS);
+   }
+   try
+   {
+	if(compressed)
+	  compress(ring_cycles[chunk],ring_fields[chunk],chunk_records[chunk]);
+	else
+	  save(ring_cycles[chunk],ring_fields[chunk],chunk_records[chunk]);
+   }
+   catch(IOException e)
+   {
+	error = e;
+   }
+   synchronized(this)
+   {
+	tail++;
+	notifyAll();
+   }
+  }
+ }
+
+ // -----------------------------------------------
+ // methods used to encode and compress the records
+ // -----------------------------------------------
+
+ /**
+  * Saves the fixed width records of one chunk of the ring buffer in the output file. Method performed by the background thread.
+  *
+  * @param cycles the cycles of the records of the chunk.
+  * @param fields the int fields of the records of the chunk.
+  * @param number the number of records of the chunk.
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ private final void save(long[] cycles,int[] fields,int number) throws IOException
+ {
+  int aux;
+
+  record_buffer.clear();
+  for(aux = 0;aux < number;aux++)
+  {
+   record_buffer.putLong(cycles[aux]);
+   record_buffer.putInt(fields[aux * FIELDS]);
+   record_buffer.putInt(fields[aux * FIELDS + 1]);
+   record_buffer.putInt(fields[aux * FIELDS + 2]);
+   record_buffer.putInt(fields[aux * FIELDS + 3]);
+   record_buffer.putInt(fields[aux * FIELDS + 4]);
+  }
+  record_buffer.flip();
+  write(record_buffer);
+ }
+
+ /**
+  * Saves the delta encoded record of one executed instruction in the encoded block buffer. The opcode isn't saved, it is recovered from the elf binary file.
+  * The register value is saved as the difference from the previous value of the register, the loop counters, pointers and stack addresses change by small steps.
+  * Method performed by the background thread.
+  *
+  * @param cycle the cycle number where the instruction was in the execute stage.
+  * @param pc the memory address of the instruction.
+  * @param flags the record flags, REGISTER and MEMORY, and the register number.
+  * @param value the value wrote in the register.
+  * @param address the memory address of the data memory access.
+  */
+ private final void encode(long cycle,int pc,int flags,int value,int address)
+ {
+  int register;
+  int prefix;
+
+  prefix = flags & (REGISTER | MEMORY);
+  register = (flags >>> 8) & 0x1f;
+  if(pc == last_pc + 4)
+	prefix = prefix | SEQUENTIAL;
+  if(cycle == last_cycle + 1)
+	prefix = prefix | NEXT_CYCLE;
+  if((prefix & REGISTER) != 0)
+	prefix = prefix | (Math.min(register,15) << 4);
+  encoded[length++] = (byte)prefix;
+  if((prefix & NEXT_CYCLE) == 0)
+	putVarint(cycle - last_cycle);
+  if((prefix & SEQUENTIAL) == 0)
+	putVarint(zigzag(pc - last_pc - 4));
+  if((prefix & REGISTER) != 0)
+  {
+   if(register >= 15)
+	 encoded[length++] = (byte)register;
+   putVarint(zigzag(value - last_values[register]));
+   last_values[register] = value;
+  }
+  if((prefix & MEMORY) != 0)
+  {
+   putVarint(zigzag(address - last_address));
+   last_address = address;
+  }
+  last_cycle = cycle;
+  last_pc = pc;
+ }
+
+ /**
+  * Encodes and compresses one chunk of the ring buffer and saves it as one block in the output file. The delta encoding is restarted in each block.
+  * Method performed by the background thread.
+  *
+  * @param cycles the cycles of the records of the chunk.
+  * @param fields the int fields of the records of the chunk.
+  * @param number the number of records of the chunk.
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ private final void compress(long[] cycles,int[] fields,int number) throws IOException
+ {
+  ByteBuffer header;
+  int size;
+  int aux;
+
+  length = 0;
+  last_cycle = 0;
+  last_pc = -4;
+  last_address = 0;
+  Arrays.fill(last_values,0);
+  for(aux = 0;aux < number;aux++)
+	encode(cycles[aux],fields[aux * FIELDS],fields[aux * FIELDS + 2],fields[aux * FIELDS + 3],fields[aux * FIELDS + 4]);
+  deflater.reset();
+  deflater.setInput(encoded,0,length);
+  deflater.finish();
+  size = 0;
+  while(!deflater.finished())
+  {
+   if(size == block.length)
+	 block = Arrays.copyOf(block,block.length * 2);
+   size = size + deflater.deflate(block,size,block.length - size);
+  }
+
+  header = ByteBuffer.allocate(BLOCK_SIZE);
+  header.putInt(TRACE_SYNC);
+  header.putInt(number);
+  header.putInt(length);
+  header.putInt(size);
+  header.flip();
+  write(header);
+  write(ByteBuffer.wrap(block,0,size));
+
+  if(blocks == index.length)
+	index = Arrays.copyOf(index,blocks * 2);
+  index[blocks] = offset;
+  blocks++;
+  offset = offset + BLOCK_SIZE + size;
+ }
+
+ /**
+  * Stores an unsigned value in the encoded block buffer with the variable length encoding, 7 bits in each byte.
+  *
+  * @param value the value.
+  */
+ private final void putVarint(long value)
+ {
+  while((value & ~0x7fL) != 0)
+  {
+   encoded[length++] = (byte)((value & 0x7f) | 0x80);
+   value = value >>> 7;
+  }
+  encoded[length++] = (byte)value;
+ }
+
+ /**
+  * Returns the zigzag encoding of a signed value, the small negative and positive values are encoded as small unsigned values.
+  *
+  * @param value the signed value.
+  * @return the zigzag encoded value.
+  */
+ private final long zigzag(int value)
+ {
+  return ((value << 1) ^ (value >> 31)) & 0xffffffffL;
+ }
+
+ // -------------------
+ // methods auxiliaries
+ // -------------------
+
+ /**
+  * Hands the filled chunk to the background thread and waits for an empty chunk if the ring buffer is full.
+  *
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ private final void publish() throws IOException
+ {
+  synchronized(this)
+  {
+   chunk_records[(int)(head % CHUNKS)] = records;
+   records = 0;
+   head++;
+   notifyAll();
+   while(head - tail == CHUNKS)
+	 waitRing();
+  }
+  if(error != null)
+	throw error;
+  cycles = ring_cycles[(int)(head % CHUNKS)];
+  fields = ring_fields[(int)(head % CHUNKS)];
+ }
+
+ /**
+  * Waits for a notification of the other side of the ring buffer.
+  */
+ private final void waitRing()
+ {
+  try
+  {
+   wait();
+  }
+  catch(InterruptedException e)
+  {
+  }
+ }
+
+ /**
+  * Writes all the buffer content to the output file.
+  *
+  * @param buffer the buffer.
+  * @throws IOException if any error occurs when save to the output file.
+  */
+ private final void write(ByteBuffer buffer) throws IOException
+ {
+  while(buffer.hasRemaining())
+	channel.write(buffer);
+ }
+}